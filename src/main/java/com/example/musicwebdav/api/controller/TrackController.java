@@ -3,6 +3,7 @@ package com.example.musicwebdav.api.controller;
 import com.example.musicwebdav.api.request.TrackUpdateRequest;
 import com.example.musicwebdav.api.response.ApiResponse;
 import com.example.musicwebdav.api.response.CoverSessionResponse;
+import com.example.musicwebdav.api.response.FolderResponse;
 import com.example.musicwebdav.api.response.PlaybackSessionResponse;
 import com.example.musicwebdav.api.response.PageResponse;
 import com.example.musicwebdav.api.response.TrackDetailResponse;
@@ -50,11 +51,12 @@ public class TrackController {
             @RequestParam(value = "album", required = false) String album,
             @RequestParam(value = "genre", required = false) String genre,
             @RequestParam(value = "year", required = false) Integer year,
+            @RequestParam(value = "dirId", required = false) Long dirId,
             @RequestParam(value = "sortBy", required = false) String sortBy,
             @RequestParam(value = "sortOrder", required = false) String sortOrder
     ) {
-        return ApiResponse.success(
-                trackQueryService.listTracks(pageNo, pageSize, keyword, artist, album, genre, year, sortBy, sortOrder));
+        return ApiResponse.success(trackQueryService.listTracks(
+                pageNo, pageSize, keyword, artist, album, genre, year, dirId, sortBy, sortOrder));
     }
 
     @GetMapping("/aggregate")
@@ -69,6 +71,13 @@ public class TrackController {
                 trackQueryService.listAggregatedTracks(pageNo, pageSize, keyword, sortBy, sortOrder));
     }
 
+    @GetMapping("/folders")
+    public ApiResponse<List<FolderResponse>> listFolders(
+            @RequestParam("configId") Long configId,
+            @RequestParam(value = "parentId", required = false) Long parentId) {
+        return ApiResponse.success(trackQueryService.listFolders(configId, parentId));
+    }
+
     @GetMapping("/search")
     public ApiResponse<List<TrackResponse>> search(@RequestParam("q") String keyword,
                                                    @RequestParam(value = "limit", required = false) Integer limit) {
@@ -15,5 +15,8 @@ public class AdminWebDavRecoveryRequest {
 
     private String rootPath;
 
+    /** AUTO, ON or OFF; null keeps the current mode. */
+    private String recursiveEtagMode;
+
     private Boolean enabled;
 }
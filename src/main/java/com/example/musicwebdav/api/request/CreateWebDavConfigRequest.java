@@ -21,5 +21,11 @@ public class CreateWebDavConfigRequest {
     /** Optional root path. Empty value means '/' on backend side. */
     private String rootPath;
 
+    /** Optional DEPTH_1 (default) or DEPTH_INFINITY. */
+    private String listingStrategy;
+
+    /** Optional AUTO (default), ON or OFF. */
+    private String recursiveEtagMode;
+
     private Boolean enabled = true;
 }
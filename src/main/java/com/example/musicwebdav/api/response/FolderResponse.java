@@ -0,0 +1,16 @@
+package com.example.musicwebdav.api.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FolderResponse {
+
+    private Long id;
+    private Long parentId;
+    private String name;
+    private String relativePath;
+}
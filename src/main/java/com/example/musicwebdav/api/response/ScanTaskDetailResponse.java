@@ -27,4 +27,8 @@ public class ScanTaskDetailResponse {
     private String lastSyncedDir;
     private Integer progressPct;
     private String errorSummary;
+    /** 0 while running on this node, 1 for the next queued task; null when this node does not hold the task. */
+    private Integer queuePosition;
+    /** Estimated seconds until the task finishes; null when unknown. */
+    private Long etaSeconds;
 }
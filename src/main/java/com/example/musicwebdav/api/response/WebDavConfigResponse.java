@@ -20,6 +20,12 @@ public class WebDavConfigResponse {
 
     private String rootPath;
 
+    private String listingStrategy;
+
+    private String recursiveEtagMode;
+
+    private Integer recursiveEtagDetected;
+
     private Integer enabled;
 
     private LocalDateTime createdAt;
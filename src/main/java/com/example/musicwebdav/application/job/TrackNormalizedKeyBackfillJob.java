@@ -0,0 +1,72 @@
+package com.example.musicwebdav.application.job;
+
+import com.example.musicwebdav.common.util.NormalizedKeyUtil;
+import com.example.musicwebdav.infrastructure.persistence.BatchMapperSession;
+import com.example.musicwebdav.infrastructure.persistence.entity.TrackEntity;
+import com.example.musicwebdav.infrastructure.persistence.mapper.TrackMapper;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Fills track.norm_title / track.norm_artist for rows written before V21. The key folding has no SQL
+ * equivalent, so the migration leaves them NULL and this job walks the table in id order once after startup.
+ * Scans and metadata edits write the keys themselves, so nothing new needs it afterwards.
+ */
+@Component
+public class TrackNormalizedKeyBackfillJob {
+
+    private static final Logger log = LoggerFactory.getLogger(TrackNormalizedKeyBackfillJob.class);
+    private static final int BATCH_SIZE = 500;
+
+    private final TrackMapper trackMapper;
+    private final BatchMapperSession batchMapperSession;
+    private final TransactionTemplate transactionTemplate;
+    private volatile boolean finished;
+
+    public TrackNormalizedKeyBackfillJob(TrackMapper trackMapper,
+                                         BatchMapperSession batchMapperSession,
+                                         PlatformTransactionManager transactionManager) {
+        this.trackMapper = trackMapper;
+        this.batchMapperSession = batchMapperSession;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelay = 60_000L, fixedDelay = 600_000L)
+    public void backfill() {
+        if (finished) {
+            return;
+        }
+        long afterId = 0L;
+        int filled = 0;
+        try {
+            List<TrackEntity> rows;
+            while (!(rows = trackMapper.selectMissingNormalizedKeys(afterId, BATCH_SIZE)).isEmpty()) {
+                for (TrackEntity row : rows) {
+                    row.setNormTitle(NormalizedKeyUtil.normalize(row.getTitle()));
+                    row.setNormArtist(NormalizedKeyUtil.normalize(row.getArtist()));
+                }
+                final List<TrackEntity> batch = rows;
+                transactionTemplate.executeWithoutResult(status -> {
+                    TrackMapper batchTrackMapper = batchMapperSession.trackMapper();
+                    for (TrackEntity row : batch) {
+                        batchTrackMapper.updateNormalizedKeys(row);
+                    }
+                    batchMapperSession.flushStatements();
+                });
+                afterId = rows.get(rows.size() - 1).getId();
+                filled += rows.size();
+            }
+            finished = true;
+            if (filled > 0) {
+                log.info("TRACK_NORM_KEY_BACKFILL_DONE rows={}", filled);
+            }
+        } catch (Exception e) {
+            log.warn("TRACK_NORM_KEY_BACKFILL_FAILED filled={} afterId={}", filled, afterId, e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.musicwebdav.application.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizes JDBC batches from observed flush latency: grows additively while flushes finish well under the target
+ * and shrinks multiplicatively once they overshoot it, so a slow or contended database quickly gets smaller
+ * batches and a fast one converges on large ones.
+ */
+final class AdaptiveBatchSizer {
+
+    private final int minSize;
+    private final int maxSize;
+    private final long targetNanos;
+    private int currentSize;
+
+    AdaptiveBatchSizer(int initialSize, int minSize, int maxSize, long targetMs) {
+        this.minSize = Math.max(1, minSize);
+        this.maxSize = Math.max(this.minSize, maxSize);
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, targetMs));
+        this.currentSize = clamp(initialSize);
+    }
+
+    synchronized int current() {
+        return currentSize;
+    }
+
+    /**
+     * Feeds back one flush. Partial batches only count when they overshoot, since a short batch finishing
+     * quickly says nothing about whether a full one would.
+     */
+    synchronized void record(long nanos, int rows) {
+        if (rows <= 0) {
+            return;
+        }
+        if (nanos > targetNanos + targetNanos / 4) {
+            currentSize = clamp(currentSize * 3 / 4);
+        } else if (rows >= currentSize && nanos < targetNanos / 2) {
+            currentSize = clamp(currentSize + Math.max(1, currentSize / 4));
+        }
+    }
+
+    private int clamp(int size) {
+        return Math.min(maxSize, Math.max(minSize, size));
+    }
+}
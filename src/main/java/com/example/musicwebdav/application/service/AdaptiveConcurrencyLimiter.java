@@ -0,0 +1,188 @@
+package com.example.musicwebdav.application.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+
+/**
+ * AIMD limit on concurrent WebDAV requests of one scan stage. The limit grows by one after every round of
+ * requests (a round being as many completions as the limit, at least {@value #MIN_ROUND_SAMPLES}) that kept the
+ * limit busy with a p95 latency within {@code latencyTolerance} times the baseline, and is cut by
+ * {@code backoffRatio} on a timeout, 429, 503 or 504, or when a round's p95 overshoots. A small NAS settles near
+ * what it can serve; a fast server climbs to the configured maximum.
+ *
+ * <p>The baseline is the lowest round p95 seen, drifting slowly towards later rounds so a server that got
+ * slower for good does not keep the limit at its floor. Requests that were already running when the limit was
+ * cut complete before another overload can cut it again, so one burst of 503s costs one step, not one per
+ * request. Failures other than overload carry no signal and are ignored. With min equal to max the limiter is a
+ * plain counting gate.
+ */
+final class AdaptiveConcurrencyLimiter {
+
+    enum Outcome { SUCCESS, OVERLOAD, IGNORED }
+
+    static final int MIN_ROUND_SAMPLES = 8;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+    private final long[] roundLatencies;
+    private final MeterRegistry meterRegistry;
+    private final Gauge limitGauge;
+
+    private int limit;
+    private int inFlight;
+    private int roundSamples;
+    private boolean roundSaturated;
+    private long baselineNanos;
+    private int completionsBeforeNextCut;
+    private int peakLimit;
+    private int cuts;
+
+    AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, double latencyTolerance,
+                               double backoffRatio, MeterRegistry meterRegistry, String... tags) {
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.latencyTolerance = Math.max(1.1d, latencyTolerance);
+        this.backoffRatio = Math.min(0.95d, Math.max(0.1d, backoffRatio));
+        this.roundLatencies = new long[Math.max(MIN_ROUND_SAMPLES, this.maxLimit)];
+        this.limit = clamp(initialLimit);
+        this.peakLimit = limit;
+        this.meterRegistry = meterRegistry;
+        this.limitGauge = meterRegistry == null ? null
+                : Gauge.builder("music.scan.concurrency.limit", this, AdaptiveConcurrencyLimiter::limit)
+                .tags(withStageTag(name, tags)).register(meterRegistry);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    synchronized int limit() {
+        return limit;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+
+    synchronized int peakLimit() {
+        return peakLimit;
+    }
+
+    synchronized int cuts() {
+        return cuts;
+    }
+
+    /** Takes a slot if one is free under the current limit. */
+    synchronized boolean tryAcquire() {
+        if (inFlight >= limit) {
+            return false;
+        }
+        inFlight++;
+        if (inFlight >= limit) {
+            roundSaturated = true;
+        }
+        return true;
+    }
+
+    /** Waits for a slot. */
+    synchronized void acquire() throws InterruptedException {
+        while (inFlight >= limit) {
+            wait();
+        }
+        inFlight++;
+        if (inFlight >= limit) {
+            roundSaturated = true;
+        }
+    }
+
+    /** Gives back a slot taken by {@link #tryAcquire} or {@link #acquire} and feeds back how the request went. */
+    synchronized void release(long latencyNanos, Outcome outcome) {
+        inFlight = Math.max(0, inFlight - 1);
+        // Started under the limit before the last cut: its outcome is already accounted for.
+        boolean startedBeforeCut = completionsBeforeNextCut > 0;
+        if (startedBeforeCut) {
+            completionsBeforeNextCut--;
+        }
+        if (outcome == Outcome.OVERLOAD) {
+            if (!startedBeforeCut) {
+                cut();
+            }
+        } else if (outcome == Outcome.SUCCESS) {
+            roundLatencies[roundSamples++] = Math.max(0L, latencyNanos);
+            if (roundSamples >= Math.min(roundLatencies.length, Math.max(MIN_ROUND_SAMPLES, limit))) {
+                endRound();
+            }
+        }
+        notifyAll();
+    }
+
+    /** Removes the gauge. */
+    void close() {
+        if (meterRegistry != null && limitGauge != null) {
+            meterRegistry.remove(limitGauge);
+        }
+    }
+
+    /**
+     * Timeouts, 408 and 429/503/504 mean the server is saturated; anything else (404, auth, parse errors) says
+     * nothing about load. Null is a success.
+     */
+    static Outcome outcomeOf(Throwable error) {
+        if (error == null) {
+            return Outcome.SUCCESS;
+        }
+        return ScanErrorClass.of(error).isOverload() ? Outcome.OVERLOAD : Outcome.IGNORED;
+    }
+
+    private void endRound() {
+        long[] sorted = Arrays.copyOf(roundLatencies, roundSamples);
+        Arrays.sort(sorted);
+        long p95 = sorted[Math.max(0, (int) Math.ceil(sorted.length * 0.95d) - 1)];
+        boolean saturated = roundSaturated;
+        roundSamples = 0;
+        roundSaturated = inFlight >= limit;
+        if (baselineNanos <= 0L || p95 < baselineNanos) {
+            baselineNanos = Math.max(1L, p95);
+        } else if (p95 > baselineNanos * latencyTolerance) {
+            baselineNanos += (p95 - baselineNanos) / 4;
+            if (completionsBeforeNextCut == 0) {
+                cut();
+            }
+            return;
+        } else {
+            baselineNanos += (p95 - baselineNanos) / 16;
+        }
+        if (saturated && limit < maxLimit) {
+            limit++;
+            peakLimit = Math.max(peakLimit, limit);
+        }
+    }
+
+    private void cut() {
+        int reduced = clamp((int) Math.floor(limit * backoffRatio));
+        if (reduced < limit) {
+            limit = reduced;
+            cuts++;
+        }
+        roundSamples = 0;
+        roundSaturated = false;
+        completionsBeforeNextCut = inFlight;
+    }
+
+    private int clamp(int value) {
+        return Math.min(maxLimit, Math.max(minLimit, value));
+    }
+
+    private static String[] withStageTag(String name, String... tags) {
+        String[] merged = new String[tags.length + 2];
+        merged[0] = "stage";
+        merged[1] = name;
+        System.arraycopy(tags, 0, merged, 2, tags.length);
+        return merged;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.musicwebdav.application.service;
+
+import com.example.musicwebdav.infrastructure.persistence.entity.TrackEntity;
+import java.time.LocalDateTime;
+
+/**
+ * When a scan reads audio properties, tracked in track.audio_probed_at. duration_sec stays null for files neither
+ * the header probe nor the head/tail parse finds a duration in (raw ADTS, unsupported containers, truncated
+ * files); the timestamp is what keeps unchanged scans from fetching them again. A file that could not be fetched
+ * is not stamped, so the next scan retries it.
+ */
+final class AudioProbeState {
+
+    private AudioProbeState() {
+    }
+
+    /**
+     * Whether the probe stage should read {@code existing}: changed content always, unchanged content only while
+     * it has no duration and was never read.
+     */
+    static boolean needsProbe(TrackEntity existing, boolean changed) {
+        return changed || (existing.getDurationSec() == null && existing.getAudioProbedAt() == null);
+    }
+
+    /**
+     * audio_probed_at to write for a scanned file.
+     *
+     * @param read whether this scan read the file's audio properties, whatever it found
+     */
+    static LocalDateTime probedAt(TrackEntity existing, boolean sameFingerprint, boolean read, LocalDateTime now) {
+        if (read) {
+            return now;
+        }
+        // A read of the old content says nothing about new content.
+        return sameFingerprint ? existing.getAudioProbedAt() : null;
+    }
+
+    /** An unchanged row whose first read has to be written even though its metadata hash did not change. */
+    static boolean newlyProbed(TrackEntity existing, TrackEntity scanned) {
+        return existing.getAudioProbedAt() == null && scanned.getAudioProbedAt() != null;
+    }
+}
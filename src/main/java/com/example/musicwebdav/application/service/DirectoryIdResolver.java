@@ -0,0 +1,79 @@
+package com.example.musicwebdav.application.service;
+
+import com.example.musicwebdav.common.util.HashUtil;
+import com.example.musicwebdav.infrastructure.persistence.entity.DirectorySignatureEntity;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the directories of one scan to their directory_signature row ids, which tracks store as dir_id. Known
+ * directories come from the preloaded signature index; new ones (and their missing ancestors) are registered
+ * on first use so the parent chain is always in place. Safe to call from the parallel process stage: a path
+ * resolved twice concurrently registers once, since the insert ignores duplicates.
+ */
+final class DirectoryIdResolver {
+
+    private static final int MAX_DIR_NAME_LENGTH = 255;
+
+    private final Long configId;
+    private final Long taskId;
+    private final DirectorySignatureIndex signatureIndex;
+    private final DirectorySignatureService directorySignatureService;
+    private final Map<String, Long> resolved = new ConcurrentHashMap<>();
+
+    DirectoryIdResolver(Long configId, Long taskId, DirectorySignatureIndex signatureIndex,
+                        DirectorySignatureService directorySignatureService) {
+        this.configId = configId;
+        this.taskId = taskId;
+        this.signatureIndex = signatureIndex;
+        this.directorySignatureService = directorySignatureService;
+    }
+
+    /**
+     * @param dirPath directory path relative to the config root, with a trailing slash; "" (or null) is the root
+     */
+    Long resolve(String dirPath) {
+        String path = dirPath == null ? "" : dirPath;
+        String dirPathMd5 = HashUtil.md5Hex(path);
+        Long id = resolved.get(dirPathMd5);
+        if (id != null) {
+            return id;
+        }
+        id = signatureIndex != null ? signatureIndex.id(dirPathMd5) : null;
+        if (id == null) {
+            DirectorySignatureEntity directory = new DirectorySignatureEntity();
+            directory.setConfigId(configId);
+            directory.setParentId(path.isEmpty() ? null : resolve(parentPath(path)));
+            directory.setDirName(dirName(path));
+            directory.setDirPath(path);
+            directory.setDirPathMd5(dirPathMd5);
+            // Registered in this scan, so the generation sweep must not treat it as stale.
+            directory.setGeneration(taskId);
+            id = directorySignatureService.registerDirectory(directory);
+        }
+        resolved.put(dirPathMd5, id);
+        return id;
+    }
+
+    /** "a/b/" -> "a/", "a/" -> "". */
+    static String parentPath(String dirPath) {
+        String trimmed = trimTrailingSlash(dirPath);
+        int slash = trimmed.lastIndexOf('/');
+        return slash < 0 ? "" : trimmed.substring(0, slash + 1);
+    }
+
+    /** "a/b/" -> "b"; "" for the root. Cut to the column width, it is only used for display. */
+    static String dirName(String dirPath) {
+        String trimmed = trimTrailingSlash(dirPath);
+        String name = trimmed.substring(trimmed.lastIndexOf('/') + 1);
+        return name.length() > MAX_DIR_NAME_LENGTH ? name.substring(0, MAX_DIR_NAME_LENGTH) : name;
+    }
+
+    private static String trimTrailingSlash(String dirPath) {
+        int end = dirPath.length();
+        while (end > 0 && dirPath.charAt(end - 1) == '/') {
+            end--;
+        }
+        return dirPath.substring(0, end);
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.musicwebdav.application.service;
+
+import com.example.musicwebdav.infrastructure.persistence.entity.DirectorySignatureEntity;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only snapshot of one config's directory signatures and row ids, keyed by the 128-bit path md5 stored as
+ * two longs.
+ * Open addressing over parallel primitive arrays keeps 60k+ directories in a few MB with no per-entry objects
+ * besides the etag strings.
+ */
+final class DirectorySignatureIndex {
+
+    private static final long NO_LAST_MODIFIED = Long.MIN_VALUE;
+    private static final int NO_CHILD_COUNT = -1;
+    private static final long NO_ID = 0L;
+
+    private long[] keyHigh;
+    private long[] keyLow;
+    private boolean[] used;
+    private long[] ids;
+    private long[] parentIds;
+    private String[] etags;
+    private long[] lastModifiedEpochSec;
+    private int[] childCounts;
+    private int size;
+    /** Children of each slot as slot numbers (CSR layout), built on the first subtree lookup. */
+    private int[] childStart;
+    private int[] childSlots;
+
+    DirectorySignatureIndex(int expectedSize) {
+        allocate(tableSizeFor(Math.max(16, expectedSize)));
+    }
+
+    int size() {
+        return size;
+    }
+
+    void put(String dirPathMd5, String etag, LocalDateTime lastModified, Integer childCount) {
+        put(dirPathMd5, null, etag, lastModified, childCount);
+    }
+
+    /**
+     * Adds or replaces a signature. Rows whose md5 is not 32 hex chars are ignored (they can never be looked up).
+     */
+    void put(String dirPathMd5, Long id, String etag, LocalDateTime lastModified, Integer childCount) {
+        put(dirPathMd5, id, null, etag, lastModified, childCount);
+    }
+
+    void put(String dirPathMd5, Long id, Long parentId, String etag, LocalDateTime lastModified,
+             Integer childCount) {
+        if (!isMd5Hex(dirPathMd5)) {
+            return;
+        }
+        if ((size + 1) * 2 > used.length) {
+            grow();
+        }
+        long high = Long.parseUnsignedLong(dirPathMd5.substring(0, 16), 16);
+        long low = Long.parseUnsignedLong(dirPathMd5.substring(16, 32), 16);
+        int slot = findSlot(high, low);
+        if (!used[slot]) {
+            used[slot] = true;
+            keyHigh[slot] = high;
+            keyLow[slot] = low;
+            size++;
+        }
+        ids[slot] = id == null ? NO_ID : id;
+        parentIds[slot] = parentId == null ? NO_ID : parentId;
+        etags[slot] = etag;
+        lastModifiedEpochSec[slot] = lastModified == null
+                ? NO_LAST_MODIFIED
+                : lastModified.toEpochSecond(ZoneOffset.UTC);
+        childCounts[slot] = childCount == null ? NO_CHILD_COUNT : childCount;
+        childStart = null;
+    }
+
+    /**
+     * Returns the stored signature as a detached entity (only id, etag, last-modified and child count are set),
+     * or null when the directory has none.
+     */
+    DirectorySignatureEntity get(String dirPathMd5) {
+        int slot = slotOf(dirPathMd5);
+        if (slot < 0) {
+            return null;
+        }
+        DirectorySignatureEntity entity = new DirectorySignatureEntity();
+        if (ids[slot] != NO_ID) {
+            entity.setId(ids[slot]);
+        }
+        entity.setDirPathMd5(dirPathMd5);
+        entity.setDirEtag(etags[slot]);
+        if (lastModifiedEpochSec[slot] != NO_LAST_MODIFIED) {
+            entity.setDirLastModified(LocalDateTime.ofEpochSecond(lastModifiedEpochSec[slot], 0, ZoneOffset.UTC));
+        }
+        if (childCounts[slot] != NO_CHILD_COUNT) {
+            entity.setChildCount(childCounts[slot]);
+        }
+        return entity;
+    }
+
+    /**
+     * Returns the directory's row id, or null when it is not indexed.
+     */
+    Long id(String dirPathMd5) {
+        int slot = slotOf(dirPathMd5);
+        return slot < 0 || ids[slot] == NO_ID ? null : ids[slot];
+    }
+
+    /**
+     * Returns the row ids of a directory and of every indexed directory below it (by parent id), or an empty list
+     * when the directory has no row id. The child links are built once, on the first call.
+     */
+    synchronized List<Long> subtreeIds(String dirPathMd5) {
+        int rootSlot = slotOf(dirPathMd5);
+        if (rootSlot < 0 || ids[rootSlot] == NO_ID) {
+            return new ArrayList<>();
+        }
+        if (childStart == null) {
+            buildChildLinks();
+        }
+        List<Long> subtree = new ArrayList<>();
+        int[] pending = new int[16];
+        int top = 0;
+        pending[top++] = rootSlot;
+        // Bounded by the index size, so corrupt parent links that form a cycle cannot spin forever.
+        while (top > 0 && subtree.size() < size) {
+            int slot = pending[--top];
+            subtree.add(ids[slot]);
+            for (int i = childStart[slot]; i < childStart[slot + 1]; i++) {
+                if (top == pending.length) {
+                    int[] grown = new int[pending.length * 2];
+                    System.arraycopy(pending, 0, grown, 0, top);
+                    pending = grown;
+                }
+                pending[top++] = childSlots[i];
+            }
+        }
+        return subtree;
+    }
+
+    private void buildChildLinks() {
+        int capacity = used.length;
+        // Row id -> slot + 1, open addressing like the main table.
+        int[] slotById = new int[tableSizeFor(Math.max(16, size))];
+        int idMask = slotById.length - 1;
+        for (int slot = 0; slot < capacity; slot++) {
+            if (used[slot] && ids[slot] != NO_ID) {
+                int pos = mix(ids[slot]) & idMask;
+                while (slotById[pos] != 0) {
+                    pos = (pos + 1) & idMask;
+                }
+                slotById[pos] = slot + 1;
+            }
+        }
+        int[] parentSlot = new int[capacity];
+        int[] start = new int[capacity + 1];
+        for (int slot = 0; slot < capacity; slot++) {
+            parentSlot[slot] = -1;
+            if (!used[slot] || ids[slot] == NO_ID || parentIds[slot] == NO_ID) {
+                continue;
+            }
+            int pos = mix(parentIds[slot]) & idMask;
+            while (slotById[pos] != 0 && ids[slotById[pos] - 1] != parentIds[slot]) {
+                pos = (pos + 1) & idMask;
+            }
+            if (slotById[pos] != 0 && slotById[pos] - 1 != slot) {
+                parentSlot[slot] = slotById[pos] - 1;
+                start[parentSlot[slot] + 1]++;
+            }
+        }
+        for (int slot = 0; slot < capacity; slot++) {
+            start[slot + 1] += start[slot];
+        }
+        int[] children = new int[start[capacity]];
+        int[] fill = new int[capacity];
+        for (int slot = 0; slot < capacity; slot++) {
+            int parent = parentSlot[slot];
+            if (parent >= 0) {
+                children[start[parent] + fill[parent]++] = slot;
+            }
+        }
+        childSlots = children;
+        childStart = start;
+    }
+
+    private int slotOf(String dirPathMd5) {
+        if (!isMd5Hex(dirPathMd5)) {
+            return -1;
+        }
+        long high = Long.parseUnsignedLong(dirPathMd5.substring(0, 16), 16);
+        long low = Long.parseUnsignedLong(dirPathMd5.substring(16, 32), 16);
+        int slot = findSlot(high, low);
+        return used[slot] ? slot : -1;
+    }
+
+    private int findSlot(long high, long low) {
+        int mask = used.length - 1;
+        int slot = mix(high ^ low) & mask;
+        while (used[slot] && (keyHigh[slot] != high || keyLow[slot] != low)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldHigh = keyHigh;
+        long[] oldLow = keyLow;
+        boolean[] oldUsed = used;
+        long[] oldIds = ids;
+        long[] oldParentIds = parentIds;
+        String[] oldEtags = etags;
+        long[] oldLastModified = lastModifiedEpochSec;
+        int[] oldChildCounts = childCounts;
+        allocate(oldUsed.length * 2);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (!oldUsed[i]) {
+                continue;
+            }
+            int slot = findSlot(oldHigh[i], oldLow[i]);
+            used[slot] = true;
+            keyHigh[slot] = oldHigh[i];
+            keyLow[slot] = oldLow[i];
+            ids[slot] = oldIds[i];
+            parentIds[slot] = oldParentIds[i];
+            etags[slot] = oldEtags[i];
+            lastModifiedEpochSec[slot] = oldLastModified[i];
+            childCounts[slot] = oldChildCounts[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keyHigh = new long[capacity];
+        keyLow = new long[capacity];
+        used = new boolean[capacity];
+        ids = new long[capacity];
+        parentIds = new long[capacity];
+        etags = new String[capacity];
+        lastModifiedEpochSec = new long[capacity];
+        childCounts = new int[capacity];
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(expectedSize * 2 - 1) << 1;
+        return Math.max(16, capacity);
+    }
+
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static boolean isMd5Hex(String value) {
+        if (value == null || value.length() != 32) {
+            return false;
+        }
+        for (int i = 0; i < 32; i++) {
+            char c = value.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.musicwebdav.application.service;
+
+import com.example.musicwebdav.infrastructure.persistence.entity.DirectorySignatureEntity;
+import com.example.musicwebdav.infrastructure.persistence.mapper.DirectorySignatureMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.ibatis.cursor.Cursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Service
+public class DirectorySignatureService {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectorySignatureService.class);
+
+    private final DirectorySignatureMapper directorySignatureMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public DirectorySignatureService(DirectorySignatureMapper directorySignatureMapper,
+                                     PlatformTransactionManager transactionManager) {
+        this.directorySignatureMapper = directorySignatureMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Streams all signatures of a config into an in-memory index. The cursor needs its SqlSession open while it
+     * is iterated, hence the read-only transaction around it.
+     */
+    DirectorySignatureIndex loadIndex(Long configId) {
+        return readOnlyTransaction.execute(status -> {
+            DirectorySignatureIndex loaded = new DirectorySignatureIndex(
+                    directorySignatureMapper.countByConfigId(configId));
+            try (Cursor<DirectorySignatureEntity> cursor = directorySignatureMapper.selectCursorByConfigId(configId)) {
+                for (DirectorySignatureEntity row : cursor) {
+                    loaded.put(row.getDirPathMd5(), row.getId(), row.getParentId(), row.getDirEtag(),
+                            row.getDirLastModified(), row.getChildCount());
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("目录签名游标关闭失败", e);
+            }
+            return loaded;
+        });
+    }
+
+    DirectorySignatureEntity selectOne(Long configId, String dirPathMd5) {
+        return directorySignatureMapper.selectByConfigAndDirPathMd5(configId, dirPathMd5);
+    }
+
+    /**
+     * Returns the row id of a directory, registering it without a signature first if it is unknown, so tracks can
+     * reference it before its signature is written. Such a row never counts as unchanged.
+     */
+    Long registerDirectory(DirectorySignatureEntity directory) {
+        DirectorySignatureEntity existing = directorySignatureMapper.selectByConfigAndDirPathMd5(
+                directory.getConfigId(), directory.getDirPathMd5());
+        if (existing == null) {
+            directorySignatureMapper.insertIgnore(directory);
+            existing = directorySignatureMapper.selectByConfigAndDirPathMd5(
+                    directory.getConfigId(), directory.getDirPathMd5());
+        }
+        if (existing == null) {
+            throw new IllegalStateException("目录登记失败：" + directory.getDirPath());
+        }
+        return existing.getId();
+    }
+
+    List<DirectorySignatureEntity> selectChildren(Long configId, Long parentId) {
+        return directorySignatureMapper.selectChildren(configId, parentId);
+    }
+
+    /**
+     * Ids of a directory and all directories below it, following parent_id one level per query.
+     */
+    List<Long> selectSubtreeIds(Long configId, Long rootId) {
+        List<Long> ids = new ArrayList<>();
+        ids.add(rootId);
+        for (int i = 0; i < ids.size(); i++) {
+            for (DirectorySignatureEntity child : directorySignatureMapper.selectChildren(configId, ids.get(i))) {
+                ids.add(child.getId());
+            }
+        }
+        return ids;
+    }
+
+    int deleteByIds(Long configId, List<Long> ids) {
+        return ids.isEmpty() ? 0 : directorySignatureMapper.deleteByIdIn(configId, ids);
+    }
+
+    /**
+     * Writes buffered signatures as one multi-row upsert; on failure retries row by row so a single bad row
+     * does not drop the whole batch. Returns the number of rows that could not be written.
+     */
+    int upsertBatch(List<DirectorySignatureEntity> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            directorySignatureMapper.batchUpsert(batch);
+            return 0;
+        } catch (Exception e) {
+            log.warn("Batch signature upsert failed, falling back to individual upserts, size={}", batch.size(), e);
+        }
+        int failed = 0;
+        for (DirectorySignatureEntity entity : batch) {
+            try {
+                directorySignatureMapper.upsert(entity);
+            } catch (Exception ex) {
+                failed++;
+                log.warn("Individual signature upsert failed: dir={}", entity.getDirPath(), ex);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Stamps the generation on directories that were listed but not rewritten (skipped or failed to process).
+     * Returns false if the stamp could not be written; the caller must then not trust the generation for deletes.
+     */
+    boolean stampGeneration(Long configId, List<String> dirPathMd5s, Long generation) {
+        if (dirPathMd5s.isEmpty()) {
+            return true;
+        }
+        try {
+            directorySignatureMapper.updateGenerationByDirPathMd5In(configId, dirPathMd5s, generation);
+            return true;
+        } catch (Exception e) {
+            log.warn("Stamp directory generation failed, configId={}, size={}", configId, dirPathMd5s.size(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Same as {@link #stampGeneration} for directories known by row id, e.g. a whole skipped subtree.
+     */
+    boolean stampGenerationByIds(Long configId, List<Long> ids, Long generation) {
+        if (ids.isEmpty()) {
+            return true;
+        }
+        try {
+            directorySignatureMapper.updateGenerationByIdIn(configId, ids, generation);
+            return true;
+        } catch (Exception e) {
+            log.warn("Stamp directory generation by id failed, configId={}, size={}", configId, ids.size(), e);
+            return false;
+        }
+    }
+
+    List<DirectorySignatureEntity> selectStale(Long configId, Long generation) {
+        return directorySignatureMapper.selectStaleByGeneration(configId, generation);
+    }
+
+    int deleteStale(Long configId, Long generation) {
+        return directorySignatureMapper.deleteStaleByGeneration(configId, generation);
+    }
+}
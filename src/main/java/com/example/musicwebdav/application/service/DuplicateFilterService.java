@@ -1,25 +1,38 @@
 package com.example.musicwebdav.application.service;
 
-import com.example.musicwebdav.domain.model.DuplicateGroup;
+import com.example.musicwebdav.common.util.NormalizedKeyUtil;
 import com.example.musicwebdav.infrastructure.persistence.entity.TrackEntity;
 import com.example.musicwebdav.infrastructure.persistence.mapper.TrackMapper;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.apache.ibatis.cursor.Cursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class DuplicateFilterService {
 
     private static final Logger log = LoggerFactory.getLogger(DuplicateFilterService.class);
+    private static final int DELETE_BATCH_SIZE = 1000;
+    private static final int KEY_LOOKUP_BATCH_SIZE = 500;
+    private static final char KEY_SEPARATOR = '\u0000';
 
     private final TrackMapper trackMapper;
+    private final TransactionTemplate readOnlyTransaction;
 
-    public DuplicateFilterService(TrackMapper trackMapper) {
+    public DuplicateFilterService(TrackMapper trackMapper, PlatformTransactionManager transactionManager) {
         this.trackMapper = trackMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     /**
@@ -27,44 +40,166 @@ public class DuplicateFilterService {
      * Returns the number of tracks marked as deleted.
      */
     public int deduplicateTracks(Long configId) {
-        List<DuplicateGroup> groups = trackMapper.selectDuplicateGroups(configId);
-        if (groups == null || groups.isEmpty()) {
+        return deduplicateTracks(configId, null);
+    }
+
+    /**
+     * Like {@link #deduplicateTracks(Long)}, but only (title, artist) keys in {@code keys} are re-evaluated; keys
+     * come from {@link #dedupKey}. Null means every key.
+     *
+     * <p>For every key the config's live tracks are streamed once; for given keys they are looked up through the
+     * (source_config_id, norm_artist, norm_title) index. The winner of each key is picked in memory and the losers
+     * are soft-deleted in batches afterwards, so the query count no longer grows with the number of groups.
+     */
+    public int deduplicateTracks(Long configId, Set<String> keys) {
+        if (keys != null && keys.isEmpty()) {
             return 0;
         }
-        log.info("DEDUP_START configId={} duplicateGroups={}", configId, groups.size());
+        long startNanos = System.nanoTime();
+        return softDeleteLosers(configId, keys == null ? "FULL" : "KEYS", keys, findLosers(configId, keys),
+                startNanos);
+    }
+
+    /**
+     * Byte-identical mode: groups live tracks by their sampled content hash instead of (title, artist), so a
+     * renamed or re-tagged copy is merged while a live and a studio take of one song stay apart. Tracks without
+     * a hash are never touched. {@code hashes} narrows the run like the keys of {@link #deduplicateTracks(Long,
+     * Set)}; null means every hash.
+     */
+    public int deduplicateByContentHash(Long configId, Set<String> hashes) {
+        if (hashes != null && hashes.isEmpty()) {
+            return 0;
+        }
+        long startNanos = System.nanoTime();
+        return softDeleteLosers(configId, hashes == null ? "HASH_FULL" : "HASH_KEYS", hashes,
+                findContentHashLosers(configId, hashes), startNanos);
+    }
+
+    private int softDeleteLosers(Long configId, String mode, Set<String> keys, List<Long> losers, long startNanos) {
+        if (losers.isEmpty()) {
+            log.info("DEDUP_FINISH configId={} mode={} totalDeduped=0", configId, mode);
+            return 0;
+        }
+        log.info("DEDUP_START configId={} mode={} keys={} losers={}", configId, mode,
+                keys == null ? "ALL" : String.valueOf(keys.size()), losers.size());
 
         int totalDeduped = 0;
-        for (DuplicateGroup group : groups) {
-            List<TrackEntity> tracks = trackMapper.selectByNormalizedTitleAndArtist(
-                    configId, group.getNormalizedTitle(), group.getNormalizedArtist());
-            if (tracks == null || tracks.size() <= 1) {
-                continue;
+        for (int from = 0; from < losers.size(); from += DELETE_BATCH_SIZE) {
+            List<Long> batch = losers.subList(from, Math.min(losers.size(), from + DELETE_BATCH_SIZE));
+            totalDeduped += trackMapper.softDeleteByIds(new ArrayList<>(batch));
+        }
+        log.info("DEDUP_FINISH configId={} mode={} totalDeduped={} elapsedMs={}", configId, mode, totalDeduped,
+                (System.nanoTime() - startNanos) / 1_000_000L);
+        return totalDeduped;
+    }
+
+    /**
+     * Group key of a track: its stored normalized title and artist, or the same keys computed from the raw
+     * columns for rows the backfill has not reached yet.
+     */
+    static String dedupKey(TrackEntity track) {
+        String normTitle = track.getNormTitle() != null
+                ? track.getNormTitle() : NormalizedKeyUtil.normalize(track.getTitle());
+        String normArtist = track.getNormArtist() != null
+                ? track.getNormArtist() : NormalizedKeyUtil.normalize(track.getArtist());
+        return (normTitle == null ? "" : normTitle) + KEY_SEPARATOR + (normArtist == null ? "" : normArtist);
+    }
+
+    /** Ids of every track that loses to a larger (or, at equal size, older) track with the same key. */
+    List<Long> findLosers(Long configId, Set<String> keys) {
+        DuplicateRanking ranking = new DuplicateRanking(keys, DuplicateFilterService::dedupKey);
+        if (keys != null) {
+            List<TrackEntity> probes = new ArrayList<>();
+            for (String key : keys) {
+                int split = key.indexOf(KEY_SEPARATOR);
+                TrackEntity probe = new TrackEntity();
+                probe.setNormTitle(key.substring(0, split));
+                probe.setNormArtist(key.substring(split + 1));
+                probes.add(probe);
+            }
+            for (int from = 0; from < probes.size(); from += KEY_LOOKUP_BATCH_SIZE) {
+                List<TrackEntity> batch = probes.subList(from, Math.min(probes.size(), from + KEY_LOOKUP_BATCH_SIZE));
+                for (TrackEntity row : trackMapper.selectDedupCandidatesByNormKeys(configId, batch)) {
+                    ranking.accept(row);
+                }
             }
+            return ranking.losers;
+        }
+        return streamAll(() -> trackMapper.selectDedupCandidatesCursor(configId), ranking);
+    }
 
-            // Sort by source_size descending, keep the first (largest)
-            Collections.sort(tracks, new Comparator<TrackEntity>() {
-                @Override
-                public int compare(TrackEntity a, TrackEntity b) {
-                    long sizeA = a.getSourceSize() == null ? 0 : a.getSourceSize();
-                    long sizeB = b.getSourceSize() == null ? 0 : b.getSourceSize();
-                    return Long.compare(sizeB, sizeA);
+    /** Ids of every track that loses to a larger or older track with the same content hash. */
+    List<Long> findContentHashLosers(Long configId, Set<String> hashes) {
+        DuplicateRanking ranking = new DuplicateRanking(hashes, TrackEntity::getContentHash);
+        if (hashes != null) {
+            List<String> lookup = new ArrayList<>(hashes);
+            for (int from = 0; from < lookup.size(); from += KEY_LOOKUP_BATCH_SIZE) {
+                List<String> batch = lookup.subList(from, Math.min(lookup.size(), from + KEY_LOOKUP_BATCH_SIZE));
+                for (TrackEntity row : trackMapper.selectDedupCandidatesByContentHashes(configId, batch)) {
+                    ranking.accept(row);
                 }
-            });
+            }
+            return ranking.losers;
+        }
+        return streamAll(() -> trackMapper.selectContentHashDedupCursor(configId), ranking);
+    }
 
-            List<Long> idsToDelete = new ArrayList<>();
-            for (int i = 1; i < tracks.size(); i++) {
-                idsToDelete.add(tracks.get(i).getId());
+    private List<Long> streamAll(Supplier<Cursor<TrackEntity>> query, DuplicateRanking ranking) {
+        return readOnlyTransaction.execute(status -> {
+            try (Cursor<TrackEntity> cursor = query.get()) {
+                for (TrackEntity row : cursor) {
+                    ranking.accept(row);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("去重游标关闭失败", e);
             }
+            return ranking.losers;
+        });
+    }
+
+    private static final class DuplicateRanking {
+        private final Set<String> keys;
+        private final Function<TrackEntity, String> keyOf;
+        private final Map<String, Winner> winners = new HashMap<>();
+        private final List<Long> losers = new ArrayList<>();
 
-            if (!idsToDelete.isEmpty()) {
-                int deleted = trackMapper.softDeleteByIds(idsToDelete);
-                totalDeduped += deleted;
-                log.debug("DEDUP_GROUP title='{}' artist='{}' kept={} deleted={}",
-                        group.getNormalizedTitle(), group.getNormalizedArtist(),
-                        tracks.get(0).getId(), idsToDelete);
+        private DuplicateRanking(Set<String> keys, Function<TrackEntity, String> keyOf) {
+            this.keys = keys;
+            this.keyOf = keyOf;
+        }
+
+        private void accept(TrackEntity row) {
+            String key = keyOf.apply(row);
+            // Index lookups match under the column collation, which may be looser than the Java key.
+            if (key == null || keys != null && !keys.contains(key)) {
+                return;
+            }
+            long id = row.getId();
+            long size = row.getSourceSize() == null ? 0L : row.getSourceSize();
+            Winner winner = winners.get(key);
+            if (winner == null) {
+                winners.put(key, new Winner(id, size));
+            } else if (winner.beats(id, size)) {
+                losers.add(id);
+            } else {
+                losers.add(winner.id);
+                winner.id = id;
+                winner.size = size;
             }
         }
-        log.info("DEDUP_FINISH configId={} totalDeduped={}", configId, totalDeduped);
-        return totalDeduped;
+    }
+
+    private static final class Winner {
+        private long id;
+        private long size;
+
+        private Winner(long id, long size) {
+            this.id = id;
+            this.size = size;
+        }
+
+        private boolean beats(long otherId, long otherSize) {
+            return size != otherSize ? size > otherSize : id < otherId;
+        }
     }
 }
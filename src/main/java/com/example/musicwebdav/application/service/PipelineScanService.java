@@ -4,53 +4,78 @@ import com.example.musicwebdav.common.config.AppScanProperties;
 import com.example.musicwebdav.common.config.AppSecurityProperties;
 import com.example.musicwebdav.common.util.AesCryptoUtil;
 import com.example.musicwebdav.common.util.HashUtil;
+import com.example.musicwebdav.common.util.NormalizedKeyUtil;
+import com.example.musicwebdav.domain.enumtype.RecursiveEtagMode;
 import com.example.musicwebdav.domain.enumtype.TaskType;
+import com.example.musicwebdav.domain.enumtype.WebDavListingStrategy;
 import com.example.musicwebdav.domain.model.AudioMetadata;
 import com.example.musicwebdav.domain.model.WebDavDirectoryInfo;
 import com.example.musicwebdav.domain.model.WebDavFileObject;
+import com.example.musicwebdav.domain.model.WebDavSubdirectory;
+import com.example.musicwebdav.domain.model.WebDavSyncChanges;
+import com.example.musicwebdav.infrastructure.persistence.BatchMapperSession;
 import com.example.musicwebdav.infrastructure.persistence.entity.DirectorySignatureEntity;
 import com.example.musicwebdav.infrastructure.persistence.entity.ScanCheckpointEntity;
 import com.example.musicwebdav.infrastructure.persistence.entity.TrackEntity;
 import com.example.musicwebdav.infrastructure.persistence.entity.WebDavConfigEntity;
-import com.example.musicwebdav.infrastructure.persistence.mapper.DirectorySignatureMapper;
 import com.example.musicwebdav.infrastructure.persistence.mapper.ScanCheckpointMapper;
 import com.example.musicwebdav.infrastructure.persistence.mapper.ScanTaskMapper;
-import com.example.musicwebdav.infrastructure.persistence.mapper.ScanTaskSeenFileMapper;
 import com.example.musicwebdav.infrastructure.persistence.mapper.TrackMapper;
+import com.example.musicwebdav.infrastructure.persistence.mapper.WebDavConfigMapper;
+import com.example.musicwebdav.infrastructure.parser.AudioHeaderProbe;
+import com.example.musicwebdav.infrastructure.parser.AudioMetadataParser;
+import com.example.musicwebdav.infrastructure.parser.SampledContentHash;
+import com.example.musicwebdav.infrastructure.webdav.DepthInfinityUnsupportedException;
+import com.example.musicwebdav.infrastructure.webdav.RangedByteChannel;
+import com.example.musicwebdav.infrastructure.webdav.SyncTokenInvalidException;
 import com.example.musicwebdav.infrastructure.webdav.WebDavClient;
+import com.example.musicwebdav.infrastructure.webdav.WebDavTrafficClass;
 import com.github.sardine.Sardine;
 import io.micrometer.core.instrument.MeterRegistry;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Date;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
-import java.util.concurrent.CompletionService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.LongAdder;
+import org.apache.ibatis.cursor.Cursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 @Service
@@ -58,48 +83,74 @@ public class PipelineScanService {
 
     private static final Logger log = LoggerFactory.getLogger(PipelineScanService.class);
     private static final Pattern MULTI_SLASH_PATTERN = Pattern.compile("/{2,}");
+    private static final long LIST_OUTCOME_POLL_MS = 200L;
+    private static final long WRITE_STAGE_SHUTDOWN_GRACE_MS = 10_000L;
+    private static final int SOFT_DELETE_CHUNK_SIZE = 500;
 
     private final WebDavClient webDavClient;
     private final TrackMapper trackMapper;
-    private final ScanTaskSeenFileMapper scanTaskSeenFileMapper;
+    private final WebDavConfigMapper webDavConfigMapper;
     private final ScanTaskMapper scanTaskMapper;
-    private final DirectorySignatureMapper directorySignatureMapper;
+    private final DirectorySignatureService directorySignatureService;
     private final ScanCheckpointMapper scanCheckpointMapper;
     private final CoverArtDetector coverArtDetector;
     private final MetadataFallbackService metadataFallbackService;
+    private final AudioMetadataParser audioMetadataParser;
     private final DuplicateFilterService duplicateFilterService;
     private final AppSecurityProperties appSecurityProperties;
     private final AppScanProperties appScanProperties;
+    private final TransactionTemplate writeBehindTransaction;
+    private final TransactionTemplate readOnlyTransaction;
+    private final BatchMapperSession batchMapperSession;
+    private final ScanTaskScheduler scanTaskScheduler;
     private final MeterRegistry meterRegistry;
 
     public PipelineScanService(WebDavClient webDavClient,
                                 TrackMapper trackMapper,
-                                ScanTaskSeenFileMapper scanTaskSeenFileMapper,
+                                WebDavConfigMapper webDavConfigMapper,
                                 ScanTaskMapper scanTaskMapper,
-                                DirectorySignatureMapper directorySignatureMapper,
+                                DirectorySignatureService directorySignatureService,
                                 ScanCheckpointMapper scanCheckpointMapper,
                                 CoverArtDetector coverArtDetector,
                                 MetadataFallbackService metadataFallbackService,
+                                AudioMetadataParser audioMetadataParser,
                                 DuplicateFilterService duplicateFilterService,
                                 AppSecurityProperties appSecurityProperties,
                                 AppScanProperties appScanProperties,
+                                PlatformTransactionManager transactionManager,
+                                BatchMapperSession batchMapperSession,
+                                ScanTaskScheduler scanTaskScheduler,
                                 ObjectProvider<MeterRegistry> meterRegistryProvider) {
         this.webDavClient = webDavClient;
         this.trackMapper = trackMapper;
-        this.scanTaskSeenFileMapper = scanTaskSeenFileMapper;
+        this.webDavConfigMapper = webDavConfigMapper;
         this.scanTaskMapper = scanTaskMapper;
-        this.directorySignatureMapper = directorySignatureMapper;
+        this.directorySignatureService = directorySignatureService;
         this.scanCheckpointMapper = scanCheckpointMapper;
         this.coverArtDetector = coverArtDetector;
         this.metadataFallbackService = metadataFallbackService;
+        this.audioMetadataParser = audioMetadataParser;
         this.duplicateFilterService = duplicateFilterService;
         this.appSecurityProperties = appSecurityProperties;
         this.appScanProperties = appScanProperties;
+        this.writeBehindTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.batchMapperSession = batchMapperSession;
+        this.scanTaskScheduler = scanTaskScheduler;
         this.meterRegistry = meterRegistryProvider.getIfAvailable();
     }
 
     public ScanResult scan(Long taskId, TaskType taskType, WebDavConfigEntity config,
                             BooleanSupplier cancelSignal, Set<String> resumedCheckpoints) {
+        // Scan requests yield to playback and covers on a shared host; stage workers are marked by their factory.
+        try (WebDavTrafficClass.Scope ignored = WebDavTrafficClass.SCAN.enter()) {
+            return runScan(taskId, taskType, config, cancelSignal, resumedCheckpoints);
+        }
+    }
+
+    private ScanResult runScan(Long taskId, TaskType taskType, WebDavConfigEntity config,
+                               BooleanSupplier cancelSignal, Set<String> resumedCheckpoints) {
         ScanResult result = new ScanResult();
         String plainPassword = AesCryptoUtil.decrypt(config.getPasswordEnc(), appSecurityProperties.getEncryptKey());
         Set<String> supportedExtensions = appScanProperties.normalizedAudioExtensions();
@@ -115,45 +166,86 @@ public class PipelineScanService {
 
         log.info("PIPELINE_SCAN_START taskId={} configId={} configName={} rootUrl={}",
                 taskId, config.getId(), config.getName(), rootUrl);
-        log.info("PIPELINE_SCAN_METADATA_MODE taskId={} mode=WEBDAV_INFER_ONLY", taskId);
+        final boolean metadataExtractionEnabled = appScanProperties.isMetadataExtractionEnabled();
+        final boolean audioProbeEnabled = appScanProperties.isAudioProbeEnabled();
+        final boolean contentHashEnabled = appScanProperties.isContentHashEnabled();
+        final int metadataThreadCount = Math.max(1, appScanProperties.getParserThreadCount());
+        final int metadataMaxInFlight = Math.max(metadataThreadCount, appScanProperties.getMetadataMaxInFlight());
+        log.info("PIPELINE_SCAN_METADATA_MODE taskId={} mode={} parseMode={} audioProbe={} contentHash={} "
+                        + "headBytes={} tailBytes={} workers={} maxInFlight={}",
+                taskId, metadataExtractionEnabled ? "WEBDAV_RANGED_TAGS" : "WEBDAV_INFER_ONLY",
+                appScanProperties.getMetadataParseMode(), audioProbeEnabled, contentHashEnabled,
+                appScanProperties.getMetadataHeadBytes(), appScanProperties.getMetadataTailBytes(),
+                metadataThreadCount, metadataMaxInFlight);
         boolean isIncremental = TaskType.INCREMENTAL == taskType;
-        final boolean directorySkipEnabled = isIncremental
+        final boolean hasResumeCheckpoints = resumedCheckpoints != null && !resumedCheckpoints.isEmpty();
+        // With a sync token the server names the changed directories, and only those are listed; otherwise the
+        // token is taken before the walk, so changes made while walking are replayed by the next sync.
+        WebDavSyncChanges syncChanges = null;
+        String walkSyncToken = null;
+        if (appScanProperties.isSyncCollectionEnabled()) {
+            if (isIncremental && !hasResumeCheckpoints && StringUtils.hasText(config.getSyncToken())) {
+                syncChanges = loadSyncChanges(taskId, config, plainPassword, rootUrl);
+            }
+            if (syncChanges == null) {
+                walkSyncToken = fetchSyncToken(taskId, config, plainPassword, rootUrl);
+            }
+        }
+        final boolean syncMode = syncChanges != null;
+        // Directories reported as changed must be processed, and their missing files are real deletes.
+        final boolean directorySkipEnabled = !syncMode && (isIncremental
                 ? appScanProperties.isIncrementalDirectorySkipEnabled()
-                : appScanProperties.isFullDirectorySkipEnabled();
-        final boolean deleteDetectionEnabled = isIncremental
+                : appScanProperties.isFullDirectorySkipEnabled());
+        final boolean deleteDetectionEnabled = syncMode || (isIncremental
                 ? appScanProperties.isIncrementalEnableDeleteDetection()
-                : appScanProperties.isFullEnableDeleteDetection();
+                : appScanProperties.isFullEnableDeleteDetection());
         final boolean dedupEnabled = isIncremental
                 ? appScanProperties.isIncrementalEnableDedup()
                 : appScanProperties.isFullEnableDedup();
-        final boolean hasResumeCheckpoints = resumedCheckpoints != null && !resumedCheckpoints.isEmpty();
         // Resume checkpoints keep strict seen-file fallback. Full scan can switch to prefix-touch mode to reduce writes.
-        final boolean useSeenBasedDelete = deleteDetectionEnabled
+        final boolean useSeenBasedDelete = !syncMode && deleteDetectionEnabled
                 && (hasResumeCheckpoints || (isIncremental
                 ? directorySkipEnabled
                 : appScanProperties.isFullSeenDeleteFallbackEnabled()));
         final int directoryListThreadCount = Math.max(1, appScanProperties.getDirectoryListThreadCount());
         final int directoryListMaxInFlight = Math.max(directoryListThreadCount,
                 appScanProperties.getDirectoryListMaxInFlight());
+        final int directoryClassifyThreadCount = Math.max(1, appScanProperties.getDirectoryClassifyThreadCount());
+        final int directoryClassifyMaxInFlight = Math.max(directoryClassifyThreadCount,
+                appScanProperties.getDirectoryClassifyMaxInFlight());
         final int directoryProcessThreadCount = Math.max(1, appScanProperties.getDirectoryProcessThreadCount());
         final int directoryProcessMaxInFlight = Math.max(directoryProcessThreadCount,
                 appScanProperties.getDirectoryProcessMaxInFlight());
+        final int writeQueueCapacity = Math.max(1, appScanProperties.getWriteQueueCapacity());
+        // Adaptive: workers up to the max, with an AIMD limiter deciding how many of them talk to the server.
+        final boolean adaptiveConcurrency = appScanProperties.isAdaptiveConcurrencyEnabled();
         final ScanTelemetry telemetry = new ScanTelemetry(taskId, config.getId(), taskType.name());
 
-        // When not using seen-based delete, defer per-directory touch operations to post-scan.
-        // Instead of running LIKE-based UPDATE per skipped directory (O(dirs * tracks)),
-        // we do a single config-wide touch at the end (O(tracks)).
-        final boolean deferTouchToPostScan = deleteDetectionEnabled && !useSeenBasedDelete;
-
-        log.info("PIPELINE_SCAN_SWITCHES taskId={} taskType={} directorySkip={} deleteDetection={} dedup={} "
-                        + "seenDelete={} deferTouch={}",
-                taskId, taskType.name(), directorySkipEnabled, deleteDetectionEnabled, dedupEnabled,
-                useSeenBasedDelete, deferTouchToPostScan);
+        // Without seen-based delete, deletes are driven by directory generations: every listed directory gets this
+        // task id stamped in directory_signature, re-listed directories drop their missing files, and directories
+        // left on an older generation are swept after the scan. Writes scale with directories, not tracks.
+        final boolean useGenerationDelete = deleteDetectionEnabled && !useSeenBasedDelete;
+        final boolean treeListing = !syncMode && WebDavListingStrategy.DEPTH_INFINITY.name()
+                .equalsIgnoreCase(config.getListingStrategy());
+        // On servers whose directory ETags change with anything below them, a subdirectory that its parent's
+        // listing reports unchanged is skipped with its whole subtree, unlisted. Full scans still walk everything,
+        // which is also where a server that stopped propagating gets noticed.
+        final boolean subtreeSkipEnabled = isIncremental && directorySkipEnabled && !treeListing
+                && isRecursiveEtagTrusted(config);
+
+        log.info("PIPELINE_SCAN_SWITCHES taskId={} taskType={} directorySkip={} subtreeSkip={} deleteDetection={} "
+                        + "dedup={} seenDelete={} generationDelete={} listing={}",
+                taskId, taskType.name(), directorySkipEnabled, subtreeSkipEnabled, deleteDetectionEnabled,
+                dedupEnabled, useSeenBasedDelete, useGenerationDelete,
+                syncMode ? "SYNC_COLLECTION"
+                        : treeListing ? WebDavListingStrategy.DEPTH_INFINITY : WebDavListingStrategy.DEPTH_1);
         final int smallDirMergeThreshold = Math.max(0, appScanProperties.getSmallDirMergeThreshold());
-        log.info("PIPELINE_SCAN_PARALLEL taskId={} listWorkers={} listMaxInFlight={} processWorkers={} processMaxInFlight={} "
+        log.info("PIPELINE_SCAN_PARALLEL taskId={} adaptive={} listWorkers={} listMaxInFlight={} classifyWorkers={} "
+                        + "classifyMaxInFlight={} processWorkers={} processMaxInFlight={} writeQueue={} "
                         + "dbBatchSize={} smallDirMerge={} largeDirWarn={}",
-                taskId, directoryListThreadCount, directoryListMaxInFlight,
-                directoryProcessThreadCount, directoryProcessMaxInFlight,
+                taskId, adaptiveConcurrency, directoryListThreadCount, directoryListMaxInFlight,
+                directoryClassifyThreadCount, directoryClassifyMaxInFlight,
+                directoryProcessThreadCount, directoryProcessMaxInFlight, writeQueueCapacity,
                 appScanProperties.getDbBatchSize(), smallDirMergeThreshold,
                 appScanProperties.getLargeDirWarnThreshold());
         incrementCounter("music.scan.task.started", 1, "task_type", taskType.name());
@@ -162,217 +254,322 @@ public class PipelineScanService {
         long taskStartNanos = System.nanoTime();
         final ThreadLocal<Sardine> listSessionHolder = new ThreadLocal<>();
         final ConcurrentLinkedQueue<Sardine> listSessions = new ConcurrentLinkedQueue<>();
-        ExecutorService listExecutor = Executors.newFixedThreadPool(
-                directoryListThreadCount, new NamedThreadFactory("scan-list-"));
-        ExecutorService directoryExecutor = Executors.newFixedThreadPool(
-                directoryProcessThreadCount, new NamedThreadFactory("scan-dir-"));
-        CompletionService<DirectoryListOutcome> listCompletionService =
-                new ExecutorCompletionService<>(listExecutor);
-        CompletionService<DirectoryTaskOutcome> processCompletionService =
-                new ExecutorCompletionService<>(directoryExecutor);
+        final String[] stageTags = {"task_type", taskType.name(), "config_id", String.valueOf(config.getId())};
+        // list -> classify/skip -> process (diff) -> write. Every arrow is a bounded stage queue whose submit
+        // blocks when full, so the coordinator only routes listings and never runs DB work itself. Listing and
+        // processing run on the scheduler's pools shared with concurrent scans; the per-scan worker counts cap
+        // how much of a shared pool this scan may hold.
+        final ScanStage listStage = adaptiveConcurrency
+                ? new ScanStage("list", directoryListMaxInFlight, 0, scanTaskScheduler.listWorkers(),
+                cancelSignal, meterRegistry, stageTags)
+                : new ScanStage("list", directoryListThreadCount,
+                directoryListMaxInFlight - directoryListThreadCount, scanTaskScheduler.listWorkers(),
+                cancelSignal, meterRegistry, stageTags);
+        final AdaptiveConcurrencyLimiter listLimiter = newConcurrencyLimiter("list", directoryListThreadCount,
+                directoryListMaxInFlight, stageTags);
+        final ScanStage classifyStage = new ScanStage("classify", directoryClassifyThreadCount,
+                directoryClassifyMaxInFlight - directoryClassifyThreadCount, new NamedThreadFactory("scan-classify-"),
+                cancelSignal, meterRegistry, stageTags);
+        final ScanStage processStage = new ScanStage("process", directoryProcessThreadCount,
+                directoryProcessMaxInFlight - directoryProcessThreadCount, scanTaskScheduler.processWorkers(),
+                cancelSignal, meterRegistry, stageTags);
+        // Single writer: checkpoints, signatures, result and progress bookkeeping stay ordered on one thread.
+        final ScanStage writeStage = new ScanStage("write", 1, writeQueueCapacity,
+                new NamedThreadFactory("scan-write-"), cancelSignal, meterRegistry, stageTags);
+        // A Depth:1 outcome stays counted in listInFlight until the coordinator takes it, and dispatch stops at
+        // directoryListMaxInFlight, so those never fill the queue. The bound throttles a Depth:infinity listing,
+        // which produces directories faster than the coordinator can route them.
+        final BlockingQueue<DirectoryListOutcome> listOutcomes = new LinkedBlockingQueue<>(directoryListMaxInFlight);
+        final MetadataExtractionStage metadataStage = metadataExtractionEnabled || audioProbeEnabled
+                || contentHashEnabled
+                ? new MetadataExtractionStage(taskId, config, plainPassword, taskType, telemetry,
+                metadataExtractionEnabled, audioProbeEnabled, contentHashEnabled,
+                adaptiveConcurrency ? metadataMaxInFlight : metadataThreadCount,
+                newConcurrencyLimiter("metadata", metadataThreadCount, metadataMaxInFlight, stageTags))
+                : null;
+        // A cancel interrupts running list/classify/process work instead of waiting for it to finish.
+        final Runnable interruptInFlight = () -> {
+            listStage.interruptRunning();
+            classifyStage.interruptRunning();
+            processStage.interruptRunning();
+        };
+        final ScanCancellationToken cancellationToken = cancelSignal instanceof ScanCancellationToken
+                ? (ScanCancellationToken) cancelSignal
+                : null;
+        if (cancellationToken != null) {
+            cancellationToken.onCancel(interruptInFlight);
+        }
+        final DirectorySignatureIndex signatureIndex = directorySkipEnabled
+                ? loadSignatureIndex(taskId, config.getId())
+                : null;
+        final boolean jdbcBatchWrites = "JDBC_BATCH".equalsIgnoreCase(appScanProperties.getTrackWriteMode());
+        final ScanWriteBehindWriter rowWriter = appScanProperties.isWriteBehindEnabled()
+                ? new ScanWriteBehindWriter(taskId, config.getId(), trackMapper, writeBehindTransaction,
+                writeBehindListener(telemetry, taskType),
+                Math.max(10, appScanProperties.getDbBatchSize()),
+                appScanProperties.getWriteBehindStatementMaxBytes(),
+                appScanProperties.getWriteBehindCommitMaxRows(),
+                appScanProperties.getWriteBehindCommitMaxBytes(),
+                appScanProperties.getWriteBehindMaxDelayMs(),
+                appScanProperties.getWriteBehindQueueCapacity(),
+                jdbcBatchWrites ? batchMapperSession : null,
+                jdbcBatchWrites ? newJdbcBatchSizer() : null)
+                : null;
+        final DirectorySignatureWriteBuffer signatureBuffer = new DirectorySignatureWriteBuffer(
+                appScanProperties.getBulkWriteBatchSize() > 0
+                        ? appScanProperties.getBulkWriteBatchSize()
+                        : Math.max(10, appScanProperties.getDbBatchSize() * 2));
+
+        final ScanContext ctx = new ScanContext();
+        ctx.taskId = taskId;
+        ctx.taskType = taskType;
+        ctx.config = config;
+        ctx.result = result;
+        ctx.tracker = tracker;
+        ctx.telemetry = telemetry;
+        ctx.cancelSignal = cancelSignal;
+        ctx.supportedExtensions = supportedExtensions;
+        ctx.lyricExtensions = lyricExtensions;
+        ctx.resumedCheckpoints = resumedCheckpoints;
+        ctx.directorySkipEnabled = directorySkipEnabled;
+        ctx.subtreeSkipEnabled = subtreeSkipEnabled;
+        ctx.deleteDetectionEnabled = deleteDetectionEnabled;
+        ctx.useGenerationDelete = useGenerationDelete;
+        ctx.smallDirMergeThreshold = smallDirMergeThreshold;
+        ctx.smallDirBatcher = new SmallDirBatcher(Math.max(10, appScanProperties.getDbBatchSize()));
+        ctx.signatureIndex = signatureIndex;
+        ctx.directoryIds = new DirectoryIdResolver(config.getId(), taskId, signatureIndex, directorySignatureService);
+        ctx.signatureBuffer = signatureBuffer;
+        ctx.deleteSweep = new ScanDeleteSweep(directorySignatureService, trackMapper, config.getId(), taskId,
+                Math.max(10, appScanProperties.getDbBatchSize() * 2));
+        ctx.metadataStage = metadataStage;
+        ctx.rowWriter = rowWriter;
+        ctx.processStage = processStage;
+        ctx.writeStage = writeStage;
+        ctx.processRetries = newRetryQueue();
+
         int listInFlight = 0;
-        int processInFlight = 0;
         try {
+            if (useSeenBasedDelete) {
+                ctx.seenSet = loadSeenSet(taskId, config.getId());
+            }
             Deque<String> dirQueue = new ArrayDeque<>();
+            // Failed listings wait out their backoff here, not in dirQueue, so they never hold up fresh directories.
+            ScanRetryQueue<String> listRetries = newRetryQueue();
+            Map<String, Integer> listAttempts = new HashMap<>();
             Set<String> scheduled = new HashSet<>();
-            dirQueue.push(rootUrl);
-            scheduled.add(normalizeUrl(rootUrl));
-            tracker.addDiscoveredDirectories(1);
-
-            // Small-directory merge batch: accumulates small dirs to submit as a single process task
-            List<SmallDirEntry> smallDirBatch = new ArrayList<>();
-            int smallDirBatchFileCount = 0;
-            int dbBatchSize = Math.max(10, appScanProperties.getDbBatchSize());
+            // Directories delivered by a Depth:infinity pass, by URL key and by path md5.
+            Set<String> treeListedKeys = new HashSet<>();
+            Set<String> treeListedMd5s = new HashSet<>();
+            boolean treeMode = treeListing;
+            if (syncMode) {
+                for (String changedDirUrl : syncChanges.getChangedDirectoryUrls()) {
+                    if (scheduled.add(normalizeUrl(changedDirUrl))) {
+                        dirQueue.push(changedDirUrl);
+                    }
+                }
+                tracker.addDiscoveredDirectories(scheduled.size());
+            } else {
+                scheduled.add(normalizeUrl(rootUrl));
+                tracker.addDiscoveredDirectories(1);
+            }
+            if (treeMode) {
+                if (submitToStage(listStage, () -> listTreeTask(taskId, config, plainPassword, rootUrl, taskType,
+                        listSessionHolder, listSessions, telemetry, listOutcomes))) {
+                    listInFlight++;
+                }
+            } else if (!syncMode) {
+                dirQueue.push(rootUrl);
+            }
 
-            while (!dirQueue.isEmpty() || listInFlight > 0) {
+            while (!dirQueue.isEmpty() || listInFlight > 0 || !listRetries.isEmpty()) {
                 if (cancelSignal != null && cancelSignal.getAsBoolean()) {
                     result.setCanceled(true);
                     log.info("PIPELINE_SCAN_CANCELED taskId={}", taskId);
                     break;
                 }
-
-                while (!dirQueue.isEmpty() && listInFlight < directoryListMaxInFlight) {
-                    final String dirUrl = dirQueue.pop();
-                    listCompletionService.submit(() -> listDirectoryTask(
-                            taskId, config, plainPassword, rootUrl, dirUrl, taskType,
-                            listSessionHolder, listSessions, telemetry));
+                dispatchProcessRetries(ctx);
+
+                // The limiter slot is freed when the listing ends, but its outcome may still be queued; the
+                // in-flight cap keeps queued outcomes within the bounded listOutcomes queue.
+                while ((!dirQueue.isEmpty() || listRetries.hasDue()) && listInFlight < directoryListMaxInFlight
+                        && listLimiter.tryAcquire()) {
+                    final String dirUrl = !dirQueue.isEmpty() ? dirQueue.pop() : listRetries.poll();
+                    boolean submitted = submitToStage(listStage, () -> {
+                        DirectoryListOutcome outcome = null;
+                        long listStartNanos = System.nanoTime();
+                        try {
+                            outcome = listDirectoryTask(taskId, config, plainPassword, rootUrl, dirUrl, taskType,
+                                    listSessionHolder, listSessions, telemetry);
+                        } finally {
+                            // Free the slot first, so the coordinator woken by the outcome can refill it.
+                            listLimiter.release(System.nanoTime() - listStartNanos, outcome == null
+                                    ? AdaptiveConcurrencyLimiter.Outcome.IGNORED
+                                    : AdaptiveConcurrencyLimiter.outcomeOf(outcome.error));
+                            // Always hand an outcome back: the coordinator counts in-flight listings by outcomes.
+                            try {
+                                listOutcomes.put(outcome != null ? outcome : DirectoryListOutcome.failed(dirUrl,
+                                        new IllegalStateException("目录枚举任务未完成")));
+                            } catch (InterruptedException e) {
+                                // Only a cancel interrupts list workers; the coordinator stops waiting then.
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                    });
+                    if (!submitted) {
+                        listLimiter.release(0L, AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+                        break;
+                    }
                     listInFlight++;
                 }
 
                 if (listInFlight <= 0) {
+                    // Only backing-off retries left: wait for the next one to come due.
+                    String dueRetry = pollRetry(listRetries);
+                    if (dueRetry != null) {
+                        dirQueue.push(dueRetry);
+                    }
                     continue;
                 }
 
-                DirectoryListOutcome listOutcome = takeDirectoryListOutcome(listCompletionService);
-                listInFlight--;
+                DirectoryListOutcome listOutcome = pollDirectoryListOutcome(listOutcomes);
+                rethrowStageFailures(listStage, classifyStage, processStage, writeStage);
+                if (listOutcome == null) {
+                    // Timed out (or a canceled listing never ran); the loop head re-checks the cancel signal.
+                    continue;
+                }
+                if (!listOutcome.more) {
+                    listInFlight--;
+                }
+                if (cancelSignal != null && cancelSignal.getAsBoolean()) {
+                    continue;
+                }
+
+                if (treeMode) {
+                    if (listOutcome.more) {
+                        WebDavDirectoryInfo treeDir = listOutcome.dirInfo;
+                        String treeDirKey = normalizeUrl(treeDir.getDirectoryUrl());
+                        if (treeListedKeys.add(treeDirKey) && !scheduled.contains(treeDirKey)) {
+                            tracker.addDiscoveredDirectories(1);
+                        }
+                        treeListedMd5s.add(HashUtil.md5Hex(safeRelativePath(treeDir.getRelativePath())));
+                        tracker.onDirectoryDiscovered(treeDir.getRelativePath(), treeDir.getFiles().size());
+                        submitToStage(classifyStage, () -> classifyDirectory(ctx, treeDir));
+                        continue;
+                    }
+                    treeMode = false;
+                    if (listOutcome.error == null) {
+                        log.info("PIPELINE_SCAN_TREE_DONE taskId={} dirs={}", taskId, treeListedKeys.size());
+                        continue;
+                    }
+                    log.warn("PIPELINE_SCAN_TREE_FALLBACK taskId={} reason={} listedDirs={} error={}", taskId,
+                            listOutcome.error instanceof DepthInfinityUnsupportedException ? "UNSUPPORTED" : "ERROR",
+                            treeListedKeys.size(), listOutcome.error.getMessage());
+                    // Directories already delivered may be incomplete (the walk order broke down, or the stream
+                    // died), and their missing files may have been deleted. Let them settle, then list everything
+                    // again at Depth:1 and reprocess them even if their signature looks unchanged.
+                    if (!treeListedKeys.isEmpty()) {
+                        if (!awaitDirectoryProcessing(ctx, classifyStage)) {
+                            continue;
+                        }
+                        ctx.forceReprocessDirs = treeListedMd5s;
+                    }
+                    dirQueue.push(rootUrl);
+                    continue;
+                }
 
                 if (listOutcome.error != null) {
-                    String failedRelPath = listOutcome.dirUrl.startsWith(rootUrl)
-                            ? listOutcome.dirUrl.substring(rootUrl.length())
-                            : listOutcome.dirUrl;
-                    String failedPathMd5 = HashUtil.md5Hex(safeRelativePath(failedRelPath));
-                    saveCheckpoint(taskId, failedRelPath, failedPathMd5, "FAILED", 0, 0, 1,
-                            limitLength(listOutcome.error.getMessage(), 1000));
-                    result.incrementFailedCount();
-                    incrementCounter("music.scan.dir.failed", 1, "task_type", taskType.name(), "stage", "LIST");
+                    if (!scheduleListRetry(ctx, listRetries, listAttempts, listOutcome)) {
+                        submitToStage(writeStage, () -> recordListFailure(ctx, rootUrl, listOutcome));
+                    }
                     continue;
                 }
 
                 WebDavDirectoryInfo dirInfo = listOutcome.dirInfo;
 
-                // Enqueue subdirectories
+                // Enqueue subdirectories; those already counted by an aborted tree pass are not counted again.
+                // A sync lists only the directories the server reported, not what lies below them.
+                Map<String, WebDavSubdirectory> unchangedSubtrees = subtreeSkipEnabled
+                        ? findUnchangedSubtrees(ctx, dirInfo)
+                        : Collections.<String, WebDavSubdirectory>emptyMap();
                 int discovered = 0;
-                for (String subdir : dirInfo.getSubdirectoryUrls()) {
+                for (String subdir : syncMode ? Collections.<String>emptyList() : dirInfo.getSubdirectoryUrls()) {
                     String subdirKey = normalizeUrl(subdir);
                     if (scheduled.add(subdirKey)) {
-                        dirQueue.push(subdir);
-                        discovered++;
+                        final WebDavSubdirectory unchangedSubtree = unchangedSubtrees.get(subdirKey);
+                        if (unchangedSubtree != null) {
+                            submitToStage(writeStage, () -> recordSkippedSubtree(ctx, unchangedSubtree));
+                        } else {
+                            dirQueue.push(subdir);
+                        }
+                        if (!treeListedKeys.contains(subdirKey)) {
+                            discovered++;
+                        }
                     }
                 }
                 if (discovered > 0) {
                     tracker.addDiscoveredDirectories(discovered);
                 }
-                tracker.onDirectoryDiscovered(dirInfo.getRelativePath(), dirInfo.getFiles().size());
-
-                String dirPathMd5 = HashUtil.md5Hex(safeRelativePath(dirInfo.getRelativePath()));
-
-                // Check resume checkpoint
-                if (resumedCheckpoints != null && resumedCheckpoints.contains(dirPathMd5)) {
-                    markSkippedDirectory(taskId, config.getId(), dirInfo, supportedExtensions,
-                            deleteDetectionEnabled, useSeenBasedDelete, deferTouchToPostScan, telemetry, taskType);
-                    tracker.onDirectorySkipped(dirInfo.getRelativePath());
-                    incrementCounter("music.scan.dir.skipped", 1,
-                            "task_type", taskType.name(), "reason", "RESUME");
-                    logIfNeeded(tracker);
-                    continue;
+                if (!treeListedKeys.contains(normalizeUrl(dirInfo.getDirectoryUrl()))) {
+                    tracker.onDirectoryDiscovered(dirInfo.getRelativePath(), dirInfo.getFiles().size());
                 }
 
-                // Check directory signature
-                if (directorySkipEnabled && isDirectoryUnchanged(config.getId(), dirInfo, dirPathMd5)) {
-                    markSkippedDirectory(taskId, config.getId(), dirInfo, supportedExtensions,
-                            deleteDetectionEnabled, useSeenBasedDelete, deferTouchToPostScan, telemetry, taskType);
-                    tracker.onDirectorySkipped(dirInfo.getRelativePath());
-                    incrementCounter("music.scan.dir.skipped", 1,
-                            "task_type", taskType.name(), "reason", "SIGNATURE");
-                    logIfNeeded(tracker);
-                    continue;
-                }
+                submitToStage(classifyStage, () -> classifyDirectory(ctx, dirInfo));
+            }
 
-                // Detect cover art
-                String coverUrl = coverArtDetector.detectCoverInDirectory(dirInfo.getFiles());
-
-                // Count audio files for small-dir merging decision
-                int audioFileCount = countAudioFiles(dirInfo.getFiles(), supportedExtensions);
-
-                // Small-directory merging: accumulate tiny dirs and submit as a single process task
-                if (smallDirMergeThreshold > 0 && audioFileCount <= smallDirMergeThreshold) {
-                    smallDirBatch.add(new SmallDirEntry(dirInfo, dirPathMd5, coverUrl));
-                    smallDirBatchFileCount += audioFileCount;
-
-                    // Flush merged batch when accumulated enough files
-                    if (smallDirBatchFileCount >= dbBatchSize) {
-                        final List<SmallDirEntry> batchToSubmit = new ArrayList<>(smallDirBatch);
-                        processCompletionService.submit(() -> processMergedDirectoryTask(
-                                taskId, config, batchToSubmit,
-                                supportedExtensions, lyricExtensions, useSeenBasedDelete, deferTouchToPostScan,
-                                taskType, telemetry));
-                        processInFlight++;
-                        smallDirBatch.clear();
-                        smallDirBatchFileCount = 0;
+            if (!result.isCanceled()) {
+                // Drain in pipeline order: each stage only feeds the stages after it.
+                boolean drained = classifyStage.awaitIdle();
+                if (drained) {
+                    List<SmallDirEntry> remainingBatch = ctx.smallDirBatcher.drain();
+                    if (!remainingBatch.isEmpty()) {
+                        submitMergedBatch(ctx, remainingBatch);
                     }
-                } else {
-                    // Normal submission for larger directories
-                    final WebDavDirectoryInfo finalDirInfo = dirInfo;
-                    final String finalDirPathMd5 = dirPathMd5;
-                    final String finalCoverUrl = coverUrl;
-                    processCompletionService.submit(() -> processDirectoryTask(
-                            taskId, config, finalDirInfo, finalDirPathMd5, finalCoverUrl,
-                            supportedExtensions, lyricExtensions, useSeenBasedDelete, deferTouchToPostScan,
-                            taskType, telemetry));
-                    processInFlight++;
+                    drained = awaitProcessStage(ctx) && writeStage.awaitIdle();
                 }
-
-                if (processInFlight >= directoryProcessMaxInFlight) {
-                    processInFlight -= drainCompletedDirectoryTasks(
-                            processCompletionService, 1, taskId, config.getId(), result, tracker, taskType, telemetry);
-                } else {
-                    processInFlight -= drainCompletedDirectoryTasks(
-                            processCompletionService, 0, taskId, config.getId(), result, tracker, taskType, telemetry);
-                }
-
-                // Persist progress
-                if (tracker.shouldPersistProgress()) {
-                    persistProgress(taskId, result, tracker);
+                if (rowWriter != null) {
+                    // Every process worker waited for its rows, so this only stops the writer thread.
+                    rowWriter.close(WRITE_STAGE_SHUTDOWN_GRACE_MS);
                 }
-
-                logIfNeeded(tracker);
-            }
-
-            if (!result.isCanceled() && listInFlight > 0) {
-                while (listInFlight > 0) {
-                    DirectoryListOutcome listOutcome = takeDirectoryListOutcome(listCompletionService);
-                    listInFlight--;
-                    if (listOutcome.error != null) {
-                        String failedRelPath = listOutcome.dirUrl.startsWith(rootUrl)
-                                ? listOutcome.dirUrl.substring(rootUrl.length())
-                                : listOutcome.dirUrl;
-                        String failedPathMd5 = HashUtil.md5Hex(safeRelativePath(failedRelPath));
-                        saveCheckpoint(taskId, failedRelPath, failedPathMd5, "FAILED", 0, 0, 1,
-                                limitLength(listOutcome.error.getMessage(), 1000));
-                        result.incrementFailedCount();
-                        incrementCounter("music.scan.dir.failed", 1, "task_type", taskType.name(), "stage", "LIST");
-                    }
+                if (!drained || (cancelSignal != null && cancelSignal.getAsBoolean())) {
+                    // Canceled while draining: interrupted directories were not applied, so skip the post-scan phase.
+                    result.setCanceled(true);
+                    log.info("PIPELINE_SCAN_CANCELED taskId={} phase=DRAIN", taskId);
                 }
             }
 
-            // Flush remaining small-directory merge batch
-            if (!result.isCanceled() && !smallDirBatch.isEmpty()) {
-                final List<SmallDirEntry> remainingBatch = new ArrayList<>(smallDirBatch);
-                processCompletionService.submit(() -> processMergedDirectoryTask(
-                        taskId, config, remainingBatch,
-                        supportedExtensions, lyricExtensions, useSeenBasedDelete, deferTouchToPostScan,
-                        taskType, telemetry));
-                processInFlight++;
-                smallDirBatch.clear();
-                smallDirBatchFileCount = 0;
-            }
-
-            if (!result.isCanceled() && processInFlight > 0) {
-                processInFlight -= drainCompletedDirectoryTasks(
-                        processCompletionService, processInFlight, taskId, config.getId(), result, tracker, taskType, telemetry);
+            if (!result.isCanceled()) {
+                flushDirectorySignatures(signatureBuffer, taskId, taskType, telemetry);
+                ctx.deleteSweep.flushStamps();
             }
 
             // Phase transition: all dirs processed, entering post-scan phase
             tracker.enterProcessPhase();
 
-            // Post-scan: deferred touch + soft-delete + dedup
+            // Post-scan: soft-delete (stale-generation sweep, sync removals or seen-file diff) + dedup
             if (!result.isCanceled()) {
-                if (deferTouchToPostScan) {
-                    // Single config-wide UPDATE replaces thousands of per-directory LIKE UPDATEs.
-                    // This is the critical optimization for repeat scans: O(1) instead of O(dirs).
-                    long touchStartNanos = System.nanoTime();
-                    try {
-                        int touchedRows = trackMapper.touchLastScanTaskByConfig(taskId, config.getId());
-                        long touchElapsed = System.nanoTime() - touchStartNanos;
-                        telemetry.recordTouchByPrefix(touchElapsed);
-                        log.info("POST_SCAN_BULK_TOUCH taskId={} configId={} touchedRows={} elapsedMs={}",
-                                taskId, config.getId(), touchedRows,
-                                String.format("%.1f", touchElapsed / 1_000_000.0));
-                    } catch (Exception e) {
-                        telemetry.recordTouchByPrefixFailed();
-                        log.warn("Post-scan bulk touch failed, taskId={}, configId={}", taskId, config.getId(), e);
-                    }
-                }
                 if (deleteDetectionEnabled) {
-                    int deleted = useSeenBasedDelete
-                            ? trackMapper.softDeleteByTaskId(taskId, config.getId())
-                            : trackMapper.softDeleteByLastScanTaskId(taskId, config.getId());
+                    int deleted;
+                    if (syncMode) {
+                        // Unchanged directories were not listed, so there is no generation to sweep by.
+                        deleted = result.getDeletedCount() + applySyncRemovals(ctx, syncChanges.getRemovedPaths());
+                    } else if (useGenerationDelete) {
+                        deleted = result.getDeletedCount()
+                                + ctx.deleteSweep.sweepStaleDirectories(signatureBuffer.hasFailures());
+                    } else {
+                        deleted = ctx.deleteSweep.deleteUnseen(ctx.seenSet);
+                    }
                     result.setDeletedCount(deleted);
                     incrementCounter("music.scan.file.deleted", deleted, "task_type", taskType.name());
                 }
                 if (shouldRunDedup(taskType, dedupEnabled, result)) {
                     long dedupStartNanos = System.nanoTime();
-                    int deduped = duplicateFilterService.deduplicateTracks(config.getId());
+                    // A full scan re-evaluates every key, catching groups left behind by skipped dedup runs;
+                    // other scans only look at the keys their own writes could have duplicated.
+                    Set<String> dedupKeys = taskType == TaskType.FULL ? null : result.getTouchedDedupKeys();
+                    int deduped = isContentHashDedup()
+                            ? duplicateFilterService.deduplicateByContentHash(config.getId(), dedupKeys)
+                            : duplicateFilterService.deduplicateTracks(config.getId(), dedupKeys);
                     long dedupElapsed = System.nanoTime() - dedupStartNanos;
                     telemetry.recordDedup(dedupElapsed, deduped);
                     recordDuration("music.scan.dedup.duration", dedupElapsed, "task_type", taskType.name());
@@ -382,6 +579,17 @@ public class PipelineScanService {
                 }
             }
 
+            if (!result.isCanceled() && appScanProperties.isSyncCollectionEnabled()) {
+                saveSyncToken(ctx, syncMode ? syncChanges.getSyncToken() : walkSyncToken);
+            }
+            if (!result.isCanceled() && directorySkipEnabled && !subtreeSkipEnabled) {
+                updateRecursiveEtagDetection(ctx);
+            }
+
+            if (result.isCanceled()) {
+                // Let the writer finish what it is doing before the final progress snapshot is taken.
+                writeStage.shutdown(WRITE_STAGE_SHUTDOWN_GRACE_MS);
+            }
             // Final progress persist
             persistProgress(taskId, result, tracker);
             if (result.isCanceled()) {
@@ -392,12 +600,29 @@ public class PipelineScanService {
             incrementCounter("music.scan.task.failed", 1, "task_type", taskType.name());
             throw e;
         } finally {
-            listExecutor.shutdownNow();
-            directoryExecutor.shutdownNow();
+            if (cancellationToken != null) {
+                cancellationToken.removeListener(interruptInFlight);
+            }
+            listStage.shutdown(0L);
+            logConcurrency(taskId, listLimiter);
+            listLimiter.close();
+            classifyStage.shutdown(0L);
+            processStage.shutdown(0L);
+            writeStage.shutdown(WRITE_STAGE_SHUTDOWN_GRACE_MS);
+            if (rowWriter != null) {
+                rowWriter.close(WRITE_STAGE_SHUTDOWN_GRACE_MS);
+            }
+            // Signatures of directories applied before a cancel or failure are still valid.
+            flushDirectorySignatures(signatureBuffer, taskId, taskType, telemetry);
+            if (metadataStage != null) {
+                metadataStage.shutdown();
+            }
             for (Sardine listSession : listSessions) {
                 webDavClient.closeSession(listSession);
             }
-            cleanupSeenFiles(taskId);
+            if (ctx.seenSet != null) {
+                ctx.seenSet.close();
+            }
             recordDuration("music.scan.task.duration", System.nanoTime() - taskStartNanos,
                     "task_type", taskType.name(), "status", metricStatus);
             incrementCounter("music.scan.task.finished", 1,
@@ -419,12 +644,7 @@ public class PipelineScanService {
                                                    ThreadLocal<Sardine> listSessionHolder,
                                                    ConcurrentLinkedQueue<Sardine> listSessions,
                                                    ScanTelemetry telemetry) {
-        Sardine session = listSessionHolder.get();
-        if (session == null) {
-            session = webDavClient.createSession(config.getUsername(), plainPassword);
-            listSessionHolder.set(session);
-            listSessions.add(session);
-        }
+        Sardine session = listSession(config, plainPassword, listSessionHolder, listSessions);
 
         long listStartNanos = System.nanoTime();
         try {
@@ -442,141 +662,601 @@ public class PipelineScanService {
         }
     }
 
-    private DirectoryListOutcome takeDirectoryListOutcome(
-            CompletionService<DirectoryListOutcome> listCompletionService) {
+    /**
+     * Lists the whole tree with one Depth:infinity request. Every directory becomes its own outcome as it
+     * arrives; the final outcome (completed or failed) tells the coordinator the listing is over.
+     */
+    private void listTreeTask(Long taskId,
+                              WebDavConfigEntity config,
+                              String plainPassword,
+                              String rootUrl,
+                              TaskType taskType,
+                              ThreadLocal<Sardine> listSessionHolder,
+                              ConcurrentLinkedQueue<Sardine> listSessions,
+                              ScanTelemetry telemetry,
+                              BlockingQueue<DirectoryListOutcome> listOutcomes) {
+        DirectoryListOutcome last = null;
+        long listStartNanos = System.nanoTime();
         try {
-            Future<DirectoryListOutcome> future = listCompletionService.take();
-            return future.get();
+            Sardine session = listSession(config, plainPassword, listSessionHolder, listSessions);
+            webDavClient.listTree(session, rootUrl, rootUrl, dirInfo -> {
+                try {
+                    listOutcomes.put(DirectoryListOutcome.treeEntry(dirInfo));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("目录树枚举被中断", e);
+                }
+            });
+            telemetry.recordListSuccess(System.nanoTime() - listStartNanos);
+            recordDuration("music.scan.webdav.list_tree.duration", System.nanoTime() - listStartNanos,
+                    "task_type", taskType.name(), "result", "OK");
+            last = DirectoryListOutcome.success(rootUrl, null);
+        } catch (Exception e) {
+            telemetry.recordListFailed(System.nanoTime() - listStartNanos);
+            recordDuration("music.scan.webdav.list_tree.duration", System.nanoTime() - listStartNanos,
+                    "task_type", taskType.name(), "result", "ERROR");
+            last = DirectoryListOutcome.failed(rootUrl, e);
+        } finally {
+            try {
+                listOutcomes.put(last != null ? last : DirectoryListOutcome.failed(rootUrl,
+                        new IllegalStateException("目录树枚举任务未完成")));
+            } catch (InterruptedException e) {
+                // Only a cancel interrupts list workers, and the coordinator stops waiting for outcomes then.
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Sardine listSession(WebDavConfigEntity config, String plainPassword,
+                                ThreadLocal<Sardine> listSessionHolder, ConcurrentLinkedQueue<Sardine> listSessions) {
+        Sardine session = listSessionHolder.get();
+        if (session == null) {
+            session = webDavClient.createSession(config.getUsername(), plainPassword);
+            listSessionHolder.set(session);
+            listSessions.add(session);
+        }
+        return session;
+    }
+
+    /**
+     * Waits until every directory handed to classify has been processed. Returns false when canceled first.
+     */
+    private boolean awaitDirectoryProcessing(ScanContext ctx, ScanStage classifyStage) {
+        if (!classifyStage.awaitIdle()) {
+            return false;
+        }
+        List<SmallDirEntry> batch = ctx.smallDirBatcher.drain();
+        if (!batch.isEmpty()) {
+            submitMergedBatch(ctx, batch);
+        }
+        return awaitProcessStage(ctx);
+    }
+
+    /**
+     * Waits until the process stage is idle and no directory is left waiting for a retry, resubmitting retries
+     * as they come due. Returns false when canceled first.
+     */
+    private boolean awaitProcessStage(ScanContext ctx) {
+        while (ctx.processStage.awaitIdle()) {
+            if (ctx.processRetries.isEmpty()) {
+                return true;
+            }
+            if (ctx.cancelSignal != null && ctx.cancelSignal.getAsBoolean()) {
+                return false;
+            }
+            ProcessRetry retry = pollRetry(ctx.processRetries);
+            if (retry != null && !submitToStage(ctx.processStage, processJob(ctx, retry.job, retry.attempt))) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hands due directory retries back to the process stage. Coordinator thread, between listings.
+     */
+    private void dispatchProcessRetries(ScanContext ctx) {
+        ProcessRetry retry;
+        while ((retry = ctx.processRetries.poll()) != null) {
+            if (!submitToStage(ctx.processStage, processJob(ctx, retry.job, retry.attempt))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Queues a failed listing for another attempt when its error class is retried and attempts are left.
+     * Returns false when it is final, and the caller records the failure.
+     */
+    private boolean scheduleListRetry(ScanContext ctx, ScanRetryQueue<String> listRetries,
+                                      Map<String, Integer> listAttempts, DirectoryListOutcome listOutcome) {
+        ScanErrorClass errorClass = ScanErrorClass.of(listOutcome.error);
+        int attempt = listAttempts.merge(normalizeUrl(listOutcome.dirUrl), 1, Integer::sum);
+        long delayMs = listRetries.offer(listOutcome.dirUrl, attempt, errorClass);
+        if (delayMs < 0) {
+            if (errorClass.isRetryable()) {
+                ctx.telemetry.recordListRetryExhausted();
+            }
+            return false;
+        }
+        ctx.telemetry.recordListRetry();
+        incrementCounter("music.scan.dir.retry", 1, "task_type", ctx.taskType.name(), "stage", "LIST",
+                "error_class", errorClass.name());
+        log.info("PIPELINE_SCAN_DIR_RETRY taskId={} stage=LIST dirUrl={} attempt={} errorClass={} delayMs={}",
+                ctx.taskId, listOutcome.dirUrl, attempt, errorClass, delayMs);
+        return true;
+    }
+
+    private <T> ScanRetryQueue<T> newRetryQueue() {
+        return new ScanRetryQueue<>(appScanProperties.getMaxRetry(), appScanProperties.getRetryBackoffMs(),
+                appScanProperties.getRetryMaxBackoffMs());
+    }
+
+    /**
+     * Waits briefly for the next due retry so the caller keeps observing cancels.
+     */
+    private <T> T pollRetry(ScanRetryQueue<T> retries) {
+        try {
+            return retries.poll(LIST_OUTCOME_POLL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("重试等待被中断", e);
+        }
+    }
+
+    /**
+     * Waits briefly for the next listing so the coordinator keeps observing cancels and stage failures.
+     */
+    private DirectoryListOutcome pollDirectoryListOutcome(BlockingQueue<DirectoryListOutcome> listOutcomes) {
+        try {
+            return listOutcomes.poll(LIST_OUTCOME_POLL_MS, TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new IllegalStateException("目录枚举任务被中断", e);
-        } catch (ExecutionException e) {
-            throw new IllegalStateException("目录枚举任务执行失败", e.getCause());
         }
     }
 
-    private void markSkippedDirectory(Long taskId, Long configId, WebDavDirectoryInfo dirInfo,
-                                      Set<String> supportedExtensions,
-                                      boolean deleteDetectionEnabled,
-                                      boolean useSeenBasedDelete,
-                                      boolean deferTouchToPostScan,
-                                      ScanTelemetry telemetry,
-                                      TaskType taskType) {
-        if (!deleteDetectionEnabled) {
+    /**
+     * Returns false when the scan was canceled while the stage was full.
+     */
+    private boolean submitToStage(ScanStage stage, Runnable task) {
+        try {
+            stage.submit(task);
+            return true;
+        } catch (CancellationException e) {
+            return false;
+        }
+    }
+
+    private void rethrowStageFailures(ScanStage... stages) {
+        for (ScanStage stage : stages) {
+            stage.rethrowFailure();
+        }
+    }
+
+    /**
+     * Starts at the stage's thread count and adapts up to {@code maxLimit}; with adaptive concurrency off it is
+     * a fixed gate at {@code maxLimit}, which is what the stage enforced before.
+     */
+    private AdaptiveConcurrencyLimiter newConcurrencyLimiter(String stage, int startLimit, int maxLimit,
+                                                             String... tags) {
+        if (!appScanProperties.isAdaptiveConcurrencyEnabled()) {
+            return new AdaptiveConcurrencyLimiter(stage, maxLimit, maxLimit, maxLimit, 2.0d, 0.5d, meterRegistry,
+                    tags);
+        }
+        return new AdaptiveConcurrencyLimiter(stage, startLimit, 1, maxLimit,
+                appScanProperties.getAdaptiveConcurrencyLatencyTolerance(),
+                appScanProperties.getAdaptiveConcurrencyBackoffRatio(), meterRegistry, tags);
+    }
+
+    private void logConcurrency(Long taskId, AdaptiveConcurrencyLimiter limiter) {
+        log.info("PIPELINE_SCAN_CONCURRENCY taskId={} stage={} finalLimit={} peakLimit={} cuts={}",
+                taskId, limiter.getName(), limiter.limit(), limiter.peakLimit(), limiter.cuts());
+    }
+
+    // ── Classify / skip stage ───────────────────────────────
+
+    private void classifyDirectory(ScanContext ctx, WebDavDirectoryInfo dirInfo) {
+        String dirPathMd5 = HashUtil.md5Hex(safeRelativePath(dirInfo.getRelativePath()));
+        if (ctx.directorySkipEnabled && !ctx.subtreeSkipEnabled) {
+            observeDirectoryEtag(ctx, dirInfo, dirPathMd5);
+        }
+        String skipReason = null;
+        if (ctx.resumedCheckpoints != null && ctx.resumedCheckpoints.contains(dirPathMd5)) {
+            skipReason = "RESUME";
+        } else if (ctx.directorySkipEnabled && !ctx.forceReprocessDirs.contains(dirPathMd5)
+                && isDirectoryUnchanged(ctx.config.getId(), ctx.signatureIndex, dirInfo, dirPathMd5)) {
+            skipReason = "SIGNATURE";
+        }
+        if (skipReason != null) {
+            if (ctx.seenSet != null) {
+                recordSeenFilesForDirectory(ctx, dirInfo);
+            }
+            final String reason = skipReason;
+            ctx.writeStage.submit(() -> recordSkippedDirectory(ctx, dirInfo, dirPathMd5, reason));
+            return;
+        }
+
+        String coverUrl = coverArtDetector.detectCoverInDirectory(dirInfo.getFiles());
+        int audioFileCount = countAudioFiles(dirInfo.getFiles(), ctx.supportedExtensions);
+
+        // Small-directory merging: accumulate tiny dirs and submit as a single process task
+        if (ctx.smallDirMergeThreshold > 0 && audioFileCount <= ctx.smallDirMergeThreshold) {
+            List<SmallDirEntry> batch = ctx.smallDirBatcher.add(
+                    new SmallDirEntry(dirInfo, dirPathMd5, coverUrl), audioFileCount);
+            if (batch != null) {
+                submitMergedBatch(ctx, batch);
+            }
             return;
         }
-        if (useSeenBasedDelete) {
-            recordSeenFilesForDirectory(taskId, dirInfo, supportedExtensions, telemetry, taskType);
+        ctx.processStage.submit(processJob(ctx, () -> processDirectoryTask(
+                ctx.taskId, ctx.config, dirInfo, dirPathMd5, coverUrl,
+                ctx.supportedExtensions, ctx.lyricExtensions, ctx.seenSet, ctx.useGenerationDelete,
+                ctx.taskType, ctx.telemetry, ctx.metadataStage, ctx.rowWriter, ctx.directoryIds), 0));
+    }
+
+    /**
+     * Subdirectories whose etag in their parent's listing still matches their signature. With trusted recursive
+     * etags nothing below them changed either. Coordinator thread: reads only the in-memory signature index.
+     */
+    private Map<String, WebDavSubdirectory> findUnchangedSubtrees(ScanContext ctx, WebDavDirectoryInfo dirInfo) {
+        if (dirInfo.getSubdirectories() == null || ctx.signatureIndex == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, WebDavSubdirectory> unchanged = new HashMap<>();
+        for (WebDavSubdirectory subdir : dirInfo.getSubdirectories()) {
+            if (!StringUtils.hasText(subdir.getEtag())) {
+                continue;
+            }
+            String subdirMd5 = HashUtil.md5Hex(safeRelativePath(subdir.getRelativePath()));
+            if (ctx.forceReprocessDirs.contains(subdirMd5)) {
+                continue;
+            }
+            DirectorySignatureEntity existing = ctx.signatureIndex.get(subdirMd5);
+            if (existing != null && existing.getId() != null && subdir.getEtag().equals(existing.getDirEtag())) {
+                unchanged.put(normalizeUrl(subdir.getDirectoryUrl()), subdir);
+            }
+        }
+        return unchanged;
+    }
+
+    /**
+     * Records whether a listed directory's etag still matches its signature, for
+     * {@link #updateRecursiveEtagDetection}. Only directories with an etag on both sides count.
+     */
+    private void observeDirectoryEtag(ScanContext ctx, WebDavDirectoryInfo dirInfo, String dirPathMd5) {
+        if (ctx.signatureIndex == null || !StringUtils.hasText(dirInfo.getEtag())) {
             return;
         }
-        // When deferTouchToPostScan is true, skip per-directory LIKE UPDATE entirely.
-        // A single config-wide touch will be done in post-scan phase instead.
-        if (deferTouchToPostScan) {
+        DirectorySignatureEntity existing = ctx.signatureIndex.get(dirPathMd5);
+        if (existing == null || !StringUtils.hasText(existing.getDirEtag())) {
             return;
         }
-        touchLastScanTaskForDirectory(taskId, configId,
-                dirInfo == null ? null : dirInfo.getRelativePath(), telemetry, taskType);
+        String relativePath = safeRelativePath(dirInfo.getRelativePath());
+        if (existing.getDirEtag().equals(dirInfo.getEtag())) {
+            ctx.etagUnchangedDirs.add(relativePath);
+        } else {
+            ctx.etagChangedDirs.add(relativePath);
+        }
+    }
+
+    private void submitMergedBatch(ScanContext ctx, List<SmallDirEntry> batch) {
+        ctx.processStage.submit(processJob(ctx, () -> processMergedDirectoryTask(
+                ctx.taskId, ctx.config, batch,
+                ctx.supportedExtensions, ctx.lyricExtensions, ctx.seenSet, ctx.useGenerationDelete,
+                ctx.taskType, ctx.telemetry, ctx.metadataStage, ctx.rowWriter, ctx.directoryIds), 0));
+    }
+
+    /** Process stage task running {@code job}; {@code retries} is how many times it already failed. */
+    private Runnable processJob(ScanContext ctx, Supplier<DirectoryTaskOutcome> job, int retries) {
+        return () -> forwardToWriteStage(ctx, job, retries, job.get());
+    }
+
+    private void forwardToWriteStage(ScanContext ctx, Supplier<DirectoryTaskOutcome> job, int retries,
+                                     DirectoryTaskOutcome outcome) {
+        if (ctx.cancelSignal != null && ctx.cancelSignal.getAsBoolean()) {
+            // Interrupted by cancel: nothing to apply, no checkpoint, so a resume re-processes the directory.
+            return;
+        }
+        if (outcome.error != null && scheduleProcessRetry(ctx, job, retries + 1, outcome)) {
+            return;
+        }
+        ctx.writeStage.submit(() -> {
+            // A failed directory keeps its old generation and marks none of its tracks seen, so neither delete
+            // mode can tell it from a removed one.
+            if (outcome.error != null) {
+                ctx.deleteSweep.directoryFailed(outcome.dirRelativePath);
+            }
+            for (SmallDirEntry failedEntry : outcome.failedEntries.keySet()) {
+                ctx.deleteSweep.directoryFailed(failedEntry.dirInfo.getRelativePath());
+            }
+            applyDirectoryTaskOutcome(outcome, ctx.taskId, ctx.config.getId(), ctx.result, ctx.tracker,
+                    ctx.taskType, ctx.telemetry, ctx.signatureBuffer);
+            reportProgress(ctx);
+        });
+    }
+
+    /**
+     * Re-runs a failed directory after a backoff instead of checkpointing it FAILED, when its error class is
+     * retried. Nothing was applied for it, so running the job again is safe.
+     */
+    private boolean scheduleProcessRetry(ScanContext ctx, Supplier<DirectoryTaskOutcome> job, int attempt,
+                                         DirectoryTaskOutcome outcome) {
+        ScanErrorClass errorClass = ScanErrorClass.of(outcome.error);
+        long delayMs = ctx.processRetries.offer(new ProcessRetry(job, attempt), attempt, errorClass);
+        if (delayMs < 0) {
+            if (errorClass.isRetryable()) {
+                ctx.telemetry.recordProcessRetryExhausted();
+            }
+            return false;
+        }
+        ctx.telemetry.recordProcessRetry();
+        incrementCounter("music.scan.dir.retry", 1, "task_type", ctx.taskType.name(), "stage", "PROCESS",
+                "error_class", errorClass.name());
+        log.info("PIPELINE_SCAN_DIR_RETRY taskId={} stage=PROCESS dir={} attempt={} errorClass={} delayMs={}",
+                ctx.taskId, outcome.dirRelativePath, attempt, errorClass, delayMs);
+        return true;
+    }
+
+    // ── Write stage ─────────────────────────────────────────
+
+    private void recordListFailure(ScanContext ctx, String rootUrl, DirectoryListOutcome listOutcome) {
+        String failedRelPath = listOutcome.dirUrl.startsWith(rootUrl)
+                ? listOutcome.dirUrl.substring(rootUrl.length())
+                : listOutcome.dirUrl;
+        String failedPathMd5 = HashUtil.md5Hex(safeRelativePath(failedRelPath));
+        saveCheckpoint(ctx.taskId, failedRelPath, failedPathMd5, "FAILED", 0, 0, 1,
+                limitLength(listOutcome.error.getMessage(), 1000));
+        // Nothing below an unlisted directory was stamped; sweeping would delete it all.
+        ctx.deleteSweep.markIncomplete();
+        ctx.result.incrementFailedCount();
+        incrementCounter("music.scan.dir.failed", 1, "task_type", ctx.taskType.name(), "stage", "LIST");
+    }
+
+    private void recordSkippedDirectory(ScanContext ctx, WebDavDirectoryInfo dirInfo, String dirPathMd5,
+                                        String reason) {
+        if (ctx.useGenerationDelete) {
+            // The signature row is not rewritten for a skipped directory, so only its generation is bumped.
+            ctx.deleteSweep.stampSkipped(dirPathMd5);
+        }
+        ctx.tracker.onDirectorySkipped(dirInfo.getRelativePath());
+        incrementCounter("music.scan.dir.skipped", 1, "task_type", ctx.taskType.name(), "reason", reason);
+        reportProgress(ctx);
+    }
+
+    /**
+     * Marks everything below a skipped subtree root as listed without listing it: the generation of every
+     * directory in the subtree is stamped, or for seen-file deletes all their live tracks are marked seen.
+     */
+    private void recordSkippedSubtree(ScanContext ctx, WebDavSubdirectory subdir) {
+        Long configId = ctx.config.getId();
+        List<Long> dirIds = ctx.signatureIndex.subtreeIds(HashUtil.md5Hex(safeRelativePath(subdir.getRelativePath())));
+        for (int i = 0; i < dirIds.size(); i += SOFT_DELETE_CHUNK_SIZE) {
+            List<Long> chunk = dirIds.subList(i, Math.min(i + SOFT_DELETE_CHUNK_SIZE, dirIds.size()));
+            if (ctx.useGenerationDelete) {
+                ctx.deleteSweep.stampSubtree(chunk);
+            }
+            if (ctx.seenSet != null) {
+                ctx.seenSet.markSeen(trackMapper.selectLiveIdsByDirIds(configId, chunk));
+            }
+        }
+        ctx.tracker.onDirectorySkipped(subdir.getRelativePath());
+        incrementCounter("music.scan.dir.skipped", Math.max(1, dirIds.size()),
+                "task_type", ctx.taskType.name(), "reason", "SUBTREE");
+        reportProgress(ctx);
+    }
+
+    private void reportProgress(ScanContext ctx) {
+        if (ctx.tracker.shouldPersistProgress()) {
+            persistProgress(ctx.taskId, ctx.result, ctx.tracker);
+        }
+        logIfNeeded(ctx.tracker);
     }
 
-    private void touchLastScanTaskForDirectory(Long taskId, Long configId, String dirRelativePath,
-                                               ScanTelemetry telemetry, TaskType taskType) {
-        String normalized = normalizeRelativePath(dirRelativePath);
+    // ── Sync-collection ─────────────────────────────────────
+
+    /**
+     * Changes since the stored sync token, or null to walk the tree instead. A token the server rejects is
+     * cleared right away so later incremental scans do not ask with it again.
+     */
+    private WebDavSyncChanges loadSyncChanges(Long taskId, WebDavConfigEntity config, String plainPassword,
+                                              String rootUrl) {
+        Sardine session = webDavClient.createSession(config.getUsername(), plainPassword);
         long startNanos = System.nanoTime();
         try {
-            if (!StringUtils.hasText(normalized)) {
-                trackMapper.touchLastScanTaskByConfig(taskId, configId);
-                long elapsed = System.nanoTime() - startNanos;
-                telemetry.recordTouchByPrefix(elapsed);
-                recordDuration("music.scan.db.touch_by_prefix.duration", elapsed,
-                        "task_type", taskType.name(), "result", "OK");
-                return;
+            WebDavSyncChanges changes = webDavClient.syncCollection(session, rootUrl, rootUrl, config.getSyncToken());
+            log.info("PIPELINE_SCAN_SYNC taskId={} configId={} changed={} removed={} changedDirs={} elapsedMs={}",
+                    taskId, config.getId(), changes.getChangedCount(), changes.getRemovedPaths().size(),
+                    changes.getChangedDirectoryUrls().size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            return changes;
+        } catch (SyncTokenInvalidException e) {
+            log.info("PIPELINE_SCAN_SYNC_FALLBACK taskId={} configId={} reason=TOKEN_INVALID error={}",
+                    taskId, config.getId(), e.getMessage());
+            webDavConfigMapper.updateSyncToken(config.getId(), null);
+            config.setSyncToken(null);
+            return null;
+        } catch (RuntimeException e) {
+            log.warn("PIPELINE_SCAN_SYNC_FALLBACK taskId={} configId={} reason=ERROR error={}",
+                    taskId, config.getId(), e.getMessage());
+            return null;
+        } finally {
+            webDavClient.closeSession(session);
+        }
+    }
+
+    private String fetchSyncToken(Long taskId, WebDavConfigEntity config, String plainPassword, String rootUrl) {
+        Sardine session = webDavClient.createSession(config.getUsername(), plainPassword);
+        try {
+            return webDavClient.fetchSyncToken(session, rootUrl);
+        } catch (RuntimeException e) {
+            log.debug("PIPELINE_SCAN_SYNC_TOKEN_UNAVAILABLE taskId={} configId={} error={}",
+                    taskId, config.getId(), e.getMessage());
+            return null;
+        } finally {
+            webDavClient.closeSession(session);
+        }
+    }
+
+    /**
+     * Keeps the token only when every listed directory was applied; otherwise the stored one stays, and the
+     * next sync replays the same changes, which is harmless.
+     */
+    private void saveSyncToken(ScanContext ctx, String syncToken) {
+        if (ctx.deleteSweep.isIncomplete()) {
+            log.info("PIPELINE_SCAN_SYNC_TOKEN_KEPT taskId={} configId={} reason=INCOMPLETE_LISTING",
+                    ctx.taskId, ctx.config.getId());
+            return;
+        }
+        if (Objects.equals(syncToken, ctx.config.getSyncToken())) {
+            return;
+        }
+        webDavConfigMapper.updateSyncToken(ctx.config.getId(), syncToken);
+        ctx.config.setSyncToken(syncToken);
+    }
+
+    /**
+     * A removed file soft-deletes its track; a removed directory soft-deletes the tracks of its whole subtree
+     * and drops the subtree's signatures. The server does not say which one a removed member was, so both
+     * lookups are made and the one that does not exist matches nothing.
+     */
+    private int applySyncRemovals(ScanContext ctx, List<String> removedPaths) {
+        if (removedPaths.isEmpty()) {
+            return 0;
+        }
+        Long configId = ctx.config.getId();
+        List<String> fileMd5s = new ArrayList<>(removedPaths.size());
+        List<Long> dirIds = new ArrayList<>();
+        for (String removedPath : removedPaths) {
+            fileMd5s.add(HashUtil.md5Hex(removedPath));
+            DirectorySignatureEntity directory = directorySignatureService.selectOne(configId,
+                    HashUtil.md5Hex(removedPath + "/"));
+            if (directory != null) {
+                dirIds.addAll(directorySignatureService.selectSubtreeIds(configId, directory.getId()));
             }
-            String escaped = escapeLikePattern(normalized);
-            String likePattern = (escaped.endsWith("/") ? escaped : escaped + "/") + "%";
-            trackMapper.touchLastScanTaskByDirectoryPrefix(taskId, configId, likePattern);
-            long elapsed = System.nanoTime() - startNanos;
-            telemetry.recordTouchByPrefix(elapsed);
-            recordDuration("music.scan.db.touch_by_prefix.duration", elapsed,
-                    "task_type", taskType.name(), "result", "OK");
-        } catch (Exception e) {
-            telemetry.recordTouchByPrefixFailed();
-            recordDuration("music.scan.db.touch_by_prefix.duration", System.nanoTime() - startNanos,
-                    "task_type", taskType.name(), "result", "ERROR");
-            log.warn("Touch last_scan_task_id by directory failed, taskId={}, configId={}, dir={}",
-                    taskId, configId, dirRelativePath, e);
         }
+        int deleted = 0;
+        for (int i = 0; i < fileMd5s.size(); i += SOFT_DELETE_CHUNK_SIZE) {
+            deleted += trackMapper.softDeleteByPathMd5In(configId,
+                    fileMd5s.subList(i, Math.min(i + SOFT_DELETE_CHUNK_SIZE, fileMd5s.size())));
+        }
+        int removedSignatures = 0;
+        for (int i = 0; i < dirIds.size(); i += SOFT_DELETE_CHUNK_SIZE) {
+            List<Long> chunk = dirIds.subList(i, Math.min(i + SOFT_DELETE_CHUNK_SIZE, dirIds.size()));
+            deleted += trackMapper.softDeleteByDirIdIn(configId, chunk);
+            removedSignatures += directorySignatureService.deleteByIds(configId, chunk);
+        }
+        log.info("PIPELINE_SCAN_SYNC_REMOVALS taskId={} configId={} removed={} deletedTracks={} "
+                        + "removedSignatures={}",
+                ctx.taskId, configId, removedPaths.size(), deleted, removedSignatures);
+        return deleted;
     }
 
-    private String escapeLikePattern(String value) {
-        if (value == null) {
-            return "";
+    // ── Recursive ETag ──────────────────────────────────────
+
+    private boolean isRecursiveEtagTrusted(WebDavConfigEntity config) {
+        if (RecursiveEtagMode.ON.name().equalsIgnoreCase(config.getRecursiveEtagMode())) {
+            return true;
+        }
+        if (RecursiveEtagMode.OFF.name().equalsIgnoreCase(config.getRecursiveEtagMode())) {
+            return false;
         }
-        return value.replace("\\", "\\\\")
-                .replace("%", "\\%")
-                .replace("_", "\\_");
+        return Integer.valueOf(1).equals(config.getRecursiveEtagDetected());
+    }
+
+    /**
+     * Checks each listed directory whose etag changed against its parent: a parent whose etag changed too
+     * confirms propagation, an unchanged parent refutes it. One refutation marks the server non-recursive; enough
+     * confirmations without one mark it recursive. Scans that saw neither leave the stored result alone.
+     */
+    private void updateRecursiveEtagDetection(ScanContext ctx) {
+        int confirmed = 0;
+        int refuted = 0;
+        for (String changedDir : ctx.etagChangedDirs) {
+            if (changedDir.isEmpty()) {
+                continue;
+            }
+            String parent = parentRelativePath(changedDir);
+            if (ctx.etagUnchangedDirs.contains(parent)) {
+                refuted++;
+            } else if (ctx.etagChangedDirs.contains(parent)) {
+                confirmed++;
+            }
+        }
+        Integer detected = refuted > 0 ? Integer.valueOf(0)
+                : confirmed >= Math.max(1, appScanProperties.getRecursiveEtagMinEvidence()) ? Integer.valueOf(1)
+                : ctx.config.getRecursiveEtagDetected();
+        if (confirmed > 0 || refuted > 0) {
+            log.info("PIPELINE_SCAN_RECURSIVE_ETAG taskId={} configId={} confirmed={} refuted={} detected={}",
+                    ctx.taskId, ctx.config.getId(), confirmed, refuted, detected);
+        }
+        if (!Objects.equals(detected, ctx.config.getRecursiveEtagDetected())) {
+            webDavConfigMapper.updateRecursiveEtagDetected(ctx.config.getId(), detected);
+            ctx.config.setRecursiveEtagDetected(detected);
+        }
+    }
+
+    /** "a/b/" -> "a/", "a/" -> "". */
+    private static String parentRelativePath(String dirRelativePath) {
+        String trimmed = dirRelativePath.endsWith("/")
+                ? dirRelativePath.substring(0, dirRelativePath.length() - 1)
+                : dirRelativePath;
+        return trimmed.substring(0, trimmed.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Soft-deletes live tracks directly inside a re-listed directory whose files are no longer listed.
+     */
+    private int softDeleteMissingFiles(Long configId, Long dirId, Set<String> listedPathMd5s) {
+        List<String> missing = new ArrayList<>();
+        for (String pathMd5 : trackMapper.selectPathMd5ByDirId(configId, dirId)) {
+            if (!listedPathMd5s.contains(pathMd5)) {
+                missing.add(pathMd5);
+            }
+        }
+        int deleted = 0;
+        for (int i = 0; i < missing.size(); i += SOFT_DELETE_CHUNK_SIZE) {
+            deleted += trackMapper.softDeleteByPathMd5In(configId,
+                    missing.subList(i, Math.min(i + SOFT_DELETE_CHUNK_SIZE, missing.size())));
+        }
+        return deleted;
     }
 
     private DirectoryTaskOutcome processDirectoryTask(Long taskId, WebDavConfigEntity config,
                                                       WebDavDirectoryInfo dirInfo, String dirPathMd5,
                                                       String coverUrl, Set<String> supportedExtensions,
-                                                      Set<String> lyricExtensions, boolean collectSeenForDelete,
-                                                      boolean deferTouchToPostScan,
+                                                      Set<String> lyricExtensions, ScanSeenSet seenSet,
+                                                      boolean useGenerationDelete,
                                                       TaskType taskType,
-                                                      ScanTelemetry telemetry) {
+                                                      ScanTelemetry telemetry,
+                                                      MetadataExtractionStage metadataStage,
+                                                      ScanWriteBehindWriter rowWriter,
+                                                      DirectoryIdResolver directoryIds) {
         long processStartNanos = System.nanoTime();
         try {
             DirProcessResult dirResult = processDirectoryFiles(
-                    taskId, config, dirInfo, coverUrl, supportedExtensions, lyricExtensions, collectSeenForDelete,
-                    deferTouchToPostScan, telemetry, taskType);
+                    taskId, config, dirInfo, coverUrl, supportedExtensions, lyricExtensions, seenSet,
+                    useGenerationDelete, telemetry, taskType, metadataStage, rowWriter, directoryIds);
             long elapsed = System.nanoTime() - processStartNanos;
             telemetry.recordProcessSuccess(elapsed);
             recordDuration("music.scan.dir.process.duration", elapsed,
                     "task_type", taskType.name(), "result", "OK");
             return DirectoryTaskOutcome.success(dirInfo, dirPathMd5, dirResult);
-        } catch (Exception e) {
-            long elapsed = System.nanoTime() - processStartNanos;
-            telemetry.recordProcessFailed(elapsed);
-            recordDuration("music.scan.dir.process.duration", elapsed,
-                    "task_type", taskType.name(), "result", "ERROR");
-            return DirectoryTaskOutcome.failed(dirInfo, dirPathMd5, e);
-        }
-    }
-
-    private int drainCompletedDirectoryTasks(CompletionService<DirectoryTaskOutcome> completionService,
-                                             int requiredCount, Long taskId, Long configId,
-                                             ScanResult result, ScanProgressTracker tracker,
-                                             TaskType taskType,
-                                             ScanTelemetry telemetry) {
-        int drained = 0;
-        while (requiredCount <= 0 || drained < requiredCount) {
-            Future<DirectoryTaskOutcome> future = null;
-            try {
-                if (requiredCount > 0 && drained < requiredCount) {
-                    future = completionService.take();
-                } else {
-                    future = completionService.poll();
-                    if (future == null) {
-                        break;
-                    }
-                }
-                DirectoryTaskOutcome outcome = future.get();
-                applyDirectoryTaskOutcome(outcome, taskId, configId, result, tracker, taskType, telemetry);
-                drained++;
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new IllegalStateException("目录处理任务被中断", e);
-            } catch (ExecutionException e) {
-                throw new IllegalStateException("目录处理任务执行失败", e.getCause());
-            }
+        } catch (Exception e) {
+            long elapsed = System.nanoTime() - processStartNanos;
+            telemetry.recordProcessFailed(elapsed);
+            recordDuration("music.scan.dir.process.duration", elapsed,
+                    "task_type", taskType.name(), "result", "ERROR");
+            return DirectoryTaskOutcome.failed(dirInfo, dirPathMd5, e);
         }
-        return drained;
     }
 
     private void applyDirectoryTaskOutcome(DirectoryTaskOutcome outcome,
                                            Long taskId, Long configId,
                                            ScanResult result, ScanProgressTracker tracker,
                                            TaskType taskType,
-                                           ScanTelemetry telemetry) {
+                                           ScanTelemetry telemetry,
+                                           DirectorySignatureWriteBuffer signatureBuffer) {
         if (outcome.error != null) {
             String errorMessage = limitLength(outcome.error.getMessage(), 1000);
             saveCheckpoint(taskId, outcome.dirRelativePath, outcome.dirPathMd5,
@@ -590,36 +1270,51 @@ public class PipelineScanService {
         DirProcessResult dirResult = outcome.dirResult;
         result.addDirResult(dirResult);
 
-        // For merged small-directory batches, save checkpoint/signature per entry
+        // For merged small-directory batches, save checkpoint/signature per entry. A failed entry gets neither a
+        // signature nor the generation, so the next scan processes it again.
         if (outcome.isMerged()) {
             for (SmallDirEntry entry : outcome.mergedEntries) {
+                Exception entryError = outcome.failedEntries.get(entry);
+                if (entryError != null) {
+                    int fileCount = entry.dirInfo.getFiles() == null ? 0 : entry.dirInfo.getFiles().size();
+                    saveCheckpoint(taskId, entry.dirInfo.getRelativePath(), entry.dirPathMd5,
+                            "FAILED", fileCount, 0, 1, limitLength(entryError.getMessage(), 1000));
+                    continue;
+                }
                 applySingleDirCheckpoint(taskId, configId, entry.dirInfo, entry.dirPathMd5,
-                        taskType, telemetry);
+                        taskType, telemetry, signatureBuffer);
             }
         } else {
             applySingleDirCheckpoint(taskId, configId, outcome.dirInfo, outcome.dirPathMd5,
-                    taskType, telemetry);
+                    taskType, telemetry, signatureBuffer);
         }
 
-        int checkpointFailedCount = dirResult.failed;
+        // dirResult.failed counts each failed merged entry once, like the single-directory error path does
+        int checkpointFailedCount = dirResult.failed - outcome.failedEntries.size();
 
         // For merged outcomes, report completion for each constituent directory
         if (outcome.isMerged()) {
-            int entryCount = outcome.mergedEntries.size();
+            boolean countsReported = false;
             // Distribute counts across entries for tracker (approximate)
-            for (int i = 0; i < entryCount; i++) {
-                SmallDirEntry entry = outcome.mergedEntries.get(i);
-                if (i == 0) {
-                    // First entry gets the counts
+            for (SmallDirEntry entry : outcome.mergedEntries) {
+                if (outcome.failedEntries.containsKey(entry)) {
+                    tracker.onDirectoryCompleted(entry.dirInfo.getRelativePath(), 0, 0, 0, 0, 1);
+                } else if (!countsReported) {
+                    // First processed entry gets the counts
                     tracker.onDirectoryCompleted(entry.dirInfo.getRelativePath(),
                             dirResult.processed, dirResult.added, dirResult.updated,
                             dirResult.skipped, checkpointFailedCount);
+                    countsReported = true;
                 } else {
                     // Remaining entries are counted as completed with zero counts
                     tracker.onDirectoryCompleted(entry.dirInfo.getRelativePath(), 0, 0, 0, 0, 0);
                 }
             }
-            incrementCounter("music.scan.dir.processed", entryCount, "task_type", taskType.name());
+            int failedEntryCount = outcome.failedEntries.size();
+            incrementCounter("music.scan.dir.processed", outcome.mergedEntries.size() - failedEntryCount,
+                    "task_type", taskType.name());
+            incrementCounter("music.scan.dir.failed", failedEntryCount, "task_type", taskType.name(),
+                    "stage", "PROCESS");
         } else {
             tracker.onDirectoryCompleted(outcome.dirRelativePath,
                     dirResult.processed, dirResult.added, dirResult.updated,
@@ -636,33 +1331,18 @@ public class PipelineScanService {
 
     private void applySingleDirCheckpoint(Long taskId, Long configId,
                                            WebDavDirectoryInfo dirInfo, String dirPathMd5,
-                                           TaskType taskType, ScanTelemetry telemetry) {
-        String checkpointStatus = "COMPLETED";
-        String checkpointError = null;
-        int failedCount = 0;
-
-        try {
-            long signatureStart = System.nanoTime();
-            updateDirectorySignature(configId, dirInfo, dirPathMd5);
-            long elapsed = System.nanoTime() - signatureStart;
-            telemetry.recordSignatureUpdate(elapsed);
-            recordDuration("music.scan.db.signature_upsert.duration", elapsed,
-                    "task_type", taskType.name(), "result", "OK");
-        } catch (Exception e) {
-            checkpointStatus = "FAILED";
-            failedCount = 1;
-            checkpointError = limitLength("目录签名更新失败: " + e.getMessage(), 1000);
-            telemetry.recordSignatureUpdateFailed();
-            incrementCounter("music.scan.dir.failed", 1, "task_type", taskType.name(), "stage", "SIGNATURE");
-            log.warn("Update directory signature failed, taskId={}, dir={}",
-                    taskId, dirInfo.getRelativePath(), e);
+                                           TaskType taskType, ScanTelemetry telemetry,
+                                           DirectorySignatureWriteBuffer signatureBuffer) {
+        // Signatures are written back in multi-row batches; a failed batch only costs a re-process next scan.
+        if (signatureBuffer.add(buildDirectorySignature(taskId, configId, dirInfo, dirPathMd5))) {
+            flushDirectorySignatures(signatureBuffer, taskId, taskType, telemetry);
         }
 
         try {
             int fileCount = dirInfo.getFiles() == null ? 0 : dirInfo.getFiles().size();
             long checkpointStart = System.nanoTime();
             saveCheckpoint(taskId, dirInfo.getRelativePath(), dirPathMd5,
-                    checkpointStatus, fileCount, fileCount, failedCount, checkpointError);
+                    "COMPLETED", fileCount, fileCount, 0, null);
             long elapsed = System.nanoTime() - checkpointStart;
             telemetry.recordCheckpointUpdate(elapsed);
             recordDuration("music.scan.db.checkpoint_upsert.duration", elapsed,
@@ -678,13 +1358,17 @@ public class PipelineScanService {
                                                    WebDavDirectoryInfo dirInfo,
                                                    String coverUrl, Set<String> supportedExtensions,
                                                    Set<String> lyricExtensions,
-                                                   boolean collectSeenForDelete,
-                                                   boolean deferTouchToPostScan,
+                                                   ScanSeenSet seenSet,
+                                                   boolean useGenerationDelete,
                                                    ScanTelemetry telemetry,
-                                                   TaskType taskType) {
+                                                   TaskType taskType,
+                                                   MetadataExtractionStage metadataStage,
+                                                   ScanWriteBehindWriter rowWriter,
+                                                   DirectoryIdResolver directoryIds) {
         DirProcessResult dirResult = new DirProcessResult();
+        Long dirId = directoryIds.resolve(dirInfo.getRelativePath());
+        long lastWriteSeq = 0L;
         List<TrackEntity> trackBatch = new ArrayList<>();
-        List<String> seenMd5Batch = new ArrayList<>();
         List<String> touchMd5Batch = new ArrayList<>();
         List<AudioCandidate> audioCandidates = new ArrayList<>();
         Map<String, String> lyricPathIndex = buildLyricPathIndex(dirInfo.getFiles(), lyricExtensions);
@@ -706,32 +1390,111 @@ public class PipelineScanService {
             String pathMd5 = HashUtil.md5Hex(relativePath);
             audioCandidates.add(new AudioCandidate(file, relativePath, pathMd5));
             dirResult.audioFiles++;
+        }
 
-            if (collectSeenForDelete) {
-                seenMd5Batch.add(pathMd5);
+        Set<String> candidateMd5s = new HashSet<>();
+        for (AudioCandidate candidate : audioCandidates) {
+            candidateMd5s.add(candidate.pathMd5);
+        }
+        Map<String, TrackEntity> existingMap = loadExistingTrackMap(config.getId(), candidateMd5s, dbBatchSize, true);
+        if (seenSet != null) {
+            List<Long> seenIds = new ArrayList<>(existingMap.size());
+            for (TrackEntity existing : existingMap.values()) {
+                seenIds.add(existing.getId());
+            }
+            seenSet.markSeen(seenIds);
+        }
+        if (useGenerationDelete) {
+            dirResult.deleted = softDeleteMissingFiles(config.getId(), dirId, candidateMd5s);
+        }
+        Map<String, AudioMetadata> extractedMetadata = Collections.emptyMap();
+        boolean tagsEnabled = metadataStage != null && metadataStage.tagsEnabled;
+        if (tagsEnabled) {
+            // Unchanged files keep their stored tags, which the fingerprint projection does not carry.
+            Set<String> unchangedMd5s = new HashSet<>();
+            for (AudioCandidate candidate : audioCandidates) {
+                TrackEntity existing = existingMap.get(candidate.pathMd5);
+                if (existing != null && !Objects.equals(existing.getIsDeleted(), 1)
+                        && sameFingerprint(existing, candidate.file)) {
+                    unchangedMd5s.add(candidate.pathMd5);
+                }
             }
+            existingMap.putAll(loadExistingTrackMap(config.getId(), unchangedMd5s, dbBatchSize, false));
         }
-
-        Map<String, TrackEntity> existingMap = loadExistingTrackMap(config.getId(), audioCandidates, dbBatchSize);
+        if (metadataStage != null) {
+            List<AudioCandidate> tagCandidates = new ArrayList<>();
+            List<AudioCandidate> probeCandidates = new ArrayList<>();
+            for (AudioCandidate candidate : audioCandidates) {
+                TrackEntity existing = existingMap.get(candidate.pathMd5);
+                boolean activeExisting = existing != null && !Objects.equals(existing.getIsDeleted(), 1);
+                boolean changed = !activeExisting || !sameFingerprint(existing, candidate.file);
+                if (changed && tagsEnabled) {
+                    tagCandidates.add(candidate);
+                } else if (metadataStage.probeEnabled && AudioProbeState.needsProbe(existing, changed)) {
+                    probeCandidates.add(candidate);
+                }
+            }
+            extractedMetadata = metadataStage.extract(tagCandidates, probeCandidates);
+        }
+        Map<String, String> contentHashes = Collections.emptyMap();
+        if (metadataStage != null && metadataStage.contentHashEnabled) {
+            List<AudioCandidate> hashCandidates = new ArrayList<>();
+            for (AudioCandidate candidate : audioCandidates) {
+                TrackEntity existing = existingMap.get(candidate.pathMd5);
+                if (existing == null || Objects.equals(existing.getIsDeleted(), 1)
+                        || !sameFingerprint(existing, candidate.file)) {
+                    hashCandidates.add(candidate);
+                }
+            }
+            contentHashes = metadataStage.hashContent(hashCandidates);
+        }
+        boolean contentHashDedup = isContentHashDedup();
+        LocalDateTime readAt = LocalDateTime.now();
         for (AudioCandidate candidate : audioCandidates) {
             String relativePath = candidate.relativePath;
             String pathMd5 = candidate.pathMd5;
             WebDavFileObject file = candidate.file;
             try {
                 TrackEntity existing = existingMap.get(pathMd5);
+                boolean activeExisting = existing != null && !Objects.equals(existing.getIsDeleted(), 1);
+                boolean sameFingerprint = activeExisting && sameFingerprint(existing, file);
                 // Pure WebDAV infer mode may evolve over time; recompute metadata from path/dir and
                 // upsert when inferred fields differ, even if file fingerprint is unchanged.
-                AudioMetadata metadata = new AudioMetadata();
+                // With tag extraction, unchanged files keep the tags parsed when they last changed;
+                // audio properties of unchanged files are kept in either mode unless a probe refills them.
+                AudioMetadata extracted = extractedMetadata.get(pathMd5);
+                AudioMetadata metadata;
+                if (tagsEnabled && !sameFingerprint) {
+                    metadata = extracted != null ? extracted : new AudioMetadata();
+                } else {
+                    metadata = tagsEnabled ? copyExtractedMetadata(existing) : new AudioMetadata();
+                    if (sameFingerprint && !tagsEnabled) {
+                        copyAudioProperties(existing, metadata);
+                    }
+                    if (extracted != null) {
+                        applyAudioProperties(extracted, metadata);
+                    }
+                }
                 String lyricPath = resolveLyricPath(relativePath, lyricPathIndex);
-                TrackEntity entity = buildTrackEntity(taskId, config.getId(), relativePath, pathMd5,
+                TrackEntity entity = buildTrackEntity(taskId, config.getId(), dirId, relativePath, pathMd5,
                         file, metadata, coverUrl, lyricPath);
-                boolean activeExisting = existing != null && !Objects.equals(existing.getIsDeleted(), 1);
-                if (activeExisting && sameFingerprint(existing, file) && sameTrackMetadata(existing, entity)) {
-                    // Skip per-file touch when deferred to post-scan bulk touch
-                    if (!collectSeenForDelete && !deferTouchToPostScan) {
+                // The content did not change, so neither did its hash; the upsert would otherwise clear it.
+                entity.setContentHash(sameFingerprint ? existing.getContentHash() : contentHashes.get(pathMd5));
+                entity.setAudioProbedAt(AudioProbeState.probedAt(existing, sameFingerprint, extracted != null,
+                        readAt));
+                if (sameFingerprint && Objects.equals(existing.getMetadataHash(), entity.getMetadataHash())
+                        && Objects.equals(existing.getDirId(), dirId)
+                        && !AudioProbeState.newlyProbed(existing, entity)) {
+                    // Seen-file and generation delete detection need no per-file touch
+                    if (seenSet == null && !useGenerationDelete) {
                         touchMd5Batch.add(pathMd5);
                         if (touchMd5Batch.size() >= bulkWriteSize) {
-                            flushTouchedBatch(taskId, config.getId(), touchMd5Batch, telemetry, taskType);
+                            if (rowWriter != null) {
+                                lastWriteSeq = rowWriter.enqueue(null, touchMd5Batch);
+                                touchMd5Batch.clear();
+                            } else {
+                                flushTouchedBatch(taskId, config.getId(), touchMd5Batch, telemetry, taskType);
+                            }
                         }
                     }
                     dirResult.skipped++;
@@ -739,6 +1502,10 @@ public class PipelineScanService {
                 }
 
                 trackBatch.add(entity);
+                String dedupKey = contentHashDedup ? entity.getContentHash() : DuplicateFilterService.dedupKey(entity);
+                if (dedupKey != null) {
+                    dirResult.dedupKeys.add(dedupKey);
+                }
 
                 if (existing == null) {
                     dirResult.added++;
@@ -749,7 +1516,12 @@ public class PipelineScanService {
 
                 // Flush batch if needed
                 if (trackBatch.size() >= dbBatchSize) {
-                    flushTrackBatch(trackBatch, telemetry, taskType);
+                    if (rowWriter != null) {
+                        lastWriteSeq = rowWriter.enqueue(trackBatch, null);
+                        trackBatch.clear();
+                    } else {
+                        flushTrackBatch(trackBatch, telemetry, taskType);
+                    }
                 }
             } catch (Exception e) {
                 dirResult.failed++;
@@ -758,6 +1530,14 @@ public class PipelineScanService {
             }
         }
 
+        if (rowWriter != null) {
+            // Hand the rest to the writer and wait for the group commit that carries it, so the directory is
+            // only checkpointed once its rows are durable.
+            lastWriteSeq = rowWriter.enqueue(trackBatch, touchMd5Batch);
+            rowWriter.awaitDurable(lastWriteSeq);
+            return dirResult;
+        }
+
         // Flush remaining tracks
         if (!trackBatch.isEmpty()) {
             flushTrackBatch(trackBatch, telemetry, taskType);
@@ -766,31 +1546,28 @@ public class PipelineScanService {
             flushTouchedBatch(taskId, config.getId(), touchMd5Batch, telemetry, taskType);
         }
 
-        // Batch insert seen files
-        if (collectSeenForDelete && !seenMd5Batch.isEmpty()) {
-            batchInsertSeenFiles(taskId, seenMd5Batch, bulkWriteSize, telemetry, taskType);
-        }
-
         return dirResult;
     }
 
-    private Map<String, TrackEntity> loadExistingTrackMap(Long configId, List<AudioCandidate> audioCandidates,
-                                                          int dbBatchSize) {
+    /**
+     * Loads the stored rows of the given paths, either as the narrow fingerprint projection the diff step needs
+     * or as full rows.
+     */
+    private Map<String, TrackEntity> loadExistingTrackMap(Long configId, Set<String> pathMd5s, int dbBatchSize,
+                                                          boolean fingerprintOnly) {
         Map<String, TrackEntity> result = new HashMap<>();
-        if (audioCandidates.isEmpty()) {
+        if (pathMd5s.isEmpty()) {
             return result;
         }
 
-        Set<String> uniqueMd5 = new HashSet<>();
-        for (AudioCandidate candidate : audioCandidates) {
-            uniqueMd5.add(candidate.pathMd5);
-        }
-        List<String> md5List = new ArrayList<>(uniqueMd5);
+        List<String> md5List = new ArrayList<>(pathMd5s);
         int queryBatchSize = Math.max(200, dbBatchSize * 4);
         for (int i = 0; i < md5List.size(); i += queryBatchSize) {
             int end = Math.min(i + queryBatchSize, md5List.size());
             List<String> subList = md5List.subList(i, end);
-            List<TrackEntity> rows = trackMapper.selectByConfigAndPathMd5In(configId, subList);
+            List<TrackEntity> rows = fingerprintOnly
+                    ? trackMapper.selectFingerprintByConfigAndPathMd5In(configId, subList)
+                    : trackMapper.selectByConfigAndPathMd5In(configId, subList);
             for (TrackEntity row : rows) {
                 result.put(row.getSourcePathMd5(), row);
             }
@@ -798,6 +1575,46 @@ public class PipelineScanService {
         return result;
     }
 
+    private AdaptiveBatchSizer newJdbcBatchSizer() {
+        int min = Math.max(1, appScanProperties.getJdbcBatchMinSize());
+        int max = Math.max(min, appScanProperties.getJdbcBatchMaxSize());
+        return new AdaptiveBatchSizer(Math.max(min, Math.min(max, appScanProperties.getDbBatchSize())),
+                min, max, appScanProperties.getJdbcBatchTargetMs());
+    }
+
+    private ScanWriteBehindWriter.Listener writeBehindListener(ScanTelemetry telemetry, TaskType taskType) {
+        return new ScanWriteBehindWriter.Listener() {
+            @Override
+            public void onTrackStatement(long nanos, int rows) {
+                telemetry.recordBatchUpsert(nanos, rows);
+                recordDuration("music.scan.db.batch_upsert.duration", nanos,
+                        "task_type", taskType.name(), "result", "OK");
+                incrementCounter("music.scan.db.batch_upsert.rows", rows, "task_type", taskType.name());
+            }
+
+            @Override
+            public void onTouchStatement(long nanos, int rows) {
+                telemetry.recordTouchUpdate(nanos, rows);
+                recordDuration("music.scan.db.touch_by_md5.duration", nanos,
+                        "task_type", taskType.name(), "result", "OK");
+                incrementCounter("music.scan.db.touch_by_md5.rows", rows, "task_type", taskType.name());
+            }
+
+            @Override
+            public void onCommit(long nanos, int rows) {
+                recordDuration("music.scan.db.group_commit.duration", nanos,
+                        "task_type", taskType.name(), "result", "OK");
+                incrementCounter("music.scan.db.group_commit.rows", rows, "task_type", taskType.name());
+            }
+
+            @Override
+            public void onFallback(int rows, Exception cause) {
+                telemetry.recordBatchUpsertFailed();
+                incrementCounter("music.scan.db.group_commit.fallback_rows", rows, "task_type", taskType.name());
+            }
+        };
+    }
+
     private void flushTrackBatch(List<TrackEntity> batch, ScanTelemetry telemetry, TaskType taskType) {
         if (batch.isEmpty()) {
             return;
@@ -850,69 +1667,98 @@ public class PipelineScanService {
         touchedPathMd5Batch.clear();
     }
 
-    private void batchInsertSeenFiles(Long taskId, List<String> md5List, int batchSize,
-                                      ScanTelemetry telemetry, TaskType taskType) {
-        for (int i = 0; i < md5List.size(); i += batchSize) {
-            int end = Math.min(i + batchSize, md5List.size());
-            List<String> subList = md5List.subList(i, end);
-            long startNanos = System.nanoTime();
-            try {
-                scanTaskSeenFileMapper.batchInsert(taskId, subList);
-                long elapsed = System.nanoTime() - startNanos;
-                telemetry.recordSeenInsert(elapsed, subList.size());
-                recordDuration("music.scan.db.seen_insert.duration", elapsed,
-                        "task_type", taskType.name(), "result", "OK");
-                incrementCounter("music.scan.db.seen_insert.rows", subList.size(), "task_type", taskType.name());
-            } catch (Exception e) {
-                telemetry.recordSeenInsertFailed();
-                recordDuration("music.scan.db.seen_insert.duration", System.nanoTime() - startNanos,
-                        "task_type", taskType.name(), "result", "ERROR");
-                log.warn("Batch insert seen files failed, falling back to individual inserts", e);
-                for (String md5 : subList) {
-                    scanTaskSeenFileMapper.insert(taskId, md5);
-                }
-            }
-        }
-    }
-
-    private void cleanupSeenFiles(Long taskId) {
+    /**
+     * Seeds the seen set with every live track id of the config. The scan marks the ids it encounters, and
+     * {@link ScanDeleteSweep#deleteUnseen} deletes the rest once it is done; nothing is written per file.
+     */
+    private ScanSeenSet loadSeenSet(Long taskId, Long configId) {
+        long startNanos = System.nanoTime();
+        ScanSeenSet seenSet = new ScanSeenSet(appScanProperties.getSeenSetMaxInMemoryIds());
         try {
-            int deleted = scanTaskSeenFileMapper.deleteByTaskId(taskId);
-            if (deleted > 0) {
-                log.debug("Cleaned seen-file rows, taskId={}, rows={}", taskId, deleted);
-            }
-        } catch (Exception e) {
-            log.warn("Cleanup seen-file rows failed, taskId={}", taskId, e);
+            readOnlyTransaction.execute(status -> {
+                try (Cursor<Long> ids = trackMapper.selectLiveIdsCursor(configId)) {
+                    for (Long id : ids) {
+                        seenSet.add(id);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+            seenSet.seal();
+        } catch (IOException | UncheckedIOException e) {
+            seenSet.close();
+            throw new IllegalStateException("加载曲目 id 集合失败", e);
+        } catch (RuntimeException e) {
+            seenSet.close();
+            throw e;
         }
+        log.info("PIPELINE_SCAN_SEEN_SET taskId={} configId={} ids={} spilled={} elapsedMs={}",
+                taskId, configId, seenSet.size(), seenSet.isSpilled(),
+                (System.nanoTime() - startNanos) / 1_000_000L);
+        return seenSet;
     }
 
-    private void recordSeenFilesForDirectory(Long taskId, WebDavDirectoryInfo dirInfo,
-                                             Set<String> supportedExtensions,
-                                             ScanTelemetry telemetry, TaskType taskType) {
+    /** Marks the live tracks of a directory that is skipped rather than processed. */
+    private void recordSeenFilesForDirectory(ScanContext ctx, WebDavDirectoryInfo dirInfo) {
         List<String> md5List = new ArrayList<>();
         for (WebDavFileObject file : dirInfo.getFiles()) {
             String relativePath = normalizeRelativePath(file.getRelativePath());
             if (!StringUtils.hasText(relativePath)) {
                 continue;
             }
-            if (!isAudioFile(relativePath, supportedExtensions)) {
+            if (!isAudioFile(relativePath, ctx.supportedExtensions)) {
                 continue;
             }
             md5List.add(HashUtil.md5Hex(relativePath));
         }
-        if (!md5List.isEmpty()) {
-            int bulkSize = appScanProperties.getBulkWriteBatchSize() > 0
-                    ? appScanProperties.getBulkWriteBatchSize()
-                    : Math.max(10, appScanProperties.getDbBatchSize() * 2);
-            batchInsertSeenFiles(taskId, md5List, bulkSize, telemetry, taskType);
+        int batchSize = Math.max(10, appScanProperties.getDbBatchSize());
+        for (int i = 0; i < md5List.size(); i += batchSize) {
+            List<String> subList = md5List.subList(i, Math.min(i + batchSize, md5List.size()));
+            long startNanos = System.nanoTime();
+            try {
+                List<Long> ids = trackMapper.selectLiveIdsByPathMd5In(ctx.config.getId(), subList);
+                ctx.seenSet.markSeen(ids);
+                long elapsed = System.nanoTime() - startNanos;
+                ctx.telemetry.recordSeenLookup(elapsed, ids.size());
+                recordDuration("music.scan.db.seen_lookup.duration", elapsed,
+                        "task_type", ctx.taskType.name(), "result", "OK");
+            } catch (RuntimeException e) {
+                ctx.telemetry.recordSeenLookupFailed();
+                recordDuration("music.scan.db.seen_lookup.duration", System.nanoTime() - startNanos,
+                        "task_type", ctx.taskType.name(), "result", "ERROR");
+                throw e;
+            }
+        }
+    }
+
+    private DirectorySignatureIndex loadSignatureIndex(Long taskId, Long configId) {
+        long startNanos = System.nanoTime();
+        try {
+            DirectorySignatureIndex index = directorySignatureService.loadIndex(configId);
+            log.info("PIPELINE_SCAN_SIGNATURE_INDEX taskId={} configId={} entries={} elapsedMs={}",
+                    taskId, configId, index.size(), (System.nanoTime() - startNanos) / 1_000_000L);
+            return index;
+        } catch (Exception e) {
+            log.warn("Preload directory signatures failed, falling back to per-directory lookup, taskId={}, configId={}",
+                    taskId, configId, e);
+            return null;
         }
     }
 
-    private boolean isDirectoryUnchanged(Long configId, WebDavDirectoryInfo dirInfo, String dirPathMd5) {
-        DirectorySignatureEntity existing = directorySignatureMapper.selectByConfigAndDirPathMd5(configId, dirPathMd5);
+    private boolean isDirectoryUnchanged(Long configId, DirectorySignatureIndex signatureIndex,
+                                         WebDavDirectoryInfo dirInfo, String dirPathMd5) {
+        DirectorySignatureEntity existing = signatureIndex != null
+                ? signatureIndex.get(dirPathMd5)
+                : directorySignatureService.selectOne(configId, dirPathMd5);
         if (existing == null) {
             return false;
         }
+        // Registered for its dir_id but never completed
+        if (existing.getDirEtag() == null && existing.getDirLastModified() == null
+                && existing.getChildCount() == null) {
+            return false;
+        }
         // Compare etag
         if (StringUtils.hasText(existing.getDirEtag()) && StringUtils.hasText(dirInfo.getEtag())) {
             if (!existing.getDirEtag().equals(dirInfo.getEtag())) {
@@ -934,17 +1780,49 @@ public class PipelineScanService {
         return true;
     }
 
-    private void updateDirectorySignature(Long configId, WebDavDirectoryInfo dirInfo, String dirPathMd5) {
+    private DirectorySignatureEntity buildDirectorySignature(Long taskId, Long configId, WebDavDirectoryInfo dirInfo,
+                                                             String dirPathMd5) {
         DirectorySignatureEntity entity = new DirectorySignatureEntity();
         entity.setConfigId(configId);
         entity.setDirPath(safeRelativePath(dirInfo.getRelativePath()));
+        entity.setDirName(DirectoryIdResolver.dirName(entity.getDirPath()));
         entity.setDirPathMd5(dirPathMd5);
         entity.setDirEtag(dirInfo.getEtag());
         if (dirInfo.getLastModified() != null) {
             entity.setDirLastModified(toSecondPrecisionLocalDateTime(dirInfo.getLastModified()));
         }
         entity.setChildCount(dirInfo.getChildCount());
-        directorySignatureMapper.upsert(entity);
+        entity.setGeneration(taskId);
+        return entity;
+    }
+
+    private void flushDirectorySignatures(DirectorySignatureWriteBuffer signatureBuffer, Long taskId,
+                                          TaskType taskType, ScanTelemetry telemetry) {
+        List<DirectorySignatureEntity> batch = signatureBuffer.drain();
+        if (batch.isEmpty()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        int failed;
+        try {
+            failed = directorySignatureService.upsertBatch(batch);
+        } catch (Exception e) {
+            failed = batch.size();
+            log.warn("Flush directory signatures failed, taskId={}, size={}", taskId, batch.size(), e);
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        signatureBuffer.recordFailures(failed);
+        if (failed < batch.size()) {
+            telemetry.recordSignatureUpdate(elapsed);
+        }
+        for (int i = 0; i < failed; i++) {
+            telemetry.recordSignatureUpdateFailed();
+        }
+        if (failed > 0) {
+            incrementCounter("music.scan.dir.failed", failed, "task_type", taskType.name(), "stage", "SIGNATURE");
+        }
+        recordDuration("music.scan.db.signature_upsert.duration", elapsed,
+                "task_type", taskType.name(), "result", failed == 0 ? "OK" : "ERROR");
     }
 
     private void saveCheckpoint(Long taskId, String dirRelativePath, String dirPathMd5,
@@ -987,7 +1865,7 @@ public class PipelineScanService {
         }
     }
 
-    private TrackEntity buildTrackEntity(Long taskId, Long configId, String relativePath,
+    private TrackEntity buildTrackEntity(Long taskId, Long configId, Long dirId, String relativePath,
                                           String pathMd5, WebDavFileObject file,
                                           AudioMetadata metadata, String coverUrl, String lyricPath) {
         AudioMetadata safeMetadata = metadataFallbackService.applyFallback(metadata, relativePath);
@@ -995,13 +1873,13 @@ public class PipelineScanService {
         entity.setSourceConfigId(configId);
         entity.setSourcePath(relativePath);
         entity.setSourcePathMd5(pathMd5);
+        entity.setDirId(dirId);
         entity.setSourceEtag(file.getEtag());
         if (file.getLastModified() != null) {
             entity.setSourceLastModified(toSecondPrecisionLocalDateTime(file.getLastModified()));
         }
         entity.setSourceSize(file.getSize());
         entity.setMimeType(normalizeMimeType(file.getMimeType()));
-        entity.setContentHash(null);
         entity.setTitle(safeMetadata.getTitle());
         entity.setArtist(safeMetadata.getArtist());
         entity.setAlbum(safeMetadata.getAlbum());
@@ -1021,10 +1899,44 @@ public class PipelineScanService {
         }
         entity.setHasLyric(StringUtils.hasText(lyricPath) ? 1 : 0);
         entity.setLyricPath(StringUtils.hasText(lyricPath) ? lyricPath : null);
+        entity.setNormTitle(NormalizedKeyUtil.normalize(entity.getTitle()));
+        entity.setNormArtist(NormalizedKeyUtil.normalize(entity.getArtist()));
+        entity.setMetadataHash(TrackMetadataHash.of(entity));
         entity.setLastScanTaskId(taskId);
         return entity;
     }
 
+    private AudioMetadata copyExtractedMetadata(TrackEntity existing) {
+        AudioMetadata metadata = new AudioMetadata();
+        metadata.setTitle(existing.getTitle());
+        metadata.setArtist(existing.getArtist());
+        metadata.setAlbum(existing.getAlbum());
+        metadata.setAlbumArtist(existing.getAlbumArtist());
+        metadata.setTrackNo(existing.getTrackNo());
+        metadata.setDiscNo(existing.getDiscNo());
+        metadata.setYear(existing.getYear());
+        metadata.setGenre(existing.getGenre());
+        copyAudioProperties(existing, metadata);
+        // has_cover without a cover_art_url came from embedded artwork, not from the directory cover.
+        metadata.setHasCover(Objects.equals(existing.getHasCover(), 1)
+                && !StringUtils.hasText(existing.getCoverArtUrl()));
+        return metadata;
+    }
+
+    private void copyAudioProperties(TrackEntity existing, AudioMetadata target) {
+        target.setDurationSec(existing.getDurationSec());
+        target.setBitrate(existing.getBitrate());
+        target.setSampleRate(existing.getSampleRate());
+        target.setChannels(existing.getChannels());
+    }
+
+    private void applyAudioProperties(AudioMetadata source, AudioMetadata target) {
+        target.setDurationSec(source.getDurationSec());
+        target.setBitrate(source.getBitrate());
+        target.setSampleRate(source.getSampleRate());
+        target.setChannels(source.getChannels());
+    }
+
     private boolean sameFingerprint(TrackEntity existing, WebDavFileObject file) {
         if (existing == null) {
             return false;
@@ -1042,40 +1954,6 @@ public class PipelineScanService {
         return false;
     }
 
-    private boolean sameTrackMetadata(TrackEntity existing, TrackEntity candidate) {
-        if (existing == null || candidate == null) {
-            return false;
-        }
-        return sameText(existing.getTitle(), candidate.getTitle())
-                && sameText(existing.getArtist(), candidate.getArtist())
-                && sameText(existing.getAlbum(), candidate.getAlbum())
-                && sameText(existing.getAlbumArtist(), candidate.getAlbumArtist())
-                && sameText(existing.getGenre(), candidate.getGenre())
-                && sameText(existing.getMimeType(), candidate.getMimeType())
-                && sameText(existing.getCoverArtUrl(), candidate.getCoverArtUrl())
-                && sameText(existing.getLyricPath(), candidate.getLyricPath())
-                && Objects.equals(existing.getTrackNo(), candidate.getTrackNo())
-                && Objects.equals(existing.getDiscNo(), candidate.getDiscNo())
-                && Objects.equals(existing.getYear(), candidate.getYear())
-                && Objects.equals(existing.getDurationSec(), candidate.getDurationSec())
-                && Objects.equals(existing.getBitrate(), candidate.getBitrate())
-                && Objects.equals(existing.getSampleRate(), candidate.getSampleRate())
-                && Objects.equals(existing.getChannels(), candidate.getChannels())
-                && Objects.equals(existing.getHasCover(), candidate.getHasCover())
-                && Objects.equals(existing.getHasLyric(), candidate.getHasLyric());
-    }
-
-    private boolean sameText(String left, String right) {
-        return normalizeText(left).equals(normalizeText(right));
-    }
-
-    private String normalizeText(String value) {
-        if (value == null) {
-            return "";
-        }
-        return value.trim();
-    }
-
     private String normalizeRelativePath(String value) {
         if (value == null) {
             return null;
@@ -1279,6 +2157,11 @@ public class PipelineScanService {
         return hours + "h" + remainMinutes + "m" + remainSeconds + "s";
     }
 
+    /** Whether dedup groups byte-identical files by content hash instead of by title and artist. */
+    private boolean isContentHashDedup() {
+        return "CONTENT_HASH".equalsIgnoreCase(appScanProperties.getDedupMode());
+    }
+
     private boolean shouldRunDedup(TaskType taskType, boolean dedupEnabled, ScanResult result) {
         if (!dedupEnabled) {
             return false;
@@ -1328,14 +2211,18 @@ public class PipelineScanService {
                                                              List<SmallDirEntry> entries,
                                                              Set<String> supportedExtensions,
                                                              Set<String> lyricExtensions,
-                                                             boolean collectSeenForDelete,
-                                                             boolean deferTouchToPostScan,
+                                                             ScanSeenSet seenSet,
+                                                             boolean useGenerationDelete,
                                                              TaskType taskType,
-                                                             ScanTelemetry telemetry) {
+                                                             ScanTelemetry telemetry,
+                                                             MetadataExtractionStage metadataStage,
+                                                             ScanWriteBehindWriter rowWriter,
+                                                             DirectoryIdResolver directoryIds) {
         // Process all small directories as a single batch to reduce overhead.
         // We return a composite DirectoryTaskOutcome for the first entry and
         // accumulate results across all entries.
         DirProcessResult compositeResult = new DirProcessResult();
+        Map<SmallDirEntry, Exception> failedEntries = new LinkedHashMap<>();
         Exception firstError = null;
         WebDavDirectoryInfo firstDirInfo = entries.get(0).dirInfo;
         String firstDirPathMd5 = entries.get(0).dirPathMd5;
@@ -1345,23 +2232,31 @@ public class PipelineScanService {
             try {
                 DirProcessResult dirResult = processDirectoryFiles(
                         taskId, config, entry.dirInfo, entry.coverUrl, supportedExtensions,
-                        lyricExtensions, collectSeenForDelete, deferTouchToPostScan, telemetry, taskType);
+                        lyricExtensions, seenSet, useGenerationDelete, telemetry, taskType,
+                        metadataStage, rowWriter, directoryIds);
                 compositeResult.processed += dirResult.processed;
                 compositeResult.added += dirResult.added;
                 compositeResult.updated += dirResult.updated;
                 compositeResult.skipped += dirResult.skipped;
                 compositeResult.failed += dirResult.failed;
                 compositeResult.audioFiles += dirResult.audioFiles;
+                compositeResult.deleted += dirResult.deleted;
+                compositeResult.dedupKeys.addAll(dirResult.dedupKeys);
             } catch (Exception e) {
                 compositeResult.failed++;
+                failedEntries.put(entry, e);
                 if (firstError == null) {
                     firstError = e;
                 }
+                log.warn("Merged directory entry failed, taskId={}, dir={}", taskId,
+                        entry.dirInfo.getRelativePath(), e);
             }
         }
         long elapsed = System.nanoTime() - processStartNanos;
 
-        if (firstError != null && compositeResult.processed == 0) {
+        // Only a batch where every entry threw is retried as a whole; otherwise the failed entries are recorded
+        // one by one and the next scan processes them again.
+        if (failedEntries.size() == entries.size()) {
             telemetry.recordProcessFailed(elapsed);
             recordDuration("music.scan.dir.process.duration", elapsed,
                     "task_type", taskType.name(), "result", "ERROR");
@@ -1374,7 +2269,7 @@ public class PipelineScanService {
 
         // Create a merged outcome; we need to apply individual outcomes per entry
         // in applyDirectoryTaskOutcome, so we return a special composite.
-        return DirectoryTaskOutcome.merged(entries, compositeResult);
+        return DirectoryTaskOutcome.merged(entries, compositeResult, failedEntries);
     }
 
     private int countAudioFiles(List<WebDavFileObject> files, Set<String> supportedExtensions) {
@@ -1427,8 +2322,457 @@ public class PipelineScanService {
                 String.format(Locale.ROOT, "%.1f", avgSpeed));
     }
 
+    // ── Metadata extraction stage ─────────────────────────
+
+    /**
+     * Per-scan tag-extraction stage: fetches bounded head/tail ranges of new or changed audio files on its own
+     * worker pool and parses them, and/or probes audio headers only. Any failure degrades that file to path
+     * inference.
+     */
+    private final class MetadataExtractionStage {
+        private final Long taskId;
+        private final WebDavConfigEntity config;
+        private final String plainPassword;
+        private final TaskType taskType;
+        private final ScanTelemetry telemetry;
+        private final boolean tagsEnabled;
+        private final boolean probeEnabled;
+        private final boolean contentHashEnabled;
+        private final long probeBudgetBytes;
+        private final int contentHashSampleBytes;
+        private final int headBytes;
+        private final int tailBytes;
+        private final boolean inMemory;
+        private final long inMemoryBudgetBytes;
+        private final ExecutorService executor;
+        private final AdaptiveConcurrencyLimiter fetchLimiter;
+        private final ThreadLocal<Exception> fetchError = new ThreadLocal<>();
+        private final ThreadLocal<Sardine> sessionHolder = new ThreadLocal<>();
+        private final ConcurrentLinkedQueue<Sardine> sessions = new ConcurrentLinkedQueue<>();
+
+        private MetadataExtractionStage(Long taskId, WebDavConfigEntity config, String plainPassword,
+                                        TaskType taskType, ScanTelemetry telemetry,
+                                        boolean tagsEnabled, boolean probeEnabled, boolean contentHashEnabled,
+                                        int threadCount, AdaptiveConcurrencyLimiter fetchLimiter) {
+            this.taskId = taskId;
+            this.config = config;
+            this.plainPassword = plainPassword;
+            this.taskType = taskType;
+            this.telemetry = telemetry;
+            this.tagsEnabled = tagsEnabled;
+            this.probeEnabled = probeEnabled;
+            this.contentHashEnabled = contentHashEnabled;
+            this.probeBudgetBytes = Math.max(4096L, appScanProperties.getAudioProbeMaxFetchBytes());
+            this.contentHashSampleBytes = Math.max(1, appScanProperties.getContentHashSampleBytes());
+            this.headBytes = Math.max(1, appScanProperties.getMetadataHeadBytes());
+            this.tailBytes = Math.max(0, appScanProperties.getMetadataTailBytes());
+            this.inMemory = !"TEMP_FILE".equalsIgnoreCase(appScanProperties.getMetadataParseMode());
+            // Headers past the head window (MP4 moov at the end, large FLAC pictures) get one extra head's worth.
+            this.inMemoryBudgetBytes = 2L * headBytes + tailBytes;
+            this.executor = Executors.newFixedThreadPool(threadCount, new NamedThreadFactory("scan-meta-"));
+            this.fetchLimiter = fetchLimiter;
+        }
+
+        /**
+         * Extracts tags for {@code tagCandidates} and probes audio properties for {@code probeCandidates}, keyed
+         * by path md5. Files without a known size are left to path inference, since a ranged fetch needs the size
+         * to locate the tail.
+         */
+        private Map<String, AudioMetadata> extract(List<AudioCandidate> tagCandidates,
+                                                   List<AudioCandidate> probeCandidates) {
+            List<AudioCandidate> candidates = new ArrayList<>(tagCandidates.size() + probeCandidates.size());
+            candidates.addAll(tagCandidates);
+            candidates.addAll(probeCandidates);
+            int probeFrom = tagCandidates.size();
+            return fetchAll(candidates,
+                    i -> i >= probeFrom ? probeOne(candidates.get(i)) : extractOne(candidates.get(i)),
+                    telemetry::recordMetadataSkipped);
+        }
+
+        /**
+         * Sampled content hashes of {@code candidates}, keyed by path md5. Files without a known size or whose
+         * sampling failed get none.
+         */
+        private Map<String, String> hashContent(List<AudioCandidate> candidates) {
+            return fetchAll(candidates, i -> hashOne(candidates.get(i)), () -> { });
+        }
+
+        /**
+         * Runs {@code fetch} for every candidate with a known size on the stage pool, gated by the fetch limiter,
+         * and collects the non-null results by path md5.
+         */
+        private <T> Map<String, T> fetchAll(List<AudioCandidate> candidates, IntFunction<T> fetch,
+                                            Runnable onSizeUnknown) {
+            Map<String, T> fetched = new HashMap<>();
+            if (candidates.isEmpty()) {
+                return fetched;
+            }
+            List<AudioCandidate> submitted = new ArrayList<>(candidates.size());
+            List<Future<T>> futures = new ArrayList<>(candidates.size());
+            try {
+                for (int i = 0; i < candidates.size(); i++) {
+                    final int index = i;
+                    AudioCandidate candidate = candidates.get(i);
+                    Long size = candidate.file.getSize();
+                    if (size == null || size <= 0) {
+                        onSizeUnknown.run();
+                        continue;
+                    }
+                    fetchLimiter.acquire();
+                    try {
+                        futures.add(executor.submit(() -> {
+                            long startNanos = System.nanoTime();
+                            try {
+                                return fetch.apply(index);
+                            } finally {
+                                Exception error = fetchError.get();
+                                fetchError.remove();
+                                fetchLimiter.release(System.nanoTime() - startNanos,
+                                        AdaptiveConcurrencyLimiter.outcomeOf(error));
+                            }
+                        }));
+                        submitted.add(candidate);
+                    } catch (RejectedExecutionException e) {
+                        fetchLimiter.release(0L, AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+                        throw e;
+                    }
+                }
+                for (int i = 0; i < futures.size(); i++) {
+                    T value = futures.get(i).get();
+                    if (value != null) {
+                        fetched.put(submitted.get(i).pathMd5, value);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelAll(futures);
+                throw new IllegalStateException("元数据提取任务被中断", e);
+            } catch (ExecutionException e) {
+                cancelAll(futures);
+                throw new IllegalStateException("元数据提取任务执行失败", e.getCause());
+            }
+            return fetched;
+        }
+
+        /**
+         * Header-only probe for audio properties; an inconclusive probe falls back to the full head/tail parse,
+         * of which the caller keeps only the audio properties. Null only when the file could not be fetched.
+         */
+        private AudioMetadata probeOne(AudioCandidate candidate) {
+            Sardine session = session();
+            long fileSize = candidate.file.getSize();
+            long startNanos = System.nanoTime();
+            long fetchedBytes = 0;
+            RangedByteChannel channel = null;
+            try {
+                channel = webDavClient.openProbeChannel(session, candidate.file.getFileUrl(), fileSize,
+                        probeBudgetBytes);
+                if (channel != null) {
+                    AudioMetadata probed = AudioHeaderProbe.probe(channel);
+                    fetchedBytes = channel.getFetchedBytes();
+                    if (probed != null) {
+                        long elapsed = System.nanoTime() - startNanos;
+                        telemetry.recordProbeSuccess(elapsed, fetchedBytes);
+                        recordDuration("music.scan.audio_probe.duration", elapsed,
+                                "task_type", taskType.name(), "result", "OK");
+                        incrementCounter("music.scan.audio_probe.fetch.bytes", fetchedBytes,
+                                "task_type", taskType.name());
+                        return probed;
+                    }
+                }
+            } catch (IOException e) {
+                fetchedBytes = channel != null ? channel.getFetchedBytes() : 0;
+                log.debug("PIPELINE_SCAN_AUDIO_PROBE_FALLBACK taskId={} path={} error={}",
+                        taskId, candidate.relativePath, e.getMessage());
+            } finally {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+            long elapsed = System.nanoTime() - startNanos;
+            telemetry.recordProbeFallback(elapsed, fetchedBytes);
+            recordDuration("music.scan.audio_probe.duration", elapsed,
+                    "task_type", taskType.name(), "result", "FALLBACK");
+            AudioMetadata extracted = extractOne(candidate);
+            Exception error = fetchError.get();
+            if (extracted == null && error != null && ScanErrorClass.of(error) != ScanErrorClass.OTHER) {
+                // The file could not be fetched, which says nothing about it; the next scan tries again.
+                return null;
+            }
+            // Read but not understood (raw ADTS, unsupported container, truncated file) still counts as read.
+            return extracted != null ? extracted : new AudioMetadata();
+        }
+
+        /** Sampled content hash over a small-block probe channel; null when the file could not be sampled. */
+        private String hashOne(AudioCandidate candidate) {
+            Sardine session = session();
+            long fileSize = candidate.file.getSize();
+            long startNanos = System.nanoTime();
+            RangedByteChannel channel = null;
+            try {
+                // A sample that straddles block boundaries fetches up to a block more than it reads.
+                long budget = Math.max(probeBudgetBytes,
+                        2L * SampledContentHash.sampledBytes(fileSize, contentHashSampleBytes));
+                channel = webDavClient.openProbeChannel(session, candidate.file.getFileUrl(), fileSize, budget);
+                if (channel == null) {
+                    return null;
+                }
+                String hash = SampledContentHash.of(channel, contentHashSampleBytes);
+                recordDuration("music.scan.content_hash.duration", System.nanoTime() - startNanos,
+                        "task_type", taskType.name(), "result", "OK");
+                incrementCounter("music.scan.content_hash.fetch.bytes", channel.getFetchedBytes(),
+                        "task_type", taskType.name());
+                return hash;
+            } catch (IOException e) {
+                fetchError.set(e);
+                recordDuration("music.scan.content_hash.duration", System.nanoTime() - startNanos,
+                        "task_type", taskType.name(), "result", "ERROR");
+                log.debug("PIPELINE_SCAN_CONTENT_HASH_ERROR taskId={} path={} error={}",
+                        taskId, candidate.relativePath, e.getMessage());
+                return null;
+            } finally {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+        }
+
+        private Sardine session() {
+            Sardine session = sessionHolder.get();
+            if (session == null) {
+                session = webDavClient.createSession(config.getUsername(), plainPassword);
+                sessionHolder.set(session);
+                sessions.add(session);
+            }
+            return session;
+        }
+
+        private AudioMetadata extractOne(AudioCandidate candidate) {
+            Sardine session = session();
+            long fileSize = candidate.file.getSize();
+            long startNanos = System.nanoTime();
+            try {
+                if (inMemory) {
+                    AudioMetadata metadata = extractInMemory(session, candidate, fileSize);
+                    if (metadata != null) {
+                        return metadata;
+                    }
+                }
+                return extractFromTempFile(session, candidate, fileSize);
+            } catch (Exception e) {
+                // Read back by the task wrapper, which feeds the fetch limiter.
+                fetchError.set(e);
+                long elapsed = System.nanoTime() - startNanos;
+                telemetry.recordMetadataFailed(elapsed);
+                recordDuration("music.scan.metadata.fetch.duration", elapsed,
+                        "task_type", taskType.name(), "result", "ERROR");
+                log.debug("PIPELINE_SCAN_METADATA_ERROR taskId={} path={} error={}",
+                        taskId, candidate.relativePath, e.getMessage());
+                return null;
+            }
+        }
+
+        /**
+         * Parses straight from a Range-backed channel. Returns null when the container is not handled in memory
+         * or the channel fails, so the caller can take the temp-file path.
+         */
+        private AudioMetadata extractInMemory(Sardine session, AudioCandidate candidate, long fileSize) {
+            long startNanos = System.nanoTime();
+            RangedByteChannel channel = null;
+            try {
+                channel = webDavClient.openRangedChannel(session, candidate.file.getFileUrl(), fileSize,
+                        inMemoryBudgetBytes);
+                if (channel == null) {
+                    return null;
+                }
+                AudioMetadata metadata = audioMetadataParser.parse(channel);
+                if (metadata == null) {
+                    return null;
+                }
+                long fetchNanos = channel.getFetchNanos();
+                long parseNanos = Math.max(0L, System.nanoTime() - startNanos - fetchNanos);
+                recordSuccess(fetchNanos, parseNanos, channel.getFetchedBytes(), "IN_MEMORY");
+                return metadata;
+            } catch (IOException e) {
+                log.debug("PIPELINE_SCAN_METADATA_IN_MEMORY_FALLBACK taskId={} path={} error={}",
+                        taskId, candidate.relativePath, e.getMessage());
+                return null;
+            } finally {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+        }
+
+        private AudioMetadata extractFromTempFile(Sardine session, AudioCandidate candidate,
+                                                  long fileSize) throws Exception {
+            long startNanos = System.nanoTime();
+            File partialFile = null;
+            try {
+                partialFile = webDavClient.downloadPartialToTempFile(session, candidate.file.getFileUrl(),
+                        fileSize, headBytes, tailBytes);
+                long fetchNanos = System.nanoTime() - startNanos;
+                long parseStartNanos = System.nanoTime();
+                AudioMetadata metadata = audioMetadataParser.parse(partialFile);
+                long parseNanos = System.nanoTime() - parseStartNanos;
+                recordSuccess(fetchNanos, parseNanos, rangedBytes(fileSize), "TEMP_FILE");
+                return metadata;
+            } finally {
+                if (partialFile != null && partialFile.exists() && !partialFile.delete()) {
+                    log.debug("Failed to delete metadata temp file: {}", partialFile.getAbsolutePath());
+                }
+            }
+        }
+
+        private void recordSuccess(long fetchNanos, long parseNanos, long fetchedBytes, String mode) {
+            telemetry.recordMetadataSuccess(fetchNanos, parseNanos, fetchedBytes);
+            recordDuration("music.scan.metadata.fetch.duration", fetchNanos,
+                    "task_type", taskType.name(), "result", "OK");
+            recordDuration("music.scan.metadata.parse.duration", parseNanos,
+                    "task_type", taskType.name(), "result", "OK", "mode", mode);
+            incrementCounter("music.scan.metadata.fetch.bytes", fetchedBytes, "task_type", taskType.name());
+        }
+
+        private long rangedBytes(long fileSize) {
+            if (fileSize <= headBytes) {
+                return fileSize;
+            }
+            return headBytes + Math.min(tailBytes, fileSize - headBytes);
+        }
+
+        private void cancelAll(List<? extends Future<?>> futures) {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        private void shutdown() {
+            executor.shutdownNow();
+            for (Sardine session : sessions) {
+                webDavClient.closeSession(session);
+            }
+            logConcurrency(taskId, fetchLimiter);
+            fetchLimiter.close();
+        }
+    }
+
     // --- Inner classes ---
 
+    /**
+     * Signatures of applied directories waiting for a multi-row upsert. Only touched by the coordinator thread.
+     */
+    private static class DirectorySignatureWriteBuffer {
+        private final int batchSize;
+        private List<DirectorySignatureEntity> pending = new ArrayList<>();
+        private int failures;
+
+        DirectorySignatureWriteBuffer(int batchSize) {
+            this.batchSize = Math.max(1, batchSize);
+        }
+
+        /** Returns true once the buffer is full and should be flushed. */
+        boolean add(DirectorySignatureEntity entity) {
+            pending.add(entity);
+            return pending.size() >= batchSize;
+        }
+
+        void recordFailures(int failed) {
+            failures += failed;
+        }
+
+        boolean hasFailures() {
+            return failures > 0;
+        }
+
+        List<DirectorySignatureEntity> drain() {
+            if (pending.isEmpty()) {
+                return Collections.<DirectorySignatureEntity>emptyList();
+            }
+            List<DirectorySignatureEntity> drained = pending;
+            pending = new ArrayList<>();
+            return drained;
+        }
+    }
+
+    /**
+     * Per-scan state shared by the pipeline stages. Populated once by the coordinator before any stage task is
+     * submitted; the stage executors publish it to their workers.
+     */
+    private static class ScanContext {
+        Long taskId;
+        TaskType taskType;
+        WebDavConfigEntity config;
+        ScanResult result;
+        ScanProgressTracker tracker;
+        ScanTelemetry telemetry;
+        BooleanSupplier cancelSignal;
+        Set<String> supportedExtensions;
+        Set<String> lyricExtensions;
+        Set<String> resumedCheckpoints;
+        boolean directorySkipEnabled;
+        boolean subtreeSkipEnabled;
+        /** Relative paths of listed directories whose etag did / did not match their signature. */
+        final Set<String> etagChangedDirs = ConcurrentHashMap.newKeySet();
+        final Set<String> etagUnchangedDirs = ConcurrentHashMap.newKeySet();
+        boolean deleteDetectionEnabled;
+        /** Live track ids at scan start for seen-based delete detection; null with any other delete mode. */
+        ScanSeenSet seenSet;
+        boolean useGenerationDelete;
+        int smallDirMergeThreshold;
+        SmallDirBatcher smallDirBatcher;
+        DirectorySignatureIndex signatureIndex;
+        DirectoryIdResolver directoryIds;
+        DirectorySignatureWriteBuffer signatureBuffer;
+        /** Post-scan delete of either mode; its incomplete flag also keeps the sync token. */
+        ScanDeleteSweep deleteSweep;
+        /** Path md5s of directories that must not be signature-skipped; set once, before they are re-listed. */
+        volatile Set<String> forceReprocessDirs = Collections.emptySet();
+        MetadataExtractionStage metadataStage;
+        ScanWriteBehindWriter rowWriter;
+        ScanStage processStage;
+        ScanStage writeStage;
+        /** Failed directories waiting out their backoff before the process stage runs them again. */
+        ScanRetryQueue<ProcessRetry> processRetries;
+    }
+
+    private static class ProcessRetry {
+        private final Supplier<DirectoryTaskOutcome> job;
+        /** How many times the job has failed so far. */
+        private final int attempt;
+
+        private ProcessRetry(Supplier<DirectoryTaskOutcome> job, int attempt) {
+            this.job = job;
+            this.attempt = attempt;
+        }
+    }
+
+    /**
+     * Accumulates small directories from the classify workers until they add up to one DB batch of files.
+     */
+    private static class SmallDirBatcher {
+        private final int flushFileCount;
+        private List<SmallDirEntry> entries = new ArrayList<>();
+        private int fileCount;
+
+        SmallDirBatcher(int flushFileCount) {
+            this.flushFileCount = flushFileCount;
+        }
+
+        /** Returns the batch to submit once enough files have accumulated, otherwise null. */
+        synchronized List<SmallDirEntry> add(SmallDirEntry entry, int audioFileCount) {
+            entries.add(entry);
+            fileCount += audioFileCount;
+            return fileCount >= flushFileCount ? drain() : null;
+        }
+
+        synchronized List<SmallDirEntry> drain() {
+            List<SmallDirEntry> drained = entries;
+            entries = new ArrayList<>();
+            fileCount = 0;
+            return drained;
+        }
+    }
+
     private static class SmallDirEntry {
         final WebDavDirectoryInfo dirInfo;
         final String dirPathMd5;
@@ -1449,10 +2793,14 @@ public class PipelineScanService {
         private final LongAdder listOkCount = new LongAdder();
         private final LongAdder listErrCount = new LongAdder();
         private final LongAdder listTotalNanos = new LongAdder();
+        private final LongAdder listRetryCount = new LongAdder();
+        private final LongAdder listRetryExhaustedCount = new LongAdder();
 
         private final LongAdder processOkCount = new LongAdder();
         private final LongAdder processErrCount = new LongAdder();
         private final LongAdder processTotalNanos = new LongAdder();
+        private final LongAdder processRetryCount = new LongAdder();
+        private final LongAdder processRetryExhaustedCount = new LongAdder();
 
         private final LongAdder batchUpsertCalls = new LongAdder();
         private final LongAdder batchUpsertFailCalls = new LongAdder();
@@ -1468,10 +2816,10 @@ public class PipelineScanService {
         private final LongAdder touchByPrefixFailCalls = new LongAdder();
         private final LongAdder touchByPrefixTotalNanos = new LongAdder();
 
-        private final LongAdder seenInsertCalls = new LongAdder();
-        private final LongAdder seenInsertFailCalls = new LongAdder();
-        private final LongAdder seenInsertRows = new LongAdder();
-        private final LongAdder seenInsertTotalNanos = new LongAdder();
+        private final LongAdder seenLookupCalls = new LongAdder();
+        private final LongAdder seenLookupFailCalls = new LongAdder();
+        private final LongAdder seenLookupRows = new LongAdder();
+        private final LongAdder seenLookupTotalNanos = new LongAdder();
 
         private final LongAdder signatureCalls = new LongAdder();
         private final LongAdder signatureFailCalls = new LongAdder();
@@ -1485,6 +2833,17 @@ public class PipelineScanService {
         private final LongAdder dedupAffectedRows = new LongAdder();
         private final LongAdder dedupTotalNanos = new LongAdder();
 
+        private final LongAdder metadataOkCount = new LongAdder();
+        private final LongAdder metadataErrCount = new LongAdder();
+        private final LongAdder metadataSkippedCount = new LongAdder();
+        private final LongAdder metadataFetchNanos = new LongAdder();
+        private final LongAdder metadataParseNanos = new LongAdder();
+        private final LongAdder metadataFetchedBytes = new LongAdder();
+        private final LongAdder probeOkCount = new LongAdder();
+        private final LongAdder probeFallbackCount = new LongAdder();
+        private final LongAdder probeTotalNanos = new LongAdder();
+        private final LongAdder probeFetchedBytes = new LongAdder();
+
         private ScanTelemetry(Long taskId, Long configId, String taskType) {
             this.taskId = taskId;
             this.configId = configId;
@@ -1501,6 +2860,22 @@ public class PipelineScanService {
             listTotalNanos.add(Math.max(0L, nanos));
         }
 
+        private void recordListRetry() {
+            listRetryCount.increment();
+        }
+
+        private void recordListRetryExhausted() {
+            listRetryExhaustedCount.increment();
+        }
+
+        private void recordProcessRetry() {
+            processRetryCount.increment();
+        }
+
+        private void recordProcessRetryExhausted() {
+            processRetryExhaustedCount.increment();
+        }
+
         private void recordProcessSuccess(long nanos) {
             processOkCount.increment();
             processTotalNanos.add(Math.max(0L, nanos));
@@ -1540,14 +2915,14 @@ public class PipelineScanService {
             touchByPrefixFailCalls.increment();
         }
 
-        private void recordSeenInsert(long nanos, int rows) {
-            seenInsertCalls.increment();
-            seenInsertRows.add(Math.max(0, rows));
-            seenInsertTotalNanos.add(Math.max(0L, nanos));
+        private void recordSeenLookup(long nanos, int rows) {
+            seenLookupCalls.increment();
+            seenLookupRows.add(Math.max(0, rows));
+            seenLookupTotalNanos.add(Math.max(0L, nanos));
         }
 
-        private void recordSeenInsertFailed() {
-            seenInsertFailCalls.increment();
+        private void recordSeenLookupFailed() {
+            seenLookupFailCalls.increment();
         }
 
         private void recordSignatureUpdate(long nanos) {
@@ -1574,10 +2949,38 @@ public class PipelineScanService {
             dedupTotalNanos.add(Math.max(0L, nanos));
         }
 
+        private void recordMetadataSuccess(long fetchNanos, long parseNanos, long fetchedBytes) {
+            metadataOkCount.increment();
+            metadataFetchNanos.add(Math.max(0L, fetchNanos));
+            metadataParseNanos.add(Math.max(0L, parseNanos));
+            metadataFetchedBytes.add(Math.max(0L, fetchedBytes));
+        }
+
+        private void recordMetadataFailed(long nanos) {
+            metadataErrCount.increment();
+            metadataFetchNanos.add(Math.max(0L, nanos));
+        }
+
+        private void recordMetadataSkipped() {
+            metadataSkippedCount.increment();
+        }
+
+        private void recordProbeSuccess(long nanos, long fetchedBytes) {
+            probeOkCount.increment();
+            probeTotalNanos.add(Math.max(0L, nanos));
+            probeFetchedBytes.add(Math.max(0L, fetchedBytes));
+        }
+
+        private void recordProbeFallback(long nanos, long fetchedBytes) {
+            probeFallbackCount.increment();
+            probeTotalNanos.add(Math.max(0L, nanos));
+            probeFetchedBytes.add(Math.max(0L, fetchedBytes));
+        }
+
         private void logSummary(long elapsedMs, ScanResult result) {
             log.info("SCAN_STAGE_SUMMARY taskId={} configId={} taskType={} elapsedMs={} "
-                            + "listOk={} listErr={} listAvgMs={} "
-                            + "procOk={} procErr={} procAvgMs={} "
+                            + "listOk={} listErr={} listAvgMs={} listRetry={} listRetryExhausted={} "
+                            + "procOk={} procErr={} procAvgMs={} procRetry={} procRetryExhausted={} "
                             + "upsertCalls={} upsertFail={} upsertRows={} upsertAvgMs={} "
                             + "touchMd5Calls={} touchMd5Fail={} touchMd5Rows={} touchMd5AvgMs={} "
                             + "touchPrefixCalls={} touchPrefixFail={} touchPrefixAvgMs={} "
@@ -1585,22 +2988,46 @@ public class PipelineScanService {
                             + "sigCalls={} sigFail={} sigAvgMs={} "
                             + "ckptCalls={} ckptFail={} ckptAvgMs={} "
                             + "dedupCalls={} dedupRows={} dedupAvgMs={} "
+                            + "metaOk={} metaErr={} metaSkipped={} metaFetchAvgMs={} metaParseAvgMs={} metaBytes={} "
+                            + "probeOk={} probeFallback={} probeAvgMs={} probeBytes={} "
                             + "added={} updated={} deleted={} failed={}",
                     taskId, configId, taskType, elapsedMs,
                     listOkCount.sum(), listErrCount.sum(), avgMs(listTotalNanos, add(listOkCount, listErrCount)),
+                    listRetryCount.sum(), listRetryExhaustedCount.sum(),
                     processOkCount.sum(), processErrCount.sum(), avgMs(processTotalNanos, add(processOkCount, processErrCount)),
+                    processRetryCount.sum(), processRetryExhaustedCount.sum(),
                     batchUpsertCalls.sum(), batchUpsertFailCalls.sum(), batchUpsertRows.sum(),
                     avgMs(batchUpsertTotalNanos, batchUpsertCalls),
                     touchByMd5Calls.sum(), touchByMd5FailCalls.sum(), touchByMd5Rows.sum(),
                     avgMs(touchByMd5TotalNanos, touchByMd5Calls),
                     touchByPrefixCalls.sum(), touchByPrefixFailCalls.sum(),
                     avgMs(touchByPrefixTotalNanos, touchByPrefixCalls),
-                    seenInsertCalls.sum(), seenInsertFailCalls.sum(), seenInsertRows.sum(),
-                    avgMs(seenInsertTotalNanos, seenInsertCalls),
+                    seenLookupCalls.sum(), seenLookupFailCalls.sum(), seenLookupRows.sum(),
+                    avgMs(seenLookupTotalNanos, seenLookupCalls),
                     signatureCalls.sum(), signatureFailCalls.sum(), avgMs(signatureTotalNanos, signatureCalls),
                     checkpointCalls.sum(), checkpointFailCalls.sum(), avgMs(checkpointTotalNanos, checkpointCalls),
                     dedupCalls.sum(), dedupAffectedRows.sum(), avgMs(dedupTotalNanos, dedupCalls),
+                    metadataOkCount.sum(), metadataErrCount.sum(), metadataSkippedCount.sum(),
+                    avgMs(metadataFetchNanos, add(metadataOkCount, metadataErrCount)),
+                    avgMs(metadataParseNanos, metadataOkCount), metadataFetchedBytes.sum(),
+                    probeOkCount.sum(), probeFallbackCount.sum(),
+                    avgMs(probeTotalNanos, add(probeOkCount, probeFallbackCount)), probeFetchedBytes.sum(),
                     result.getAddedCount(), result.getUpdatedCount(), result.getDeletedCount(), result.getFailedCount());
+            log.info("SCAN_STAGE_THROUGHPUT taskId={} configId={} taskType={} elapsedMs={} "
+                            + "listDirsPerSec={} procDirsPerSec={} upsertRowsPerSec={} metaFilesPerSec={} metaKiBPerSec={}",
+                    taskId, configId, taskType, elapsedMs,
+                    perSecond(add(listOkCount, listErrCount), elapsedMs),
+                    perSecond(add(processOkCount, processErrCount), elapsedMs),
+                    perSecond(batchUpsertRows.sum(), elapsedMs),
+                    perSecond(add(metadataOkCount, metadataErrCount), elapsedMs),
+                    perSecond(metadataFetchedBytes.sum() / 1024L, elapsedMs));
+        }
+
+        private String perSecond(long count, long elapsedMs) {
+            if (elapsedMs <= 0) {
+                return "0.0";
+            }
+            return String.format(Locale.ROOT, "%.1f", count * 1000.0D / elapsedMs);
         }
 
         private long add(LongAdder left, LongAdder right) {
@@ -1624,19 +3051,26 @@ public class PipelineScanService {
         private final String dirUrl;
         private final WebDavDirectoryInfo dirInfo;
         private final Exception error;
+        /** True when the list task that produced this outcome keeps producing (Depth:infinity). */
+        private final boolean more;
 
-        private DirectoryListOutcome(String dirUrl, WebDavDirectoryInfo dirInfo, Exception error) {
+        private DirectoryListOutcome(String dirUrl, WebDavDirectoryInfo dirInfo, Exception error, boolean more) {
             this.dirUrl = dirUrl;
             this.dirInfo = dirInfo;
             this.error = error;
+            this.more = more;
         }
 
         private static DirectoryListOutcome success(String dirUrl, WebDavDirectoryInfo dirInfo) {
-            return new DirectoryListOutcome(dirUrl, dirInfo, null);
+            return new DirectoryListOutcome(dirUrl, dirInfo, null, false);
+        }
+
+        private static DirectoryListOutcome treeEntry(WebDavDirectoryInfo dirInfo) {
+            return new DirectoryListOutcome(dirInfo.getDirectoryUrl(), dirInfo, null, true);
         }
 
         private static DirectoryListOutcome failed(String dirUrl, Exception error) {
-            return new DirectoryListOutcome(dirUrl, null, error);
+            return new DirectoryListOutcome(dirUrl, null, error, false);
         }
     }
 
@@ -1649,10 +3083,13 @@ public class PipelineScanService {
         private final Exception error;
         /** Non-null only for merged small-directory batches */
         private final List<SmallDirEntry> mergedEntries;
+        /** Entries of a merged batch that threw, with their error; the others were processed. */
+        private final Map<SmallDirEntry, Exception> failedEntries;
 
         private DirectoryTaskOutcome(WebDavDirectoryInfo dirInfo, String dirPathMd5,
                                      DirProcessResult dirResult, Exception error,
-                                     List<SmallDirEntry> mergedEntries) {
+                                     List<SmallDirEntry> mergedEntries,
+                                     Map<SmallDirEntry, Exception> failedEntries) {
             this.dirInfo = dirInfo;
             this.dirRelativePath = dirInfo == null ? "" : dirInfo.getRelativePath();
             this.dirPathMd5 = dirPathMd5;
@@ -1660,21 +3097,25 @@ public class PipelineScanService {
             this.dirResult = dirResult;
             this.error = error;
             this.mergedEntries = mergedEntries;
+            this.failedEntries = failedEntries;
         }
 
         private static DirectoryTaskOutcome success(WebDavDirectoryInfo dirInfo, String dirPathMd5,
                                                     DirProcessResult dirResult) {
-            return new DirectoryTaskOutcome(dirInfo, dirPathMd5, dirResult, null, null);
+            return new DirectoryTaskOutcome(dirInfo, dirPathMd5, dirResult, null, null,
+                    Collections.<SmallDirEntry, Exception>emptyMap());
         }
 
         private static DirectoryTaskOutcome failed(WebDavDirectoryInfo dirInfo, String dirPathMd5, Exception error) {
-            return new DirectoryTaskOutcome(dirInfo, dirPathMd5, null, error, null);
+            return new DirectoryTaskOutcome(dirInfo, dirPathMd5, null, error, null,
+                    Collections.<SmallDirEntry, Exception>emptyMap());
         }
 
-        private static DirectoryTaskOutcome merged(List<SmallDirEntry> entries, DirProcessResult compositeResult) {
+        private static DirectoryTaskOutcome merged(List<SmallDirEntry> entries, DirProcessResult compositeResult,
+                                                   Map<SmallDirEntry, Exception> failedEntries) {
             WebDavDirectoryInfo firstInfo = entries.get(0).dirInfo;
             String firstMd5 = entries.get(0).dirPathMd5;
-            return new DirectoryTaskOutcome(firstInfo, firstMd5, compositeResult, null, entries);
+            return new DirectoryTaskOutcome(firstInfo, firstMd5, compositeResult, null, entries, failedEntries);
         }
 
         private boolean isMerged() {
@@ -1692,7 +3133,11 @@ public class PipelineScanService {
 
         @Override
         public Thread newThread(Runnable r) {
-            Thread t = new Thread(r, prefix + index.getAndIncrement());
+            Thread t = new Thread(() -> {
+                try (WebDavTrafficClass.Scope ignored = WebDavTrafficClass.SCAN.enter()) {
+                    r.run();
+                }
+            }, prefix + index.getAndIncrement());
             t.setDaemon(true);
             return t;
         }
@@ -1717,9 +3162,15 @@ public class PipelineScanService {
         int skipped;
         int failed;
         int audioFiles;
+        int deleted;
+        /** Dedup keys of the rows this directory added or updated. */
+        final List<String> dedupKeys = new ArrayList<>();
     }
 
     public static class ScanResult {
+        /** Past this many touched keys, dedup re-evaluates every key instead of tracking them. */
+        private static final int MAX_TOUCHED_DEDUP_KEYS = 100_000;
+
         private int totalFiles;
         private int audioFiles;
         private int addedCount;
@@ -1728,6 +3179,7 @@ public class PipelineScanService {
         private int failedCount;
         private int deduplicatedCount;
         private boolean canceled;
+        private Set<String> touchedDedupKeys = new HashSet<>();
 
         public void addDirResult(DirProcessResult dir) {
             totalFiles += dir.processed + dir.skipped;
@@ -1735,8 +3187,18 @@ public class PipelineScanService {
             addedCount += dir.added;
             updatedCount += dir.updated;
             failedCount += dir.failed;
+            deletedCount += dir.deleted;
+            if (touchedDedupKeys != null) {
+                touchedDedupKeys.addAll(dir.dedupKeys);
+                if (touchedDedupKeys.size() > MAX_TOUCHED_DEDUP_KEYS) {
+                    touchedDedupKeys = null;
+                }
+            }
         }
 
+        /** Dedup keys of every added or updated row, or null when there were too many to track. */
+        Set<String> getTouchedDedupKeys() { return touchedDedupKeys; }
+
         public void incrementFailedCount() { failedCount++; }
 
         public int getTotalFiles() { return totalFiles; }
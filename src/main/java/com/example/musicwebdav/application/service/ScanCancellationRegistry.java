@@ -0,0 +1,81 @@
+package com.example.musicwebdav.application.service;
+
+import com.example.musicwebdav.domain.enumtype.TaskStatus;
+import com.example.musicwebdav.infrastructure.persistence.mapper.ScanTaskMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cancellation tokens of the scan tasks running on this node. Cancels issued here flip the token immediately;
+ * cancels written to scan_task by other nodes are picked up by a low-frequency batch poll.
+ */
+@Component
+public class ScanCancellationRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(ScanCancellationRegistry.class);
+
+    private final ScanTaskMapper scanTaskMapper;
+    private final ConcurrentMap<Long, ScanCancellationToken> tokens = new ConcurrentHashMap<>();
+
+    public ScanCancellationRegistry(ScanTaskMapper scanTaskMapper) {
+        this.scanTaskMapper = scanTaskMapper;
+    }
+
+    public ScanCancellationToken register(Long taskId) {
+        return tokens.computeIfAbsent(taskId, ScanCancellationToken::new);
+    }
+
+    public void unregister(Long taskId) {
+        tokens.remove(taskId);
+    }
+
+    /**
+     * Cancels the local token of the task, if it runs on this node.
+     */
+    public boolean cancel(Long taskId) {
+        ScanCancellationToken token = tokens.get(taskId);
+        if (token == null) {
+            return false;
+        }
+        boolean canceled = token.cancel();
+        if (canceled) {
+            log.info("SCAN_CANCEL_SIGNALED taskId={} source=LOCAL", taskId);
+        }
+        return canceled;
+    }
+
+    @Scheduled(fixedDelayString = "${app.scan.cancel-poll-interval-ms:5000}")
+    public void pollRemoteCancellations() {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        List<Long> taskIds = new ArrayList<>();
+        for (ScanCancellationToken token : tokens.values()) {
+            if (!token.getAsBoolean()) {
+                taskIds.add(token.getTaskId());
+            }
+        }
+        if (taskIds.isEmpty()) {
+            return;
+        }
+        List<Long> canceledIds;
+        try {
+            canceledIds = scanTaskMapper.selectIdsByIdsAndStatus(taskIds, TaskStatus.CANCELED.name());
+        } catch (Exception e) {
+            log.warn("Scan cancel poll failed, taskCount={}", taskIds.size(), e);
+            return;
+        }
+        for (Long taskId : canceledIds) {
+            ScanCancellationToken token = tokens.get(taskId);
+            if (token != null && token.cancel()) {
+                log.info("SCAN_CANCEL_SIGNALED taskId={} source=POLL", taskId);
+            }
+        }
+    }
+}
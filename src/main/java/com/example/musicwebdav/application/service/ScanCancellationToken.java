@@ -0,0 +1,69 @@
+package com.example.musicwebdav.application.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-process cancel flag for one scan task. Reading it is a volatile read, so scan loops can check it on every
+ * iteration; listeners let the scan interrupt in-flight work as soon as the flag flips.
+ */
+public final class ScanCancellationToken implements BooleanSupplier {
+
+    private static final Logger log = LoggerFactory.getLogger(ScanCancellationToken.class);
+
+    private final Long taskId;
+    private final AtomicBoolean canceled = new AtomicBoolean(false);
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    public ScanCancellationToken(Long taskId) {
+        this.taskId = taskId;
+    }
+
+    public Long getTaskId() {
+        return taskId;
+    }
+
+    @Override
+    public boolean getAsBoolean() {
+        return canceled.get();
+    }
+
+    /**
+     * Flips the flag and runs the listeners once. Returns false if the token was already canceled.
+     */
+    public boolean cancel() {
+        if (!canceled.compareAndSet(false, true)) {
+            return false;
+        }
+        for (Runnable listener : listeners) {
+            runSafely(listener);
+        }
+        return true;
+    }
+
+    /**
+     * Registers a listener; it runs immediately when the token is already canceled.
+     */
+    public void onCancel(Runnable listener) {
+        listeners.add(listener);
+        if (canceled.get() && listeners.remove(listener)) {
+            runSafely(listener);
+        }
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private void runSafely(Runnable listener) {
+        try {
+            listener.run();
+        } catch (RuntimeException e) {
+            log.warn("Scan cancel listener failed, taskId={}", taskId, e);
+        }
+    }
+}
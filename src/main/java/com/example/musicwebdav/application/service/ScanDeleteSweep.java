@@ -0,0 +1,145 @@
+package com.example.musicwebdav.application.service;
+
+import com.example.musicwebdav.infrastructure.persistence.entity.DirectorySignatureEntity;
+import com.example.musicwebdav.infrastructure.persistence.mapper.TrackMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delete detection of one scan by directory generation. Every directory the scan lists ends up carrying the scan's
+ * task id as its generation: rewritten signatures get it with their upsert, skipped directories and subtrees are
+ * stamped here. Afterwards a directory still on an older generation was not listed, so its tracks are gone.
+ *
+ * <p>The sweep is all-or-nothing: a directory that failed to list or process, or a stamp that could not be
+ * written, leaves a live directory on the old generation, and sweeping then would delete it. Such failures mark
+ * the generation incomplete and nothing is swept. The seen-file mode ({@link #deleteUnseen}) is gated the same
+ * way, since a directory that was never listed marks none of its tracks seen either.
+ */
+final class ScanDeleteSweep {
+
+    private static final Logger log = LoggerFactory.getLogger(ScanDeleteSweep.class);
+    private static final int DELETE_CHUNK_SIZE = 500;
+
+    private final DirectorySignatureService directorySignatureService;
+    private final TrackMapper trackMapper;
+    private final Long configId;
+    private final Long generation;
+    private final int stampBatchSize;
+    /** Listed-but-not-rewritten directories awaiting a generation stamp; write stage only. */
+    private List<String> pendingStamps = new ArrayList<>();
+    private volatile boolean incomplete;
+
+    ScanDeleteSweep(DirectorySignatureService directorySignatureService, TrackMapper trackMapper, Long configId,
+                    Long generation, int stampBatchSize) {
+        this.directorySignatureService = directorySignatureService;
+        this.trackMapper = trackMapper;
+        this.configId = configId;
+        this.generation = generation;
+        this.stampBatchSize = Math.max(1, stampBatchSize);
+    }
+
+    /**
+     * Queues the stamp of a directory that was listed but whose signature row is not rewritten. Write stage only.
+     */
+    void stampSkipped(String dirPathMd5) {
+        pendingStamps.add(dirPathMd5);
+        if (pendingStamps.size() >= stampBatchSize) {
+            flushStamps();
+        }
+    }
+
+    /** Write stage only. */
+    void flushStamps() {
+        if (pendingStamps.isEmpty()) {
+            return;
+        }
+        List<String> batch = pendingStamps;
+        pendingStamps = new ArrayList<>();
+        if (!directorySignatureService.stampGeneration(configId, batch, generation)) {
+            incomplete = true;
+        }
+    }
+
+    /** Stamps the directories of a subtree skipped without listing it, by signature row id. */
+    void stampSubtree(List<Long> dirIds) {
+        if (!directorySignatureService.stampGenerationByIds(configId, dirIds, generation)) {
+            incomplete = true;
+        }
+    }
+
+    /** Some directory may exist without carrying this scan's generation. */
+    void markIncomplete() {
+        incomplete = true;
+    }
+
+    /**
+     * A listed directory could not be processed, alone or as one entry of a merged small-directory batch: its
+     * signature keeps the old generation and none of its tracks were marked seen.
+     */
+    void directoryFailed(String dirRelativePath) {
+        if (!incomplete) {
+            log.info("PIPELINE_SCAN_DELETE_DISABLED taskId={} configId={} reason=PROCESS_FAILED dir={}",
+                    generation, configId, dirRelativePath);
+        }
+        incomplete = true;
+    }
+
+    boolean isIncomplete() {
+        return incomplete;
+    }
+
+    /**
+     * Soft-deletes the tracks that were live at scan start and never marked seen, in id batches.
+     */
+    int deleteUnseen(ScanSeenSet seenSet) {
+        if (incomplete) {
+            log.info("PIPELINE_SCAN_SEEN_DELETE_SKIPPED taskId={} configId={} reason=INCOMPLETE_LISTING",
+                    generation, configId);
+            return 0;
+        }
+        AtomicInteger deleted = new AtomicInteger();
+        int unseen = seenSet.forEachUnseen(DELETE_CHUNK_SIZE,
+                ids -> deleted.addAndGet(trackMapper.softDeleteByIds(ids)));
+        log.info("PIPELINE_SCAN_SEEN_DELETE taskId={} configId={} ids={} unseen={} deleted={}",
+                generation, configId, seenSet.size(), unseen, deleted.get());
+        return deleted.get();
+    }
+
+    /**
+     * Soft-deletes the tracks of directories this scan did not list and drops their signatures. A removed
+     * directory's subdirectories are stale as well, so deleting by the stale dir_ids covers whole subtrees without
+     * matching on path prefixes.
+     *
+     * @param signatureFailures some signature upserts failed, so their directories kept the old generation
+     */
+    int sweepStaleDirectories(boolean signatureFailures) {
+        if (incomplete || signatureFailures) {
+            log.info("PIPELINE_SCAN_GENERATION_SWEEP_SKIPPED taskId={} configId={} reason=INCOMPLETE_LISTING",
+                    generation, configId);
+            return 0;
+        }
+        long startNanos = System.nanoTime();
+        List<DirectorySignatureEntity> stale = directorySignatureService.selectStale(configId, generation);
+        if (stale.isEmpty()) {
+            return 0;
+        }
+        List<Long> staleIds = new ArrayList<>(stale.size());
+        for (DirectorySignatureEntity directory : stale) {
+            staleIds.add(directory.getId());
+        }
+        int deleted = 0;
+        for (int i = 0; i < staleIds.size(); i += DELETE_CHUNK_SIZE) {
+            deleted += trackMapper.softDeleteByDirIdIn(configId,
+                    staleIds.subList(i, Math.min(i + DELETE_CHUNK_SIZE, staleIds.size())));
+        }
+        int removedSignatures = directorySignatureService.deleteStale(configId, generation);
+        log.info("PIPELINE_SCAN_GENERATION_SWEEP taskId={} configId={} staleDirs={} deletedTracks={} "
+                        + "removedSignatures={} elapsedMs={}",
+                generation, configId, stale.size(), deleted, removedSignatures,
+                String.format("%.1f", (System.nanoTime() - startNanos) / 1_000_000.0));
+        return deleted;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.musicwebdav.application.service;
+
+import com.example.musicwebdav.infrastructure.webdav.DepthInfinityUnsupportedException;
+import com.example.musicwebdav.infrastructure.webdav.SyncTokenInvalidException;
+import com.example.musicwebdav.infrastructure.webdav.WebDavStatusException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+
+/**
+ * What kind of failure a scan step ran into, and whether trying again later can help. A timeout or a throttled
+ * request is worth another attempt, a wrong password or a missing directory is not. Throttling backs off longer
+ * than the rest, since the server asked for it.
+ */
+enum ScanErrorClass {
+
+    TIMEOUT(true, 1),
+    THROTTLED(true, 4),
+    SERVER_ERROR(true, 2),
+    NETWORK(true, 1),
+    DB_TRANSIENT(true, 1),
+    AUTH(false, 0),
+    NOT_FOUND(false, 0),
+    CLIENT_ERROR(false, 0),
+    OTHER(false, 0);
+
+    private static final int MAX_CAUSE_DEPTH = 8;
+
+    private final boolean retryable;
+    private final int backoffFactor;
+
+    ScanErrorClass(boolean retryable, int backoffFactor) {
+        this.retryable = retryable;
+        this.backoffFactor = backoffFactor;
+    }
+
+    boolean isRetryable() {
+        return retryable;
+    }
+
+    int getBackoffFactor() {
+        return backoffFactor;
+    }
+
+    /** The server is saturated: it timed out or said so. */
+    boolean isOverload() {
+        return this == TIMEOUT || this == THROTTLED;
+    }
+
+    /**
+     * Walks the cause chain; the first exception that says something about the failure decides. Sardine and the
+     * client wrap the interesting part, so an {@link IllegalStateException} on top is looked through.
+     */
+    static ScanErrorClass of(Throwable error) {
+        Throwable cause = error;
+        for (int depth = 0; cause != null && depth < MAX_CAUSE_DEPTH; depth++, cause = cause.getCause()) {
+            if (cause instanceof DepthInfinityUnsupportedException || cause instanceof SyncTokenInvalidException) {
+                return CLIENT_ERROR;
+            }
+            if (cause instanceof WebDavStatusException) {
+                return ofStatus(((WebDavStatusException) cause).getStatusCode());
+            }
+            if (cause instanceof HttpResponseException) {
+                return ofStatus(((HttpResponseException) cause).getStatusCode());
+            }
+            if (cause instanceof SocketTimeoutException || cause instanceof ConnectTimeoutException) {
+                return TIMEOUT;
+            }
+            if (cause instanceof TransientDataAccessException || cause instanceof RecoverableDataAccessException) {
+                return DB_TRANSIENT;
+            }
+            if (cause instanceof NonTransientDataAccessException) {
+                return OTHER;
+            }
+            if (cause instanceof IOException) {
+                return NETWORK;
+            }
+        }
+        return OTHER;
+    }
+
+    static ScanErrorClass ofStatus(int statusCode) {
+        if (statusCode == 401 || statusCode == 403) {
+            return AUTH;
+        }
+        if (statusCode == 404 || statusCode == 410) {
+            return NOT_FOUND;
+        }
+        if (statusCode == 408 || statusCode == 504) {
+            return TIMEOUT;
+        }
+        if (statusCode == 429 || statusCode == 503) {
+            return THROTTLED;
+        }
+        if (statusCode >= 500) {
+            return SERVER_ERROR;
+        }
+        return statusCode >= 400 ? CLIENT_ERROR : OTHER;
+    }
+}
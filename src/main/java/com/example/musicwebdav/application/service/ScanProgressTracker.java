@@ -12,6 +12,8 @@ import org.slf4j.LoggerFactory;
  *
  * <p>Phase 1 (DISCOVERY): Reports directory discovery speed and tree depth.
  * <p>Phase 2 (PROCESS): Reports file processing progress with stable ETA.
+ *
+ * <p>Thread-safe: the scan coordinator reports discoveries while the write stage reports completions.
  */
 public class ScanProgressTracker {
 
@@ -79,7 +81,7 @@ public class ScanProgressTracker {
     // Event callbacks
     // ════════════════════════════════════════════════════════
 
-    public void onDirectoryDiscovered(String dirPath, int fileCount) {
+    public synchronized void onDirectoryDiscovered(String dirPath, int fileCount) {
         totalFilesDiscovered += fileCount;
         // Warn on large directories
         if (largeDirWarnThreshold > 0 && fileCount > largeDirWarnThreshold) {
@@ -88,11 +90,11 @@ public class ScanProgressTracker {
         }
     }
 
-    public void addDiscoveredDirectories(int count) {
+    public synchronized void addDiscoveredDirectories(int count) {
         totalDirectoriesDiscovered += count;
     }
 
-    public void onDirectoryCompleted(String dirPath, int processed, int added, int updated, int skipped, int failed) {
+    public synchronized void onDirectoryCompleted(String dirPath, int processed, int added, int updated, int skipped, int failed) {
         completedDirectories++;
         filesProcessed += processed;
         filesAdded += added;
@@ -104,7 +106,7 @@ public class ScanProgressTracker {
         checkMilestone();
     }
 
-    public void onDirectorySkipped(String dirPath) {
+    public synchronized void onDirectorySkipped(String dirPath) {
         completedDirectories++;
         skippedDirectories++;
         lastSyncedDir = dirPath;
@@ -117,7 +119,7 @@ public class ScanProgressTracker {
      * directory tree enumeration is substantially complete and file processing
      * is the dominant activity.
      */
-    public void enterProcessPhase() {
+    public synchronized void enterProcessPhase() {
         if (currentPhase != Phase.PROCESS) {
             currentPhase = Phase.PROCESS;
             long elapsed = System.currentTimeMillis() - startTimeMs;
@@ -202,7 +204,7 @@ public class ScanProgressTracker {
     // Log & persist triggers
     // ════════════════════════════════════════════════════════
 
-    public boolean shouldLog() {
+    public synchronized boolean shouldLog() {
         long now = System.currentTimeMillis();
         boolean timeTriggered = (now - lastLogTimeMs) >= logIntervalSec * 1000L;
         boolean dirTriggered = (completedDirectories - lastLogDirCount) >= logIntervalDirs;
@@ -214,7 +216,7 @@ public class ScanProgressTracker {
         return false;
     }
 
-    public boolean shouldPersistProgress() {
+    public synchronized boolean shouldPersistProgress() {
         long now = System.currentTimeMillis();
         boolean timeTriggered = (now - lastPersistTimeMs) >= persistIntervalSec * 1000L;
         boolean dirTriggered = (completedDirectories - lastPersistDirCount) >= persistIntervalDirs;
@@ -230,7 +232,7 @@ public class ScanProgressTracker {
     // Progress logging
     // ════════════════════════════════════════════════════════
 
-    public void logProgress() {
+    public synchronized void logProgress() {
         long elapsed = System.currentTimeMillis() - startTimeMs;
         log.info("SCAN_PROGRESS phase={} dirs={}/{}({}) files={}/{} "
                         + "added={} updated={} skipped={} failed={} dirSkipped={} "
@@ -243,14 +245,14 @@ public class ScanProgressTracker {
                 formatSpeed(), formatSmoothedEta(), formatElapsed(elapsed));
     }
 
-    public String formatPercent() {
+    public synchronized String formatPercent() {
         if (totalDirectoriesDiscovered <= 0) {
             return "0.0%";
         }
         return String.format("%.1f%%", completedDirectories * 100.0 / totalDirectoriesDiscovered);
     }
 
-    public int getProgressPercent() {
+    public synchronized int getProgressPercent() {
         if (totalDirectoriesDiscovered <= 0) {
             return 0;
         }
@@ -289,17 +291,17 @@ public class ScanProgressTracker {
     // Getters
     // ════════════════════════════════════════════════════════
 
-    public int getTotalDirectoriesDiscovered() { return totalDirectoriesDiscovered; }
-    public int getCompletedDirectories() { return completedDirectories; }
-    public int getSkippedDirectories() { return skippedDirectories; }
-    public int getTotalFilesDiscovered() { return totalFilesDiscovered; }
-    public int getFilesProcessed() { return filesProcessed; }
-    public int getFilesAdded() { return filesAdded; }
-    public int getFilesUpdated() { return filesUpdated; }
-    public int getFilesFailed() { return filesFailed; }
-    public int getFilesSkipped() { return filesSkipped; }
-    public String getLastSyncedDir() { return lastSyncedDir; }
-    public Phase getCurrentPhase() { return currentPhase; }
+    public synchronized int getTotalDirectoriesDiscovered() { return totalDirectoriesDiscovered; }
+    public synchronized int getCompletedDirectories() { return completedDirectories; }
+    public synchronized int getSkippedDirectories() { return skippedDirectories; }
+    public synchronized int getTotalFilesDiscovered() { return totalFilesDiscovered; }
+    public synchronized int getFilesProcessed() { return filesProcessed; }
+    public synchronized int getFilesAdded() { return filesAdded; }
+    public synchronized int getFilesUpdated() { return filesUpdated; }
+    public synchronized int getFilesFailed() { return filesFailed; }
+    public synchronized int getFilesSkipped() { return filesSkipped; }
+    public synchronized String getLastSyncedDir() { return lastSyncedDir; }
+    public synchronized Phase getCurrentPhase() { return currentPhase; }
     public long getStartTimeMs() { return startTimeMs; }
 
     // ════════════════════════════════════════════════════════
@@ -0,0 +1,102 @@
+package com.example.musicwebdav.application.service;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Failed scan work waiting for another attempt, kept apart from the traversal's own queues so a backing-off
+ * retry never holds up directories that have not been tried yet. The n-th retry waits
+ * {@code baseDelayMs * 2^(n-1)} times the error class's backoff factor, capped at {@code maxDelayMs}; half of it
+ * is jitter, so directories that failed together do not all come back at once.
+ */
+final class ScanRetryQueue<T> {
+
+    private final DelayQueue<Entry<T>> queue = new DelayQueue<>();
+    private final int maxRetries;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    ScanRetryQueue(int maxRetries, long baseDelayMs, long maxDelayMs) {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.baseDelayMs = Math.max(1L, baseDelayMs);
+        this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+    }
+
+    /**
+     * Schedules retry number {@code attempt} (1 for the first) of {@code item}. Returns the delay in ms, or -1
+     * when the error class is not retried or the retries are used up.
+     */
+    long offer(T item, int attempt, ScanErrorClass errorClass) {
+        if (!errorClass.isRetryable() || attempt < 1 || attempt > maxRetries) {
+            return -1L;
+        }
+        long delayMs = delayMillis(attempt, errorClass);
+        queue.add(new Entry<>(item, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs)));
+        return delayMs;
+    }
+
+    /** Puts back an item that was due but could not be handed on yet; it is due again right away. */
+    void requeue(T item) {
+        queue.add(new Entry<>(item, System.nanoTime()));
+    }
+
+    /** A due item, or null when none is due yet. */
+    T poll() {
+        Entry<T> entry = queue.poll();
+        return entry == null ? null : entry.item;
+    }
+
+    /** Waits up to {@code timeoutMs} for an item to become due. */
+    T poll(long timeoutMs) throws InterruptedException {
+        Entry<T> entry = queue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        return entry == null ? null : entry.item;
+    }
+
+    boolean hasDue() {
+        Entry<T> head = queue.peek();
+        return head != null && head.getDelay(TimeUnit.NANOSECONDS) <= 0L;
+    }
+
+    boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    long delayMillis(int attempt, ScanErrorClass errorClass) {
+        long delay = baseDelayMs * Math.max(1, errorClass.getBackoffFactor());
+        for (int i = 1; i < attempt && delay < maxDelayMs; i++) {
+            delay *= 2;
+        }
+        delay = Math.min(delay, maxDelayMs);
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    private static final class Entry<T> implements Delayed {
+        private final T item;
+        private final long dueAtNanos;
+
+        private Entry(T item, long dueAtNanos) {
+            this.item = item;
+            this.dueAtNanos = dueAtNanos;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof Entry) {
+                return Long.compare(dueAtNanos, ((Entry<?>) other).dueAtNanos);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
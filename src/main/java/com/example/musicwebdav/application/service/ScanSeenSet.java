@@ -0,0 +1,195 @@
+package com.example.musicwebdav.application.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Live track ids of one config as of scan start, with a seen bit per id, for seen-based delete detection. Every
+ * id the scan encounters is marked; whatever is left unmarked afterwards was not listed and gets soft-deleted.
+ *
+ * <p>Ids are kept sorted so a lookup is a binary search and the seen bits are a {@link BitSet} indexed by rank:
+ * about 8 bytes plus one bit per track. Past {@code maxInMemoryIds} the ids are spilled to a temp file that is
+ * mapped read-only, leaving only the bits on the heap. Ids must arrive in ascending order once spilled.
+ */
+final class ScanSeenSet implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ScanSeenSet.class);
+    private static final int INITIAL_CAPACITY = 1024;
+    /** One read-only mapping is limited to 2 GB. */
+    private static final long MAX_SPILLED_IDS = Integer.MAX_VALUE / Long.BYTES;
+
+    private final int maxInMemoryIds;
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private LongBuffer spilledIds;
+    private File spillFile;
+    private DataOutputStream spillOut;
+    private int size;
+    private long lastId = Long.MIN_VALUE;
+    private boolean sorted = true;
+    private BitSet seen;
+
+    ScanSeenSet(int maxInMemoryIds) {
+        this.maxInMemoryIds = Math.max(INITIAL_CAPACITY, maxInMemoryIds);
+    }
+
+    /**
+     * Appends one live id while seeding. Call {@link #seal()} once every id has been added.
+     */
+    void add(long id) throws IOException {
+        if (id <= lastId) {
+            if (spillOut != null) {
+                throw new IllegalStateException("溢写的曲目 id 必须升序: " + id + " <= " + lastId);
+            }
+            sorted = false;
+        }
+        lastId = Math.max(lastId, id);
+        if (spillOut == null && size == maxInMemoryIds && sorted) {
+            startSpill();
+        }
+        if (spillOut != null) {
+            if (size >= MAX_SPILLED_IDS) {
+                throw new IllegalStateException("曲目数量超出溢写上限: " + MAX_SPILLED_IDS);
+            }
+            spillOut.writeLong(id);
+        } else {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, (int) Math.min((long) ids.length * 2, Integer.MAX_VALUE - 8));
+            }
+            ids[size] = id;
+        }
+        size++;
+    }
+
+    /** Ends seeding; only now can ids be marked. */
+    void seal() throws IOException {
+        if (spillOut != null) {
+            spillOut.close();
+            spillOut = null;
+            try (RandomAccessFile file = new RandomAccessFile(spillFile, "r")) {
+                spilledIds = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0L, (long) size * Long.BYTES)
+                        .asLongBuffer();
+            }
+        } else {
+            ids = Arrays.copyOf(ids, size);
+            if (!sorted) {
+                Arrays.sort(ids);
+            }
+        }
+        seen = new BitSet(size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    /** Marks the given ids as seen; ids that were not live at scan start are ignored. Thread-safe. */
+    void markSeen(Collection<Long> trackIds) {
+        if (trackIds.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            for (Long id : trackIds) {
+                if (id == null) {
+                    continue;
+                }
+                int rank = rankOf(id);
+                if (rank >= 0) {
+                    seen.set(rank);
+                }
+            }
+        }
+    }
+
+    synchronized boolean isSeen(long id) {
+        int rank = rankOf(id);
+        return rank >= 0 && seen.get(rank);
+    }
+
+    /** Hands the ids that were never marked to {@code sink}, at most {@code batchSize} at a time, in id order. */
+    synchronized int forEachUnseen(int batchSize, Consumer<List<Long>> sink) {
+        List<Long> batch = new ArrayList<>(batchSize);
+        int unseen = 0;
+        for (int rank = seen.nextClearBit(0); rank < size; rank = seen.nextClearBit(rank + 1)) {
+            batch.add(idAt(rank));
+            unseen++;
+            if (batch.size() >= batchSize) {
+                sink.accept(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+        }
+        return unseen;
+    }
+
+    @Override
+    public void close() {
+        spilledIds = null;
+        if (spillOut != null) {
+            try {
+                spillOut.close();
+            } catch (IOException e) {
+                log.debug("Failed to close seen-set spill stream: {}", e.getMessage());
+            }
+            spillOut = null;
+        }
+        // A mapping keeps the file alive until it is collected; deleting the name is enough on POSIX.
+        if (spillFile != null && spillFile.exists() && !spillFile.delete()) {
+            spillFile.deleteOnExit();
+        }
+    }
+
+    private void startSpill() throws IOException {
+        spillFile = File.createTempFile("scan-seen-", ".ids");
+        spillOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile), 1 << 16));
+        for (int i = 0; i < size; i++) {
+            spillOut.writeLong(ids[i]);
+        }
+        ids = null;
+        log.info("SCAN_SEEN_SET_SPILL ids={} file={}", size, spillFile.getAbsolutePath());
+    }
+
+    private int rankOf(long id) {
+        if (spilledIds == null) {
+            int rank = Arrays.binarySearch(ids, 0, size, id);
+            return rank >= 0 ? rank : -1;
+        }
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = spilledIds.get(mid);
+            if (value < id) {
+                low = mid + 1;
+            } else if (value > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private long idAt(int rank) {
+        return spilledIds == null ? ids[rank] : spilledIds.get(rank);
+    }
+}
@@ -0,0 +1,338 @@
+package com.example.musicwebdav.application.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * One stage of the scan pipeline: a fixed worker pool behind a bounded queue. {@link #submit} blocks while the
+ * stage already holds {@code workers + queueCapacity} tasks, so a slow stage pushes back on whoever feeds it
+ * instead of letting work pile up in memory.
+ *
+ * <p>A stage either owns its pool or runs on a pool shared with other scans; a shared-pool stage still hands
+ * the pool at most {@code workers} tasks at a time and keeps the rest in its own backlog, so one busy scan cannot
+ * take every shared thread.
+ *
+ * <p>Queue depth, in-flight count and the average queue wait are exposed as gauges tagged with the stage name;
+ * queue wait and submit (backpressure) wait are also recorded as timers.
+ */
+final class ScanStage {
+
+    private static final long WAIT_SLICE_MS = 200L;
+
+    private final String name;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int workerCount;
+    private final Queue<Runnable> backlog = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger dispatched = new AtomicInteger();
+    private final Semaphore permits;
+    private final BooleanSupplier cancelSignal;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final Set<Thread> runningThreads = ConcurrentHashMap.newKeySet();
+    private final Object idleLock = new Object();
+    private volatile boolean closed;
+    private final LongAdder startedCount = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+
+    private final MeterRegistry meterRegistry;
+    private final List<Meter> meters = new ArrayList<>();
+    private final Timer queueWaitTimer;
+    private final Timer submitWaitTimer;
+
+    ScanStage(String name, int workers, int queueCapacity, ThreadFactory threadFactory,
+              BooleanSupplier cancelSignal, MeterRegistry meterRegistry, String... tags) {
+        this(name, workers, queueCapacity, Executors.newFixedThreadPool(Math.max(1, workers), threadFactory), true,
+                cancelSignal, meterRegistry, tags);
+    }
+
+    /** A stage running on {@code sharedExecutor}, which it neither sizes nor shuts down. */
+    ScanStage(String name, int workers, int queueCapacity, ExecutorService sharedExecutor,
+              BooleanSupplier cancelSignal, MeterRegistry meterRegistry, String... tags) {
+        this(name, workers, queueCapacity, sharedExecutor, false, cancelSignal, meterRegistry, tags);
+    }
+
+    private ScanStage(String name, int workers, int queueCapacity, ExecutorService executor, boolean ownsExecutor,
+                      BooleanSupplier cancelSignal, MeterRegistry meterRegistry, String... tags) {
+        this.name = name;
+        this.workerCount = Math.max(1, workers);
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.permits = new Semaphore(workerCount + Math.max(0, queueCapacity));
+        this.cancelSignal = cancelSignal;
+        this.meterRegistry = meterRegistry;
+        if (meterRegistry != null) {
+            String[] stageTags = withStageTag(name, tags);
+            meters.add(Gauge.builder("music.scan.stage.queue.depth", queued, AtomicInteger::get)
+                    .tags(stageTags).register(meterRegistry));
+            meters.add(Gauge.builder("music.scan.stage.in_flight", pending, AtomicInteger::get)
+                    .tags(stageTags).register(meterRegistry));
+            meters.add(Gauge.builder("music.scan.stage.queue.wait.ms", this, ScanStage::averageQueueWaitMs)
+                    .tags(stageTags).register(meterRegistry));
+            queueWaitTimer = Timer.builder("music.scan.stage.queue.wait").tags(stageTags).register(meterRegistry);
+            submitWaitTimer = Timer.builder("music.scan.stage.submit.wait").tags(stageTags).register(meterRegistry);
+            meters.add(queueWaitTimer);
+            meters.add(submitWaitTimer);
+        } else {
+            queueWaitTimer = null;
+            submitWaitTimer = null;
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int queueDepth() {
+        return queued.get();
+    }
+
+    int inFlight() {
+        return pending.get();
+    }
+
+    /**
+     * Queues a task, blocking while the stage is full. Throws {@link CancellationException} when the scan is
+     * canceled while waiting for room.
+     */
+    void submit(Runnable task) {
+        long submitStart = System.nanoTime();
+        acquirePermit();
+        long blockedNanos = System.nanoTime() - submitStart;
+        if (submitWaitTimer != null && blockedNanos > 0) {
+            submitWaitTimer.record(blockedNanos, TimeUnit.NANOSECONDS);
+        }
+        final long enqueuedAt = System.nanoTime();
+        queued.incrementAndGet();
+        pending.incrementAndGet();
+        Runnable wrapped = () -> runTask(task, enqueuedAt);
+        if (!ownsExecutor) {
+            backlog.add(wrapped);
+            dispatchBacklog();
+            return;
+        }
+        try {
+            executor.execute(wrapped);
+        } catch (RuntimeException e) {
+            queued.decrementAndGet();
+            permits.release();
+            markDone();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits until every submitted task has finished. Returns false when the scan was canceled first; rethrows
+     * the first unexpected task failure.
+     */
+    boolean awaitIdle() {
+        synchronized (idleLock) {
+            while (pending.get() > 0) {
+                rethrowFailure();
+                if (isCanceled()) {
+                    return false;
+                }
+                try {
+                    idleLock.wait(WAIT_SLICE_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("扫描阶段等待被中断: " + name, e);
+                }
+            }
+        }
+        rethrowFailure();
+        return true;
+    }
+
+    void rethrowFailure() {
+        Throwable error = failure.get();
+        if (error != null) {
+            throw new IllegalStateException("扫描阶段执行失败: " + name, error);
+        }
+    }
+
+    /**
+     * Interrupts the tasks currently running; queued tasks observe the cancel signal and are dropped.
+     */
+    void interruptRunning() {
+        for (Thread thread : runningThreads) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Drops queued tasks and stops the workers, giving running tasks up to {@code graceMs} to finish before they
+     * are interrupted. A shared pool is left running; only this stage's own tasks are dropped or interrupted.
+     * Safe to call more than once.
+     */
+    void shutdown(long graceMs) {
+        closed = true;
+        if (ownsExecutor) {
+            stopOwnExecutor(graceMs);
+        } else {
+            releaseSharedExecutor(graceMs);
+        }
+        if (meterRegistry != null) {
+            for (Meter meter : meters) {
+                meterRegistry.remove(meter);
+            }
+        }
+    }
+
+    private void stopOwnExecutor(long graceMs) {
+        executor.shutdown();
+        try {
+            if (graceMs <= 0 || !executor.awaitTermination(graceMs, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void releaseSharedExecutor(long graceMs) {
+        // Closed tasks skip their body, so draining the backlog here only settles their bookkeeping.
+        Runnable dropped;
+        while ((dropped = backlog.poll()) != null) {
+            dropped.run();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, graceMs));
+        synchronized (idleLock) {
+            while (pending.get() > 0) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0L) {
+                    break;
+                }
+                try {
+                    idleLock.wait(Math.min(remainingMs, WAIT_SLICE_MS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        interruptRunning();
+    }
+
+    /** Hands backlog tasks to the shared pool while fewer than {@code workers} of them are out. */
+    private void dispatchBacklog() {
+        while (!backlog.isEmpty()) {
+            int out = dispatched.get();
+            if (out >= workerCount) {
+                return;
+            }
+            if (!dispatched.compareAndSet(out, out + 1)) {
+                continue;
+            }
+            final Runnable next = backlog.poll();
+            if (next == null) {
+                dispatched.decrementAndGet();
+                continue;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        next.run();
+                    } finally {
+                        dispatched.decrementAndGet();
+                        dispatchBacklog();
+                    }
+                });
+            } catch (RuntimeException e) {
+                // The shared pool is gone (application shutdown): fail the stage and settle the task here.
+                failure.compareAndSet(null, e);
+                closed = true;
+                dispatched.decrementAndGet();
+                next.run();
+            }
+        }
+    }
+
+    private void runTask(Runnable task, long enqueuedAt) {
+        long waited = System.nanoTime() - enqueuedAt;
+        queued.decrementAndGet();
+        startedCount.increment();
+        queueWaitNanos.add(waited);
+        if (queueWaitTimer != null) {
+            queueWaitTimer.record(waited, TimeUnit.NANOSECONDS);
+        }
+        Thread current = Thread.currentThread();
+        runningThreads.add(current);
+        try {
+            if (!closed && !isCanceled()) {
+                task.run();
+            }
+        } catch (CancellationException e) {
+            // Downstream stage refused work because the scan was canceled.
+        } catch (Throwable e) {
+            if (!isCanceled()) {
+                failure.compareAndSet(null, e);
+            }
+        } finally {
+            runningThreads.remove(current);
+            // Clear an interrupt aimed at this task so it does not leak into the next one.
+            Thread.interrupted();
+            permits.release();
+            markDone();
+        }
+    }
+
+    private void acquirePermit() {
+        try {
+            while (!permits.tryAcquire(WAIT_SLICE_MS, TimeUnit.MILLISECONDS)) {
+                rethrowFailure();
+                if (isCanceled()) {
+                    throw new CancellationException("扫描已取消: " + name);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("扫描阶段提交被中断: " + name, e);
+        }
+    }
+
+    private void markDone() {
+        if (pending.decrementAndGet() == 0) {
+            synchronized (idleLock) {
+                idleLock.notifyAll();
+            }
+        }
+    }
+
+    private boolean isCanceled() {
+        return cancelSignal != null && cancelSignal.getAsBoolean();
+    }
+
+    private double averageQueueWaitMs() {
+        long started = startedCount.sum();
+        return started <= 0 ? 0.0 : queueWaitNanos.sum() / 1_000_000.0 / started;
+    }
+
+    private static String[] withStageTag(String name, String... tags) {
+        String[] merged = new String[tags.length + 2];
+        merged[0] = "stage";
+        merged[1] = name;
+        System.arraycopy(tags, 0, merged, 2, tags.length);
+        return merged;
+    }
+}
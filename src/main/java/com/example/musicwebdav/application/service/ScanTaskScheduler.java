@@ -0,0 +1,388 @@
+package com.example.musicwebdav.application.service;
+
+import com.example.musicwebdav.common.config.AppScanProperties;
+import com.example.musicwebdav.infrastructure.persistence.entity.ScanTaskEntity;
+import com.example.musicwebdav.infrastructure.persistence.mapper.ScanTaskMapper;
+import com.example.musicwebdav.infrastructure.webdav.WebDavTrafficClass;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs scan tasks of all WebDAV configs on this node. At most {@code scheduler-max-concurrent-scans} run at once;
+ * the rest wait in a queue instead of being rejected. When a slot frees up, the queued task whose config has
+ * received the least weighted scan time goes next, so a config with a huge library cannot starve the others.
+ *
+ * <p>Running scans share one pool of directory-listing workers and one of directory-processing workers, so the
+ * thread count stays fixed however many scans run.
+ */
+@Component
+public class ScanTaskScheduler implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ScanTaskScheduler.class);
+    private static final long UNKNOWN_DURATION = -1L;
+
+    private final AppScanProperties appScanProperties;
+    private final ScanTaskMapper scanTaskMapper;
+    private final int maxConcurrentScans;
+    private final ExecutorService runners;
+    private final ExecutorService listWorkers;
+    private final ExecutorService processWorkers;
+
+    private final Object lock = new Object();
+    private final List<QueuedScan> queue = new ArrayList<>();
+    private final Map<Long, RunningScan> running = new HashMap<>();
+    /** Scan seconds divided by weight, per config, since the scheduler was last idle. */
+    private final Map<Long, Double> servedSeconds = new HashMap<>();
+    private final Map<Long, Long> lastDurationMs = new ConcurrentHashMap<>();
+    private long sequence;
+    private boolean closed;
+
+    public ScanTaskScheduler(AppScanProperties appScanProperties, ScanTaskMapper scanTaskMapper) {
+        this.appScanProperties = appScanProperties;
+        this.scanTaskMapper = scanTaskMapper;
+        this.maxConcurrentScans = Math.max(1, appScanProperties.getSchedulerMaxConcurrentScans());
+        this.runners = Executors.newFixedThreadPool(maxConcurrentScans, new NamedThreadFactory("scan-task-"));
+        this.listWorkers = Executors.newFixedThreadPool(Math.max(1, appScanProperties.getSchedulerListWorkers()),
+                new NamedThreadFactory("scan-list-"));
+        this.processWorkers = Executors.newFixedThreadPool(
+                Math.max(1, appScanProperties.getSchedulerProcessWorkers()), new NamedThreadFactory("scan-dir-"));
+    }
+
+    /** Queues a scan task; it starts as soon as a slot is free and it is the config's turn. */
+    public void submit(Long taskId, Long configId, Runnable task) {
+        int position;
+        synchronized (lock) {
+            if (closed) {
+                throw new RejectedExecutionException("扫描调度器已关闭");
+            }
+            servedSeconds.put(configId, Math.max(servedSeconds.getOrDefault(configId, 0.0),
+                    minActiveServed(configId)));
+            queue.add(new QueuedScan(taskId, configId, task, sequence++));
+            position = queue.size();
+        }
+        log.info("SCAN_TASK_QUEUED taskId={} configId={} queued={} running={}",
+                taskId, configId, position, runningCount());
+        dispatch();
+    }
+
+    /** Drops a task that has not started yet. Returns false when it is running or unknown. */
+    public boolean cancel(Long taskId) {
+        synchronized (lock) {
+            return queue.removeIf(queued -> queued.taskId.equals(taskId));
+        }
+    }
+
+    /**
+     * Queue position and remaining time of a task on this node, or null when this node does not hold it. A
+     * running task extrapolates from its progress; a queued one is played forward through the free slots using
+     * each config's last finished scan duration. The ETA is null when a duration it depends on is unknown.
+     */
+    public Estimate estimate(Long taskId, Integer progressPct) {
+        List<RunningScan> runningSnapshot;
+        List<QueuedScan> order;
+        synchronized (lock) {
+            runningSnapshot = new ArrayList<>(running.values());
+            order = fairOrder(System.nanoTime());
+        }
+        long now = System.nanoTime();
+        for (RunningScan scan : runningSnapshot) {
+            if (scan.taskId.equals(taskId)) {
+                return new Estimate(0, toSeconds(remainingMs(scan, progressPct, now)));
+            }
+        }
+        int position = indexOf(order, taskId);
+        if (position < 0) {
+            return null;
+        }
+        List<Long> slots = new ArrayList<>();
+        for (RunningScan scan : runningSnapshot) {
+            slots.add(remainingMs(scan, null, now));
+        }
+        while (slots.size() < maxConcurrentScans) {
+            slots.add(0L);
+        }
+        for (int i = 0; i <= position; i++) {
+            int slot = earliestSlot(slots);
+            long startMs = slots.get(slot);
+            long durationMs = expectedDurationMs(order.get(i).configId);
+            if (startMs == UNKNOWN_DURATION || durationMs == UNKNOWN_DURATION) {
+                return new Estimate(position + 1, null);
+            }
+            if (i == position) {
+                return new Estimate(position + 1, toSeconds(startMs + durationMs));
+            }
+            slots.set(slot, startMs + durationMs);
+        }
+        return new Estimate(position + 1, null);
+    }
+
+    ExecutorService listWorkers() {
+        return listWorkers;
+    }
+
+    ExecutorService processWorkers() {
+        return processWorkers;
+    }
+
+    @Override
+    public void destroy() {
+        synchronized (lock) {
+            closed = true;
+            queue.clear();
+        }
+        runners.shutdownNow();
+        listWorkers.shutdownNow();
+        processWorkers.shutdownNow();
+    }
+
+    private void dispatch() {
+        List<RunningScan> started = new ArrayList<>();
+        synchronized (lock) {
+            while (!closed && running.size() < maxConcurrentScans && !queue.isEmpty()) {
+                QueuedScan next = fairOrder(System.nanoTime()).get(0);
+                queue.remove(next);
+                RunningScan scan = new RunningScan(next.taskId, next.configId, System.nanoTime());
+                running.put(next.taskId, scan);
+                started.add(scan);
+                startRunner(next, scan);
+            }
+        }
+        for (RunningScan scan : started) {
+            log.info("SCAN_TASK_DISPATCHED taskId={} configId={} served={}",
+                    scan.taskId, scan.configId, String.format("%.1f", servedSecondsOf(scan.configId)));
+        }
+    }
+
+    private void startRunner(QueuedScan next, RunningScan scan) {
+        try {
+            runners.execute(() -> {
+                try {
+                    next.task.run();
+                } catch (RuntimeException e) {
+                    log.error("SCAN_TASK_RUN_FAILED taskId={}", next.taskId, e);
+                } finally {
+                    onFinished(scan);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.remove(scan.taskId);
+            log.error("SCAN_TASK_DISPATCH_FAILED taskId={}", next.taskId, e);
+        }
+    }
+
+    private void onFinished(RunningScan scan) {
+        synchronized (lock) {
+            running.remove(scan.taskId);
+            double seconds = (System.nanoTime() - scan.startNanos) / 1_000_000_000.0;
+            servedSeconds.merge(scan.configId, seconds / weightOf(scan.configId), Double::sum);
+            if (running.isEmpty() && queue.isEmpty()) {
+                servedSeconds.clear();
+            }
+        }
+        // The finished run may have written a fresher duration.
+        lastDurationMs.remove(scan.configId);
+        dispatch();
+    }
+
+    /** Queued tasks, least-served config first, then in arrival order. Caller holds the lock. */
+    private List<QueuedScan> fairOrder(long now) {
+        Map<Long, Double> served = new HashMap<>();
+        for (QueuedScan queued : queue) {
+            served.computeIfAbsent(queued.configId, configId -> currentServed(configId, now));
+        }
+        List<QueuedScan> order = new ArrayList<>(queue);
+        order.sort(Comparator.<QueuedScan>comparingDouble(queued -> served.get(queued.configId))
+                .thenComparingLong(queued -> queued.sequence));
+        return order;
+    }
+
+    /** Served time including scans of the config still running. Caller holds the lock. */
+    private double currentServed(Long configId, long now) {
+        double served = servedSeconds.getOrDefault(configId, 0.0);
+        for (RunningScan scan : running.values()) {
+            if (scan.configId.equals(configId)) {
+                served += (now - scan.startNanos) / 1_000_000_000.0 / weightOf(configId);
+            }
+        }
+        return served;
+    }
+
+    /**
+     * A config that was idle starts level with the least-served active one instead of cashing in the time it
+     * did not use. Caller holds the lock.
+     */
+    private double minActiveServed(Long configId) {
+        Set<Long> active = new HashSet<>();
+        for (QueuedScan queued : queue) {
+            active.add(queued.configId);
+        }
+        for (RunningScan scan : running.values()) {
+            active.add(scan.configId);
+        }
+        active.remove(configId);
+        double min = 0.0;
+        boolean first = true;
+        long now = System.nanoTime();
+        for (Long other : active) {
+            double served = currentServed(other, now);
+            if (first || served < min) {
+                min = served;
+                first = false;
+            }
+        }
+        return min;
+    }
+
+    private double servedSecondsOf(Long configId) {
+        synchronized (lock) {
+            return servedSeconds.getOrDefault(configId, 0.0);
+        }
+    }
+
+    private int runningCount() {
+        synchronized (lock) {
+            return running.size();
+        }
+    }
+
+    private int weightOf(Long configId) {
+        Map<Long, Integer> weights = appScanProperties.getSchedulerConfigWeights();
+        Integer weight = weights == null ? null : weights.get(configId);
+        return weight == null ? 1 : Math.max(1, weight);
+    }
+
+    private long remainingMs(RunningScan scan, Integer progressPct, long now) {
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(now - scan.startNanos);
+        if (progressPct != null && progressPct > 0 && progressPct < 100) {
+            return elapsedMs * (100 - progressPct) / progressPct;
+        }
+        long expected = expectedDurationMs(scan.configId);
+        return expected == UNKNOWN_DURATION ? UNKNOWN_DURATION : Math.max(0L, expected - elapsedMs);
+    }
+
+    private long expectedDurationMs(Long configId) {
+        return lastDurationMs.computeIfAbsent(configId, this::loadLastDurationMs);
+    }
+
+    private long loadLastDurationMs(Long configId) {
+        try {
+            ScanTaskEntity last = scanTaskMapper.selectLastFinishedByConfigId(configId);
+            if (last == null || last.getStartTime() == null || last.getEndTime() == null) {
+                return UNKNOWN_DURATION;
+            }
+            return Math.max(0L, Duration.between(last.getStartTime(), last.getEndTime()).toMillis());
+        } catch (RuntimeException e) {
+            log.warn("SCAN_TASK_DURATION_LOOKUP_FAILED configId={} error={}", configId, e.getMessage());
+            return UNKNOWN_DURATION;
+        }
+    }
+
+    private static int indexOf(List<QueuedScan> order, Long taskId) {
+        for (int i = 0; i < order.size(); i++) {
+            if (order.get(i).taskId.equals(taskId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Earliest free slot; a slot whose end is unknown sorts last. */
+    private static int earliestSlot(List<Long> slots) {
+        int best = 0;
+        for (int i = 1; i < slots.size(); i++) {
+            long candidate = slots.get(i);
+            long current = slots.get(best);
+            if (current == UNKNOWN_DURATION || (candidate != UNKNOWN_DURATION && candidate < current)) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static Long toSeconds(long millis) {
+        return millis == UNKNOWN_DURATION ? null : (millis + 999L) / 1000L;
+    }
+
+    public static final class Estimate {
+        private final int queuePosition;
+        private final Long etaSeconds;
+
+        Estimate(int queuePosition, Long etaSeconds) {
+            this.queuePosition = queuePosition;
+            this.etaSeconds = etaSeconds;
+        }
+
+        /** 0 while running, otherwise 1 for the next task to start. */
+        public int getQueuePosition() {
+            return queuePosition;
+        }
+
+        public Long getEtaSeconds() {
+            return etaSeconds;
+        }
+    }
+
+    private static final class QueuedScan {
+        private final Long taskId;
+        private final Long configId;
+        private final Runnable task;
+        private final long sequence;
+
+        private QueuedScan(Long taskId, Long configId, Runnable task, long sequence) {
+            this.taskId = taskId;
+            this.configId = configId;
+            this.task = task;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final class RunningScan {
+        private final Long taskId;
+        private final Long configId;
+        private final long startNanos;
+
+        private RunningScan(Long taskId, Long configId, long startNanos) {
+            this.taskId = taskId;
+            this.configId = configId;
+            this.startNanos = startNanos;
+        }
+    }
+
+    /** Scan threads mark their WebDAV requests as scan traffic for the host governor. */
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final AtomicInteger index = new AtomicInteger(1);
+        private final String prefix;
+
+        private NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(() -> {
+                try (WebDavTrafficClass.Scope ignored = WebDavTrafficClass.SCAN.enter()) {
+                    r.run();
+                }
+            }, prefix + index.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -14,7 +14,6 @@ import com.example.musicwebdav.infrastructure.persistence.mapper.WebDavConfigMap
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,18 +31,21 @@ public class ScanTaskService {
     private final WebDavConfigMapper webDavConfigMapper;
     private final ScanCheckpointMapper scanCheckpointMapper;
     private final FullScanService fullScanService;
-    private final ExecutorService scanTaskExecutor;
+    private final ScanTaskScheduler scanTaskScheduler;
+    private final ScanCancellationRegistry scanCancellationRegistry;
 
     public ScanTaskService(ScanTaskMapper scanTaskMapper,
                            WebDavConfigMapper webDavConfigMapper,
                            ScanCheckpointMapper scanCheckpointMapper,
                            FullScanService fullScanService,
-                           ExecutorService scanTaskExecutor) {
+                           ScanTaskScheduler scanTaskScheduler,
+                           ScanCancellationRegistry scanCancellationRegistry) {
         this.scanTaskMapper = scanTaskMapper;
         this.webDavConfigMapper = webDavConfigMapper;
         this.scanCheckpointMapper = scanCheckpointMapper;
         this.fullScanService = fullScanService;
-        this.scanTaskExecutor = scanTaskExecutor;
+        this.scanTaskScheduler = scanTaskScheduler;
+        this.scanCancellationRegistry = scanCancellationRegistry;
     }
 
     @EventListener(ApplicationReadyEvent.class)
@@ -73,7 +75,8 @@ public class ScanTaskService {
                     task.getId(), task.getTaskType(), checkpoints.size());
 
             try {
-                scanTaskExecutor.submit(() -> executeScanTask(task.getId(), type, config, checkpoints));
+                scanTaskScheduler.submit(task.getId(), config.getId(),
+                        () -> executeScanTask(task.getId(), type, config, checkpoints));
             } catch (RejectedExecutionException e) {
                 log.error("RESUME_SUBMIT_FAILED taskId={}", task.getId(), e);
             }
@@ -119,7 +122,8 @@ public class ScanTaskService {
 
         final Set<String> finalResumedCheckpoints = resumedCheckpoints;
         try {
-            scanTaskExecutor.submit(() -> executeScanTask(entity.getId(), taskType, config, finalResumedCheckpoints));
+            scanTaskScheduler.submit(entity.getId(), config.getId(),
+                    () -> executeScanTask(entity.getId(), taskType, config, finalResumedCheckpoints));
         } catch (RejectedExecutionException e) {
             scanTaskMapper.markFailedBeforeRunning(
                     entity.getId(),
@@ -147,6 +151,8 @@ public class ScanTaskService {
         }
         int affected = scanTaskMapper.cancel(taskId, TaskStatus.CANCELED.name());
         if (affected > 0) {
+            scanTaskScheduler.cancel(taskId);
+            scanCancellationRegistry.cancel(taskId);
             log.info("SCAN_TASK_CANCELED taskId={} fromStatus={}", taskId, entity.getStatus());
         } else {
             log.info("SCAN_TASK_CANCEL_IGNORED taskId={} currentStatus={}", taskId, entity.getStatus());
@@ -167,9 +173,11 @@ public class ScanTaskService {
         } else {
             log.info("SCAN_TASK_RUNNING taskId={} type={} configId={}", taskId, taskType.name(), config.getId());
         }
+        // Local cancels flip the token directly; cancels from other nodes arrive via the registry poll.
+        ScanCancellationToken cancellationToken = scanCancellationRegistry.register(taskId);
         try {
             FullScanService.ScanStats stats = fullScanService.scan(
-                    taskId, taskType, config, () -> isCanceled(taskId), resumedCheckpoints);
+                    taskId, taskType, config, cancellationToken, resumedCheckpoints);
             if (stats.isCanceled()) {
                 scanTaskMapper.updateCanceledStats(
                         taskId,
@@ -239,6 +247,8 @@ public class ScanTaskService {
                         1,
                         truncate(e.getMessage(), 1000));
             }
+        } finally {
+            scanCancellationRegistry.unregister(taskId);
         }
     }
 
@@ -255,6 +265,9 @@ public class ScanTaskService {
     }
 
     private ScanTaskDetailResponse toDetailResponse(ScanTaskEntity entity) {
+        ScanTaskScheduler.Estimate estimate = isActive(entity.getStatus())
+                ? scanTaskScheduler.estimate(entity.getId(), entity.getProgressPct())
+                : null;
         return new ScanTaskDetailResponse(
                 entity.getId(),
                 entity.getTaskType(),
@@ -272,10 +285,16 @@ public class ScanTaskService {
                 entity.getTotalDirectories(),
                 entity.getLastSyncedDir(),
                 entity.getProgressPct(),
-                entity.getErrorSummary()
+                entity.getErrorSummary(),
+                estimate == null ? null : estimate.getQueuePosition(),
+                estimate == null ? null : estimate.getEtaSeconds()
         );
     }
 
+    private boolean isActive(String status) {
+        return TaskStatus.PENDING.name().equals(status) || TaskStatus.RUNNING.name().equals(status);
+    }
+
     private int nullSafeInt(Integer value) {
         return value == null ? 0 : value;
     }
@@ -0,0 +1,444 @@
+package com.example.musicwebdav.application.service;
+
+import com.example.musicwebdav.infrastructure.persistence.BatchMapperSession;
+import com.example.musicwebdav.infrastructure.persistence.entity.TrackEntity;
+import com.example.musicwebdav.infrastructure.persistence.mapper.TrackMapper;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Single-writer, write-behind sink for the row changes of one scan. Process workers enqueue track upserts and
+ * last_scan_task_id touches; one writer thread coalesces whatever is queued into large
+ * multi-row statements (bounded by row count and estimated bytes) and commits them as one transaction.
+ *
+ * <p>A group is committed when it reaches the commit size, when its oldest change is older than the delay
+ * limit, or as soon as a worker waits for durability ({@link #awaitDurable}) and the queue is empty — the
+ * classic group commit: whoever waits during a commit gets coalesced into the next one. If a group fails it is
+ * rolled back and replayed through the per-row path, one autocommit statement per row.
+ *
+ * <p>With a {@link BatchMapperSession} the group is written through the MyBatis BATCH executor instead: every
+ * track goes through the single-row upsert on one reused PreparedStatement and is flushed in chunks whose size
+ * an {@link AdaptiveBatchSizer} steers by flush latency. The driver turns each flushed chunk into multi-row
+ * INSERTs when {@code rewriteBatchedStatements} is on.
+ */
+final class ScanWriteBehindWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(ScanWriteBehindWriter.class);
+
+    /** Rough per-row overhead of a VALUES tuple besides its string payload. */
+    private static final int TRACK_ROW_BASE_BYTES = 160;
+    private static final int MD5_ROW_BYTES = 40;
+    private static final long WAIT_SLICE_MS = 200L;
+    private static final long WAITER_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(2L);
+
+    /**
+     * Receives per-statement and per-commit timings so the scan can keep its telemetry and metrics.
+     */
+    interface Listener {
+        void onTrackStatement(long nanos, int rows);
+
+        void onTouchStatement(long nanos, int rows);
+
+        void onCommit(long nanos, int rows);
+
+        void onFallback(int rows, Exception cause);
+    }
+
+    private final Long taskId;
+    private final Long configId;
+    private final TrackMapper trackMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Listener listener;
+    private final int statementMaxRows;
+    private final long statementMaxBytes;
+    private final int commitMaxRows;
+    private final long commitMaxBytes;
+    private final long maxDelayNanos;
+    private final BatchMapperSession batchSession;
+    private final AdaptiveBatchSizer batchSizer;
+
+    private final BlockingQueue<WriteOp> queue;
+    private final Object enqueueLock = new Object();
+    private final Object durableLock = new Object();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final Thread writerThread;
+    private long lastEnqueuedSeq;
+    private volatile long durableSeq;
+    private volatile boolean closing;
+    private volatile Throwable writerFailure;
+
+    private final AtomicLong commitCount = new AtomicLong();
+    private final AtomicLong committedRows = new AtomicLong();
+    private final AtomicLong fallbackCount = new AtomicLong();
+
+    ScanWriteBehindWriter(Long taskId, Long configId, TrackMapper trackMapper,
+                          TransactionTemplate transactionTemplate,
+                          Listener listener, int statementMaxRows, long statementMaxBytes,
+                          int commitMaxRows, long commitMaxBytes, long maxDelayMs, int queueCapacity) {
+        this(taskId, configId, trackMapper, transactionTemplate, listener,
+                statementMaxRows, statementMaxBytes, commitMaxRows, commitMaxBytes, maxDelayMs, queueCapacity,
+                null, null);
+    }
+
+    ScanWriteBehindWriter(Long taskId, Long configId, TrackMapper trackMapper,
+                          TransactionTemplate transactionTemplate,
+                          Listener listener, int statementMaxRows, long statementMaxBytes,
+                          int commitMaxRows, long commitMaxBytes, long maxDelayMs, int queueCapacity,
+                          BatchMapperSession batchSession, AdaptiveBatchSizer batchSizer) {
+        this.taskId = taskId;
+        this.configId = configId;
+        this.trackMapper = trackMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.listener = listener;
+        this.statementMaxRows = Math.max(1, statementMaxRows);
+        this.statementMaxBytes = Math.max(1024L, statementMaxBytes);
+        this.commitMaxRows = Math.max(this.statementMaxRows, commitMaxRows);
+        this.commitMaxBytes = Math.max(this.statementMaxBytes, commitMaxBytes);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, maxDelayMs));
+        this.batchSession = batchSession;
+        this.batchSizer = batchSession == null ? null
+                : batchSizer != null ? batchSizer
+                : new AdaptiveBatchSizer(this.statementMaxRows, 1, this.commitMaxRows, 200L);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.writerThread = new Thread(this::runWriter, "scan-writer-" + taskId);
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues the row changes of one flush, blocking while the writer queue is full. Returns the sequence to pass
+     * to {@link #awaitDurable}. The lists are copied, so callers may clear and reuse them.
+     */
+    long enqueue(List<TrackEntity> tracks, List<String> touchedPathMd5s) {
+        WriteOp op = new WriteOp(copyOf(tracks), copyOf(touchedPathMd5s));
+        if (op.rows() == 0) {
+            synchronized (enqueueLock) {
+                return lastEnqueuedSeq;
+            }
+        }
+        synchronized (enqueueLock) {
+            ensureAccepting();
+            op.seq = lastEnqueuedSeq + 1;
+            try {
+                while (!queue.offer(op, WAIT_SLICE_MS, TimeUnit.MILLISECONDS)) {
+                    ensureAccepting();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("写入队列等待被中断", e);
+            }
+            lastEnqueuedSeq = op.seq;
+            return op.seq;
+        }
+    }
+
+    /**
+     * Blocks until every change up to {@code seq} has been committed (or replayed row by row).
+     */
+    void awaitDurable(long seq) {
+        if (seq <= durableSeq) {
+            return;
+        }
+        waiters.incrementAndGet();
+        try {
+            synchronized (durableLock) {
+                while (durableSeq < seq) {
+                    if (writerFailure != null) {
+                        throw new IllegalStateException("扫描写入线程已失败", writerFailure);
+                    }
+                    durableLock.wait(WAIT_SLICE_MS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待扫描写入完成被中断", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stops accepting changes, writes out everything still queued and stops the writer thread.
+     */
+    void close(long timeoutMs) {
+        if (closing) {
+            return;
+        }
+        closing = true;
+        try {
+            writerThread.join(Math.max(1L, timeoutMs));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            writerThread.interrupt();
+            log.warn("SCAN_WRITE_BEHIND_CLOSE_TIMEOUT taskId={} configId={} queued={}",
+                    taskId, configId, queue.size());
+        }
+        log.info("SCAN_WRITE_BEHIND_SUMMARY taskId={} configId={} mode={} commits={} rows={} avgRowsPerCommit={} "
+                        + "fallbacks={} jdbcBatchSize={}",
+                taskId, configId, batchSession == null ? "MULTI_ROW" : "JDBC_BATCH",
+                commitCount.get(), committedRows.get(),
+                commitCount.get() == 0 ? 0 : committedRows.get() / commitCount.get(), fallbackCount.get(),
+                batchSizer == null ? "-" : batchSizer.current());
+    }
+
+    long getCommitCount() {
+        return commitCount.get();
+    }
+
+    long getFallbackCount() {
+        return fallbackCount.get();
+    }
+
+    private void ensureAccepting() {
+        if (writerFailure != null) {
+            throw new IllegalStateException("扫描写入线程已失败", writerFailure);
+        }
+        if (closing) {
+            throw new IllegalStateException("扫描写入队列已关闭");
+        }
+    }
+
+    // ── Writer thread ───────────────────────────────────────
+
+    private void runWriter() {
+        try {
+            while (true) {
+                WriteOp first = queue.poll(WAIT_SLICE_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closing && queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                WriteGroup group = new WriteGroup();
+                group.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (group.rows < commitMaxRows && group.bytes < commitMaxBytes) {
+                    WriteOp next = queue.poll();
+                    if (next == null) {
+                        long remaining = deadline - System.nanoTime();
+                        if (waiters.get() > 0 || closing || remaining <= 0) {
+                            break;
+                        }
+                        // Short slices so a worker that starts waiting is noticed without a wake-up signal.
+                        next = queue.poll(Math.min(remaining, WAITER_CHECK_NANOS), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            continue;
+                        }
+                    }
+                    group.add(next);
+                }
+                writeGroup(group);
+                synchronized (durableLock) {
+                    durableSeq = group.lastSeq;
+                    durableLock.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writerFailure = e;
+        } catch (Throwable e) {
+            writerFailure = e;
+            log.error("SCAN_WRITE_BEHIND_FAILED taskId={} configId={}", taskId, configId, e);
+        } finally {
+            synchronized (durableLock) {
+                durableLock.notifyAll();
+            }
+        }
+    }
+
+    private void writeGroup(WriteGroup group) {
+        long startNanos = System.nanoTime();
+        try {
+            transactionTemplate.execute(status -> {
+                if (batchSession != null) {
+                    writeTrackBatches(group.tracks);
+                    writeTouchBatches(group.touched);
+                } else {
+                    writeTrackStatements(group.tracks);
+                    writeTouchStatements(group.touched);
+                }
+                return null;
+            });
+            commitCount.incrementAndGet();
+            committedRows.addAndGet(group.rows);
+            if (listener != null) {
+                listener.onCommit(System.nanoTime() - startNanos, group.rows);
+            }
+        } catch (Exception e) {
+            fallbackCount.incrementAndGet();
+            log.warn("Group commit failed, falling back to per-row writes, taskId={}, rows={}",
+                    taskId, group.rows, e);
+            if (listener != null) {
+                listener.onFallback(group.rows, e);
+            }
+            writeRowByRow(group);
+        }
+    }
+
+    private void writeTrackStatements(List<TrackEntity> tracks) {
+        int start = 0;
+        while (start < tracks.size()) {
+            int end = start;
+            long bytes = 0;
+            while (end < tracks.size() && end - start < statementMaxRows) {
+                long rowBytes = estimateBytes(tracks.get(end));
+                if (end > start && bytes + rowBytes > statementMaxBytes) {
+                    break;
+                }
+                bytes += rowBytes;
+                end++;
+            }
+            List<TrackEntity> statement = tracks.subList(start, end);
+            long statementStart = System.nanoTime();
+            trackMapper.batchUpsert(statement);
+            if (listener != null) {
+                listener.onTrackStatement(System.nanoTime() - statementStart, statement.size());
+            }
+            start = end;
+        }
+    }
+
+    private void writeTouchStatements(List<String> touched) {
+        int chunk = md5StatementRows();
+        for (int i = 0; i < touched.size(); i += chunk) {
+            List<String> statement = touched.subList(i, Math.min(i + chunk, touched.size()));
+            long statementStart = System.nanoTime();
+            trackMapper.touchLastScanTaskByPathMd5In(taskId, configId, statement);
+            if (listener != null) {
+                listener.onTouchStatement(System.nanoTime() - statementStart, statement.size());
+            }
+        }
+    }
+
+    // ── JDBC batch path ─────────────────────────────────────
+    // Everything inside the group transaction has to go through the batch session: MyBatis rejects switching
+    // the executor type of a transaction that already holds a session.
+
+    private void writeTrackBatches(List<TrackEntity> tracks) {
+        TrackMapper batchTrackMapper = batchSession.trackMapper();
+        int start = 0;
+        while (start < tracks.size()) {
+            int end = Math.min(tracks.size(), start + batchSizer.current());
+            long batchStart = System.nanoTime();
+            for (int i = start; i < end; i++) {
+                batchTrackMapper.upsert(tracks.get(i));
+            }
+            batchSession.flushStatements();
+            long nanos = System.nanoTime() - batchStart;
+            batchSizer.record(nanos, end - start);
+            if (listener != null) {
+                listener.onTrackStatement(nanos, end - start);
+            }
+            start = end;
+        }
+    }
+
+    private void writeTouchBatches(List<String> touched) {
+        if (touched.isEmpty()) {
+            return;
+        }
+        TrackMapper batchTrackMapper = batchSession.trackMapper();
+        int chunk = md5StatementRows();
+        long batchStart = System.nanoTime();
+        for (int i = 0; i < touched.size(); i += chunk) {
+            batchTrackMapper.touchLastScanTaskByPathMd5In(taskId, configId,
+                    touched.subList(i, Math.min(i + chunk, touched.size())));
+        }
+        batchSession.flushStatements();
+        if (listener != null) {
+            listener.onTouchStatement(System.nanoTime() - batchStart, touched.size());
+        }
+    }
+
+    private void writeRowByRow(WriteGroup group) {
+        for (TrackEntity entity : group.tracks) {
+            try {
+                trackMapper.upsert(entity);
+            } catch (Exception ex) {
+                log.warn("Individual upsert failed: path={}", entity.getSourcePath(), ex);
+            }
+        }
+        for (String pathMd5 : group.touched) {
+            try {
+                trackMapper.touchLastScanTaskByPathMd5In(taskId, configId, Collections.singletonList(pathMd5));
+            } catch (Exception ex) {
+                log.warn("Individual touch failed: pathMd5={}", pathMd5, ex);
+            }
+        }
+    }
+
+    private int md5StatementRows() {
+        long byBytes = statementMaxBytes / MD5_ROW_BYTES;
+        return (int) Math.max(1L, Math.min(byBytes, statementMaxRows * 4L));
+    }
+
+    static long estimateBytes(TrackEntity entity) {
+        return TRACK_ROW_BASE_BYTES
+                + utf8Bytes(entity.getSourcePath())
+                + utf8Bytes(entity.getSourceEtag())
+                + utf8Bytes(entity.getMimeType())
+                + utf8Bytes(entity.getContentHash())
+                + utf8Bytes(entity.getTitle())
+                + utf8Bytes(entity.getArtist())
+                + utf8Bytes(entity.getAlbum())
+                + utf8Bytes(entity.getAlbumArtist())
+                + utf8Bytes(entity.getGenre())
+                + utf8Bytes(entity.getCoverArtUrl())
+                + utf8Bytes(entity.getLyricPath());
+    }
+
+    /** Upper bound without encoding the string: no UTF-16 char takes more than 3 bytes in utf8mb4. */
+    private static int utf8Bytes(String value) {
+        return value == null ? 0 : value.length() * 3;
+    }
+
+    private static <T> List<T> copyOf(List<T> values) {
+        return values == null || values.isEmpty() ? Collections.<T>emptyList() : new ArrayList<>(values);
+    }
+
+    private static final class WriteOp {
+        private final List<TrackEntity> tracks;
+        private final List<String> touched;
+        private long seq;
+
+        private WriteOp(List<TrackEntity> tracks, List<String> touched) {
+            this.tracks = tracks;
+            this.touched = touched;
+        }
+
+        private int rows() {
+            return tracks.size() + touched.size();
+        }
+    }
+
+    private static final class WriteGroup {
+        private final List<TrackEntity> tracks = new ArrayList<>();
+        private final List<String> touched = new ArrayList<>();
+        private int rows;
+        private long bytes;
+        private long lastSeq;
+
+        private void add(WriteOp op) {
+            tracks.addAll(op.tracks);
+            touched.addAll(op.touched);
+            rows += op.rows();
+            for (TrackEntity entity : op.tracks) {
+                bytes += estimateBytes(entity);
+            }
+            bytes += (long) op.touched.size() * MD5_ROW_BYTES;
+            lastSeq = op.seq;
+        }
+    }
+}
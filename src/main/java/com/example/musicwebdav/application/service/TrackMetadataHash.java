@@ -0,0 +1,58 @@
+package com.example.musicwebdav.application.service;
+
+import com.example.musicwebdav.common.util.HashUtil;
+import com.example.musicwebdav.infrastructure.persistence.entity.TrackEntity;
+
+/**
+ * Digest of the metadata a scan writes for a track, stored in track.metadata_hash so the diff step can tell an
+ * unchanged row from a changed one without reading the columns back. Text is trimmed and null equals empty,
+ * as the old field-by-field comparison did.
+ *
+ * <p>The canonical form is mirrored by the backfill in V15__track_metadata_hash.sql; keep the field order and
+ * separator in sync with it. A mismatch is harmless (the row is rewritten once) but wastes a write per track.
+ */
+final class TrackMetadataHash {
+
+    private static final char SEPARATOR = '\u0001';
+
+    private TrackMetadataHash() {
+    }
+
+    static String of(TrackEntity entity) {
+        StringBuilder sb = new StringBuilder(256);
+        appendText(sb, entity.getTitle());
+        appendText(sb, entity.getArtist());
+        appendText(sb, entity.getAlbum());
+        appendText(sb, entity.getAlbumArtist());
+        appendText(sb, entity.getGenre());
+        appendText(sb, entity.getMimeType());
+        appendText(sb, entity.getCoverArtUrl());
+        appendText(sb, entity.getLyricPath());
+        appendNumber(sb, entity.getTrackNo());
+        appendNumber(sb, entity.getDiscNo());
+        appendNumber(sb, entity.getYear());
+        appendNumber(sb, entity.getDurationSec());
+        appendNumber(sb, entity.getBitrate());
+        appendNumber(sb, entity.getSampleRate());
+        appendNumber(sb, entity.getChannels());
+        appendNumber(sb, entity.getHasCover());
+        appendNumber(sb, entity.getHasLyric());
+        // CONCAT_WS puts separators only between fields.
+        sb.setLength(sb.length() - 1);
+        return HashUtil.md5Hex(sb.toString());
+    }
+
+    private static void appendText(StringBuilder sb, String value) {
+        if (value != null) {
+            sb.append(value.trim());
+        }
+        sb.append(SEPARATOR);
+    }
+
+    private static void appendNumber(StringBuilder sb, Integer value) {
+        if (value != null) {
+            sb.append(value.intValue());
+        }
+        sb.append(SEPARATOR);
+    }
+}
@@ -13,6 +13,8 @@ import com.example.musicwebdav.infrastructure.persistence.entity.WebDavConfigEnt
 import com.example.musicwebdav.infrastructure.persistence.mapper.TrackMapper;
 import com.example.musicwebdav.infrastructure.persistence.mapper.WebDavConfigMapper;
 import com.example.musicwebdav.infrastructure.webdav.WebDavClient;
+import com.example.musicwebdav.infrastructure.webdav.WebDavHttpClientRegistry;
+import com.example.musicwebdav.infrastructure.webdav.WebDavTrafficClass;
 import io.micrometer.core.instrument.MeterRegistry;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -34,8 +36,6 @@ import org.apache.http.HttpResponse;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,7 +59,8 @@ public class TrackPlaybackService {
     private final PlaybackControlService playbackControlService;
     private final AppPlaybackProperties appPlaybackProperties;
     private final MeterRegistry meterRegistry;
-    private final CloseableHttpClient streamHttpClient;
+    private final WebDavHttpClientRegistry webDavHttpClientRegistry;
+    private final RequestConfig streamRequestConfig;
 
     public TrackPlaybackService(TrackMapper trackMapper,
                                 WebDavConfigMapper webDavConfigMapper,
@@ -69,6 +70,7 @@ public class TrackPlaybackService {
                                 PlaybackControlService playbackControlService,
                                 AppPlaybackProperties appPlaybackProperties,
                                 AppWebDavProperties appWebDavProperties,
+                                WebDavHttpClientRegistry webDavHttpClientRegistry,
                                 ObjectProvider<MeterRegistry> meterRegistryProvider) {
         this.trackMapper = trackMapper;
         this.webDavConfigMapper = webDavConfigMapper;
@@ -78,17 +80,12 @@ public class TrackPlaybackService {
         this.playbackControlService = playbackControlService;
         this.appPlaybackProperties = appPlaybackProperties;
         this.meterRegistry = meterRegistryProvider.getIfAvailable();
-
-        RequestConfig requestConfig = RequestConfig.custom()
+        this.webDavHttpClientRegistry = webDavHttpClientRegistry;
+        // Streams share the config's pool with scans but, unlike them, give up on a stalled upstream.
+        this.streamRequestConfig = RequestConfig.custom()
                 .setConnectTimeout(appWebDavProperties.getConnectTimeoutMs())
                 .setSocketTimeout(appWebDavProperties.getSocketTimeoutMs())
-                .build();
-        PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
-        cm.setMaxTotal(20);
-        cm.setDefaultMaxPerRoute(10);
-        this.streamHttpClient = HttpClients.custom()
-                .setConnectionManager(cm)
-                .setDefaultRequestConfig(requestConfig)
+                .setConnectionRequestTimeout(appWebDavProperties.getPoolConnectionRequestTimeoutMs())
                 .build();
     }
 
@@ -304,20 +301,23 @@ public class TrackPlaybackService {
                                            String errorMessagePrefix) {
         String basicAuth = "Basic " + Base64.getEncoder().encodeToString(
                 (username + ":" + decryptedPassword).getBytes(StandardCharsets.UTF_8));
+        CloseableHttpClient httpClient = webDavHttpClientRegistry.httpClient(username, decryptedPassword);
         String targetUrl = streamUrl;
         int redirectHops = 0;
         log.info("PLAYBACK_STREAM_PROXY_START trackId={} sourcePathHash={} range={} upstream={} traceId={}",
                 trackId, summarizePath(sourcePath), summarizeRange(rangeHeader), summarizeUrl(streamUrl), currentTraceId());
-        try {
+        // Listener-facing: leased and read ahead of scan traffic on the same host.
+        try (WebDavTrafficClass.Scope ignored = WebDavTrafficClass.STREAMING.enter()) {
             HttpResponse webDavResponse = null;
             int statusCode = 0;
             for (int hop = 0; hop <= MAX_REDIRECT_HOPS; hop++) {
                 HttpGet httpGet = new HttpGet(targetUrl);
+                httpGet.setConfig(streamRequestConfig);
                 httpGet.setHeader("Authorization", basicAuth);
                 if (StringUtils.hasText(rangeHeader)) {
                     httpGet.setHeader("Range", rangeHeader);
                 }
-                webDavResponse = this.streamHttpClient.execute(httpGet);
+                webDavResponse = httpClient.execute(httpGet);
                 statusCode = webDavResponse.getStatusLine().getStatusCode();
                 if (!isRedirectStatus(statusCode)) {
                     break;
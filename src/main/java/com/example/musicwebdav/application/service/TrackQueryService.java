@@ -1,5 +1,6 @@
 package com.example.musicwebdav.application.service;
 
+import com.example.musicwebdav.api.response.FolderResponse;
 import com.example.musicwebdav.api.response.PageResponse;
 import com.example.musicwebdav.api.response.TrackDetailResponse;
 import com.example.musicwebdav.api.response.TrackResponse;
@@ -24,10 +25,13 @@ public class TrackQueryService {
 
     private final TrackMapper trackMapper;
     private final PlaylistTrackMapper playlistTrackMapper;
+    private final DirectorySignatureService directorySignatureService;
 
-    public TrackQueryService(TrackMapper trackMapper, PlaylistTrackMapper playlistTrackMapper) {
+    public TrackQueryService(TrackMapper trackMapper, PlaylistTrackMapper playlistTrackMapper,
+                             DirectorySignatureService directorySignatureService) {
         this.trackMapper = trackMapper;
         this.playlistTrackMapper = playlistTrackMapper;
+        this.directorySignatureService = directorySignatureService;
     }
 
     public PageResponse<TrackResponse> listTracks(int pageNo,
@@ -37,6 +41,7 @@ public class TrackQueryService {
                                                   String album,
                                                   String genre,
                                                   Integer year,
+                                                  Long dirId,
                                                   String sortBy,
                                                   String sortOrder) {
         int safePageNo = Math.max(1, pageNo);
@@ -44,9 +49,9 @@ public class TrackQueryService {
         int offset = (safePageNo - 1) * safePageSize;
         String normalizedSortBy = normalizeSortBy(sortBy);
         String normalizedSortOrder = normalizeSortOrder(sortOrder);
-        List<TrackEntity> rows = trackMapper.selectPage(
-                offset, safePageSize, keyword, artist, album, genre, year, normalizedSortBy, normalizedSortOrder);
-        long total = trackMapper.count(keyword, artist, album, genre, year);
+        List<TrackEntity> rows = trackMapper.selectPage(offset, safePageSize, keyword, artist, album, genre, year,
+                dirId, normalizedSortBy, normalizedSortOrder);
+        long total = trackMapper.count(keyword, artist, album, genre, year, dirId);
         return new PageResponse<>(rows.stream().map(this::toResponse).collect(Collectors.toList()), total, safePageNo, safePageSize);
     }
 
@@ -75,6 +80,16 @@ public class TrackQueryService {
         return new PageResponse<>(rows.stream().map(this::toResponse).collect(Collectors.toList()), total, safePageNo, safePageSize);
     }
 
+    /**
+     * Subfolders of a scanned folder (the root folder when parentId is null); list a folder's own tracks with
+     * {@link #listTracks} and its id as dirId.
+     */
+    public List<FolderResponse> listFolders(Long configId, Long parentId) {
+        return directorySignatureService.selectChildren(configId, parentId).stream()
+                .map(dir -> new FolderResponse(dir.getId(), dir.getParentId(), dir.getDirName(), dir.getDirPath()))
+                .collect(Collectors.toList());
+    }
+
     public TrackDetailResponse getTrack(Long id) {
         TrackEntity entity = trackMapper.selectById(id);
         if (entity == null) {
@@ -3,6 +3,7 @@ package com.example.musicwebdav.application.service;
 import com.example.musicwebdav.api.request.TrackUpdateRequest;
 import com.example.musicwebdav.api.response.TrackResponse;
 import com.example.musicwebdav.common.exception.BusinessException;
+import com.example.musicwebdav.common.util.NormalizedKeyUtil;
 import com.example.musicwebdav.infrastructure.persistence.entity.TrackEntity;
 import com.example.musicwebdav.infrastructure.persistence.mapper.TrackMapper;
 import org.slf4j.Logger;
@@ -38,6 +39,8 @@ public class TrackUpdateService {
         if (request.getDiscNo() != null) track.setDiscNo(request.getDiscNo());
         if (request.getYear() != null) track.setYear(request.getYear());
         if (request.getGenre() != null) track.setGenre(request.getGenre());
+        track.setNormTitle(NormalizedKeyUtil.normalize(track.getTitle()));
+        track.setNormArtist(NormalizedKeyUtil.normalize(track.getArtist()));
 
         trackMapper.updateMetadata(track);
 
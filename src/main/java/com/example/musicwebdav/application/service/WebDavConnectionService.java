@@ -10,6 +10,8 @@ import com.example.musicwebdav.api.response.WebDavTestResponse;
 import com.example.musicwebdav.common.config.AppSecurityProperties;
 import com.example.musicwebdav.common.exception.BusinessException;
 import com.example.musicwebdav.common.util.AesCryptoUtil;
+import com.example.musicwebdav.domain.enumtype.RecursiveEtagMode;
+import com.example.musicwebdav.domain.enumtype.WebDavListingStrategy;
 import com.example.musicwebdav.domain.model.WebDavConnectResult;
 import com.example.musicwebdav.domain.model.WebDavDirectoryInfo;
 import com.example.musicwebdav.infrastructure.persistence.entity.WebDavConfigEntity;
@@ -120,9 +122,13 @@ public class WebDavConnectionService {
         WebDavConfigEntity config = loadConfigForTest(request == null ? null : request.getConfigId());
         updateRecoveryState(config.getId(), RECOVERY_RECOVERING, "WEBDAV_RECOVERY_IN_PROGRESS", "正在执行管理员恢复", null);
 
+        String previousUsername = config.getUsername();
+        String previousPasswordEnc = config.getPasswordEnc();
         boolean changed = applyRecoveryPatch(config, request);
         if (changed) {
             webDavConfigMapper.updateById(config);
+            // Pooled keep-alive connections may still point at the old server or carry the old credentials.
+            webDavClient.invalidateConnections(previousUsername, decryptPassword(previousPasswordEnc));
         }
 
         WebDavConnectResult result = webDavClient.testConnection(
@@ -164,6 +170,10 @@ public class WebDavConnectionService {
                 "密码不能为空",
                 "请检查密码后重试");
         String rootPath = normalizeRootPathForStorage(request.getRootPath());
+        WebDavListingStrategy listingStrategy = parseListingStrategy(request.getListingStrategy());
+        RecursiveEtagMode recursiveEtagMode = request.getRecursiveEtagMode() == null
+                ? RecursiveEtagMode.AUTO
+                : parseRecursiveEtagMode(request.getRecursiveEtagMode());
 
         WebDavConnectResult testResult = webDavClient.testConnection(baseUrl, username, password, rootPath);
         if (!testResult.isSuccess()) {
@@ -176,6 +186,8 @@ public class WebDavConnectionService {
         entity.setUsername(username);
         entity.setPasswordEnc(AesCryptoUtil.encrypt(password, appSecurityProperties.getEncryptKey()));
         entity.setRootPath(rootPath);
+        entity.setListingStrategy(listingStrategy.name());
+        entity.setRecursiveEtagMode(recursiveEtagMode.name());
         entity.setEnabled(Boolean.TRUE.equals(request.getEnabled()) ? 1 : 0);
 
         try {
@@ -273,6 +285,9 @@ public class WebDavConnectionService {
                 : normalizeAndValidateBaseUrl(request.getBaseUrl());
         if (!baseUrl.equals(config.getBaseUrl())) {
             config.setBaseUrl(baseUrl);
+            // The sync token and the detected ETag behaviour belong to the old server.
+            config.setSyncToken(null);
+            config.setRecursiveEtagDetected(null);
             changed = true;
         }
 
@@ -296,6 +311,15 @@ public class WebDavConnectionService {
             String normalizedRootPath = normalizeRootPathForStorage(request.getRootPath());
             if (!normalizedRootPath.equals(config.getRootPath())) {
                 config.setRootPath(normalizedRootPath);
+                config.setSyncToken(null);
+                changed = true;
+            }
+        }
+
+        if (request.getRecursiveEtagMode() != null) {
+            String mode = parseRecursiveEtagMode(request.getRecursiveEtagMode()).name();
+            if (!mode.equals(config.getRecursiveEtagMode())) {
+                config.setRecursiveEtagMode(mode);
                 changed = true;
             }
         }
@@ -436,6 +460,27 @@ public class WebDavConnectionService {
         return normalized;
     }
 
+    private WebDavListingStrategy parseListingStrategy(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return WebDavListingStrategy.DEPTH_1;
+        }
+        try {
+            return WebDavListingStrategy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("WEBDAV_INVALID_LISTING_STRATEGY", "目录列举策略不合法",
+                    "请选择 DEPTH_1 或 DEPTH_INFINITY 后重试");
+        }
+    }
+
+    private RecursiveEtagMode parseRecursiveEtagMode(String value) {
+        try {
+            return RecursiveEtagMode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("WEBDAV_INVALID_RECURSIVE_ETAG_MODE", "目录ETag递归模式不合法",
+                    "请选择 AUTO、ON 或 OFF 后重试");
+        }
+    }
+
     private String requireNonBlank(String value, String code, String message, String userAction) {
         if (value == null || value.trim().isEmpty()) {
             throw new BusinessException(code, message, userAction);
@@ -549,6 +594,9 @@ public class WebDavConnectionService {
                 entity.getBaseUrl(),
                 entity.getUsername(),
                 entity.getRootPath(),
+                entity.getListingStrategy(),
+                entity.getRecursiveEtagMode(),
+                entity.getRecursiveEtagDetected(),
                 entity.getEnabled(),
                 entity.getCreatedAt(),
                 entity.getUpdatedAt()
@@ -2,9 +2,11 @@ package com.example.musicwebdav.common.config;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import lombok.Data;
@@ -18,10 +20,18 @@ public class AppScanProperties {
 
     private int parserThreadCount = 6;
 
+    /**
+     * Retries of a directory listing or directory processing step that failed with a timeout, throttling, a 5xx
+     * or a dropped connection. Auth failures and 404s are not retried.
+     */
     private int maxRetry = 3;
 
+    /** Base delay of the first retry; it doubles per attempt, with jitter. */
     private int retryBackoffMs = 500;
 
+    /** Upper bound of a single retry delay. */
+    private int retryMaxBackoffMs = 30000;
+
     private List<String> audioExtensions = new ArrayList<>(Arrays.asList("mp3", "flac", "m4a", "aac", "ogg", "wav"));
 
     private List<String> lyricExtensions = new ArrayList<>(Arrays.asList("lrc", "txt"));
@@ -32,10 +42,58 @@ public class AppScanProperties {
 
     private int progressPersistIntervalSec = 30;
 
+    /**
+     * Interval of the batch poll that picks up cancels written to scan_task by other nodes.
+     * Cancels issued on this node take effect immediately.
+     */
+    private long cancelPollIntervalMs = 5000;
+
     private int metadataHeadBytes = 131072;
 
     private int metadataTailBytes = 128;
 
+    /**
+     * Whether new or changed audio files get their embedded tags parsed from ranged head/tail downloads.
+     * When disabled, track metadata is inferred from the WebDAV path only.
+     * Worker count of this stage follows parserThreadCount.
+     */
+    private boolean metadataExtractionEnabled = false;
+
+    /**
+     * Max in-flight ranged metadata fetches per scan, shared by all directory workers.
+     */
+    private int metadataMaxInFlight = 24;
+
+    /**
+     * How ranged metadata is parsed: IN_MEMORY reads MP3/FLAC/MP4 headers straight from a Range-backed channel
+     * (other formats still use the temp file), TEMP_FILE always assembles a sparse head/tail temp file.
+     */
+    private String metadataParseMode = "IN_MEMORY";
+
+    /**
+     * Whether new or changed audio files, and rows still missing a duration, get duration/bitrate/sample rate/
+     * channels from a header-only ranged probe (a few KB per file). Inconclusive probes fall back to the
+     * head/tail parse. Independent of metadataExtractionEnabled, which already yields these properties.
+     */
+    private boolean audioProbeEnabled = true;
+
+    /**
+     * Upper bound on bytes fetched by one audio header probe before it gives up and falls back.
+     */
+    private int audioProbeMaxFetchBytes = 65536;
+
+    /**
+     * Whether new or changed audio files get a sampled content hash (size plus head, middle and tail chunks of
+     * contentHashSampleBytes each, fetched with Range requests) stored in track.content_hash. Opt-in; it costs
+     * a few ranged requests per changed file.
+     */
+    private boolean contentHashEnabled = false;
+
+    /**
+     * Bytes read from each of the three sampled chunks of a content hash.
+     */
+    private int contentHashSampleBytes = 4096;
+
     /**
      * Parallel worker count for directory file-processing stage.
      */
@@ -56,6 +114,92 @@ public class AppScanProperties {
      */
     private int directoryListMaxInFlight = 24;
 
+    /**
+     * Whether listing and metadata-fetch concurrency adapts to the server (AIMD): it starts at the stage's thread
+     * count, grows while latency stays flat and backs off on timeouts, 429/503 or a rising p95, never going above
+     * directoryListMaxInFlight / metadataMaxInFlight. When disabled those maximums are fixed limits.
+     */
+    private boolean adaptiveConcurrencyEnabled = true;
+
+    /**
+     * A round p95 latency above this multiple of the baseline counts as overload.
+     */
+    private double adaptiveConcurrencyLatencyTolerance = 2.0;
+
+    /**
+     * Factor the concurrency limit is multiplied by on overload.
+     */
+    private double adaptiveConcurrencyBackoffRatio = 0.7;
+
+    /**
+     * Parallel worker count for the classify stage (resume/signature skip checks and skipped-directory bookkeeping).
+     */
+    private int directoryClassifyThreadCount = 2;
+
+    /**
+     * Max in-flight directories in the classify stage; the coordinator blocks when it is full.
+     */
+    private int directoryClassifyMaxInFlight = 64;
+
+    /**
+     * Queue capacity of the single-threaded write stage (checkpoints, signatures, progress).
+     */
+    private int writeQueueCapacity = 256;
+
+    /**
+     * Route track upserts and touches of process workers through one write-behind writer
+     * that group-commits them, instead of each worker running its own small transactions.
+     */
+    private boolean writeBehindEnabled = true;
+
+    /**
+     * Byte budget of one multi-row statement built by the write-behind writer; keep it well under
+     * MySQL max_allowed_packet.
+     */
+    private long writeBehindStatementMaxBytes = 1048576L;
+
+    /**
+     * Row count at which the write-behind writer commits the current group.
+     */
+    private int writeBehindCommitMaxRows = 5000;
+
+    /**
+     * Estimated byte size at which the write-behind writer commits the current group.
+     */
+    private long writeBehindCommitMaxBytes = 8388608L;
+
+    /**
+     * Longest a queued change waits for more rows before it is committed when no worker is waiting on it.
+     */
+    private long writeBehindMaxDelayMs = 50L;
+
+    /**
+     * Max queued flushes in front of the write-behind writer; workers block when it is full.
+     */
+    private int writeBehindQueueCapacity = 256;
+
+    /**
+     * How the write-behind writer sends track upserts: MULTI_ROW builds one multi-row INSERT per statement,
+     * JDBC_BATCH queues single-row upserts on the MyBatis BATCH executor and lets the driver rewrite them
+     * (needs {@code rewriteBatchedStatements=true} on MySQL). Only applies when write-behind is enabled.
+     */
+    private String trackWriteMode = "MULTI_ROW";
+
+    /**
+     * Lower bound of the adaptive JDBC batch size in JDBC_BATCH mode.
+     */
+    private int jdbcBatchMinSize = 100;
+
+    /**
+     * Upper bound of the adaptive JDBC batch size in JDBC_BATCH mode.
+     */
+    private int jdbcBatchMaxSize = 2000;
+
+    /**
+     * Flush latency the adaptive JDBC batch size aims for; slower flushes shrink the batch, much faster ones grow it.
+     */
+    private long jdbcBatchTargetMs = 200L;
+
     /**
      * Whether incremental scan can skip unchanged directories by signature (etag/mtime/child count).
      */
@@ -91,14 +235,27 @@ public class AppScanProperties {
      */
     private int dedupAlwaysForSmallLibraryMaxFiles = 5000;
 
+    /**
+     * What dedup treats as a duplicate: TITLE_ARTIST groups by normalized title and artist, CONTENT_HASH only
+     * groups byte-identical files by their sampled content hash (requires contentHashEnabled; rows without a
+     * hash are never merged).
+     */
+    private String dedupMode = "TITLE_ARTIST";
+
     /**
      * Whether full scan uses seen-file fallback for delete detection when directory skip is enabled.
-     * Disable this to reduce DB write amplification, then rely on last_scan_task_id + directory prefix touch.
+     * Disable this to rely on last_scan_task_id + directory prefix touch instead.
      */
     private boolean fullSeenDeleteFallbackEnabled = false;
 
     /**
-     * Batch size for bulk write operations (seen-file inserts, touch updates).
+     * Live track ids the seen-file fallback keeps on the heap (8 bytes each plus one bit); a larger library
+     * spills its ids to a temp file that is memory-mapped for the scan.
+     */
+    private int seenSetMaxInMemoryIds = 5000000;
+
+    /**
+     * Batch size for bulk write operations (touch updates).
      * These are simple operations so can use larger batches than track upserts.
      * Defaults to dbBatchSize * 2 if not set (0).
      */
@@ -123,12 +280,40 @@ public class AppScanProperties {
      */
     private boolean incrementalEnableDeleteDetection = false;
 
+    /**
+     * Whether scans keep the RFC 6578 sync token of the root, so incremental scans on servers that support
+     * sync-collection only re-list the directories reported as changed. Removals reported by the server are
+     * applied even when incremental delete detection is off, since they are exact.
+     */
+    private boolean syncCollectionEnabled = true;
+
+    /**
+     * Nested directory changes a scan must see propagated to the parent's ETag, with none that was not, before a
+     * config in recursive-etag mode AUTO is trusted; incremental scans then skip unchanged subtrees unlisted.
+     */
+    private int recursiveEtagMinEvidence = 3;
+
     /**
      * Whether incremental scan runs deduplication.
      * Keep false for performance; run dedup on FULL scan or scheduled maintenance.
      */
     private boolean incrementalEnableDedup = false;
 
+    /** Scans running at once on this node; further tasks wait in the scheduler queue instead of being rejected. */
+    private int schedulerMaxConcurrentScans = 2;
+
+    /** Directory-listing workers shared by all running scans. */
+    private int schedulerListWorkers = 48;
+
+    /** Directory-processing workers shared by all running scans. */
+    private int schedulerProcessWorkers = 8;
+
+    /**
+     * Fair-share weight per config id; configs not listed weigh 1. A config of weight 2 is entitled to twice the
+     * scan time of one of weight 1 when both have tasks queued.
+     */
+    private Map<Long, Integer> schedulerConfigWeights = new HashMap<>();
+
     public Set<String> normalizedAudioExtensions() {
         return audioExtensions.stream()
                 .filter(item -> item != null && !item.trim().isEmpty())
@@ -10,4 +10,37 @@ public class AppWebDavProperties {
     private int connectTimeoutMs = 5000;
 
     private int socketTimeoutMs = 15000;
+
+    /** Connections per credentials pool across all hosts; scans, covers and streams share it. */
+    private int poolMaxTotal = 128;
+
+    /** Connections per host within a pool; should cover the scan's list and metadata workers together. */
+    private int poolMaxPerRoute = 64;
+
+    /** How long a request waits for a free pooled connection before failing. */
+    private int poolConnectionRequestTimeoutMs = 30000;
+
+    /** Pooled connections idle longer than this are closed. */
+    private int poolIdleEvictSec = 60;
+
+    /** A connection idle longer than this is checked before reuse, catching ones the server already closed. */
+    private int poolValidateAfterInactivityMs = 2000;
+
+    /** Pools nobody used for this long are closed. */
+    private int poolUnusedTtlSec = 900;
+
+    /** Distinct credential pools kept at once; the least recently used one is retired beyond this. */
+    private int poolMaxRegistered = 32;
+
+    /** Shares one connection and bandwidth budget per upstream host between streaming, assets and scans. */
+    private boolean governorEnabled = true;
+
+    /** Concurrent requests to one host across all pools; cap it below what the server can serve. */
+    private int hostMaxConnections = 64;
+
+    /** Connections on a host that scan traffic leaves free for playback, covers and lyrics. */
+    private int hostInteractiveReservedConnections = 8;
+
+    /** Response bytes per second read from one host; 0 means unlimited. Higher classes read first when short. */
+    private long hostBandwidthBytesPerSec = 0L;
 }
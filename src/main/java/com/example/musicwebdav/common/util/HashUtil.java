@@ -4,22 +4,38 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
+/**
+ * Path and fingerprint hashing. A scan hashes every listed file and directory path, so the digest is kept per
+ * thread (getInstance walks the provider list on every call) and hex encoding goes through a lookup table.
+ */
 public final class HashUtil {
 
-    private HashUtil() {
-    }
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
 
-    public static String md5Hex(String text) {
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
         try {
-            MessageDigest messageDigest = MessageDigest.getInstance("MD5");
-            byte[] bytes = messageDigest.digest(text.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : bytes) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
+            return MessageDigest.getInstance("MD5");
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalStateException("MD5 algorithm not found", e);
         }
+    });
+
+    private HashUtil() {
+    }
+
+    public static String md5Hex(String text) {
+        MessageDigest messageDigest = MD5.get();
+        // digest() resets the instance, so it is clean for the next call on this thread
+        return toHex(messageDigest.digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int value = bytes[i] & 0xff;
+            chars[i * 2] = HEX_DIGITS[value >>> 4];
+            chars[i * 2 + 1] = HEX_DIGITS[value & 0x0f];
+        }
+        return new String(chars);
     }
 }
@@ -0,0 +1,35 @@
+package com.example.musicwebdav.common.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Comparison key for titles and artists, stored in track.norm_title and track.norm_artist so equality lookups
+ * can use an index instead of LOWER(TRIM()) on every row. NFKC folds full-width and other compatibility forms
+ * to their plain form, whitespace runs collapse to one space, and case is folded by upper- then lower-casing,
+ * so "ß" meets "SS". Keys longer than the column are cut.
+ */
+public final class NormalizedKeyUtil {
+
+    public static final int MAX_LENGTH = 255;
+
+    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("[\\s\\p{Z}]+");
+
+    private NormalizedKeyUtil() {
+    }
+
+    public static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String folded = Normalizer.normalize(value, Normalizer.Form.NFKC);
+        folded = WHITESPACE_PATTERN.matcher(folded).replaceAll(" ").trim();
+        folded = folded.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+        if (folded.length() <= MAX_LENGTH) {
+            return folded;
+        }
+        int end = Character.isHighSurrogate(folded.charAt(MAX_LENGTH - 1)) ? MAX_LENGTH - 1 : MAX_LENGTH;
+        return folded.substring(0, end);
+    }
+}
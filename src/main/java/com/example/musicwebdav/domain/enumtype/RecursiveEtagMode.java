@@ -0,0 +1,14 @@
+package com.example.musicwebdav.domain.enumtype;
+
+/**
+ * Whether scans trust a directory's ETag to change when anything below it changes, so an unchanged directory
+ * can be skipped together with its whole subtree.
+ */
+public enum RecursiveEtagMode {
+    /** Trust it once scans have observed the server propagating changes up the tree. */
+    AUTO,
+    /** Always trust it (set by an admin). */
+    ON,
+    /** Never trust it; every directory is listed. */
+    OFF
+}
@@ -0,0 +1,11 @@
+package com.example.musicwebdav.domain.enumtype;
+
+/**
+ * How a scan enumerates the directories of a WebDAV config.
+ */
+public enum WebDavListingStrategy {
+    /** One PROPFIND Depth:1 per directory. Works on every server. */
+    DEPTH_1,
+    /** One PROPFIND Depth:infinity for the whole tree; falls back to DEPTH_1 when the server refuses it. */
+    DEPTH_INFINITY
+}
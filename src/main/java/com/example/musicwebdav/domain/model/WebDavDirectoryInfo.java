@@ -24,4 +24,7 @@ public class WebDavDirectoryInfo {
     private List<WebDavFileObject> files;
 
     private List<String> subdirectoryUrls;
+
+    /** Same directories as subdirectoryUrls with the etags this listing reported; null for Depth:infinity. */
+    private List<WebDavSubdirectory> subdirectories;
 }
@@ -0,0 +1,20 @@
+package com.example.musicwebdav.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A subdirectory as its parent's listing reports it, before the subdirectory itself is listed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebDavSubdirectory {
+
+    private String relativePath;
+
+    private String directoryUrl;
+
+    private String etag;
+}
@@ -0,0 +1,28 @@
+package com.example.musicwebdav.domain.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * What a sync-collection REPORT reported since the previous sync token.
+ */
+@Data
+@NoArgsConstructor
+public class WebDavSyncChanges {
+
+    /** Token to send next time. */
+    private String syncToken;
+
+    /** Directories whose members changed, to be listed again; never one that was removed. */
+    private Set<String> changedDirectoryUrls = new LinkedHashSet<>();
+
+    /** Paths relative to the root, without a trailing slash; a file or a whole directory. */
+    private List<String> removedPaths = new ArrayList<>();
+
+    /** Changed members (files and directories) the server reported. */
+    private int changedCount;
+}
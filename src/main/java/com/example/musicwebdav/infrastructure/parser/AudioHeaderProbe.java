@@ -0,0 +1,34 @@
+package com.example.musicwebdav.infrastructure.parser;
+
+import com.example.musicwebdav.domain.model.AudioMetadata;
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Header-only probe for duration, bitrate, sample rate and channels. Tag frames, comment blocks and
+ * {@code ilst} items are never read, so over a small-block ranged channel a probe costs a few KB: MP3 needs the
+ * ID3v2 header, the first frame (Xing/VBRI or CBR math) and the ID3v1 marker; FLAC needs STREAMINFO and block
+ * headers; MP4 needs {@code mvhd}, {@code mdhd}, {@code hdlr} and {@code stsd}.
+ */
+public final class AudioHeaderProbe {
+
+    private AudioHeaderProbe() {
+    }
+
+    /**
+     * @return metadata carrying only audio properties, or {@code null} when the container is unsupported or the
+     *         probe could not determine a duration; callers should then fall back to a full parse
+     */
+    public static AudioMetadata probe(SeekableByteChannel channel) throws IOException {
+        AudioMetadata probed = ChannelAudioMetadataReader.read(channel, false);
+        if (probed == null || probed.getDurationSec() == null || probed.getDurationSec() <= 0) {
+            return null;
+        }
+        AudioMetadata metadata = new AudioMetadata();
+        metadata.setDurationSec(probed.getDurationSec());
+        metadata.setBitrate(probed.getBitrate());
+        metadata.setSampleRate(probed.getSampleRate());
+        metadata.setChannels(probed.getChannels());
+        return metadata;
+    }
+}
@@ -2,8 +2,16 @@ package com.example.musicwebdav.infrastructure.parser;
 
 import com.example.musicwebdav.domain.model.AudioMetadata;
 import java.io.File;
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
 
 public interface AudioMetadataParser {
 
     AudioMetadata parse(File audioFile) throws Exception;
+
+    /**
+     * Parse from a seekable channel without a local file. Returns null when the container is not supported
+     * in-memory; callers then fall back to {@link #parse(File)}.
+     */
+    AudioMetadata parse(SeekableByteChannel channel) throws IOException;
 }
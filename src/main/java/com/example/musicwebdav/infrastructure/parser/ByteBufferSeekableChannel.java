@@ -0,0 +1,89 @@
+package com.example.musicwebdav.infrastructure.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Read-only {@link SeekableByteChannel} view over an in-memory buffer, so already-downloaded bytes can go through
+ * the same channel-based parse path as ranged remote reads.
+ */
+public class ByteBufferSeekableChannel implements SeekableByteChannel {
+
+    private final ByteBuffer source;
+    private long position;
+    private boolean open = true;
+
+    public ByteBufferSeekableChannel(ByteBuffer source) {
+        this.source = source.duplicate();
+    }
+
+    public ByteBufferSeekableChannel(byte[] source) {
+        this(ByteBuffer.wrap(source));
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws ClosedChannelException {
+        ensureOpen();
+        int limit = source.limit();
+        if (position >= limit) {
+            return -1;
+        }
+        int count = (int) Math.min(dst.remaining(), limit - position);
+        ByteBuffer slice = source.duplicate();
+        slice.position((int) position);
+        slice.limit((int) position + count);
+        dst.put(slice);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws ClosedChannelException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) throws ClosedChannelException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("position must not be negative");
+        }
+        this.position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws ClosedChannelException {
+        ensureOpen();
+        return source.limit();
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.musicwebdav.infrastructure.parser;
+
+import com.example.musicwebdav.domain.model.AudioMetadata;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Container sniffing plus dispatch to the MP3 / FLAC / MP4 readers. Everything is read through positional reads
+ * on the channel, so a lazily-fetched remote channel only pulls the headers it actually needs.
+ */
+public final class ChannelAudioMetadataReader {
+
+    private static final int SNIFF_BYTES = 12;
+
+    private ChannelAudioMetadataReader() {
+    }
+
+    /**
+     * @return parsed metadata, or {@code null} when the container is not one of MP3, FLAC or MP4/M4A
+     */
+    public static AudioMetadata read(SeekableByteChannel channel) throws IOException {
+        return read(channel, true);
+    }
+
+    /**
+     * @param includeTags false to read audio properties only (see {@link AudioHeaderProbe})
+     */
+    static AudioMetadata read(SeekableByteChannel channel, boolean includeTags) throws IOException {
+        ChannelInput in = new ChannelInput(channel);
+        ByteBuffer head = in.read(0, SNIFF_BYTES);
+        if (ChannelInput.startsWith(head, 0, "fLaC")) {
+            return includeTags ? FlacMetadataReader.read(in, 0) : FlacMetadataReader.probe(in, 0);
+        }
+        if (ChannelInput.startsWith(head, 4, "ftyp")) {
+            return includeTags ? Mp4MetadataReader.read(in) : Mp4MetadataReader.probe(in);
+        }
+        if (ChannelInput.startsWith(head, 0, "ID3")) {
+            long tagEnd = Mp3MetadataReader.id3v2End(head);
+            if (ChannelInput.startsWith(in.read(tagEnd, 4), 0, "fLaC")) {
+                return includeTags ? FlacMetadataReader.read(in, tagEnd) : FlacMetadataReader.probe(in, tagEnd);
+            }
+            AudioMetadata metadata = includeTags ? Mp3MetadataReader.read(in) : Mp3MetadataReader.probe(in);
+            // An ID3 tag in front of something other than MPEG audio (ADTS, for example) is left to the fallback.
+            return metadata.getDurationSec() == null ? null : metadata;
+        }
+        if (head.limit() >= 2 && (head.getShort(0) & 0xFFE0) == 0xFFE0 && ((head.get(1) >>> 1) & 0x3) != 0) {
+            return includeTags ? Mp3MetadataReader.read(in) : Mp3MetadataReader.probe(in);
+        }
+        return null;
+    }
+}
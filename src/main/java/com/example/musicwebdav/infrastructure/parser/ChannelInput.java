@@ -0,0 +1,57 @@
+package com.example.musicwebdav.infrastructure.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Positional reads over a {@link SeekableByteChannel}. Every read is bounded by the caller, so parsers only ever
+ * materialize the header or frame they are looking at.
+ */
+final class ChannelInput {
+
+    private final SeekableByteChannel channel;
+    private final long size;
+
+    ChannelInput(SeekableByteChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Reads up to {@code length} bytes at {@code position}; the returned big-endian buffer is shorter near EOF.
+     */
+    ByteBuffer read(long position, int length) throws IOException {
+        if (position < 0 || position >= size || length <= 0) {
+            return ByteBuffer.allocate(0);
+        }
+        int toRead = (int) Math.min(length, size - position);
+        ByteBuffer buffer = ByteBuffer.allocate(toRead);
+        channel.position(position);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    static boolean startsWith(ByteBuffer buffer, int offset, String ascii) {
+        byte[] expected = ascii.getBytes(StandardCharsets.ISO_8859_1);
+        if (buffer.limit() < offset + expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(offset + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
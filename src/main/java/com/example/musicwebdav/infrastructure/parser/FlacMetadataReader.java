@@ -0,0 +1,176 @@
+package com.example.musicwebdav.infrastructure.parser;
+
+import com.example.musicwebdav.domain.model.AudioMetadata;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Walks FLAC metadata blocks: STREAMINFO for audio properties, VORBIS_COMMENT for tags and PICTURE for artwork.
+ * Block bodies other than those two are skipped by position.
+ */
+final class FlacMetadataReader {
+
+    private static final int STREAMINFO_BYTES = 34;
+    private static final int MAX_COMMENT_BLOCK_BYTES = 64 * 1024;
+    private static final int MAX_BLOCKS = 64;
+
+    private static final int TYPE_STREAMINFO = 0;
+    private static final int TYPE_VORBIS_COMMENT = 4;
+    private static final int TYPE_PICTURE = 6;
+
+    private FlacMetadataReader() {
+    }
+
+    /**
+     * @param flacStart offset of the {@code fLaC} marker (non-zero when an ID3v2 tag precedes it)
+     */
+    static AudioMetadata read(ChannelInput in, long flacStart) throws IOException {
+        return read(in, flacStart, true);
+    }
+
+    /**
+     * Audio properties only: STREAMINFO plus the block headers needed to locate the first audio frame.
+     */
+    static AudioMetadata probe(ChannelInput in, long flacStart) throws IOException {
+        return read(in, flacStart, false);
+    }
+
+    private static AudioMetadata read(ChannelInput in, long flacStart, boolean includeTags) throws IOException {
+        AudioMetadata metadata = new AudioMetadata();
+        metadata.setHasCover(false);
+        long position = flacStart + 4;
+        boolean lastBlock = false;
+        int blocks = 0;
+        long totalSamples = 0;
+        int sampleRate = 0;
+        while (!lastBlock && blocks++ < MAX_BLOCKS) {
+            ByteBuffer header = in.read(position, 4);
+            if (header.limit() < 4) {
+                break;
+            }
+            int flagsAndType = header.get(0) & 0xFF;
+            lastBlock = (flagsAndType & 0x80) != 0;
+            int type = flagsAndType & 0x7F;
+            int length = ((header.get(1) & 0xFF) << 16) | ((header.get(2) & 0xFF) << 8) | (header.get(3) & 0xFF);
+            long body = position + 4;
+            if (type == TYPE_STREAMINFO && length >= STREAMINFO_BYTES) {
+                ByteBuffer streamInfo = in.read(body, STREAMINFO_BYTES);
+                if (streamInfo.limit() == STREAMINFO_BYTES) {
+                    // 20 bits sample rate, 3 bits channels-1, 5 bits bits-per-sample-1, 36 bits total samples.
+                    long packed = streamInfo.getLong(10);
+                    sampleRate = (int) ((packed >>> 44) & 0xFFFFF);
+                    metadata.setChannels((int) ((packed >>> 41) & 0x7) + 1);
+                    totalSamples = packed & 0xFFFFFFFFFL;
+                }
+            } else if (type == TYPE_VORBIS_COMMENT && includeTags) {
+                ByteBuffer comments = in.read(body, Math.min(length, MAX_COMMENT_BLOCK_BYTES));
+                applyVorbisComments(comments, metadata);
+            } else if (type == TYPE_PICTURE) {
+                metadata.setHasCover(true);
+            }
+            position = body + length;
+        }
+
+        if (sampleRate > 0) {
+            metadata.setSampleRate(sampleRate);
+        }
+        if (sampleRate > 0 && totalSamples > 0) {
+            double seconds = totalSamples / (double) sampleRate;
+            metadata.setDurationSec((int) Math.round(seconds));
+            long audioBytes = Math.max(0L, in.size() - position);
+            metadata.setBitrate((int) Math.round(audioBytes * 8D / seconds / 1000D));
+        }
+        return metadata;
+    }
+
+    /**
+     * Applies a (possibly truncated) little-endian Vorbis comment block; parsing stops at the first incomplete entry.
+     */
+    static void applyVorbisComments(ByteBuffer block, AudioMetadata metadata) {
+        ByteBuffer buffer = block.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < 4) {
+            return;
+        }
+        long vendorLength = buffer.getInt() & 0xFFFFFFFFL;
+        if (vendorLength > buffer.remaining() - 4) {
+            return;
+        }
+        buffer.position(buffer.position() + (int) vendorLength);
+        long count = buffer.getInt() & 0xFFFFFFFFL;
+        for (long i = 0; i < count && buffer.remaining() >= 4; i++) {
+            long length = buffer.getInt() & 0xFFFFFFFFL;
+            if (length > buffer.remaining()) {
+                return;
+            }
+            byte[] entry = new byte[(int) length];
+            buffer.get(entry);
+            applyComment(new String(entry, StandardCharsets.UTF_8), metadata);
+        }
+    }
+
+    private static void applyComment(String comment, AudioMetadata metadata) {
+        int separator = comment.indexOf('=');
+        if (separator <= 0) {
+            return;
+        }
+        String key = comment.substring(0, separator).toUpperCase(Locale.ROOT);
+        String value = TagValues.clean(comment.substring(separator + 1));
+        if (value == null) {
+            return;
+        }
+        switch (key) {
+            case "TITLE":
+                if (metadata.getTitle() == null) {
+                    metadata.setTitle(value);
+                }
+                break;
+            case "ARTIST":
+                if (metadata.getArtist() == null) {
+                    metadata.setArtist(value);
+                }
+                break;
+            case "ALBUM":
+                if (metadata.getAlbum() == null) {
+                    metadata.setAlbum(value);
+                }
+                break;
+            case "ALBUMARTIST":
+            case "ALBUM ARTIST":
+            case "ALBUM_ARTIST":
+                if (metadata.getAlbumArtist() == null) {
+                    metadata.setAlbumArtist(value);
+                }
+                break;
+            case "TRACKNUMBER":
+                if (metadata.getTrackNo() == null) {
+                    metadata.setTrackNo(TagValues.firstInteger(value));
+                }
+                break;
+            case "DISCNUMBER":
+                if (metadata.getDiscNo() == null) {
+                    metadata.setDiscNo(TagValues.firstInteger(value));
+                }
+                break;
+            case "DATE":
+            case "YEAR":
+                if (metadata.getYear() == null) {
+                    metadata.setYear(TagValues.firstInteger(value));
+                }
+                break;
+            case "GENRE":
+                if (metadata.getGenre() == null) {
+                    metadata.setGenre(TagValues.genre(value));
+                }
+                break;
+            case "METADATA_BLOCK_PICTURE":
+            case "COVERART":
+                metadata.setHasCover(true);
+                break;
+            default:
+                break;
+        }
+    }
+}
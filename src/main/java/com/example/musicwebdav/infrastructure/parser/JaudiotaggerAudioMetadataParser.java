@@ -2,6 +2,8 @@ package com.example.musicwebdav.infrastructure.parser;
 
 import com.example.musicwebdav.domain.model.AudioMetadata;
 import java.io.File;
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.jaudiotagger.audio.AudioFile;
@@ -44,6 +46,11 @@ public class JaudiotaggerAudioMetadataParser implements AudioMetadataParser {
         return metadata;
     }
 
+    @Override
+    public AudioMetadata parse(SeekableByteChannel channel) throws IOException {
+        return ChannelAudioMetadataReader.read(channel);
+    }
+
     private String safeTagValue(Tag tag, FieldKey fieldKey) {
         if (tag == null) {
             return null;
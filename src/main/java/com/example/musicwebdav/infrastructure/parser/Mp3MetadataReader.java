@@ -0,0 +1,562 @@
+package com.example.musicwebdav.infrastructure.parser;
+
+import com.example.musicwebdav.domain.model.AudioMetadata;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads ID3v2.2/2.3/2.4 frames, the ID3v1 trailer and the first MPEG audio frame from a channel.
+ * Only frame headers and the text frames of interest are materialized; artwork and other large frames are skipped
+ * by position, so a ranged channel never downloads them.
+ */
+final class Mp3MetadataReader {
+
+    static final int ID3V2_HEADER_BYTES = 10;
+    private static final int ID3V1_BYTES = 128;
+    private static final int MAX_TEXT_FRAME_BYTES = 8 * 1024;
+    private static final int MAX_UNSYNC_TAG_BYTES = 256 * 1024;
+    private static final int MAX_FRAMES = 256;
+    private static final int FRAME_SYNC_SCAN_BYTES = 8 * 1024;
+
+    private static final Map<String, String> V22_FRAME_IDS = new HashMap<>();
+
+    static {
+        V22_FRAME_IDS.put("TT2", "TIT2");
+        V22_FRAME_IDS.put("TP1", "TPE1");
+        V22_FRAME_IDS.put("TAL", "TALB");
+        V22_FRAME_IDS.put("TP2", "TPE2");
+        V22_FRAME_IDS.put("TRK", "TRCK");
+        V22_FRAME_IDS.put("TPA", "TPOS");
+        V22_FRAME_IDS.put("TYE", "TYER");
+        V22_FRAME_IDS.put("TCO", "TCON");
+        V22_FRAME_IDS.put("PIC", "APIC");
+    }
+
+    private Mp3MetadataReader() {
+    }
+
+    static AudioMetadata read(ChannelInput in) throws IOException {
+        AudioMetadata metadata = new AudioMetadata();
+        long audioStart = readId3v2(in, metadata);
+        boolean hasId3v1 = readId3v1(in, metadata);
+        long audioEnd = in.size() - (hasId3v1 ? ID3V1_BYTES : 0);
+        readAudioProperties(in, audioStart, audioEnd, metadata);
+        if (metadata.getHasCover() == null) {
+            metadata.setHasCover(false);
+        }
+        return metadata;
+    }
+
+    /**
+     * Audio properties only: reads the ID3v2 header, the first MPEG frame and the ID3v1 marker, never the frames.
+     */
+    static AudioMetadata probe(ChannelInput in) throws IOException {
+        AudioMetadata metadata = new AudioMetadata();
+        long audioStart = id3v2End(in.read(0, ID3V2_HEADER_BYTES));
+        boolean hasId3v1 = in.size() >= ID3V1_BYTES
+                && ChannelInput.startsWith(in.read(in.size() - ID3V1_BYTES, 3), 0, "TAG");
+        long audioEnd = in.size() - (hasId3v1 ? ID3V1_BYTES : 0);
+        readAudioProperties(in, audioStart, audioEnd, metadata);
+        return metadata;
+    }
+
+    /**
+     * Returns the offset right after an ID3v2 tag described by the given 10-byte header, or 0 without a tag.
+     */
+    static long id3v2End(ByteBuffer header) {
+        if (header.limit() < ID3V2_HEADER_BYTES || !ChannelInput.startsWith(header, 0, "ID3")) {
+            return 0;
+        }
+        int major = header.get(3) & 0xFF;
+        int flags = header.get(5) & 0xFF;
+        boolean footer = major >= 4 && (flags & 0x10) != 0;
+        return ID3V2_HEADER_BYTES + syncSafe(header, 6) + (footer ? ID3V2_HEADER_BYTES : 0);
+    }
+
+    private static long readId3v2(ChannelInput in, AudioMetadata metadata) throws IOException {
+        ByteBuffer header = in.read(0, ID3V2_HEADER_BYTES);
+        long tagEnd = id3v2End(header);
+        if (tagEnd <= 0) {
+            return 0;
+        }
+        int major = header.get(3) & 0xFF;
+        int flags = header.get(5) & 0xFF;
+        if (major < 2 || major > 4) {
+            return tagEnd;
+        }
+        long framesStart = ID3V2_HEADER_BYTES;
+        long framesEnd = ID3V2_HEADER_BYTES + syncSafe(header, 6);
+        boolean unsynchronised = (flags & 0x80) != 0 && major < 4;
+        if (unsynchronised) {
+            int tagSize = (int) (framesEnd - framesStart);
+            if (tagSize > MAX_UNSYNC_TAG_BYTES) {
+                return tagEnd;
+            }
+            ByteBuffer decoded = removeUnsynchronisation(in.read(framesStart, tagSize));
+            ChannelInput tagInput = new ChannelInput(new ByteBufferSeekableChannel(decoded));
+            readFrames(tagInput, skipExtendedHeader(tagInput, 0, major, flags), decoded.limit(), major, metadata);
+            return tagEnd;
+        }
+        readFrames(in, skipExtendedHeader(in, framesStart, major, flags), framesEnd, major, metadata);
+        return tagEnd;
+    }
+
+    private static long skipExtendedHeader(ChannelInput in, long position, int major, int flags) throws IOException {
+        if ((flags & 0x40) == 0 || major < 3) {
+            return position;
+        }
+        ByteBuffer size = in.read(position, 4);
+        if (size.limit() < 4) {
+            return position;
+        }
+        // v2.3 counts the bytes after the size field; v2.4 uses a syncsafe size that includes itself.
+        return major >= 4 ? position + syncSafe(size, 0) : position + 4 + size.getInt(0);
+    }
+
+    private static void readFrames(ChannelInput in, long start, long end, int major,
+                                   AudioMetadata metadata) throws IOException {
+        int headerBytes = major == 2 ? 6 : 10;
+        long position = start;
+        int frames = 0;
+        while (position + headerBytes <= end && frames++ < MAX_FRAMES) {
+            ByteBuffer header = in.read(position, headerBytes);
+            if (header.limit() < headerBytes || header.get(0) == 0) {
+                break;
+            }
+            String frameId;
+            long frameSize;
+            int formatFlags = 0;
+            if (major == 2) {
+                frameId = ascii(header, 0, 3);
+                frameSize = uint24(header, 3);
+            } else {
+                frameId = ascii(header, 0, 4);
+                frameSize = major >= 4 ? syncSafe(header, 4) : header.getInt(4) & 0xFFFFFFFFL;
+                formatFlags = header.get(9) & 0xFF;
+                if (major >= 4) {
+                    frameSize = correctNonSyncSafeSize(in, position, header, frameSize, end);
+                }
+            }
+            if (!isFrameId(frameId) || frameSize <= 0 || position + headerBytes + frameSize > end) {
+                break;
+            }
+            if (major == 2) {
+                String mapped = V22_FRAME_IDS.get(frameId);
+                frameId = mapped == null ? frameId : mapped;
+            }
+            applyFrame(in, frameId, position + headerBytes, frameSize, major, formatFlags, metadata);
+            position += headerBytes + frameSize;
+        }
+    }
+
+    /**
+     * Some writers store plain 32-bit sizes in v2.4 frames. Prefer whichever size lands on a plausible next frame.
+     */
+    private static long correctNonSyncSafeSize(ChannelInput in, long position, ByteBuffer header,
+                                               long syncSafeSize, long end) throws IOException {
+        long rawSize = header.getInt(4) & 0xFFFFFFFFL;
+        if (rawSize == syncSafeSize || rawSize < 0x80) {
+            return syncSafeSize;
+        }
+        if (looksLikeFrameBoundary(in, position + 10 + syncSafeSize, end)) {
+            return syncSafeSize;
+        }
+        return looksLikeFrameBoundary(in, position + 10 + rawSize, end) ? rawSize : syncSafeSize;
+    }
+
+    private static boolean looksLikeFrameBoundary(ChannelInput in, long position, long end) throws IOException {
+        if (position == end) {
+            return true;
+        }
+        if (position > end) {
+            return false;
+        }
+        ByteBuffer next = in.read(position, 4);
+        if (next.limit() < 4) {
+            return false;
+        }
+        return next.get(0) == 0 || isFrameId(ascii(next, 0, 4));
+    }
+
+    private static void applyFrame(ChannelInput in, String frameId, long bodyPosition, long frameSize,
+                                   int major, int formatFlags, AudioMetadata metadata) throws IOException {
+        if ("APIC".equals(frameId)) {
+            metadata.setHasCover(true);
+            return;
+        }
+        if (!isWantedTextFrame(frameId) || frameSize > MAX_TEXT_FRAME_BYTES) {
+            return;
+        }
+        int skip = 0;
+        boolean unsync = false;
+        if (major == 3) {
+            if ((formatFlags & 0xC0) != 0) {
+                return;
+            }
+            skip = (formatFlags & 0x20) != 0 ? 1 : 0;
+        } else if (major >= 4) {
+            if ((formatFlags & 0x0C) != 0) {
+                return;
+            }
+            skip = ((formatFlags & 0x40) != 0 ? 1 : 0) + ((formatFlags & 0x01) != 0 ? 4 : 0);
+            unsync = (formatFlags & 0x02) != 0;
+        }
+        if (frameSize <= skip) {
+            return;
+        }
+        ByteBuffer body = in.read(bodyPosition + skip, (int) frameSize - skip);
+        if (unsync) {
+            body = removeUnsynchronisation(body);
+        }
+        String value = decodeTextFrame(body);
+        if (value == null) {
+            return;
+        }
+        switch (frameId) {
+            case "TIT2":
+                if (metadata.getTitle() == null) {
+                    metadata.setTitle(value);
+                }
+                break;
+            case "TPE1":
+                if (metadata.getArtist() == null) {
+                    metadata.setArtist(value);
+                }
+                break;
+            case "TALB":
+                if (metadata.getAlbum() == null) {
+                    metadata.setAlbum(value);
+                }
+                break;
+            case "TPE2":
+                if (metadata.getAlbumArtist() == null) {
+                    metadata.setAlbumArtist(value);
+                }
+                break;
+            case "TRCK":
+                if (metadata.getTrackNo() == null) {
+                    metadata.setTrackNo(TagValues.firstInteger(value));
+                }
+                break;
+            case "TPOS":
+                if (metadata.getDiscNo() == null) {
+                    metadata.setDiscNo(TagValues.firstInteger(value));
+                }
+                break;
+            case "TYER":
+            case "TDRC":
+                if (metadata.getYear() == null) {
+                    metadata.setYear(TagValues.firstInteger(value));
+                }
+                break;
+            case "TCON":
+                if (metadata.getGenre() == null) {
+                    metadata.setGenre(TagValues.genre(value));
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static boolean isWantedTextFrame(String frameId) {
+        switch (frameId) {
+            case "TIT2":
+            case "TPE1":
+            case "TALB":
+            case "TPE2":
+            case "TRCK":
+            case "TPOS":
+            case "TYER":
+            case "TDRC":
+            case "TCON":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    static String decodeTextFrame(ByteBuffer body) {
+        if (!body.hasRemaining()) {
+            return null;
+        }
+        int encoding = body.get() & 0xFF;
+        byte[] bytes = new byte[body.remaining()];
+        body.get(bytes);
+        Charset charset;
+        boolean wide;
+        switch (encoding) {
+            case 1:
+                charset = StandardCharsets.UTF_16;
+                wide = true;
+                break;
+            case 2:
+                charset = StandardCharsets.UTF_16BE;
+                wide = true;
+                break;
+            case 3:
+                charset = StandardCharsets.UTF_8;
+                wide = false;
+                break;
+            default:
+                charset = StandardCharsets.ISO_8859_1;
+                wide = false;
+                break;
+        }
+        // v2.4 separates multiple values with a terminator; keep the first one like the Jaudiotagger path.
+        int length = terminatorIndex(bytes, wide);
+        return TagValues.clean(new String(bytes, 0, length, charset));
+    }
+
+    private static int terminatorIndex(byte[] bytes, boolean wide) {
+        if (wide) {
+            for (int i = 0; i + 1 < bytes.length; i += 2) {
+                if (bytes[i] == 0 && bytes[i + 1] == 0) {
+                    return i;
+                }
+            }
+            return bytes.length - (bytes.length % 2);
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == 0) {
+                return i;
+            }
+        }
+        return bytes.length;
+    }
+
+    private static boolean readId3v1(ChannelInput in, AudioMetadata metadata) throws IOException {
+        if (in.size() < ID3V1_BYTES) {
+            return false;
+        }
+        ByteBuffer tag = in.read(in.size() - ID3V1_BYTES, ID3V1_BYTES);
+        if (tag.limit() < ID3V1_BYTES || !ChannelInput.startsWith(tag, 0, "TAG")) {
+            return false;
+        }
+        if (metadata.getTitle() == null) {
+            metadata.setTitle(latin1(tag, 3, 30));
+        }
+        if (metadata.getArtist() == null) {
+            metadata.setArtist(latin1(tag, 33, 30));
+        }
+        if (metadata.getAlbum() == null) {
+            metadata.setAlbum(latin1(tag, 63, 30));
+        }
+        if (metadata.getYear() == null) {
+            metadata.setYear(TagValues.firstInteger(latin1(tag, 93, 4)));
+        }
+        if (metadata.getTrackNo() == null && tag.get(125) == 0 && tag.get(126) != 0) {
+            metadata.setTrackNo(tag.get(126) & 0xFF);
+        }
+        if (metadata.getGenre() == null) {
+            metadata.setGenre(TagValues.genre(tag.get(127) & 0xFF));
+        }
+        return true;
+    }
+
+    // --- MPEG audio frame ---
+
+    private static final int[][] BITRATES_KBPS = {
+            // MPEG-1 layer I, II, III
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},
+            // MPEG-2/2.5 layer I, then II and III
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}
+    };
+
+    private static final int[][] SAMPLE_RATES = {
+            {11025, 12000, 8000},   // MPEG-2.5
+            {0, 0, 0},              // reserved
+            {22050, 24000, 16000},  // MPEG-2
+            {44100, 48000, 32000}   // MPEG-1
+    };
+
+    private static void readAudioProperties(ChannelInput in, long audioStart, long audioEnd,
+                                            AudioMetadata metadata) throws IOException {
+        ByteBuffer window = in.read(audioStart, FRAME_SYNC_SCAN_BYTES);
+        for (int offset = 0; offset + 4 <= window.limit(); offset++) {
+            int header = frameHeaderAt(window, offset);
+            if (header == 0) {
+                continue;
+            }
+            int frameLength = frameLength(header);
+            int next = offset + frameLength;
+            if (next + 4 <= window.limit() && frameHeaderAt(window, next) == 0) {
+                continue;
+            }
+            applyFrameProperties(in, audioStart + offset, audioEnd, header, metadata);
+            return;
+        }
+    }
+
+    /**
+     * Returns the 32-bit header at {@code offset} when it is a valid MPEG audio frame header, otherwise 0.
+     */
+    private static int frameHeaderAt(ByteBuffer buffer, int offset) {
+        if (offset + 4 > buffer.limit()) {
+            return 0;
+        }
+        int header = buffer.getInt(offset);
+        if ((header & 0xFFE00000) != 0xFFE00000) {
+            return 0;
+        }
+        int version = (header >>> 19) & 0x3;
+        int layer = (header >>> 17) & 0x3;
+        int bitrateIndex = (header >>> 12) & 0xF;
+        int sampleRateIndex = (header >>> 10) & 0x3;
+        if (version == 1 || layer == 0 || bitrateIndex == 0 || bitrateIndex == 0xF || sampleRateIndex == 3) {
+            return 0;
+        }
+        return header;
+    }
+
+    private static int bitrateKbps(int header) {
+        int version = (header >>> 19) & 0x3;
+        int layer = (header >>> 17) & 0x3;
+        int bitrateIndex = (header >>> 12) & 0xF;
+        int table;
+        if (version == 3) {
+            table = 3 - layer;
+        } else {
+            table = layer == 3 ? 3 : 4;
+        }
+        return BITRATES_KBPS[table][bitrateIndex];
+    }
+
+    private static int sampleRate(int header) {
+        return SAMPLE_RATES[(header >>> 19) & 0x3][(header >>> 10) & 0x3];
+    }
+
+    private static int samplesPerFrame(int header) {
+        int version = (header >>> 19) & 0x3;
+        int layer = (header >>> 17) & 0x3;
+        if (layer == 3) {
+            return 384;
+        }
+        if (layer == 2) {
+            return 1152;
+        }
+        return version == 3 ? 1152 : 576;
+    }
+
+    private static int channels(int header) {
+        return ((header >>> 6) & 0x3) == 3 ? 1 : 2;
+    }
+
+    private static int frameLength(int header) {
+        int layer = (header >>> 17) & 0x3;
+        int padding = (header >>> 9) & 0x1;
+        int bitrate = bitrateKbps(header) * 1000;
+        int sampleRate = sampleRate(header);
+        if (layer == 3) {
+            return (12 * bitrate / sampleRate + padding) * 4;
+        }
+        return samplesPerFrame(header) / 8 * bitrate / sampleRate + padding;
+    }
+
+    private static void applyFrameProperties(ChannelInput in, long frameStart, long audioEnd, int header,
+                                             AudioMetadata metadata) throws IOException {
+        int sampleRate = sampleRate(header);
+        int samplesPerFrame = samplesPerFrame(header);
+        int version = (header >>> 19) & 0x3;
+        boolean mono = channels(header) == 1;
+        metadata.setSampleRate(sampleRate);
+        metadata.setChannels(channels(header));
+
+        ByteBuffer frame = in.read(frameStart, 4 + 32 + 26);
+        int sideInfo = version == 3 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+        long frameCount = -1;
+        long audioBytes = -1;
+        int xing = 4 + sideInfo;
+        if (ChannelInput.startsWith(frame, xing, "Xing") || ChannelInput.startsWith(frame, xing, "Info")) {
+            int flags = frame.limit() >= xing + 8 ? frame.getInt(xing + 4) : 0;
+            int cursor = xing + 8;
+            if ((flags & 0x1) != 0 && frame.limit() >= cursor + 4) {
+                frameCount = frame.getInt(cursor) & 0xFFFFFFFFL;
+                cursor += 4;
+            }
+            if ((flags & 0x2) != 0 && frame.limit() >= cursor + 4) {
+                audioBytes = frame.getInt(cursor) & 0xFFFFFFFFL;
+            }
+        } else if (ChannelInput.startsWith(frame, 36, "VBRI") && frame.limit() >= 36 + 18) {
+            audioBytes = frame.getInt(36 + 10) & 0xFFFFFFFFL;
+            frameCount = frame.getInt(36 + 14) & 0xFFFFFFFFL;
+        }
+
+        double seconds;
+        int bitrateKbps;
+        if (frameCount > 0) {
+            seconds = frameCount * (double) samplesPerFrame / sampleRate;
+            long bytes = audioBytes > 0 ? audioBytes : Math.max(0L, audioEnd - frameStart);
+            bitrateKbps = seconds > 0 ? (int) Math.round(bytes * 8D / seconds / 1000D) : bitrateKbps(header);
+        } else {
+            bitrateKbps = bitrateKbps(header);
+            seconds = Math.max(0L, audioEnd - frameStart) * 8D / (bitrateKbps * 1000D);
+        }
+        metadata.setDurationSec((int) Math.round(seconds));
+        metadata.setBitrate(bitrateKbps);
+    }
+
+    // --- Byte helpers ---
+
+    static int syncSafe(ByteBuffer buffer, int offset) {
+        return ((buffer.get(offset) & 0x7F) << 21)
+                | ((buffer.get(offset + 1) & 0x7F) << 14)
+                | ((buffer.get(offset + 2) & 0x7F) << 7)
+                | (buffer.get(offset + 3) & 0x7F);
+    }
+
+    private static int uint24(ByteBuffer buffer, int offset) {
+        return ((buffer.get(offset) & 0xFF) << 16)
+                | ((buffer.get(offset + 1) & 0xFF) << 8)
+                | (buffer.get(offset + 2) & 0xFF);
+    }
+
+    private static ByteBuffer removeUnsynchronisation(ByteBuffer source) {
+        byte[] decoded = new byte[source.remaining()];
+        int length = 0;
+        boolean previousFf = false;
+        while (source.hasRemaining()) {
+            byte b = source.get();
+            if (previousFf && b == 0) {
+                previousFf = false;
+                continue;
+            }
+            decoded[length++] = b;
+            previousFf = (b & 0xFF) == 0xFF;
+        }
+        return ByteBuffer.wrap(decoded, 0, length).slice();
+    }
+
+    private static boolean isFrameId(String frameId) {
+        for (int i = 0; i < frameId.length(); i++) {
+            char c = frameId.charAt(i);
+            if (!((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String ascii(ByteBuffer buffer, int offset, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (buffer.get(offset + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    private static String latin1(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return TagValues.clean(new String(bytes, 0, terminatorIndex(bytes, false), StandardCharsets.ISO_8859_1));
+    }
+}
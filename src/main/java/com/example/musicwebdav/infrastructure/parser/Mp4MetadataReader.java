@@ -0,0 +1,411 @@
+package com.example.musicwebdav.infrastructure.parser;
+
+import com.example.musicwebdav.domain.model.AudioMetadata;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Walks the MP4/M4A atom tree: {@code mvhd}/{@code mdhd} for duration, the audio track's {@code stsd} entry for
+ * sample rate, channels and average bitrate, and {@code moov/udta/meta/ilst} for iTunes-style tags.
+ * Only atom headers and the small atoms above are read; {@code mdat} and sample tables are skipped by position.
+ */
+final class Mp4MetadataReader {
+
+    private static final int MAX_ATOMS = 1024;
+    private static final int MAX_ITEM_VALUE_BYTES = 4 * 1024;
+    private static final int STSD_READ_BYTES = 256;
+
+    private static final int MOOV = fourcc("moov");
+    private static final int TRAK = fourcc("trak");
+    private static final int MDIA = fourcc("mdia");
+    private static final int MINF = fourcc("minf");
+    private static final int STBL = fourcc("stbl");
+    private static final int UDTA = fourcc("udta");
+    private static final int META = fourcc("meta");
+    private static final int ILST = fourcc("ilst");
+    private static final int MVHD = fourcc("mvhd");
+    private static final int MDHD = fourcc("mdhd");
+    private static final int HDLR = fourcc("hdlr");
+    private static final int STSD = fourcc("stsd");
+    private static final int MDAT = fourcc("mdat");
+    private static final int DATA = fourcc("data");
+    private static final int ESDS = fourcc("esds");
+    private static final int SOUN = fourcc("soun");
+
+    private static final int ITEM_TITLE = fourcc("©nam");
+    private static final int ITEM_ARTIST = fourcc("©ART");
+    private static final int ITEM_ALBUM = fourcc("©alb");
+    private static final int ITEM_ALBUM_ARTIST = fourcc("aART");
+    private static final int ITEM_TRACK = fourcc("trkn");
+    private static final int ITEM_DISC = fourcc("disk");
+    private static final int ITEM_YEAR = fourcc("©day");
+    private static final int ITEM_GENRE = fourcc("©gen");
+    private static final int ITEM_GENRE_ID = fourcc("gnre");
+    private static final int ITEM_COVER = fourcc("covr");
+
+    private Mp4MetadataReader() {
+    }
+
+    static AudioMetadata read(ChannelInput in) throws IOException {
+        return read(in, true);
+    }
+
+    /**
+     * Audio properties only: {@code udta} is not entered and the walk stops once the audio track's sample entry
+     * has been read, so the sample tables after {@code stsd} are never touched.
+     */
+    static AudioMetadata probe(ChannelInput in) throws IOException {
+        return read(in, false);
+    }
+
+    private static AudioMetadata read(ChannelInput in, boolean includeTags) throws IOException {
+        AudioMetadata metadata = new AudioMetadata();
+        metadata.setHasCover(false);
+        WalkState state = new WalkState();
+        state.includeTags = includeTags;
+        walk(in, 0, in.size(), state, metadata);
+
+        double seconds = 0;
+        if (state.audioTimescale > 0 && state.audioDuration > 0) {
+            seconds = state.audioDuration / (double) state.audioTimescale;
+        } else if (state.movieTimescale > 0 && state.movieDuration > 0) {
+            seconds = state.movieDuration / (double) state.movieTimescale;
+        }
+        if (seconds > 0) {
+            metadata.setDurationSec((int) Math.round(seconds));
+        }
+        if (state.sampleRate > 0) {
+            metadata.setSampleRate(state.sampleRate);
+        } else if (state.audioTimescale > 0) {
+            metadata.setSampleRate((int) state.audioTimescale);
+        }
+        if (state.channels > 0) {
+            metadata.setChannels(state.channels);
+        }
+        if (state.avgBitrate > 0) {
+            metadata.setBitrate((int) Math.round(state.avgBitrate / 1000D));
+        } else if (state.mdatBytes > 0 && seconds > 0) {
+            metadata.setBitrate((int) Math.round(state.mdatBytes * 8D / seconds / 1000D));
+        }
+        return metadata;
+    }
+
+    private static void walk(ChannelInput in, long start, long end, WalkState state,
+                             AudioMetadata metadata) throws IOException {
+        long position = start;
+        while (position + 8 <= end && state.atoms++ < MAX_ATOMS && !state.probeComplete()) {
+            ByteBuffer header = in.read(position, 16);
+            if (header.limit() < 8) {
+                return;
+            }
+            long size = header.getInt(0) & 0xFFFFFFFFL;
+            int type = header.getInt(4);
+            int headerLength = 8;
+            if (size == 1) {
+                if (header.limit() < 16) {
+                    return;
+                }
+                size = header.getLong(8);
+                headerLength = 16;
+            } else if (size == 0) {
+                size = end - position;
+            }
+            if (size < headerLength) {
+                return;
+            }
+            long body = position + headerLength;
+            long atomEnd = position + size;
+            if (type == MDAT) {
+                state.mdatBytes += size - headerLength;
+            } else if (atomEnd > end) {
+                return;
+            } else if (type == TRAK) {
+                state.handler = 0;
+                state.trackTimescale = 0;
+                state.trackDuration = 0;
+                walk(in, body, atomEnd, state, metadata);
+            } else if (type == MOOV || type == MDIA || type == MINF || type == STBL
+                    || (type == UDTA && state.includeTags)) {
+                walk(in, body, atomEnd, state, metadata);
+            } else if (type == META && state.includeTags) {
+                walk(in, metaChildrenStart(in, body), atomEnd, state, metadata);
+            } else if (type == ILST) {
+                readItems(in, body, atomEnd, state, metadata);
+            } else if (type == MVHD) {
+                readMovieHeader(in.read(body, 32), state);
+            } else if (type == MDHD) {
+                readMediaHeader(in.read(body, 32), state);
+            } else if (type == HDLR) {
+                ByteBuffer handler = in.read(body, 12);
+                state.handler = handler.limit() >= 12 ? handler.getInt(8) : 0;
+                if (state.handler == SOUN && !state.audioTrackSeen) {
+                    state.audioTrackSeen = true;
+                    state.audioTimescale = state.trackTimescale;
+                    state.audioDuration = state.trackDuration;
+                    state.inAudioTrack = true;
+                } else {
+                    state.inAudioTrack = false;
+                }
+            } else if (type == STSD && state.inAudioTrack) {
+                readSampleDescription(in, body, atomEnd, state);
+                state.sampleDescriptionRead = true;
+            }
+            position = atomEnd;
+        }
+    }
+
+    /**
+     * ISO {@code meta} is a full box with 4 version/flag bytes; QuickTime-style {@code meta} starts with children.
+     */
+    private static long metaChildrenStart(ChannelInput in, long body) throws IOException {
+        ByteBuffer probe = in.read(body, 8);
+        if (probe.limit() >= 8 && probe.getInt(4) == HDLR) {
+            return body;
+        }
+        return body + 4;
+    }
+
+    private static void readMovieHeader(ByteBuffer box, WalkState state) {
+        if (box.limit() < 20) {
+            return;
+        }
+        int version = box.get(0) & 0xFF;
+        if (version == 1) {
+            if (box.limit() < 32) {
+                return;
+            }
+            state.movieTimescale = box.getInt(20) & 0xFFFFFFFFL;
+            state.movieDuration = box.getLong(24);
+        } else {
+            state.movieTimescale = box.getInt(12) & 0xFFFFFFFFL;
+            state.movieDuration = box.getInt(16) & 0xFFFFFFFFL;
+        }
+    }
+
+    private static void readMediaHeader(ByteBuffer box, WalkState state) {
+        if (box.limit() < 20) {
+            return;
+        }
+        int version = box.get(0) & 0xFF;
+        if (version == 1) {
+            if (box.limit() < 32) {
+                return;
+            }
+            state.trackTimescale = box.getInt(20) & 0xFFFFFFFFL;
+            state.trackDuration = box.getLong(24);
+        } else {
+            state.trackTimescale = box.getInt(12) & 0xFFFFFFFFL;
+            state.trackDuration = box.getInt(16) & 0xFFFFFFFFL;
+        }
+    }
+
+    private static void readSampleDescription(ChannelInput in, long body, long atomEnd,
+                                              WalkState state) throws IOException {
+        ByteBuffer stsd = in.read(body, (int) Math.min(STSD_READ_BYTES, atomEnd - body));
+        // version/flags(4) entry_count(4), then the first sample entry.
+        int entry = 8;
+        if (stsd.limit() < entry + 36) {
+            return;
+        }
+        long entrySize = stsd.getInt(entry) & 0xFFFFFFFFL;
+        int soundVersion = stsd.getShort(entry + 16) & 0xFFFF;
+        state.channels = stsd.getShort(entry + 24) & 0xFFFF;
+        state.sampleRate = (stsd.getInt(entry + 32) >>> 16) & 0xFFFF;
+
+        int childStart = entry + 36 + (soundVersion == 1 ? 16 : 0);
+        int entryEnd = (int) Math.min(stsd.limit(), entry + entrySize);
+        if (soundVersion > 1) {
+            return;
+        }
+        int position = childStart;
+        while (position + 8 <= entryEnd) {
+            int childSize = stsd.getInt(position);
+            int childType = stsd.getInt(position + 4);
+            if (childSize < 8) {
+                return;
+            }
+            if (childType == ESDS) {
+                state.avgBitrate = readEsdsAverageBitrate(stsd, position + 12,
+                        Math.min(entryEnd, position + childSize));
+                return;
+            }
+            position += childSize;
+        }
+    }
+
+    /**
+     * Reads avgBitrate from the DecoderConfigDescriptor nested in an ES_Descriptor.
+     */
+    private static long readEsdsAverageBitrate(ByteBuffer buffer, int start, int end) {
+        int position = start;
+        while (position + 2 <= end) {
+            int tag = buffer.get(position++) & 0xFF;
+            int length = 0;
+            for (int i = 0; i < 4 && position < end; i++) {
+                int b = buffer.get(position++) & 0xFF;
+                length = (length << 7) | (b & 0x7F);
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+            }
+            if (tag == 0x03) {
+                if (position + 3 > end) {
+                    return 0;
+                }
+                int flags = buffer.get(position + 2) & 0xFF;
+                position += 3;
+                if ((flags & 0x80) != 0) {
+                    position += 2;
+                }
+                if ((flags & 0x40) != 0 && position < end) {
+                    position += 1 + (buffer.get(position) & 0xFF);
+                }
+                if ((flags & 0x20) != 0) {
+                    position += 2;
+                }
+            } else if (tag == 0x04) {
+                if (position + 13 > end) {
+                    return 0;
+                }
+                return buffer.getInt(position + 9) & 0xFFFFFFFFL;
+            } else {
+                position += length;
+            }
+        }
+        return 0;
+    }
+
+    private static void readItems(ChannelInput in, long start, long end, WalkState state,
+                                  AudioMetadata metadata) throws IOException {
+        long position = start;
+        while (position + 8 <= end && state.atoms++ < MAX_ATOMS) {
+            ByteBuffer header = in.read(position, 8);
+            if (header.limit() < 8) {
+                return;
+            }
+            long size = header.getInt(0) & 0xFFFFFFFFL;
+            int itemType = header.getInt(4);
+            if (size < 8 || position + size > end) {
+                return;
+            }
+            if (itemType == ITEM_COVER) {
+                metadata.setHasCover(true);
+            } else if (isWantedItem(itemType)) {
+                ByteBuffer value = readDataValue(in, position + 8, position + size);
+                if (value != null) {
+                    applyItem(itemType, value, metadata);
+                }
+            }
+            position += size;
+        }
+    }
+
+    private static boolean isWantedItem(int itemType) {
+        return itemType == ITEM_TITLE || itemType == ITEM_ARTIST || itemType == ITEM_ALBUM
+                || itemType == ITEM_ALBUM_ARTIST || itemType == ITEM_TRACK || itemType == ITEM_DISC
+                || itemType == ITEM_YEAR || itemType == ITEM_GENRE || itemType == ITEM_GENRE_ID;
+    }
+
+    /**
+     * Returns the payload of the first {@code data} child: type indicator(4) and locale(4) are stripped.
+     */
+    private static ByteBuffer readDataValue(ChannelInput in, long start, long end) throws IOException {
+        long position = start;
+        while (position + 8 <= end) {
+            ByteBuffer header = in.read(position, 8);
+            if (header.limit() < 8) {
+                return null;
+            }
+            long size = header.getInt(0) & 0xFFFFFFFFL;
+            if (size < 8 || position + size > end) {
+                return null;
+            }
+            if (header.getInt(4) == DATA) {
+                if (size < 16) {
+                    return null;
+                }
+                return in.read(position + 16, (int) Math.min(size - 16, MAX_ITEM_VALUE_BYTES));
+            }
+            position += size;
+        }
+        return null;
+    }
+
+    private static void applyItem(int itemType, ByteBuffer value, AudioMetadata metadata) {
+        if (itemType == ITEM_TRACK || itemType == ITEM_DISC) {
+            // reserved(2) number(2) total(2)
+            if (value.limit() < 4) {
+                return;
+            }
+            int number = value.getShort(2) & 0xFFFF;
+            if (number <= 0) {
+                return;
+            }
+            if (itemType == ITEM_TRACK && metadata.getTrackNo() == null) {
+                metadata.setTrackNo(number);
+            } else if (itemType == ITEM_DISC && metadata.getDiscNo() == null) {
+                metadata.setDiscNo(number);
+            }
+            return;
+        }
+        if (itemType == ITEM_GENRE_ID) {
+            if (value.limit() >= 2 && metadata.getGenre() == null) {
+                metadata.setGenre(TagValues.genre((value.getShort(0) & 0xFFFF) - 1));
+            }
+            return;
+        }
+        byte[] bytes = new byte[value.remaining()];
+        value.get(bytes);
+        String text = TagValues.clean(new String(bytes, StandardCharsets.UTF_8));
+        if (text == null) {
+            return;
+        }
+        if (itemType == ITEM_TITLE && metadata.getTitle() == null) {
+            metadata.setTitle(text);
+        } else if (itemType == ITEM_ARTIST && metadata.getArtist() == null) {
+            metadata.setArtist(text);
+        } else if (itemType == ITEM_ALBUM && metadata.getAlbum() == null) {
+            metadata.setAlbum(text);
+        } else if (itemType == ITEM_ALBUM_ARTIST && metadata.getAlbumArtist() == null) {
+            metadata.setAlbumArtist(text);
+        } else if (itemType == ITEM_YEAR && metadata.getYear() == null) {
+            metadata.setYear(TagValues.firstInteger(text));
+        } else if (itemType == ITEM_GENRE && metadata.getGenre() == null) {
+            metadata.setGenre(text);
+        }
+    }
+
+    static int fourcc(String code) {
+        return ((code.charAt(0) & 0xFF) << 24)
+                | ((code.charAt(1) & 0xFF) << 16)
+                | ((code.charAt(2) & 0xFF) << 8)
+                | (code.charAt(3) & 0xFF);
+    }
+
+    private static final class WalkState {
+        private boolean includeTags;
+        private boolean sampleDescriptionRead;
+        private int atoms;
+        private int handler;
+        private boolean inAudioTrack;
+        private boolean audioTrackSeen;
+        private long movieTimescale;
+        private long movieDuration;
+        private long trackTimescale;
+        private long trackDuration;
+        private long audioTimescale;
+        private long audioDuration;
+        private int sampleRate;
+        private int channels;
+        private long avgBitrate;
+        private long mdatBytes;
+
+        /**
+         * A probe is done once the sample entry is known and a bitrate source exists (esds or an mdat seen first).
+         */
+        private boolean probeComplete() {
+            return !includeTags && sampleDescriptionRead && (avgBitrate > 0 || mdatBytes > 0);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.musicwebdav.infrastructure.parser;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Value normalization shared by the in-memory tag readers, kept consistent with what the Jaudiotagger path yields.
+ */
+final class TagValues {
+
+    private static final Pattern FIRST_INTEGER_PATTERN = Pattern.compile("(\\d+)");
+    private static final Pattern ID3_GENRE_REFERENCE = Pattern.compile("^\\((\\d+)\\)(.*)$");
+
+    private static final String[] ID3V1_GENRES = {
+            "Blues", "Classic Rock", "Country", "Dance", "Disco", "Funk", "Grunge", "Hip-Hop", "Jazz", "Metal",
+            "New Age", "Oldies", "Other", "Pop", "R&B", "Rap", "Reggae", "Rock", "Techno", "Industrial",
+            "Alternative", "Ska", "Death Metal", "Pranks", "Soundtrack", "Euro-Techno", "Ambient", "Trip-Hop",
+            "Vocal", "Jazz+Funk", "Fusion", "Trance", "Classical", "Instrumental", "Acid", "House", "Game",
+            "Sound Clip", "Gospel", "Noise", "AlternRock", "Bass", "Soul", "Punk", "Space", "Meditative",
+            "Instrumental Pop", "Instrumental Rock", "Ethnic", "Gothic", "Darkwave", "Techno-Industrial",
+            "Electronic", "Pop-Folk", "Eurodance", "Dream", "Southern Rock", "Comedy", "Cult", "Gangsta", "Top 40",
+            "Christian Rap", "Pop/Funk", "Jungle", "Native American", "Cabaret", "New Wave", "Psychadelic", "Rave",
+            "Showtunes", "Trailer", "Lo-Fi", "Tribal", "Acid Punk", "Acid Jazz", "Polka", "Retro", "Musical",
+            "Rock & Roll", "Hard Rock", "Folk", "Folk-Rock", "National Folk", "Swing", "Fast Fusion", "Bebob",
+            "Latin", "Revival", "Celtic", "Bluegrass", "Avantgarde", "Gothic Rock", "Progressive Rock",
+            "Psychedelic Rock", "Symphonic Rock", "Slow Rock", "Big Band", "Chorus", "Easy Listening", "Acoustic",
+            "Humour", "Speech", "Chanson", "Opera", "Chamber Music", "Sonata", "Symphony", "Booty Bass", "Primus",
+            "Porn Groove", "Satire", "Slow Jam", "Club", "Tango", "Samba", "Folklore", "Ballad", "Power Ballad",
+            "Rhythmic Soul", "Freestyle", "Duet", "Punk Rock", "Drum Solo", "A capella", "Euro-House", "Dance Hall"
+    };
+
+    private TagValues() {
+    }
+
+    static String clean(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        int end = raw.length();
+        while (end > 0 && (raw.charAt(end - 1) == '\0' || Character.isWhitespace(raw.charAt(end - 1)))) {
+            end--;
+        }
+        String trimmed = raw.substring(0, end).trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    static Integer firstInteger(String raw) {
+        if (raw == null || raw.trim().isEmpty()) {
+            return null;
+        }
+        Matcher matcher = FIRST_INTEGER_PATTERN.matcher(raw);
+        if (!matcher.find()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(matcher.group(1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Resolves ID3 style genre references such as {@code (13)}, {@code (13)Pop} or a bare {@code 13}.
+     */
+    static String genre(String raw) {
+        String value = clean(raw);
+        if (value == null) {
+            return null;
+        }
+        Matcher matcher = ID3_GENRE_REFERENCE.matcher(value);
+        if (matcher.matches()) {
+            String refinement = clean(matcher.group(2));
+            if (refinement != null) {
+                return refinement;
+            }
+            String name = genre(parseIndex(matcher.group(1)));
+            return name == null ? value : name;
+        }
+        if (value.length() <= 3 && value.chars().allMatch(Character::isDigit)) {
+            String name = genre(parseIndex(value));
+            return name == null ? value : name;
+        }
+        return value;
+    }
+
+    static String genre(int index) {
+        if (index < 0 || index >= ID3V1_GENRES.length) {
+            return null;
+        }
+        return ID3V1_GENRES[index];
+    }
+
+    private static int parseIndex(String digits) {
+        try {
+            return Integer.parseInt(digits);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.musicwebdav.infrastructure.persistence;
+
+import com.example.musicwebdav.infrastructure.persistence.mapper.TrackMapper;
+import java.util.List;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mappers bound to a {@link ExecutorType#BATCH} session. Consecutive calls of the same statement reuse one
+ * PreparedStatement and are queued with addBatch until {@link #flushStatements()}; with
+ * {@code rewriteBatchedStatements=true} Connector/J sends each flushed batch as multi-row INSERTs.
+ *
+ * <p>Only meaningful inside a Spring transaction: outside one every mapper call gets its own session and is
+ * flushed immediately. Within a transaction the BATCH session must not be mixed with the regular (SIMPLE)
+ * mappers, since MyBatis refuses to switch executor type mid-transaction.
+ */
+@Component
+public class BatchMapperSession {
+
+    private final SqlSessionTemplate batchSessionTemplate;
+    private final TrackMapper trackMapper;
+
+    public BatchMapperSession(SqlSessionFactory sqlSessionFactory) {
+        this.batchSessionTemplate = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        this.trackMapper = batchSessionTemplate.getMapper(TrackMapper.class);
+    }
+
+    public TrackMapper trackMapper() {
+        return trackMapper;
+    }
+
+    /**
+     * Executes the queued batches of the current transaction's session.
+     */
+    public List<BatchResult> flushStatements() {
+        return batchSessionTemplate.flushStatements();
+    }
+}
@@ -10,6 +10,10 @@ public class DirectorySignatureEntity {
 
     private Long configId;
 
+    private Long parentId;
+
+    private String dirName;
+
     private String dirPath;
 
     private String dirPathMd5;
@@ -20,6 +24,8 @@ public class DirectorySignatureEntity {
 
     private Integer childCount;
 
+    private Long generation;
+
     private LocalDateTime lastVerifiedAt;
 
     private LocalDateTime createdAt;
@@ -14,6 +14,8 @@ public class TrackEntity {
 
     private String sourcePathMd5;
 
+    private Long dirId;
+
     private String sourceEtag;
 
     private LocalDateTime sourceLastModified;
@@ -28,6 +30,10 @@ public class TrackEntity {
 
     private String artist;
 
+    private String normTitle;
+
+    private String normArtist;
+
     private String album;
 
     private String albumArtist;
@@ -48,6 +54,8 @@ public class TrackEntity {
 
     private Integer channels;
 
+    private LocalDateTime audioProbedAt;
+
     private Integer hasCover;
 
     private String coverArtUrl;
@@ -56,6 +64,8 @@ public class TrackEntity {
 
     private String lyricPath;
 
+    private String metadataHash;
+
     private Integer isDeleted;
 
     private Long lastScanTaskId;
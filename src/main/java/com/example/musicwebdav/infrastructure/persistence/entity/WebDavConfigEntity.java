@@ -18,6 +18,18 @@ public class WebDavConfigEntity {
 
     private String rootPath;
 
+    /** {@link com.example.musicwebdav.domain.enumtype.WebDavListingStrategy} name. */
+    private String listingStrategy;
+
+    /** RFC 6578 sync token of the root collection; null until a scan completes on a server that has one. */
+    private String syncToken;
+
+    /** {@link com.example.musicwebdav.domain.enumtype.RecursiveEtagMode} name. */
+    private String recursiveEtagMode;
+
+    /** What scans observed: 1 if directory ETags change with their descendants, 0 if not, null if unknown. */
+    private Integer recursiveEtagDetected;
+
     private Integer enabled;
 
     private LocalDateTime createdAt;
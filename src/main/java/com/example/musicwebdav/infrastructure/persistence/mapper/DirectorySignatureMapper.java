@@ -1,8 +1,10 @@
 package com.example.musicwebdav.infrastructure.persistence.mapper;
 
 import com.example.musicwebdav.infrastructure.persistence.entity.DirectorySignatureEntity;
+import java.util.List;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
 @Mapper
 public interface DirectorySignatureMapper {
@@ -10,5 +12,33 @@ public interface DirectorySignatureMapper {
     DirectorySignatureEntity selectByConfigAndDirPathMd5(@Param("configId") Long configId,
                                                          @Param("dirPathMd5") String dirPathMd5);
 
+    int countByConfigId(@Param("configId") Long configId);
+
+    /** Streams id / dir_path_md5 / dir_etag / dir_last_modified / child_count; must be consumed in a transaction. */
+    Cursor<DirectorySignatureEntity> selectCursorByConfigId(@Param("configId") Long configId);
+
+    /** Registers a directory without a signature; a no-op when the path is already known. */
+    int insertIgnore(DirectorySignatureEntity entity);
+
     int upsert(DirectorySignatureEntity entity);
+
+    int batchUpsert(@Param("list") List<DirectorySignatureEntity> list);
+
+    int updateGenerationByDirPathMd5In(@Param("configId") Long configId,
+                                       @Param("dirPathMd5List") List<String> dirPathMd5List,
+                                       @Param("generation") Long generation);
+
+    int updateGenerationByIdIn(@Param("configId") Long configId, @Param("ids") List<Long> ids,
+                               @Param("generation") Long generation);
+
+    /** Returns id / dir_path / dir_path_md5 of the directories not stamped with the given generation. */
+    List<DirectorySignatureEntity> selectStaleByGeneration(@Param("configId") Long configId,
+                                                           @Param("generation") Long generation);
+
+    int deleteStaleByGeneration(@Param("configId") Long configId, @Param("generation") Long generation);
+
+    int deleteByIdIn(@Param("configId") Long configId, @Param("ids") List<Long> ids);
+
+    /** Direct subdirectories of parentId, or the root directory when parentId is null. */
+    List<DirectorySignatureEntity> selectChildren(@Param("configId") Long configId, @Param("parentId") Long parentId);
 }
@@ -15,6 +15,12 @@ public interface ScanTaskMapper {
 
     String selectStatusById(@Param("id") Long id);
 
+    java.util.List<Long> selectIdsByIdsAndStatus(@Param("ids") java.util.Collection<Long> ids,
+                                                 @Param("status") String status);
+
+    /** Latest successfully finished task of the config, with start and end time only. */
+    ScanTaskEntity selectLastFinishedByConfigId(@Param("configId") Long configId);
+
     int countActiveByConfigId(@Param("configId") Long configId);
 
     int markRunning(@Param("id") Long id, @Param("status") String status);
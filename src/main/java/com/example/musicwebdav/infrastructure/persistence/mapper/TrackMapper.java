@@ -1,11 +1,11 @@
 package com.example.musicwebdav.infrastructure.persistence.mapper;
 
-import com.example.musicwebdav.domain.model.DuplicateGroup;
 import com.example.musicwebdav.infrastructure.persistence.entity.TrackEntity;
 import java.util.List;
 import java.util.Map;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
 @Mapper
 public interface TrackMapper {
@@ -18,10 +18,27 @@ public interface TrackMapper {
     List<TrackEntity> selectByConfigAndPathMd5In(@Param("sourceConfigId") Long sourceConfigId,
                                                  @Param("sourcePathMd5List") List<String> sourcePathMd5List);
 
-    int softDeleteByTaskId(@Param("taskId") Long taskId, @Param("configId") Long configId);
+    List<TrackEntity> selectFingerprintByConfigAndPathMd5In(@Param("sourceConfigId") Long sourceConfigId,
+                                                            @Param("sourcePathMd5List") List<String> sourcePathMd5List);
+
+    /** Ids of a config's live tracks in ascending order, streamed to seed the seen set of a scan. */
+    Cursor<Long> selectLiveIdsCursor(@Param("configId") Long configId);
+
+    List<Long> selectLiveIdsByPathMd5In(@Param("configId") Long configId,
+                                        @Param("sourcePathMd5List") List<String> sourcePathMd5List);
+
+    List<Long> selectLiveIdsByDirIds(@Param("configId") Long configId, @Param("dirIds") List<Long> dirIds);
 
     int softDeleteByLastScanTaskId(@Param("taskId") Long taskId, @Param("configId") Long configId);
 
+    /** Path MD5s of the live tracks directly inside one directory. */
+    List<String> selectPathMd5ByDirId(@Param("configId") Long configId, @Param("dirId") Long dirId);
+
+    int softDeleteByPathMd5In(@Param("configId") Long configId,
+                              @Param("sourcePathMd5List") List<String> sourcePathMd5List);
+
+    int softDeleteByDirIdIn(@Param("configId") Long configId, @Param("dirIds") List<Long> dirIds);
+
     int touchLastScanTaskByPathMd5In(@Param("taskId") Long taskId,
                                      @Param("configId") Long configId,
                                      @Param("sourcePathMd5List") List<String> sourcePathMd5List);
@@ -29,9 +46,9 @@ public interface TrackMapper {
     int touchLastScanTaskByConfig(@Param("taskId") Long taskId,
                                   @Param("configId") Long configId);
 
-    int touchLastScanTaskByDirectoryPrefix(@Param("taskId") Long taskId,
-                                           @Param("configId") Long configId,
-                                           @Param("likePattern") String likePattern);
+    int touchLastScanTaskByDirIdIn(@Param("taskId") Long taskId,
+                                   @Param("configId") Long configId,
+                                   @Param("dirIds") List<Long> dirIds);
 
     List<TrackEntity> selectPage(@Param("offset") int offset,
                                  @Param("pageSize") int pageSize,
@@ -40,6 +57,7 @@ public interface TrackMapper {
                                  @Param("album") String album,
                                  @Param("genre") String genre,
                                  @Param("year") Integer year,
+                                 @Param("dirId") Long dirId,
                                  @Param("sortBy") String sortBy,
                                  @Param("sortOrder") String sortOrder);
 
@@ -47,7 +65,8 @@ public interface TrackMapper {
                @Param("artist") String artist,
                @Param("album") String album,
                @Param("genre") String genre,
-               @Param("year") Integer year);
+               @Param("year") Integer year,
+               @Param("dirId") Long dirId);
 
     TrackEntity selectById(@Param("id") Long id);
 
@@ -55,11 +74,24 @@ public interface TrackMapper {
 
     // --- Feature 2: Duplicate filtering ---
 
-    List<DuplicateGroup> selectDuplicateGroups(@Param("configId") Long configId);
+    /** Live tracks of a config with only id, title, artist and size, streamed for deduplication. */
+    Cursor<TrackEntity> selectDedupCandidatesCursor(@Param("configId") Long configId);
+
+    /** Like {@link #selectDedupCandidatesCursor}, restricted to the given (normArtist, normTitle) keys. */
+    List<TrackEntity> selectDedupCandidatesByNormKeys(@Param("configId") Long configId,
+                                                      @Param("keys") List<TrackEntity> keys);
+
+    /** Live tracks of a config that carry a content hash, with only id, content hash and size. */
+    Cursor<TrackEntity> selectContentHashDedupCursor(@Param("configId") Long configId);
+
+    /** Like {@link #selectContentHashDedupCursor}, restricted to the given content hashes. */
+    List<TrackEntity> selectDedupCandidatesByContentHashes(@Param("configId") Long configId,
+                                                           @Param("hashes") List<String> hashes);
+
+    /** Tracks whose normalized title/artist keys were never filled, in id order after {@code afterId}. */
+    List<TrackEntity> selectMissingNormalizedKeys(@Param("afterId") long afterId, @Param("limit") int limit);
 
-    List<TrackEntity> selectByNormalizedTitleAndArtist(@Param("configId") Long configId,
-                                                       @Param("normalizedTitle") String normalizedTitle,
-                                                       @Param("normalizedArtist") String normalizedArtist);
+    int updateNormalizedKeys(TrackEntity entity);
 
     int softDeleteByIds(@Param("ids") List<Long> ids);
 
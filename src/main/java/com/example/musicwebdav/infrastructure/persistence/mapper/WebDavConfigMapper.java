@@ -12,6 +12,10 @@ public interface WebDavConfigMapper {
 
     int updateById(WebDavConfigEntity entity);
 
+    int updateSyncToken(@Param("id") Long id, @Param("syncToken") String syncToken);
+
+    int updateRecursiveEtagDetected(@Param("id") Long id, @Param("detected") Integer detected);
+
     WebDavConfigEntity selectById(@Param("id") Long id);
 
     List<WebDavConfigEntity> selectAll();
@@ -0,0 +1,12 @@
+package com.example.musicwebdav.infrastructure.webdav;
+
+/**
+ * The server refused a Depth:infinity PROPFIND (403 or a propfind-finite-depth precondition), or answered with a
+ * tree that cannot be grouped into directories. Callers fall back to Depth:1 listing.
+ */
+public class DepthInfinityUnsupportedException extends IllegalStateException {
+
+    public DepthInfinityUnsupportedException(String message) {
+        super(message);
+    }
+}
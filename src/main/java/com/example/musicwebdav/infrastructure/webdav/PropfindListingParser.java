@@ -0,0 +1,260 @@
+package com.example.musicwebdav.infrastructure.webdav;
+
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streams a Depth:1 PROPFIND multistatus with StAX and hands each {@code response} to a callback as soon as it
+ * closes, so a listing of 10k files never holds more than one entry's properties besides what the caller keeps.
+ * Missing values get the same defaults Sardine's {@code DavResource} applies (content length -1,
+ * application/octet-stream), so file fingerprints stay identical to the Sardine listing path.
+ *
+ * <p>The same pass reads RFC 6578 sync-collection reports: removed members come back as a response with a bare
+ * 404 status instead of a propstat, and the new token as a DAV:sync-token element.
+ */
+final class PropfindListingParser {
+
+    /** Asks only for the five properties the scan uses instead of Sardine's allprop. */
+    static final String LISTING_REQUEST_BODY = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+            + "<D:propfind xmlns:D=\"DAV:\"><D:prop>"
+            + "<D:resourcetype/><D:getetag/><D:getlastmodified/><D:getcontentlength/><D:getcontenttype/>"
+            + "</D:prop></D:propfind>";
+
+    static final long UNKNOWN_CONTENT_LENGTH = -1L;
+    static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private static final String DAV_NAMESPACE = "DAV:";
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    /** Asks a collection for its current sync token. */
+    static final String SYNC_TOKEN_REQUEST_BODY = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+            + "<D:propfind xmlns:D=\"DAV:\"><D:prop><D:sync-token/></D:prop></D:propfind>";
+
+    interface EntryHandler {
+        void onEntry(String href, boolean collection, String etag, Date lastModified,
+                     long contentLength, String contentType);
+    }
+
+    /** A response that carries only a status: 404 for a removed member, 507 when the report was truncated. */
+    interface StatusHandler {
+        void onStatus(String href, int statusCode);
+    }
+
+    private PropfindListingParser() {
+    }
+
+    /**
+     * Returns the number of entries reported. Properties of failed propstats (404 for unsupported ones) come
+     * back as empty elements and are treated as absent.
+     */
+    static int parse(InputStream in, EntryHandler handler) throws XMLStreamException {
+        int[] count = new int[1];
+        parse(in, (href, collection, etag, lastModified, contentLength, contentType) -> {
+            count[0]++;
+            handler.onEntry(href, collection, etag, lastModified, contentLength, contentType);
+        }, null);
+        return count[0];
+    }
+
+    /**
+     * Sync-collection report (or a sync-token PROPFIND): entries with properties go to {@code handler},
+     * status-only responses to {@code statusHandler}. Returns the sync token in the response, null if none.
+     */
+    static String parseSyncResponse(InputStream in, EntryHandler handler, StatusHandler statusHandler)
+            throws XMLStreamException {
+        return parse(in, handler, statusHandler);
+    }
+
+    /**
+     * Without a status handler, status-only responses are passed to {@code handler} with default properties.
+     */
+    private static String parse(InputStream in, EntryHandler handler, StatusHandler statusHandler)
+            throws XMLStreamException {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+        try {
+            String syncToken = null;
+            int depth = 0;
+            int responseDepth = -1;
+            String href = null;
+            boolean collection = false;
+            String etag = null;
+            String lastModified = null;
+            String contentLength = null;
+            String contentType = null;
+            String status = null;
+            boolean hasPropstat = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    if (!DAV_NAMESPACE.equals(reader.getNamespaceURI())) {
+                        continue;
+                    }
+                    String name = reader.getLocalName();
+                    if ("response".equals(name)) {
+                        responseDepth = depth;
+                        href = null;
+                        collection = false;
+                        etag = null;
+                        lastModified = null;
+                        contentLength = null;
+                        contentType = null;
+                        status = null;
+                        hasPropstat = false;
+                    } else if ("sync-token".equals(name)) {
+                        syncToken = firstNonNull(readText(reader), syncToken);
+                        depth--;
+                    } else if (responseDepth < 0) {
+                        continue;
+                    } else if ("href".equals(name) && depth == responseDepth + 1) {
+                        href = readText(reader);
+                        depth--;
+                    } else if ("status".equals(name) && depth == responseDepth + 1) {
+                        status = readText(reader);
+                        depth--;
+                    } else if ("propstat".equals(name)) {
+                        hasPropstat = true;
+                    } else if ("collection".equals(name)) {
+                        collection = true;
+                    } else if ("getetag".equals(name)) {
+                        etag = firstNonNull(readText(reader), etag);
+                        depth--;
+                    } else if ("getlastmodified".equals(name)) {
+                        lastModified = firstNonNull(readText(reader), lastModified);
+                        depth--;
+                    } else if ("getcontentlength".equals(name)) {
+                        contentLength = firstNonNull(readText(reader), contentLength);
+                        depth--;
+                    } else if ("getcontenttype".equals(name)) {
+                        contentType = firstNonNull(readText(reader), contentType);
+                        depth--;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == responseDepth && DAV_NAMESPACE.equals(reader.getNamespaceURI())
+                            && "response".equals(reader.getLocalName())) {
+                        responseDepth = -1;
+                        if (href == null) {
+                            depth--;
+                            continue;
+                        }
+                        if (statusHandler != null && !hasPropstat && status != null) {
+                            statusHandler.onStatus(href, parseStatusCode(status));
+                        } else {
+                            handler.onEntry(href, collection, etag, parseDate(lastModified),
+                                    parseContentLength(contentLength),
+                                    contentType != null ? contentType : DEFAULT_CONTENT_TYPE);
+                        }
+                    }
+                    depth--;
+                }
+            }
+            return syncToken;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * RFC 1123 as required by RFC 4918; some servers send ISO-8601 instead. Unparseable values count as absent.
+     */
+    static Date parseDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Date.from(ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+        } catch (DateTimeParseException ignored) {
+            // try ISO-8601 next
+        }
+        try {
+            return Date.from(OffsetDateTime.parse(value).toInstant());
+        } catch (DateTimeParseException ignored) {
+            return null;
+        }
+    }
+
+    /** Builds a sync-collection REPORT body covering the whole subtree. */
+    static String syncCollectionRequestBody(String syncToken) {
+        return "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+                + "<D:sync-collection xmlns:D=\"DAV:\">"
+                + "<D:sync-token>" + escapeXml(syncToken == null ? "" : syncToken) + "</D:sync-token>"
+                + "<D:sync-level>infinite</D:sync-level>"
+                + "<D:prop><D:resourcetype/><D:getetag/></D:prop>"
+                + "</D:sync-collection>";
+    }
+
+    /** "HTTP/1.1 404 Not Found" -> 404; 0 when unreadable. */
+    static int parseStatusCode(String statusLine) {
+        if (statusLine == null) {
+            return 0;
+        }
+        String[] parts = statusLine.trim().split("\\s+");
+        if (parts.length < 2) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String escapeXml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static long parseContentLength(String value) {
+        if (value == null) {
+            return UNKNOWN_CONTENT_LENGTH;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return UNKNOWN_CONTENT_LENGTH;
+        }
+    }
+
+    /**
+     * Reads the text of the current element up to its end tag, skipping any nested markup. Returns null for an
+     * empty element.
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        String text = null;
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                text = text == null ? reader.getText() : text + reader.getText();
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+        if (text == null) {
+            return null;
+        }
+        String trimmed = text.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static String firstNonNull(String value, String fallback) {
+        return value != null ? value : fallback;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        return factory;
+    }
+}
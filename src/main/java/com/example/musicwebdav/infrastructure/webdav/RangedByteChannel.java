@@ -0,0 +1,215 @@
+package com.example.musicwebdav.infrastructure.webdav;
+
+import com.example.musicwebdav.common.util.ByteBufferPool;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.HttpGet;
+
+/**
+ * Read-only channel over a remote file that fetches fixed-size blocks with HTTP Range requests on first access.
+ * Consecutive missing blocks are fetched in one request; blocks are borrowed from a {@link ByteBufferPool} and
+ * returned on close. Total fetched bytes are capped so a malformed container cannot walk the whole file.
+ */
+public class RangedByteChannel implements SeekableByteChannel {
+
+    private final HttpClient httpClient;
+    private final String fileUrl;
+    private final long size;
+    private final ByteBufferPool bufferPool;
+    private final int blockSize;
+    private final long maxFetchBytes;
+    private final Map<Long, ByteBuffer> blocks = new HashMap<>();
+    private long position;
+    private long fetchedBytes;
+    private long fetchNanos;
+    private int requestCount;
+    private boolean open = true;
+
+    public RangedByteChannel(HttpClient httpClient, String fileUrl, long size,
+                             ByteBufferPool bufferPool, long maxFetchBytes) {
+        this.httpClient = httpClient;
+        this.fileUrl = fileUrl;
+        this.size = size;
+        this.bufferPool = bufferPool;
+        this.blockSize = bufferPool.getBufferSize();
+        this.maxFetchBytes = maxFetchBytes;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (position >= size) {
+            return -1;
+        }
+        int total = 0;
+        while (dst.hasRemaining() && position < size) {
+            long blockIndex = position / blockSize;
+            ByteBuffer block = blocks.get(blockIndex);
+            if (block == null) {
+                long lastNeeded = Math.min(position + dst.remaining(), size) - 1;
+                fetchBlocks(blockIndex, lastNeeded / blockSize);
+                block = blocks.get(blockIndex);
+            }
+            int offset = (int) (position - blockIndex * blockSize);
+            int available = block.limit() - offset;
+            if (available <= 0) {
+                break;
+            }
+            int count = Math.min(available, dst.remaining());
+            ByteBuffer slice = block.duplicate();
+            slice.position(offset);
+            slice.limit(offset + count);
+            dst.put(slice);
+            position += count;
+            total += count;
+        }
+        return total;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("position must not be negative");
+        }
+        this.position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long newSize) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        for (ByteBuffer block : blocks.values()) {
+            bufferPool.release(block);
+        }
+        blocks.clear();
+    }
+
+    public long getFetchedBytes() {
+        return fetchedBytes;
+    }
+
+    /** Wall time spent inside Range requests, so callers can split fetch time from parse time. */
+    public long getFetchNanos() {
+        return fetchNanos;
+    }
+
+    public int getRequestCount() {
+        return requestCount;
+    }
+
+    private void fetchBlocks(long firstBlock, long lastBlock) throws IOException {
+        long endBlock = firstBlock;
+        while (endBlock < lastBlock && !blocks.containsKey(endBlock + 1)) {
+            endBlock++;
+        }
+        long start = firstBlock * blockSize;
+        long end = Math.min(size, (endBlock + 1) * blockSize) - 1;
+        long length = end - start + 1;
+        if (fetchedBytes + length > maxFetchBytes) {
+            throw new IOException("Range 读取超出预算: fetched=" + fetchedBytes + ", requested=" + length
+                    + ", budget=" + maxFetchBytes);
+        }
+
+        HttpGet request = new HttpGet(fileUrl);
+        request.setHeader("Range", "bytes=" + start + "-" + end);
+        requestCount++;
+        long startedAt = System.nanoTime();
+        boolean completed = false;
+        try {
+            HttpResponse response = httpClient.execute(request);
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode != HttpStatus.SC_PARTIAL_CONTENT
+                    && !(statusCode == HttpStatus.SC_OK && start == 0)) {
+                if (statusCode == HttpStatus.SC_OK) {
+                    throw new IOException("服务端不支持 Range 请求");
+                }
+                throw new HttpResponseException(statusCode, "Range 请求失败，状态码: " + statusCode);
+            }
+            try (InputStream in = response.getEntity().getContent()) {
+                for (long blockIndex = firstBlock; blockIndex <= endBlock; blockIndex++) {
+                    ByteBuffer block = bufferPool.acquire();
+                    int expected = (int) Math.min(blockSize, size - blockIndex * blockSize);
+                    int read = readInto(in, block, expected);
+                    block.flip();
+                    blocks.put(blockIndex, block);
+                    fetchedBytes += read;
+                    if (read < expected) {
+                        throw new IOException("Range 响应提前结束: block=" + blockIndex);
+                    }
+                }
+                // A 200 response streams the whole file; abort instead of draining it on close.
+                if (statusCode == HttpStatus.SC_OK) {
+                    request.abort();
+                }
+            }
+            completed = true;
+        } finally {
+            if (!completed) {
+                request.abort();
+            }
+            fetchNanos += System.nanoTime() - startedAt;
+        }
+    }
+
+    private int readInto(InputStream in, ByteBuffer block, int expected) throws IOException {
+        byte[] array = block.array();
+        int offset = block.arrayOffset();
+        int total = 0;
+        while (total < expected) {
+            int read = in.read(array, offset + total, expected - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        block.position(total);
+        return total;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package com.example.musicwebdav.infrastructure.webdav;
 
+import com.example.musicwebdav.common.config.AppWebDavProperties;
+import com.example.musicwebdav.common.util.ByteBufferPool;
 import com.example.musicwebdav.domain.model.WebDavConnectResult;
 import com.example.musicwebdav.domain.model.WebDavDirectoryInfo;
 import com.example.musicwebdav.domain.model.WebDavFileObject;
+import com.example.musicwebdav.domain.model.WebDavSubdirectory;
+import com.example.musicwebdav.domain.model.WebDavSyncChanges;
 import com.github.sardine.DavResource;
 import com.github.sardine.Sardine;
-import com.github.sardine.SardineFactory;
 import com.github.sardine.impl.SardineException;
 import com.github.sardine.impl.SardineImpl;
 import java.io.File;
@@ -21,26 +24,54 @@ import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import javax.net.ssl.SSLException;
+import javax.xml.stream.XMLStreamException;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 @Component
 public class SardineWebDavClient implements WebDavClient {
 
     private static final Logger log = LoggerFactory.getLogger(SardineWebDavClient.class);
+    private static final int RANGED_BLOCK_BYTES = 32 * 1024;
+    private static final int RANGED_POOLED_BLOCKS = 256;
+    private static final int PROBE_BLOCK_BYTES = 4 * 1024;
+    private static final int PROBE_POOLED_BLOCKS = 512;
+    private static final int MAX_SYNC_ROUNDS = 100;
+    private static final int ERROR_BODY_MAX_BYTES = 4096;
+
+    private final ByteBufferPool rangedBlockPool = new ByteBufferPool(RANGED_BLOCK_BYTES, RANGED_POOLED_BLOCKS);
+    private final ByteBufferPool probeBlockPool = new ByteBufferPool(PROBE_BLOCK_BYTES, PROBE_POOLED_BLOCKS);
+    private final WebDavHttpClientRegistry clientRegistry;
+
+    @Autowired
+    public SardineWebDavClient(WebDavHttpClientRegistry clientRegistry) {
+        this.clientRegistry = clientRegistry;
+    }
+
+    SardineWebDavClient() {
+        this(new WebDavHttpClientRegistry(new AppWebDavProperties()));
+    }
 
     @Override
     public WebDavConnectResult testConnection(String baseUrl, String username, String password, String rootPath) {
@@ -54,7 +85,7 @@ public class SardineWebDavClient implements WebDavClient {
                     "请检查 WebDAV 地址后重试",
                     "UNREACHABLE");
         }
-        Sardine sardine = SardineFactory.begin(username, password);
+        Sardine sardine = clientRegistry.openSession(username, password);
         try {
             sardine.list(ensureDirectoryUrl(targetUrl), 0);
             return WebDavConnectResult.success("连接成功，目录可访问");
@@ -93,7 +124,7 @@ public class SardineWebDavClient implements WebDavClient {
         URI rootUri = URI.create(rootUrl);
         String hostPrefix = rootUri.getScheme() + "://" + rootUri.getRawAuthority();
 
-        Sardine sardine = SardineFactory.begin(username, password);
+        Sardine sardine = clientRegistry.openSession(username, password);
         Deque<String> dirs = new ArrayDeque<>();
         Set<String> visited = new HashSet<>();
         List<WebDavFileObject> files = new ArrayList<>();
@@ -145,7 +176,7 @@ public class SardineWebDavClient implements WebDavClient {
 
     @Override
     public File downloadToTempFile(String username, String password, String fileUrl) throws IOException {
-        Sardine sardine = SardineFactory.begin(username, password);
+        Sardine sardine = clientRegistry.openSession(username, password);
         try {
             return doDownloadToTempFile(sardine, fileUrl);
         } finally {
@@ -155,7 +186,7 @@ public class SardineWebDavClient implements WebDavClient {
 
     @Override
     public void downloadToOutputStream(String username, String password, String fileUrl, OutputStream outputStream) throws IOException {
-        Sardine sardine = SardineFactory.begin(username, password);
+        Sardine sardine = clientRegistry.openSession(username, password);
         try (InputStream in = sardine.get(fileUrl)) {
             copyStream(in, outputStream);
             outputStream.flush();
@@ -166,7 +197,7 @@ public class SardineWebDavClient implements WebDavClient {
 
     @Override
     public void delete(String username, String password, String targetUrl) {
-        Sardine sardine = SardineFactory.begin(username, password);
+        Sardine sardine = clientRegistry.openSession(username, password);
         try {
             sardine.delete(ensureDirectoryUrl(targetUrl));
         } catch (SardineException e) {
@@ -180,7 +211,7 @@ public class SardineWebDavClient implements WebDavClient {
 
     @Override
     public Sardine createSession(String username, String password) {
-        return SardineFactory.begin(username, password);
+        return clientRegistry.openSession(username, password);
     }
 
     @Override
@@ -190,10 +221,20 @@ public class SardineWebDavClient implements WebDavClient {
         URI rootUri = URI.create(ensureDirectoryUrl(rootUrl));
         String hostPrefix = rootUri.getScheme() + "://" + rootUri.getRawAuthority();
 
+        HttpClient httpClient = extractHttpClient(session);
+        if (httpClient != null) {
+            try {
+                return listDirectoryStreaming(httpClient, dirUrl, dirKey, rootUrl, hostPrefix);
+            } catch (IOException e) {
+                throw new IllegalStateException("列出WebDAV目录失败：" + e.getMessage(), e);
+            }
+        }
+
         try {
             List<DavResource> resources = session.list(dirUrl, 1);
             List<WebDavFileObject> files = new ArrayList<>();
             List<String> subdirs = new ArrayList<>();
+            List<WebDavSubdirectory> subdirectories = new ArrayList<>();
             String dirEtag = null;
             java.util.Date dirLastModified = null;
 
@@ -209,7 +250,10 @@ public class SardineWebDavClient implements WebDavClient {
                 }
 
                 if (resource.isDirectory()) {
-                    subdirs.add(ensureDirectoryUrl(href));
+                    String subdirUrl = ensureDirectoryUrl(href);
+                    subdirs.add(subdirUrl);
+                    subdirectories.add(new WebDavSubdirectory(toRelativePath(rootUrl, subdirUrl), subdirUrl,
+                            resource.getEtag()));
                 } else {
                     String relativePath = toRelativePath(rootUrl, href);
                     if (!relativePath.isEmpty()) {
@@ -229,6 +273,7 @@ public class SardineWebDavClient implements WebDavClient {
             info.setChildCount(files.size() + subdirs.size());
             info.setFiles(files);
             info.setSubdirectoryUrls(subdirs);
+            info.setSubdirectories(subdirectories);
             return info;
         } catch (SardineException e) {
             throw new IllegalStateException(mapSardineException(e), e);
@@ -237,6 +282,88 @@ public class SardineWebDavClient implements WebDavClient {
         }
     }
 
+    @Override
+    public void listTree(Sardine session, String directoryUrl, String rootUrl,
+                         Consumer<WebDavDirectoryInfo> consumer) {
+        String dirUrl = ensureDirectoryUrl(directoryUrl);
+        URI rootUri = URI.create(ensureDirectoryUrl(rootUrl));
+        String hostPrefix = rootUri.getScheme() + "://" + rootUri.getRawAuthority();
+
+        HttpClient httpClient = extractHttpClient(session);
+        if (httpClient == null) {
+            throw new DepthInfinityUnsupportedException("当前会话无法发送 Depth:infinity 请求");
+        }
+        try {
+            listTreeStreaming(httpClient, dirUrl, rootUrl, hostPrefix, consumer);
+        } catch (IOException e) {
+            throw new IllegalStateException("列出WebDAV目录树失败：" + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String fetchSyncToken(Sardine session, String directoryUrl) {
+        HttpClient httpClient = extractHttpClient(session);
+        if (httpClient == null) {
+            return null;
+        }
+        HttpDavRequest request = new HttpDavRequest("PROPFIND", ensureDirectoryUrl(directoryUrl), "0",
+                PropfindListingParser.SYNC_TOKEN_REQUEST_BODY);
+        boolean completed = false;
+        try {
+            HttpResponse response = httpClient.execute(request);
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode != HttpStatus.SC_MULTI_STATUS) {
+                throw new WebDavStatusException(statusCode, mapStatusCode(statusCode));
+            }
+            if (response.getEntity() == null) {
+                return null;
+            }
+            String token;
+            try (InputStream in = response.getEntity().getContent()) {
+                token = PropfindListingParser.parseSyncResponse(in,
+                        (href, collection, etag, lastModified, contentLength, contentType) -> { },
+                        (href, code) -> { });
+            }
+            completed = true;
+            return token;
+        } catch (IOException | XMLStreamException e) {
+            throw new IllegalStateException("读取WebDAV同步令牌失败：" + e.getMessage(), e);
+        } finally {
+            if (!completed) {
+                request.abort();
+            }
+        }
+    }
+
+    @Override
+    public WebDavSyncChanges syncCollection(Sardine session, String directoryUrl, String rootUrl,
+                                            String syncToken) {
+        String dirUrl = ensureDirectoryUrl(directoryUrl);
+        URI rootUri = URI.create(ensureDirectoryUrl(rootUrl));
+        String hostPrefix = rootUri.getScheme() + "://" + rootUri.getRawAuthority();
+
+        HttpClient httpClient = extractHttpClient(session);
+        if (httpClient == null) {
+            throw new IllegalStateException("当前会话无法发送 sync-collection 请求");
+        }
+        WebDavSyncChanges changes = new WebDavSyncChanges();
+        changes.setSyncToken(syncToken);
+        try {
+            int rounds = 0;
+            while (syncCollectionRound(httpClient, dirUrl, rootUrl, hostPrefix, changes)) {
+                if (++rounds >= MAX_SYNC_ROUNDS) {
+                    throw new IllegalStateException("sync-collection 结果分页次数过多");
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("WebDAV增量同步失败：" + e.getMessage(), e);
+        }
+        // Members of a removed directory are gone with it; listing them again would only fail.
+        changes.getChangedDirectoryUrls().removeIf(url -> isUnderRemovedPath(toRelativePath(rootUrl, url),
+                changes.getRemovedPaths()));
+        return changes;
+    }
+
     @Override
     public File downloadToTempFile(Sardine session, String fileUrl) throws IOException {
         return doDownloadToTempFile(session, fileUrl);
@@ -303,6 +430,18 @@ public class SardineWebDavClient implements WebDavClient {
         }
     }
 
+    @Override
+    public RangedByteChannel openRangedChannel(Sardine session, String fileUrl, long fileSize,
+                                               long maxFetchBytes) throws IOException {
+        return openChannel(session, fileUrl, fileSize, rangedBlockPool, maxFetchBytes);
+    }
+
+    @Override
+    public RangedByteChannel openProbeChannel(Sardine session, String fileUrl, long fileSize,
+                                              long maxFetchBytes) throws IOException {
+        return openChannel(session, fileUrl, fileSize, probeBlockPool, maxFetchBytes);
+    }
+
     @Override
     public String buildRootUrl(String baseUrl, String rootPath) {
         return ensureDirectoryUrl(buildTargetUrl(baseUrl, rootPath));
@@ -313,8 +452,269 @@ public class SardineWebDavClient implements WebDavClient {
         shutdownSafely(session);
     }
 
+    @Override
+    public void invalidateConnections(String username, String password) {
+        clientRegistry.invalidate(username, password);
+    }
+
     // --- Private methods ---
 
+    /**
+     * Same result as the Sardine listing, but with a five-property PROPFIND instead of allprop and a StAX pass
+     * over the response instead of unmarshalling it into DavResource objects.
+     */
+    private WebDavDirectoryInfo listDirectoryStreaming(HttpClient httpClient, String dirUrl, String dirKey,
+                                                       String rootUrl, String hostPrefix) throws IOException {
+        HttpDavRequest request = new HttpDavRequest("PROPFIND", dirUrl, "1",
+                PropfindListingParser.LISTING_REQUEST_BODY);
+        boolean completed = false;
+        try {
+            HttpResponse response = httpClient.execute(request);
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode != HttpStatus.SC_MULTI_STATUS) {
+                throw new WebDavStatusException(statusCode, mapStatusCode(statusCode));
+            }
+            if (response.getEntity() == null) {
+                throw new IOException("PROPFIND 响应为空");
+            }
+            WebDavDirectoryInfo info = new WebDavDirectoryInfo();
+            List<WebDavFileObject> files = new ArrayList<>();
+            List<String> subdirs = new ArrayList<>();
+            List<WebDavSubdirectory> subdirectories = new ArrayList<>();
+            try (InputStream in = response.getEntity().getContent()) {
+                PropfindListingParser.parse(in, (href, collection, etag, lastModified, contentLength, contentType) -> {
+                    String resolved = resolveHref(dirUrl, hostPrefix, href);
+                    if (dirKey.equals(normalizeUrl(resolved))) {
+                        // This is the directory itself
+                        info.setEtag(etag);
+                        info.setLastModified(lastModified);
+                    } else if (collection) {
+                        String subdirUrl = ensureDirectoryUrl(resolved);
+                        subdirs.add(subdirUrl);
+                        subdirectories.add(new WebDavSubdirectory(toRelativePath(rootUrl, subdirUrl), subdirUrl,
+                                etag));
+                    } else {
+                        String relativePath = toRelativePath(rootUrl, resolved);
+                        if (!relativePath.isEmpty()) {
+                            files.add(new WebDavFileObject(relativePath, resolved,
+                                    etag, lastModified, contentLength, contentType));
+                        }
+                    }
+                });
+            } catch (XMLStreamException e) {
+                throw new IOException("PROPFIND 响应解析失败: " + e.getMessage(), e);
+            }
+            info.setRelativePath(toRelativePath(rootUrl, dirUrl));
+            info.setDirectoryUrl(dirUrl);
+            info.setChildCount(files.size() + subdirs.size());
+            info.setFiles(files);
+            info.setSubdirectoryUrls(subdirs);
+            info.setSubdirectories(subdirectories);
+            completed = true;
+            return info;
+        } finally {
+            if (!completed) {
+                // Do not hand a half-read connection back to the pool.
+                request.abort();
+            }
+        }
+    }
+
+    /**
+     * Depth:infinity responses from mod_dav and golang.org/x/net/webdav (rclone serve) walk the tree depth-first,
+     * each collection before its members. The open directories then always form the ancestor chain of the current
+     * entry: an entry closes every open directory below its parent, and a closed directory is complete. A response
+     * in any other order cannot be grouped this way and is reported as unsupported.
+     */
+    private void listTreeStreaming(HttpClient httpClient, String dirUrl, String rootUrl, String hostPrefix,
+                                   Consumer<WebDavDirectoryInfo> consumer) throws IOException {
+        HttpDavRequest request = new HttpDavRequest("PROPFIND", dirUrl, "infinity",
+                PropfindListingParser.LISTING_REQUEST_BODY);
+        boolean completed = false;
+        try {
+            HttpResponse response = httpClient.execute(request);
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode != HttpStatus.SC_MULTI_STATUS) {
+                throw depthInfinityRejection(statusCode, response);
+            }
+            if (response.getEntity() == null) {
+                throw new IOException("PROPFIND 响应为空");
+            }
+            TreeDirectory root = new TreeDirectory(normalizeUrl(dirUrl), dirUrl);
+            Deque<TreeDirectory> open = new ArrayDeque<>();
+            Map<String, TreeDirectory> openByKey = new HashMap<>();
+            open.push(root);
+            openByKey.put(root.key, root);
+            try (InputStream in = response.getEntity().getContent()) {
+                PropfindListingParser.parse(in, (href, collection, etag, lastModified, contentLength, contentType) -> {
+                    String resolved = resolveHref(dirUrl, hostPrefix, href);
+                    String key = normalizeUrl(resolved);
+                    if (root.key.equals(key)) {
+                        root.etag = etag;
+                        root.lastModified = lastModified;
+                        return;
+                    }
+                    TreeDirectory parent = openByKey.get(key.substring(0, Math.max(0, key.lastIndexOf('/'))));
+                    if (parent == null) {
+                        throw new DepthInfinityUnsupportedException("Depth:infinity 响应不是深度优先顺序：" + resolved);
+                    }
+                    while (open.peek() != parent) {
+                        TreeDirectory closed = open.pop();
+                        openByKey.remove(closed.key);
+                        consumer.accept(toDirectoryInfo(closed, rootUrl));
+                    }
+                    if (collection) {
+                        TreeDirectory child = new TreeDirectory(key, ensureDirectoryUrl(resolved));
+                        child.etag = etag;
+                        child.lastModified = lastModified;
+                        parent.subdirs.add(child.url);
+                        open.push(child);
+                        openByKey.put(key, child);
+                    } else {
+                        String relativePath = toRelativePath(rootUrl, resolved);
+                        if (!relativePath.isEmpty()) {
+                            parent.files.add(new WebDavFileObject(relativePath, resolved,
+                                    etag, lastModified, contentLength, contentType));
+                        }
+                    }
+                });
+            } catch (XMLStreamException e) {
+                throw new IOException("PROPFIND 响应解析失败: " + e.getMessage(), e);
+            }
+            while (!open.isEmpty()) {
+                consumer.accept(toDirectoryInfo(open.pop(), rootUrl));
+            }
+            completed = true;
+        } finally {
+            if (!completed) {
+                request.abort();
+            }
+        }
+    }
+
+    /**
+     * RFC 4918 servers answer 403 with a propfind-finite-depth precondition; some send only the status, others the
+     * element with a different status.
+     */
+    private IllegalStateException depthInfinityRejection(int statusCode, HttpResponse response) throws IOException {
+        String body = readErrorBody(response);
+        if (statusCode == HttpStatus.SC_FORBIDDEN || body.contains("propfind-finite-depth")) {
+            return new DepthInfinityUnsupportedException("服务端不支持 Depth:infinity，状态码：" + statusCode);
+        }
+        return new WebDavStatusException(statusCode, mapStatusCode(statusCode));
+    }
+
+    /**
+     * One REPORT from the token in {@code changes}; accumulates into {@code changes} and moves its token on.
+     * Returns true when the server truncated the report (507 on the collection itself) and another round is due.
+     */
+    private boolean syncCollectionRound(HttpClient httpClient, String dirUrl, String rootUrl, String hostPrefix,
+                                        WebDavSyncChanges changes) throws IOException {
+        String dirKey = normalizeUrl(dirUrl);
+        HttpDavRequest request = new HttpDavRequest("REPORT", dirUrl, "0",
+                PropfindListingParser.syncCollectionRequestBody(changes.getSyncToken()));
+        boolean completed = false;
+        try {
+            HttpResponse response = httpClient.execute(request);
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode != HttpStatus.SC_MULTI_STATUS) {
+                String body = readErrorBody(response);
+                if (body.contains("valid-sync-token")) {
+                    throw new SyncTokenInvalidException("WebDAV同步令牌已失效，状态码：" + statusCode);
+                }
+                throw new WebDavStatusException(statusCode, mapStatusCode(statusCode));
+            }
+            if (response.getEntity() == null) {
+                throw new IOException("REPORT 响应为空");
+            }
+            boolean[] truncated = new boolean[1];
+            String nextToken;
+            try (InputStream in = response.getEntity().getContent()) {
+                nextToken = PropfindListingParser.parseSyncResponse(in,
+                        (href, collection, etag, lastModified, contentLength, contentType) -> {
+                            String resolved = resolveHref(dirUrl, hostPrefix, href);
+                            if (dirKey.equals(normalizeUrl(resolved))) {
+                                return;
+                            }
+                            changes.setChangedCount(changes.getChangedCount() + 1);
+                            changes.getChangedDirectoryUrls().add(collection
+                                    ? ensureDirectoryUrl(resolved)
+                                    : parentDirectoryUrl(resolved));
+                        },
+                        (href, code) -> {
+                            String resolved = resolveHref(dirUrl, hostPrefix, href);
+                            boolean self = dirKey.equals(normalizeUrl(resolved));
+                            if (code == 507 && self) {
+                                truncated[0] = true;
+                            } else if (code == HttpStatus.SC_NOT_FOUND && !self) {
+                                String relativePath = toRelativePath(rootUrl, normalizeUrl(resolved));
+                                if (!relativePath.isEmpty()) {
+                                    changes.getRemovedPaths().add(relativePath);
+                                }
+                                changes.getChangedDirectoryUrls().add(parentDirectoryUrl(normalizeUrl(resolved)));
+                            }
+                        });
+            } catch (XMLStreamException e) {
+                throw new IOException("REPORT 响应解析失败: " + e.getMessage(), e);
+            }
+            if (nextToken == null) {
+                throw new IOException("REPORT 响应缺少 sync-token");
+            }
+            changes.setSyncToken(nextToken);
+            completed = true;
+            return truncated[0];
+        } finally {
+            if (!completed) {
+                request.abort();
+            }
+        }
+    }
+
+    private String readErrorBody(HttpResponse response) throws IOException {
+        if (response.getEntity() == null) {
+            return "";
+        }
+        try (InputStream in = response.getEntity().getContent()) {
+            return new String(readBytes(in, ERROR_BODY_MAX_BYTES), StandardCharsets.UTF_8);
+        }
+    }
+
+    /** "http://h/a/b.flac" or "http://h/a/b" -> "http://h/a/". */
+    private String parentDirectoryUrl(String url) {
+        return url.substring(0, url.lastIndexOf('/') + 1);
+    }
+
+    private boolean isUnderRemovedPath(String relativePath, List<String> removedPaths) {
+        for (String removed : removedPaths) {
+            if (relativePath.startsWith(removed + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private WebDavDirectoryInfo toDirectoryInfo(TreeDirectory directory, String rootUrl) {
+        WebDavDirectoryInfo info = new WebDavDirectoryInfo();
+        info.setRelativePath(toRelativePath(rootUrl, directory.url));
+        info.setDirectoryUrl(directory.url);
+        info.setEtag(directory.etag);
+        info.setLastModified(directory.lastModified);
+        info.setChildCount(directory.files.size() + directory.subdirs.size());
+        info.setFiles(directory.files);
+        info.setSubdirectoryUrls(directory.subdirs);
+        return info;
+    }
+
+    private RangedByteChannel openChannel(Sardine session, String fileUrl, long fileSize,
+                                          ByteBufferPool pool, long maxFetchBytes) {
+        HttpClient httpClient = extractHttpClient(session);
+        if (httpClient == null) {
+            log.debug("Cannot extract HttpClient from Sardine, ranged channel unavailable");
+            return null;
+        }
+        return new RangedByteChannel(httpClient, fileUrl, fileSize, pool, maxFetchBytes);
+    }
+
     private byte[] downloadRange(HttpClient httpClient, String fileUrl, long start, long end) throws IOException {
         HttpGet request = new HttpGet(fileUrl);
         request.setHeader("Range", "bytes=" + start + "-" + end);
@@ -338,7 +738,7 @@ public class SardineWebDavClient implements WebDavClient {
             // Range not satisfiable
             return null;
         } else {
-            throw new IOException("Range 请求失败，状态码: " + statusCode);
+            throw new HttpResponseException(statusCode, "Range 请求失败，状态码: " + statusCode);
         }
     }
 
@@ -405,10 +805,14 @@ public class SardineWebDavClient implements WebDavClient {
     }
 
     private String resolveHref(String currentDir, String hostPrefix, URI href) {
+        return resolveHref(currentDir, hostPrefix, href == null ? null : href.toString());
+    }
+
+    private String resolveHref(String currentDir, String hostPrefix, String href) {
         if (href == null) {
             return currentDir;
         }
-        String trimmed = href.toString().trim();
+        String trimmed = href.trim();
         if (trimmed.isEmpty()) {
             return currentDir;
         }
@@ -508,7 +912,10 @@ public class SardineWebDavClient implements WebDavClient {
     }
 
     private String mapSardineException(SardineException e) {
-        int status = e.getStatusCode();
+        return mapStatusCode(e.getStatusCode());
+    }
+
+    private String mapStatusCode(int status) {
         if (status == 401 || status == 403) {
             return "WebDAV鉴权失败，请检查用户名或密码";
         }
@@ -572,4 +979,37 @@ public class SardineWebDavClient implements WebDavClient {
         }
         return suffix;
     }
+
+    /** A directory of a Depth:infinity response whose members are still arriving. */
+    private static final class TreeDirectory {
+        private final String key;
+        private final String url;
+        private final List<WebDavFileObject> files = new ArrayList<>();
+        private final List<String> subdirs = new ArrayList<>();
+        private String etag;
+        private Date lastModified;
+
+        private TreeDirectory(String key, String url) {
+            this.key = key;
+            this.url = url;
+        }
+    }
+
+    /** PROPFIND or REPORT with an XML body. */
+    private static final class HttpDavRequest extends HttpEntityEnclosingRequestBase {
+
+        private final String method;
+
+        HttpDavRequest(String method, String url, String depth, String body) {
+            this.method = method;
+            setURI(URI.create(url));
+            setHeader("Depth", depth);
+            setEntity(new StringEntity(body, ContentType.create("application/xml", StandardCharsets.UTF_8)));
+        }
+
+        @Override
+        public String getMethod() {
+            return method;
+        }
+    }
 }
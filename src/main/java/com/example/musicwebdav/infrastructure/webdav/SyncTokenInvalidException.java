@@ -0,0 +1,12 @@
+package com.example.musicwebdav.infrastructure.webdav;
+
+/**
+ * The server rejected the sync token of a sync-collection REPORT (valid-sync-token precondition), e.g. because
+ * its change log no longer reaches back that far. The caller has to walk the tree again.
+ */
+public class SyncTokenInvalidException extends IllegalStateException {
+
+    public SyncTokenInvalidException(String message) {
+        super(message);
+    }
+}
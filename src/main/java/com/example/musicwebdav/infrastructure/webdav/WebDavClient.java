@@ -3,11 +3,13 @@ package com.example.musicwebdav.infrastructure.webdav;
 import com.example.musicwebdav.domain.model.WebDavConnectResult;
 import com.example.musicwebdav.domain.model.WebDavDirectoryInfo;
 import com.example.musicwebdav.domain.model.WebDavFileObject;
+import com.example.musicwebdav.domain.model.WebDavSyncChanges;
 import com.github.sardine.Sardine;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface WebDavClient {
 
@@ -28,6 +30,28 @@ public interface WebDavClient {
     /** List direct children (files and subdirectories) of a single directory using an existing session. */
     WebDavDirectoryInfo listDirectory(Sardine session, String directoryUrl, String rootUrl);
 
+    /**
+     * List a whole subtree with one Depth:infinity PROPFIND, handing each directory to {@code consumer} as soon as
+     * the response has moved past it, so a directory arrives after its subdirectories.
+     *
+     * @throws DepthInfinityUnsupportedException when the server refuses infinite depth
+     */
+    void listTree(Sardine session, String directoryUrl, String rootUrl, Consumer<WebDavDirectoryInfo> consumer);
+
+    /**
+     * Current RFC 6578 sync token of a collection (PROPFIND Depth:0 for DAV:sync-token), or null when the server
+     * does not hand one out.
+     */
+    String fetchSyncToken(Sardine session, String directoryUrl);
+
+    /**
+     * Members changed or removed anywhere below {@code directoryUrl} since {@code syncToken}, from a
+     * sync-collection REPORT with sync-level infinite. Truncated reports are continued until complete.
+     *
+     * @throws SyncTokenInvalidException when the server no longer accepts the token
+     */
+    WebDavSyncChanges syncCollection(Sardine session, String directoryUrl, String rootUrl, String syncToken);
+
     /** Download using an existing session. */
     File downloadToTempFile(Sardine session, String fileUrl) throws IOException;
 
@@ -39,9 +63,23 @@ public interface WebDavClient {
     File downloadPartialToTempFile(Sardine session, String fileUrl, long fileSize,
                                     int headBytes, int tailBytes) throws IOException;
 
+    /**
+     * Open a read-only channel over a remote file that fetches blocks with Range requests on demand,
+     * fetching at most {@code maxFetchBytes} in total. Returns null if the session cannot issue raw requests.
+     */
+    RangedByteChannel openRangedChannel(Sardine session, String fileUrl, long fileSize,
+                                        long maxFetchBytes) throws IOException;
+
+    /** Same as {@link #openRangedChannel} but with small blocks, for header-only probes. */
+    RangedByteChannel openProbeChannel(Sardine session, String fileUrl, long fileSize,
+                                       long maxFetchBytes) throws IOException;
+
     /** Build the full root URL from baseUrl and rootPath. */
     String buildRootUrl(String baseUrl, String rootPath);
 
     /** Safely close a Sardine session. */
     void closeSession(Sardine session);
+
+    /** Drop pooled connections opened with these credentials, e.g. after the config using them changed. */
+    void invalidateConnections(String username, String password);
 }
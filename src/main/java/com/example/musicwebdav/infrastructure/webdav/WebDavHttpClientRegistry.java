@@ -0,0 +1,267 @@
+package com.example.musicwebdav.infrastructure.webdav;
+
+import com.example.musicwebdav.common.config.AppWebDavProperties;
+import com.example.musicwebdav.common.util.HashUtil;
+import com.github.sardine.Sardine;
+import com.github.sardine.impl.SardineImpl;
+import com.github.sardine.impl.SardineRedirectStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Long-lived HTTP connection pools for WebDAV, one per set of credentials (in practice one per config). Every
+ * Sardine session and the streaming proxy borrow keep-alive connections from the pool instead of building a
+ * client, pool and TLS session per call. Sessions are cheap wrappers: closing one leaves the pool open.
+ *
+ * <p>A background task closes connections idle longer than {@code pool-idle-evict-sec} and drops pools nobody
+ * used for {@code pool-unused-ttl-sec}. {@link #invalidate} retires a pool right away; it is closed once its last
+ * session is closed and its last borrowed connection is back, so a running scan is not cut off.
+ *
+ * <p>All pools lease through the {@link WebDavTrafficGovernor}, so pools of different credentials on the same
+ * host still share that host's connection and bandwidth budget.
+ */
+@Component
+public class WebDavHttpClientRegistry implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(WebDavHttpClientRegistry.class);
+
+    private final AppWebDavProperties properties;
+    private final WebDavTrafficGovernor governor;
+    private final Map<String, ConnectionPool> pools = new ConcurrentHashMap<>();
+    private final List<ConnectionPool> retired = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService evictor;
+
+    public WebDavHttpClientRegistry(AppWebDavProperties properties) {
+        this(properties, new WebDavTrafficGovernor(properties, (MeterRegistry) null));
+    }
+
+    @Autowired
+    public WebDavHttpClientRegistry(AppWebDavProperties properties, WebDavTrafficGovernor governor) {
+        this.properties = properties;
+        this.governor = governor;
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "webdav-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodSec = Math.max(1, Math.min(properties.getPoolIdleEvictSec(), 30));
+        evictor.scheduleWithFixedDelay(this::evictIdle, periodSec, periodSec, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A new Sardine session on the shared pool of these credentials. Close it with {@code shutdown()} as before;
+     * that releases only the session.
+     */
+    public Sardine openSession(String username, String password) {
+        ConnectionPool pool = pool(username, password);
+        HttpClientBuilder builder = pool.newBuilder().setRedirectStrategy(new SardineRedirectStrategy());
+        return new PooledSession(builder, username, password, pool);
+    }
+
+    /** Shared client on the same pool, for requests sent without Sardine (the streaming proxy). Do not close. */
+    public CloseableHttpClient httpClient(String username, String password) {
+        return pool(username, password).sharedClient;
+    }
+
+    /**
+     * Stops handing out the pool of these credentials, e.g. because the config that uses them changed. The next
+     * caller gets a fresh pool.
+     */
+    public void invalidate(String username, String password) {
+        ConnectionPool pool = pools.remove(key(username, password));
+        if (pool != null) {
+            retired.add(pool);
+            log.info("WEBDAV_POOL_INVALIDATED user={} openSessions={} leased={}", maskUser(username),
+                    pool.openSessions.get(), pool.leased());
+            evictIdle();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        evictor.shutdownNow();
+        for (ConnectionPool pool : pools.values()) {
+            pool.close();
+        }
+        pools.clear();
+        for (ConnectionPool pool : retired) {
+            pool.close();
+        }
+        retired.clear();
+    }
+
+    int poolCount() {
+        return pools.size();
+    }
+
+    private ConnectionPool pool(String username, String password) {
+        String key = key(username, password);
+        ConnectionPool pool = pools.get(key);
+        if (pool == null) {
+            if (pools.size() >= Math.max(1, properties.getPoolMaxRegistered())) {
+                retireLeastRecentlyUsed();
+            }
+            pool = pools.computeIfAbsent(key, k -> {
+                log.info("WEBDAV_POOL_CREATED user={} maxTotal={} maxPerRoute={}", maskUser(username),
+                        properties.getPoolMaxTotal(), properties.getPoolMaxPerRoute());
+                return new ConnectionPool(username, password, properties, governor);
+            });
+        }
+        pool.lastUsedNanos = System.nanoTime();
+        return pool;
+    }
+
+    private synchronized void retireLeastRecentlyUsed() {
+        Map.Entry<String, ConnectionPool> oldest = null;
+        for (Map.Entry<String, ConnectionPool> entry : pools.entrySet()) {
+            if (oldest == null || entry.getValue().lastUsedNanos < oldest.getValue().lastUsedNanos) {
+                oldest = entry;
+            }
+        }
+        if (oldest != null && pools.remove(oldest.getKey(), oldest.getValue())) {
+            retired.add(oldest.getValue());
+        }
+    }
+
+    void evictIdle() {
+        long unusedTtlNanos = TimeUnit.SECONDS.toNanos(Math.max(1, properties.getPoolUnusedTtlSec()));
+        long now = System.nanoTime();
+        List<String> unused = new ArrayList<>();
+        for (Map.Entry<String, ConnectionPool> entry : pools.entrySet()) {
+            ConnectionPool pool = entry.getValue();
+            pool.connectionManager.closeExpiredConnections();
+            pool.connectionManager.closeIdleConnections(Math.max(1, properties.getPoolIdleEvictSec()),
+                    TimeUnit.SECONDS);
+            if (now - pool.lastUsedNanos > unusedTtlNanos && !pool.inUse()) {
+                unused.add(entry.getKey());
+            }
+        }
+        for (String key : unused) {
+            ConnectionPool pool = pools.remove(key);
+            if (pool != null) {
+                retired.add(pool);
+            }
+        }
+        for (ConnectionPool pool : retired) {
+            if (!pool.inUse()) {
+                retired.remove(pool);
+                pool.close();
+            }
+        }
+    }
+
+    private static String key(String username, String password) {
+        return HashUtil.md5Hex((username == null ? "" : username) + '\u0000' + (password == null ? "" : password));
+    }
+
+    private static String maskUser(String username) {
+        if (username == null || username.length() <= 2) {
+            return "**";
+        }
+        return username.substring(0, 2) + "**";
+    }
+
+    private static final class ConnectionPool {
+        final PoolingHttpClientConnectionManager connectionManager;
+        final HttpClientConnectionManager governedManager;
+        final HttpResponseInterceptor bandwidthInterceptor;
+        final CredentialsProvider credentials;
+        final RequestConfig requestConfig;
+        final CloseableHttpClient sharedClient;
+        final AtomicInteger openSessions = new AtomicInteger();
+        volatile long lastUsedNanos = System.nanoTime();
+
+        ConnectionPool(String username, String password, AppWebDavProperties properties,
+                       WebDavTrafficGovernor governor) {
+            connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(Math.max(1, properties.getPoolMaxTotal()));
+            connectionManager.setDefaultMaxPerRoute(Math.max(1, properties.getPoolMaxPerRoute()));
+            connectionManager.setValidateAfterInactivity(properties.getPoolValidateAfterInactivityMs());
+            governedManager = governor.govern(connectionManager);
+            bandwidthInterceptor = governor.bandwidthInterceptor();
+            BasicCredentialsProvider provider = new BasicCredentialsProvider();
+            provider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(username, password));
+            credentials = provider;
+            // No socket timeout: a Depth:infinity listing or a large download may stall longer than any sane value.
+            requestConfig = RequestConfig.custom()
+                    .setConnectTimeout(properties.getConnectTimeoutMs())
+                    .setConnectionRequestTimeout(properties.getPoolConnectionRequestTimeoutMs())
+                    .setExpectContinueEnabled(false)
+                    .build();
+            sharedClient = newBuilder().build();
+        }
+
+        HttpClientBuilder newBuilder() {
+            HttpClientBuilder builder = HttpClients.custom()
+                    .setConnectionManager(governedManager)
+                    .setConnectionManagerShared(true)
+                    .setDefaultCredentialsProvider(credentials)
+                    .setDefaultRequestConfig(requestConfig);
+            return bandwidthInterceptor == null ? builder : builder.addInterceptorLast(bandwidthInterceptor);
+        }
+
+        int leased() {
+            return connectionManager.getTotalStats().getLeased();
+        }
+
+        boolean inUse() {
+            return openSessions.get() > 0 || leased() > 0;
+        }
+
+        void close() {
+            try {
+                sharedClient.close();
+            } catch (IOException e) {
+                log.debug("WebDAV pool client close failed", e);
+            }
+            connectionManager.shutdown();
+        }
+    }
+
+    /** Counts itself as a user of its pool until shut down, so the pool is not closed under it. */
+    private static final class PooledSession extends SardineImpl {
+        private final ConnectionPool pool;
+        private final AtomicBoolean open = new AtomicBoolean(true);
+
+        PooledSession(HttpClientBuilder builder, String username, String password, ConnectionPool pool) {
+            super(builder, username, password);
+            this.pool = pool;
+            pool.openSessions.incrementAndGet();
+        }
+
+        @Override
+        public void shutdown() throws IOException {
+            if (open.compareAndSet(true, false)) {
+                pool.openSessions.decrementAndGet();
+                pool.lastUsedNanos = System.nanoTime();
+            }
+            super.shutdown();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.musicwebdav.infrastructure.webdav;
+
+/**
+ * The server answered a WebDAV request with an unexpected HTTP status. Keeps the status so callers can tell an
+ * overloaded server (429, 503) from a missing directory or bad credentials.
+ */
+public class WebDavStatusException extends IllegalStateException {
+
+    private final int statusCode;
+
+    public WebDavStatusException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
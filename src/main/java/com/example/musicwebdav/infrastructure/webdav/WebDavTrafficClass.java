@@ -0,0 +1,41 @@
+package com.example.musicwebdav.infrastructure.webdav;
+
+/**
+ * Priority of a WebDAV request when the upstream host's connections or bandwidth run short, highest first.
+ * The class is taken from the calling thread: code that streams to a listener or scans marks its thread with
+ * {@link #enter()}; anything unmarked (covers, lyrics, admin browsing) counts as {@link #ASSET}.
+ */
+public enum WebDavTrafficClass {
+
+    /** Audio streamed to a listener; a stall is audible. */
+    STREAMING,
+    /** Covers, lyrics and other requests a user is waiting on. */
+    ASSET,
+    /** Scan listings and metadata fetches; only throughput matters. */
+    SCAN;
+
+    private static final ThreadLocal<WebDavTrafficClass> CURRENT = new ThreadLocal<>();
+
+    public static WebDavTrafficClass current() {
+        WebDavTrafficClass current = CURRENT.get();
+        return current == null ? ASSET : current;
+    }
+
+    /** Marks this thread's requests with this class until the returned scope is closed. */
+    public Scope enter() {
+        final WebDavTrafficClass previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
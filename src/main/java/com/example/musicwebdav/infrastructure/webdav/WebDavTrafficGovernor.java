@@ -0,0 +1,357 @@
+package com.example.musicwebdav.infrastructure.webdav;
+
+import com.example.musicwebdav.common.config.AppWebDavProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Connection and bandwidth budget per upstream host, shared by every WebDAV pool: a host serving several configs,
+ * the scan and the streaming proxy is one budget, not one per client.
+ *
+ * <p>A request holds a connection slot from lease to release. Scan traffic may use all but
+ * {@code host-interactive-reserved-connections} of the host's slots, and when a slot frees up a waiting request
+ * of a higher {@link WebDavTrafficClass} gets it first. With {@code host-bandwidth-bytes-per-sec} set, response
+ * bodies are read through a token bucket with the same precedence: while a higher class waits for bytes, lower
+ * classes stop reading. Time spent waiting is recorded per host, class and resource as
+ * {@code music.webdav.governor.wait}; bandwidth waits are recorded only when a read actually had to wait.
+ */
+@Component
+public class WebDavTrafficGovernor {
+
+    private static final int CLASS_COUNT = WebDavTrafficClass.values().length;
+
+    private final boolean enabled;
+    private final int maxConnections;
+    private final int scanMaxConnections;
+    private final long bytesPerSec;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, HostBudget> hosts = new ConcurrentHashMap<>();
+
+    @Autowired
+    public WebDavTrafficGovernor(AppWebDavProperties properties, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this(properties, meterRegistryProvider.getIfAvailable());
+    }
+
+    WebDavTrafficGovernor(AppWebDavProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isGovernorEnabled();
+        this.maxConnections = Math.max(1, properties.getHostMaxConnections());
+        this.scanMaxConnections = Math.max(1, maxConnections - Math.max(0,
+                properties.getHostInteractiveReservedConnections()));
+        this.bytesPerSec = Math.max(0L, properties.getHostBandwidthBytesPerSec());
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** The pool's connection manager with connection leases counted against the host budget. */
+    HttpClientConnectionManager govern(HttpClientConnectionManager delegate) {
+        return enabled ? new GovernedConnectionManager(delegate) : delegate;
+    }
+
+    /** Response interceptor metering body reads against the host's bandwidth, or null when it is unlimited. */
+    HttpResponseInterceptor bandwidthInterceptor() {
+        if (!enabled || bytesPerSec <= 0L) {
+            return null;
+        }
+        return (response, context) -> {
+            HttpEntity entity = response.getEntity();
+            HttpHost target = HttpClientContext.adapt(context).getTargetHost();
+            if (entity != null && target != null) {
+                response.setEntity(new GovernedEntity(entity, budget(target), WebDavTrafficClass.current()));
+            }
+        };
+    }
+
+    int connectionsInUse(String host, int port) {
+        HostBudget budget = hosts.get(host.toLowerCase(Locale.ROOT) + ":" + port);
+        return budget == null ? 0 : budget.connectionsInUse();
+    }
+
+    private HostBudget budget(HttpHost target) {
+        int port = target.getPort() > 0 ? target.getPort()
+                : "https".equalsIgnoreCase(target.getSchemeName()) ? 443 : 80;
+        String key = target.getHostName().toLowerCase(Locale.ROOT) + ":" + port;
+        return hosts.computeIfAbsent(key, HostBudget::new);
+    }
+
+    private void recordWait(HostBudget budget, WebDavTrafficClass trafficClass, String resource, long nanos) {
+        if (meterRegistry == null) {
+            return;
+        }
+        try {
+            meterRegistry.timer("music.webdav.governor.wait", "host", budget.host,
+                    "traffic_class", trafficClass.name(), "resource", resource).record(nanos, TimeUnit.NANOSECONDS);
+        } catch (Exception ignored) {
+            // Metrics must never break a request.
+        }
+    }
+
+    private final class HostBudget {
+        private final String host;
+        private final int[] connectionWaiters = new int[CLASS_COUNT];
+        private final int[] bandwidthWaiters = new int[CLASS_COUNT];
+        private int inUse;
+        private double tokens;
+        private long refilledAtNanos = System.nanoTime();
+
+        private HostBudget(String host) {
+            this.host = host;
+            this.tokens = bytesPerSec;
+            if (meterRegistry != null) {
+                Gauge.builder("music.webdav.governor.connections", this, HostBudget::connectionsInUse)
+                        .tag("host", host).register(meterRegistry);
+            }
+        }
+
+        private synchronized int connectionsInUse() {
+            return inUse;
+        }
+
+        private void acquireConnection(WebDavTrafficClass trafficClass, long timeoutMs)
+                throws InterruptedException, ConnectionPoolTimeoutException {
+            long startNanos = System.nanoTime();
+            int limit = trafficClass == WebDavTrafficClass.SCAN ? scanMaxConnections : maxConnections;
+            synchronized (this) {
+                connectionWaiters[trafficClass.ordinal()]++;
+                try {
+                    while (inUse >= limit || higherWaiting(connectionWaiters, trafficClass)) {
+                        long waitMs = 0L;
+                        if (timeoutMs > 0L) {
+                            waitMs = timeoutMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                            if (waitMs <= 0L) {
+                                throw new ConnectionPoolTimeoutException("等待WebDAV主机连接超时: " + host);
+                            }
+                        }
+                        wait(waitMs);
+                    }
+                    inUse++;
+                } finally {
+                    connectionWaiters[trafficClass.ordinal()]--;
+                    notifyAll();
+                }
+            }
+            recordWait(this, trafficClass, "connection", System.nanoTime() - startNanos);
+        }
+
+        private synchronized void releaseConnection() {
+            inUse = Math.max(0, inUse - 1);
+            notifyAll();
+        }
+
+        /** Waits until the bucket is out of debt and no higher class is waiting, then takes the bytes read. */
+        private void consume(WebDavTrafficClass trafficClass, int bytes) throws InterruptedIOException {
+            long startNanos = System.nanoTime();
+            boolean waited = false;
+            synchronized (this) {
+                bandwidthWaiters[trafficClass.ordinal()]++;
+                try {
+                    refill();
+                    while (tokens < 0 || higherWaiting(bandwidthWaiters, trafficClass)) {
+                        waited = true;
+                        long waitMs = tokens < 0 ? (long) Math.ceil(-tokens * 1000.0d / bytesPerSec) : 1L;
+                        wait(Math.max(1L, waitMs));
+                        refill();
+                    }
+                    tokens -= bytes;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("等待WebDAV带宽被中断: " + host);
+                } finally {
+                    bandwidthWaiters[trafficClass.ordinal()]--;
+                    notifyAll();
+                }
+            }
+            if (waited) {
+                recordWait(this, trafficClass, "bandwidth", System.nanoTime() - startNanos);
+            }
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            double elapsedSec = (now - refilledAtNanos) / 1_000_000_000.0d;
+            refilledAtNanos = now;
+            // At most one second of budget builds up while the host is quiet.
+            tokens = Math.min(bytesPerSec, tokens + elapsedSec * bytesPerSec);
+        }
+
+        private boolean higherWaiting(int[] waiters, WebDavTrafficClass trafficClass) {
+            for (int i = 0; i < trafficClass.ordinal(); i++) {
+                if (waiters[i] > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /** Counts every leased connection against its host until it is released back to the pool. */
+    private final class GovernedConnectionManager implements HttpClientConnectionManager {
+        private final HttpClientConnectionManager delegate;
+        private final Map<HttpClientConnection, HostBudget> leases =
+                Collections.synchronizedMap(new IdentityHashMap<>());
+
+        private GovernedConnectionManager(HttpClientConnectionManager delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            final ConnectionRequest request = delegate.requestConnection(route, state);
+            final HostBudget budget = budget(route.getTargetHost());
+            final WebDavTrafficClass trafficClass = WebDavTrafficClass.current();
+            return new ConnectionRequest() {
+                @Override
+                public HttpClientConnection get(long timeout, TimeUnit unit)
+                        throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    long timeoutMs = timeout > 0L ? Math.max(1L, unit.toMillis(timeout)) : 0L;
+                    long startNanos = System.nanoTime();
+                    budget.acquireConnection(trafficClass, timeoutMs);
+                    boolean leased = false;
+                    try {
+                        long remainingMs = timeoutMs > 0L ? Math.max(1L,
+                                timeoutMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)) : 0L;
+                        HttpClientConnection connection = request.get(remainingMs, TimeUnit.MILLISECONDS);
+                        leases.put(connection, budget);
+                        leased = true;
+                        return connection;
+                    } finally {
+                        if (!leased) {
+                            budget.releaseConnection();
+                        }
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return request.cancel();
+                }
+            };
+        }
+
+        @Override
+        public void releaseConnection(HttpClientConnection conn, Object newState, long validDuration,
+                                      TimeUnit timeUnit) {
+            try {
+                delegate.releaseConnection(conn, newState, validDuration, timeUnit);
+            } finally {
+                HostBudget budget = leases.remove(conn);
+                if (budget != null) {
+                    budget.releaseConnection();
+                }
+            }
+        }
+
+        @Override
+        public void connect(HttpClientConnection conn, HttpRoute route, int connectTimeout, HttpContext context)
+                throws IOException {
+            delegate.connect(conn, route, connectTimeout, context);
+        }
+
+        @Override
+        public void upgrade(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+            delegate.upgrade(conn, route, context);
+        }
+
+        @Override
+        public void routeComplete(HttpClientConnection conn, HttpRoute route, HttpContext context)
+                throws IOException {
+            delegate.routeComplete(conn, route, context);
+        }
+
+        @Override
+        public void closeIdleConnections(long idletime, TimeUnit timeUnit) {
+            delegate.closeIdleConnections(idletime, timeUnit);
+        }
+
+        @Override
+        public void closeExpiredConnections() {
+            delegate.closeExpiredConnections();
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+    }
+
+    private static final class GovernedEntity extends HttpEntityWrapper {
+        private final HostBudget budget;
+        private final WebDavTrafficClass trafficClass;
+
+        private GovernedEntity(HttpEntity entity, HostBudget budget, WebDavTrafficClass trafficClass) {
+            super(entity);
+            this.budget = budget;
+            this.trafficClass = trafficClass;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            InputStream content = super.getContent();
+            return content == null ? null : new GovernedInputStream(content, budget, trafficClass);
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            try (InputStream in = getContent()) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+        }
+    }
+
+    private static final class GovernedInputStream extends FilterInputStream {
+        private final HostBudget budget;
+        private final WebDavTrafficClass trafficClass;
+
+        private GovernedInputStream(InputStream in, HostBudget budget, WebDavTrafficClass trafficClass) {
+            super(in);
+            this.budget = budget;
+            this.trafficClass = trafficClass;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                budget.consume(trafficClass, 1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                budget.consume(trafficClass, read);
+            }
+            return read;
+        }
+    }
+}
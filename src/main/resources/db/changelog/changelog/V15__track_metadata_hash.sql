@@ -0,0 +1,39 @@
+-- V15: track.metadata_hash lets the scan diff step compare one digest instead of reading every metadata column.
+-- The backfill mirrors TrackMetadataHash: trimmed text, NULL as empty, fields joined by CHAR(1).
+
+SET @col_exists = (
+  SELECT COUNT(1)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'track'
+    AND column_name = 'metadata_hash'
+);
+SET @sql = IF(
+  @col_exists = 0,
+  'ALTER TABLE track ADD COLUMN metadata_hash CHAR(32) NULL COMMENT ''扫描元数据摘要（MD5）'' AFTER lyric_path',
+  'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+UPDATE track
+SET metadata_hash = MD5(CONCAT_WS(CHAR(1 USING utf8mb4),
+    TRIM(IFNULL(title, '')),
+    TRIM(IFNULL(artist, '')),
+    TRIM(IFNULL(album, '')),
+    TRIM(IFNULL(album_artist, '')),
+    TRIM(IFNULL(genre, '')),
+    TRIM(IFNULL(mime_type, '')),
+    TRIM(IFNULL(cover_art_url, '')),
+    TRIM(IFNULL(lyric_path, '')),
+    IFNULL(track_no, ''),
+    IFNULL(disc_no, ''),
+    IFNULL(`year`, ''),
+    IFNULL(duration_sec, ''),
+    IFNULL(bitrate, ''),
+    IFNULL(sample_rate, ''),
+    IFNULL(channels, ''),
+    IFNULL(has_cover, ''),
+    IFNULL(has_lyric, '')))
+WHERE metadata_hash IS NULL;
@@ -0,0 +1,19 @@
+-- V16: directory_signature.generation holds the id of the last scan task that listed the directory.
+-- Full scans stamp every listed directory and soft-delete the tracks of directories left on an older generation,
+-- instead of touching last_scan_task_id on every track.
+
+SET @col_exists = (
+  SELECT COUNT(1)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'directory_signature'
+    AND column_name = 'generation'
+);
+SET @sql = IF(
+  @col_exists = 0,
+  'ALTER TABLE directory_signature ADD COLUMN generation BIGINT NULL COMMENT ''最后列举该目录的扫描任务ID'' AFTER child_count',
+  'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,107 @@
+-- V17: directory_signature doubles as the directory table. parent_id / dir_name make it a tree, and track.dir_id
+-- points each track at the directory that lists it, so per-directory deletes, subtree sweeps and folder browsing
+-- are integer index ranges instead of source_path LIKE prefix scans.
+
+SET @col_exists = (
+  SELECT COUNT(1)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'directory_signature'
+    AND column_name = 'parent_id'
+);
+SET @sql = IF(
+  @col_exists = 0,
+  'ALTER TABLE directory_signature ADD COLUMN parent_id BIGINT NULL COMMENT ''父目录ID（根目录为空）'' AFTER config_id',
+  'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @col_exists = (
+  SELECT COUNT(1)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'directory_signature'
+    AND column_name = 'dir_name'
+);
+SET @sql = IF(
+  @col_exists = 0,
+  'ALTER TABLE directory_signature ADD COLUMN dir_name VARCHAR(255) NULL COMMENT ''目录名'' AFTER parent_id',
+  'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @idx_exists = (
+  SELECT COUNT(1)
+  FROM information_schema.statistics
+  WHERE table_schema = DATABASE()
+    AND table_name = 'directory_signature'
+    AND index_name = 'idx_dir_sig_parent'
+);
+SET @sql = IF(
+  @idx_exists = 0,
+  'ALTER TABLE directory_signature ADD KEY idx_dir_sig_parent (parent_id)',
+  'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @col_exists = (
+  SELECT COUNT(1)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'track'
+    AND column_name = 'dir_id'
+);
+SET @sql = IF(
+  @col_exists = 0,
+  'ALTER TABLE track ADD COLUMN dir_id BIGINT NULL COMMENT ''所在目录ID（directory_signature.id）'' AFTER source_path_md5',
+  'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @idx_exists = (
+  SELECT COUNT(1)
+  FROM information_schema.statistics
+  WHERE table_schema = DATABASE()
+    AND table_name = 'track'
+    AND index_name = 'idx_track_dir_deleted'
+);
+SET @sql = IF(
+  @idx_exists = 0,
+  'ALTER TABLE track ADD KEY idx_track_dir_deleted (dir_id, is_deleted)',
+  'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Directory paths are stored with a trailing slash ('a/b/'); the root is ''.
+UPDATE directory_signature
+SET dir_name = LEFT(SUBSTRING_INDEX(TRIM(TRAILING '/' FROM dir_path), '/', -1), 255)
+WHERE dir_name IS NULL;
+
+UPDATE directory_signature c
+JOIN directory_signature p
+  ON p.config_id = c.config_id
+ AND p.dir_path_md5 = MD5(LEFT(c.dir_path,
+        CHAR_LENGTH(TRIM(TRAILING '/' FROM c.dir_path))
+        - CHAR_LENGTH(SUBSTRING_INDEX(TRIM(TRAILING '/' FROM c.dir_path), '/', -1))))
+SET c.parent_id = p.id
+WHERE c.parent_id IS NULL
+  AND c.dir_path <> '';
+
+-- A track's directory path is its source_path up to and including the last slash.
+UPDATE track t
+JOIN directory_signature d
+  ON d.config_id = t.source_config_id
+ AND d.dir_path_md5 = MD5(LEFT(t.source_path,
+        CHAR_LENGTH(t.source_path) - CHAR_LENGTH(SUBSTRING_INDEX(t.source_path, '/', -1))))
+SET t.dir_id = d.id
+WHERE t.dir_id IS NULL;
@@ -0,0 +1,18 @@
+-- V18: per-config directory listing strategy. DEPTH_1 issues one PROPFIND per directory; DEPTH_INFINITY asks
+-- servers that allow it (Apache mod_dav, rclone serve) for the whole tree in one streamed response.
+
+SET @col_exists = (
+  SELECT COUNT(1)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'webdav_config'
+    AND column_name = 'listing_strategy'
+);
+SET @sql = IF(
+  @col_exists = 0,
+  'ALTER TABLE webdav_config ADD COLUMN listing_strategy VARCHAR(32) NOT NULL DEFAULT ''DEPTH_1'' COMMENT ''目录列举策略：DEPTH_1/DEPTH_INFINITY'' AFTER root_path',
+  'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
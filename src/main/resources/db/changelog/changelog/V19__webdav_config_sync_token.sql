@@ -0,0 +1,18 @@
+-- V19: RFC 6578 sync token of the config root, taken before the last complete scan. Incremental scans send it in
+-- a sync-collection REPORT and only re-list the directories the server reports as changed.
+
+SET @col_exists = (
+  SELECT COUNT(1)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'webdav_config'
+    AND column_name = 'sync_token'
+);
+SET @sql = IF(
+  @col_exists = 0,
+  'ALTER TABLE webdav_config ADD COLUMN sync_token VARCHAR(512) NULL COMMENT ''sync-collection 同步令牌'' AFTER listing_strategy',
+  'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
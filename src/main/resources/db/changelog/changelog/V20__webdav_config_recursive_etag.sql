@@ -0,0 +1,34 @@
+-- V20: whether a directory's ETag changes whenever anything below it changes (Nextcloud, Seafile). AUTO trusts
+-- the value scans detect in recursive_etag_detected; ON/OFF are set by an admin and override detection.
+
+SET @col_exists = (
+  SELECT COUNT(1)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'webdav_config'
+    AND column_name = 'recursive_etag_mode'
+);
+SET @sql = IF(
+  @col_exists = 0,
+  'ALTER TABLE webdav_config ADD COLUMN recursive_etag_mode VARCHAR(16) NOT NULL DEFAULT ''AUTO'' COMMENT ''目录ETag递归传播：AUTO/ON/OFF'' AFTER sync_token',
+  'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @col_exists = (
+  SELECT COUNT(1)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'webdav_config'
+    AND column_name = 'recursive_etag_detected'
+);
+SET @sql = IF(
+  @col_exists = 0,
+  'ALTER TABLE webdav_config ADD COLUMN recursive_etag_detected TINYINT NULL COMMENT ''扫描探测结果：1传播，0不传播，NULL未知'' AFTER recursive_etag_mode',
+  'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,50 @@
+-- V21: normalized title/artist keys (NormalizedKeyUtil) so dedup and exact-match lookups become index seeks.
+-- The NFKC folding cannot be expressed in SQL; existing rows are filled by TrackNormalizedKeyBackfillJob.
+
+SET @col_exists = (
+  SELECT COUNT(1)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'track'
+    AND column_name = 'norm_title'
+);
+SET @sql = IF(
+  @col_exists = 0,
+  'ALTER TABLE track ADD COLUMN norm_title VARCHAR(255) NULL COMMENT ''标题归一化键'' AFTER artist',
+  'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @col_exists = (
+  SELECT COUNT(1)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'track'
+    AND column_name = 'norm_artist'
+);
+SET @sql = IF(
+  @col_exists = 0,
+  'ALTER TABLE track ADD COLUMN norm_artist VARCHAR(255) NULL COMMENT ''歌手归一化键'' AFTER norm_title',
+  'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @idx_exists = (
+  SELECT COUNT(1)
+  FROM information_schema.statistics
+  WHERE table_schema = DATABASE()
+    AND table_name = 'track'
+    AND index_name = 'idx_track_config_norm_artist_title'
+);
+SET @sql = IF(
+  @idx_exists = 0,
+  'ALTER TABLE track ADD KEY idx_track_config_norm_artist_title (source_config_id, norm_artist, norm_title)',
+  'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
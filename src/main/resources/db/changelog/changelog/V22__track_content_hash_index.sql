@@ -0,0 +1,17 @@
+-- V22: content_hash is filled by the opt-in sampled hash stage; CONTENT_HASH dedup looks touched hashes up by it.
+
+SET @idx_exists = (
+  SELECT COUNT(1)
+  FROM information_schema.statistics
+  WHERE table_schema = DATABASE()
+    AND table_name = 'track'
+    AND index_name = 'idx_track_config_content_hash'
+);
+SET @sql = IF(
+  @idx_exists = 0,
+  'ALTER TABLE track ADD KEY idx_track_config_content_hash (source_config_id, content_hash)',
+  'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,31 @@
+-- V23: track.audio_probed_at records when a scan last read the file's audio properties, so a file neither parser
+-- finds a duration in is not probed again by every scan while duration_sec stays NULL.
+
+SET @col_exists = (
+  SELECT COUNT(1)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'track'
+    AND column_name = 'audio_probed_at'
+);
+SET @sql = IF(
+  @col_exists = 0,
+  'ALTER TABLE track ADD COLUMN audio_probed_at DATETIME NULL COMMENT ''音频属性读取时间'' AFTER channels',
+  'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Rows with a duration were read when it was stored.
+UPDATE track
+SET audio_probed_at = updated_at
+WHERE audio_probed_at IS NULL
+  AND duration_sec IS NOT NULL
+  AND duration_sec > 0;
+
+-- duration_sec = 0 marked "read, no duration" before this column existed; such rows go back to NULL.
+UPDATE track
+SET audio_probed_at = updated_at,
+    duration_sec = NULL
+WHERE duration_sec = 0;
@@ -0,0 +1,19 @@
+-- V24: exact artist lookups (SearchMapper.selectExactArtist) filter on norm_artist across all sources, so
+-- idx_track_config_norm_artist_title, led by source_config_id for the per-source dedup lookups, cannot serve them.
+-- norm_artist leads here; "norm_artist = ? OR norm_artist IS NULL" resolves as a ref_or_null range on it.
+
+SET @idx_exists = (
+  SELECT COUNT(1)
+  FROM information_schema.statistics
+  WHERE table_schema = DATABASE()
+    AND table_name = 'track'
+    AND index_name = 'idx_track_norm_artist'
+);
+SET @sql = IF(
+  @idx_exists = 0,
+  'ALTER TABLE track ADD KEY idx_track_norm_artist (norm_artist, is_deleted)',
+  'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
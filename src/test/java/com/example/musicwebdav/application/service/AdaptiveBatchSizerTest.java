@@ -0,0 +1,43 @@
+package com.example.musicwebdav.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveBatchSizerTest {
+
+    private static final long TARGET_MS = 100L;
+
+    @Test
+    void shouldShrinkOnSlowFlushesDownToMinimum() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 100, 2000, TARGET_MS);
+
+        sizer.record(millis(200), 1000);
+        assertEquals(750, sizer.current());
+        for (int i = 0; i < 20; i++) {
+            sizer.record(millis(200), sizer.current());
+        }
+        assertEquals(100, sizer.current());
+    }
+
+    @Test
+    void shouldGrowOnlyAfterFastFullBatches() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 100, 2000, TARGET_MS);
+
+        sizer.record(millis(10), 300);
+        assertEquals(1000, sizer.current());
+        sizer.record(millis(80), 1000);
+        assertEquals(1000, sizer.current());
+        sizer.record(millis(10), 1000);
+        assertEquals(1250, sizer.current());
+        for (int i = 0; i < 10; i++) {
+            sizer.record(millis(10), sizer.current());
+        }
+        assertEquals(2000, sizer.current());
+    }
+
+    private static long millis(long ms) {
+        return TimeUnit.MILLISECONDS.toNanos(ms);
+    }
+}
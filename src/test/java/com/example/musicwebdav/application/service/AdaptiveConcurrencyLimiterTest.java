@@ -0,0 +1,97 @@
+package com.example.musicwebdav.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.musicwebdav.infrastructure.webdav.WebDavStatusException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.client.HttpResponseException;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void shouldGrowToMaximumWhileBusyAndLatencyFlat() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("list", 2, 1, 6, 2.0d, 0.5d, null);
+
+        for (int i = 0; i < 40; i++) {
+            runBatch(limiter, 10L, AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        }
+
+        assertEquals(6, limiter.limit());
+        assertEquals(0, limiter.cuts());
+        assertEquals(6, acquireAll(limiter));
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    void shouldCutOnceForRequestsAlreadyRunningWhenOverloaded() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("list", 8, 1, 8, 2.0d, 0.5d, null);
+
+        runBatch(limiter, 10L, AdaptiveConcurrencyLimiter.Outcome.OVERLOAD);
+        assertEquals(4, limiter.limit());
+        assertEquals(1, limiter.cuts());
+
+        runBatch(limiter, 10L, AdaptiveConcurrencyLimiter.Outcome.OVERLOAD);
+        assertEquals(2, limiter.limit());
+        for (int i = 0; i < 5; i++) {
+            runBatch(limiter, 10L, AdaptiveConcurrencyLimiter.Outcome.OVERLOAD);
+        }
+        assertEquals(1, limiter.limit());
+    }
+
+    @Test
+    void shouldCutWhenLatencyRisesAndIgnoreOtherFailures() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("metadata", 8, 1, 8, 2.0d, 0.5d, null);
+
+        runBatch(limiter, 10L, AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        runBatch(limiter, 10L, AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+        assertEquals(8, limiter.limit());
+
+        runBatch(limiter, 50L, AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        assertEquals(4, limiter.limit());
+    }
+
+    @Test
+    void shouldTreatOnlyTimeoutsAndThrottlingAsOverload() {
+        assertEquals(AdaptiveConcurrencyLimiter.Outcome.SUCCESS, AdaptiveConcurrencyLimiter.outcomeOf(null));
+        assertEquals(AdaptiveConcurrencyLimiter.Outcome.OVERLOAD, AdaptiveConcurrencyLimiter.outcomeOf(
+                new IllegalStateException("列出WebDAV目录失败", new SocketTimeoutException("Read timed out"))));
+        assertEquals(AdaptiveConcurrencyLimiter.Outcome.OVERLOAD,
+                AdaptiveConcurrencyLimiter.outcomeOf(new WebDavStatusException(503, "busy")));
+        assertEquals(AdaptiveConcurrencyLimiter.Outcome.OVERLOAD,
+                AdaptiveConcurrencyLimiter.outcomeOf(new HttpResponseException(429, "slow down")));
+        assertEquals(AdaptiveConcurrencyLimiter.Outcome.IGNORED,
+                AdaptiveConcurrencyLimiter.outcomeOf(new WebDavStatusException(404, "missing")));
+    }
+
+    @Test
+    void shouldStayFixedWhenMinimumEqualsMaximum() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("list", 3, 3, 3, 2.0d, 0.5d, null);
+
+        runBatch(limiter, 10L, AdaptiveConcurrencyLimiter.Outcome.OVERLOAD);
+        runBatch(limiter, 10L, AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+
+        assertEquals(3, limiter.limit());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    /** Fills every free slot, then completes them all with the same latency and outcome. */
+    private static void runBatch(AdaptiveConcurrencyLimiter limiter, long latencyMs,
+                                 AdaptiveConcurrencyLimiter.Outcome outcome) {
+        int acquired = acquireAll(limiter);
+        for (int i = 0; i < acquired; i++) {
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(latencyMs), outcome);
+        }
+    }
+
+    private static int acquireAll(AdaptiveConcurrencyLimiter limiter) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        return acquired;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.musicwebdav.application.service;
+
+import com.example.musicwebdav.infrastructure.persistence.entity.TrackEntity;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class AudioProbeStateTest {
+
+    private static final LocalDateTime EARLIER = LocalDateTime.of(2026, 10, 1, 8, 0);
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 17, 8, 0);
+
+    @Test
+    void shouldSkipUnchangedFileReadBeforeWithoutDuration() {
+        TrackEntity existing = track(null, EARLIER);
+
+        Assertions.assertFalse(AudioProbeState.needsProbe(existing, false));
+        Assertions.assertTrue(AudioProbeState.needsProbe(existing, true));
+        Assertions.assertFalse(AudioProbeState.needsProbe(track(269, null), false));
+    }
+
+    @Test
+    void shouldStampReadWithoutDurationAndKeepDurationNull() {
+        TrackEntity existing = track(null, null);
+        Assertions.assertTrue(AudioProbeState.needsProbe(existing, false));
+
+        // The probe read the file but neither parser found a duration.
+        TrackEntity scanned = track(null, AudioProbeState.probedAt(existing, true, true, NOW));
+
+        Assertions.assertNull(scanned.getDurationSec());
+        Assertions.assertEquals(NOW, scanned.getAudioProbedAt());
+        Assertions.assertTrue(AudioProbeState.newlyProbed(existing, scanned));
+        Assertions.assertFalse(AudioProbeState.needsProbe(scanned, false));
+    }
+
+    @Test
+    void shouldRetryFileThatCouldNotBeFetched() {
+        TrackEntity existing = track(null, null);
+
+        TrackEntity scanned = track(null, AudioProbeState.probedAt(existing, true, false, NOW));
+
+        Assertions.assertNull(scanned.getAudioProbedAt());
+        Assertions.assertFalse(AudioProbeState.newlyProbed(existing, scanned));
+        Assertions.assertTrue(AudioProbeState.needsProbe(scanned, false));
+    }
+
+    @Test
+    void shouldForgetReadOfReplacedContent() {
+        TrackEntity existing = track(null, EARLIER);
+
+        Assertions.assertNull(AudioProbeState.probedAt(existing, false, false, NOW));
+        Assertions.assertEquals(EARLIER, AudioProbeState.probedAt(existing, true, false, NOW));
+    }
+
+    private static TrackEntity track(Integer durationSec, LocalDateTime audioProbedAt) {
+        TrackEntity entity = new TrackEntity();
+        entity.setDurationSec(durationSec);
+        entity.setAudioProbedAt(audioProbedAt);
+        return entity;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.musicwebdav.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.musicwebdav.common.util.HashUtil;
+import com.example.musicwebdav.infrastructure.persistence.entity.DirectorySignatureEntity;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DirectorySignatureIndexTest {
+
+    @Test
+    void shouldRoundTripSignatureFields() {
+        DirectorySignatureIndex index = new DirectorySignatureIndex(0);
+        String md5 = HashUtil.md5Hex("Music/Album");
+        LocalDateTime lastModified = LocalDateTime.of(2024, 5, 1, 12, 30, 15);
+
+        index.put(md5, "\"etag-1\"", lastModified, 12);
+
+        DirectorySignatureEntity found = index.get(md5);
+        assertNotNull(found);
+        assertEquals("\"etag-1\"", found.getDirEtag());
+        assertEquals(lastModified, found.getDirLastModified());
+        assertEquals(Integer.valueOf(12), found.getChildCount());
+        assertNull(index.get(HashUtil.md5Hex("Music/Other")));
+    }
+
+    @Test
+    void shouldExposeRowIdWhenLoaded() {
+        DirectorySignatureIndex index = new DirectorySignatureIndex(4);
+        String withId = HashUtil.md5Hex("Music/A/");
+        String withoutId = HashUtil.md5Hex("Music/B/");
+
+        index.put(withId, 42L, "\"etag\"", null, 3);
+        index.put(withoutId, "\"etag\"", null, 3);
+
+        assertEquals(Long.valueOf(42L), index.id(withId));
+        assertEquals(Long.valueOf(42L), index.get(withId).getId());
+        assertNull(index.id(withoutId));
+        assertNull(index.get(withoutId).getId());
+        assertNull(index.id(HashUtil.md5Hex("Music/C/")));
+    }
+
+    @Test
+    void shouldKeepNullFieldsAbsent() {
+        DirectorySignatureIndex index = new DirectorySignatureIndex(4);
+        String md5 = HashUtil.md5Hex("Music");
+
+        index.put(md5, null, null, null);
+
+        DirectorySignatureEntity found = index.get(md5);
+        assertNotNull(found);
+        assertNull(found.getDirEtag());
+        assertNull(found.getDirLastModified());
+        assertNull(found.getChildCount());
+    }
+
+    @Test
+    void shouldGrowAndReplaceExistingKeys() {
+        DirectorySignatureIndex index = new DirectorySignatureIndex(2);
+        for (int i = 0; i < 5000; i++) {
+            index.put(HashUtil.md5Hex("dir/" + i), "e" + i, null, i);
+        }
+        index.put(HashUtil.md5Hex("dir/42"), "replaced", null, 1);
+
+        assertEquals(5000, index.size());
+        assertEquals("e4999", index.get(HashUtil.md5Hex("dir/4999")).getDirEtag());
+        assertEquals("replaced", index.get(HashUtil.md5Hex("dir/42").toUpperCase()).getDirEtag());
+        assertNull(index.get("not-an-md5"));
+    }
+
+    @Test
+    void shouldCollectSubtreeIdsByParentLinks() {
+        DirectorySignatureIndex index = new DirectorySignatureIndex(4);
+        index.put(HashUtil.md5Hex(""), 1L, null, "r", null, 2);
+        index.put(HashUtil.md5Hex("a/"), 2L, 1L, "a", null, 2);
+        index.put(HashUtil.md5Hex("a/b/"), 3L, 2L, "b", null, 0);
+        index.put(HashUtil.md5Hex("a/c/"), 4L, 2L, "c", null, 0);
+        index.put(HashUtil.md5Hex("d/"), 5L, 1L, "d", null, 0);
+        for (int i = 0; i < 100; i++) {
+            index.put(HashUtil.md5Hex("a/b/" + i + "/"), 100L + i, 3L, null, null, 0);
+        }
+
+        List<Long> subtree = index.subtreeIds(HashUtil.md5Hex("a/"));
+
+        assertEquals(103, subtree.size());
+        assertEquals(Long.valueOf(2L), subtree.get(0));
+        assertTrue(subtree.containsAll(Arrays.asList(3L, 4L, 100L, 199L)));
+        assertFalse(subtree.contains(5L));
+        assertEquals(Arrays.asList(5L), index.subtreeIds(HashUtil.md5Hex("d/")));
+        assertTrue(index.subtreeIds(HashUtil.md5Hex("missing/")).isEmpty());
+    }
+}
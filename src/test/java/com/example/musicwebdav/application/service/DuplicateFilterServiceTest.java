@@ -0,0 +1,97 @@
+package com.example.musicwebdav.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.musicwebdav.common.util.NormalizedKeyUtil;
+import com.example.musicwebdav.infrastructure.persistence.entity.TrackEntity;
+import com.example.musicwebdav.infrastructure.persistence.mapper.TrackMapper;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.apache.ibatis.cursor.Cursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class DuplicateFilterServiceTest {
+
+    private TrackMapper trackMapper;
+    private DuplicateFilterService service;
+
+    @BeforeEach
+    void setUp() {
+        trackMapper = mock(TrackMapper.class);
+        service = new DuplicateFilterService(trackMapper, mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void shouldKeepLargestTrackPerNormalizedKeyInOnePass() {
+        stubCandidates(
+                track(1L, "Hello", "Adele", 100L),
+                track(2L, "  hello ", "ADELE", 300L),
+                track(3L, "HELLO", "adele", 300L),
+                track(4L, "Ｈｅｌｌｏ", "Ａｄｅｌｅ", 50L),
+                track(5L, "Hello", "Adele  Band", 60L),
+                track(6L, "Hello", "adele\u3000band", 70L),
+                track(7L, "Skyfall", "Adele", 10L));
+
+        List<Long> losers = service.findLosers(9L, null);
+
+        assertEquals(Arrays.asList(1L, 3L, 4L, 5L), losers);
+    }
+
+    @Test
+    void shouldLookUpOnlyTouchedKeysThroughIndex() {
+        TrackEntity touched = track(null, "SKYFALL ", "Adele", null);
+        touched.setNormTitle(NormalizedKeyUtil.normalize(touched.getTitle()));
+        touched.setNormArtist(NormalizedKeyUtil.normalize(touched.getArtist()));
+        // The lookup may match more loosely than the key (column collation); extra rows are ignored.
+        when(trackMapper.selectDedupCandidatesByNormKeys(eq(9L), anyList())).thenReturn(Arrays.asList(
+                track(1L, "Skyfall", "Adele", 10L),
+                track(2L, "skyfall", "adele", 20L),
+                track(3L, "Skyfáll", "Adele", 5L)));
+
+        List<Long> losers = service.findLosers(9L,
+                new HashSet<>(Collections.singletonList(DuplicateFilterService.dedupKey(touched))));
+
+        assertEquals(Collections.singletonList(1L), losers);
+        assertEquals(0, service.deduplicateTracks(9L, Collections.emptySet()));
+    }
+
+    @Test
+    void shouldMergeOnlyByteIdenticalCopiesInContentHashMode() {
+        TrackEntity studio = track(1L, "Hello", "Adele", 300L);
+        studio.setContentHash("aa");
+        TrackEntity renamedCopy = track(2L, "Hello (copy)", "Unknown", 300L);
+        renamedCopy.setContentHash("aa");
+        TrackEntity live = track(3L, "Hello", "Adele", 400L);
+        live.setContentHash("bb");
+        when(trackMapper.selectDedupCandidatesByContentHashes(eq(9L), anyList()))
+                .thenReturn(Arrays.asList(studio, renamedCopy, live));
+
+        List<Long> losers = service.findContentHashLosers(9L, new HashSet<>(Arrays.asList("aa", "bb")));
+
+        assertEquals(Collections.singletonList(2L), losers);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubCandidates(TrackEntity... rows) {
+        Cursor<TrackEntity> cursor = mock(Cursor.class);
+        when(cursor.iterator()).thenReturn(Arrays.asList(rows).iterator());
+        when(trackMapper.selectDedupCandidatesCursor(9L)).thenReturn(cursor);
+    }
+
+    private static TrackEntity track(Long id, String title, String artist, Long size) {
+        TrackEntity entity = new TrackEntity();
+        entity.setId(id);
+        entity.setTitle(title);
+        entity.setArtist(artist);
+        entity.setSourceSize(size);
+        return entity;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.musicwebdav.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.musicwebdav.infrastructure.persistence.mapper.ScanTaskMapper;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ScanCancellationRegistryTest {
+
+    private ScanTaskMapper scanTaskMapper;
+    private ScanCancellationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        scanTaskMapper = mock(ScanTaskMapper.class);
+        registry = new ScanCancellationRegistry(scanTaskMapper);
+    }
+
+    @Test
+    void shouldFlipTokenAndRunListenersOnceOnLocalCancel() {
+        ScanCancellationToken token = registry.register(7L);
+        AtomicInteger fired = new AtomicInteger();
+        token.onCancel(fired::incrementAndGet);
+
+        assertTrue(registry.cancel(7L));
+        assertFalse(registry.cancel(7L));
+
+        assertTrue(token.getAsBoolean());
+        assertEquals(1, fired.get());
+        verify(scanTaskMapper, never()).selectStatusById(any());
+    }
+
+    @Test
+    void shouldPickUpRemoteCancelFromBatchPoll() {
+        ScanCancellationToken canceled = registry.register(1L);
+        ScanCancellationToken running = registry.register(2L);
+        when(scanTaskMapper.selectIdsByIdsAndStatus(any(), eq("CANCELED")))
+                .thenReturn(Collections.singletonList(1L));
+
+        registry.pollRemoteCancellations();
+
+        assertTrue(canceled.getAsBoolean());
+        assertFalse(running.getAsBoolean());
+    }
+
+    @Test
+    void shouldSkipPollWhenNoTaskIsRunning() {
+        ScanCancellationToken token = registry.register(3L);
+        registry.unregister(3L);
+
+        registry.pollRemoteCancellations();
+
+        assertFalse(token.getAsBoolean());
+        verify(scanTaskMapper, never()).selectIdsByIdsAndStatus(any(), anyString());
+    }
+
+    @Test
+    void shouldRunLateListenerImmediately() {
+        ScanCancellationToken token = new ScanCancellationToken(9L);
+        token.cancel();
+        AtomicInteger fired = new AtomicInteger();
+
+        token.onCancel(fired::incrementAndGet);
+
+        assertEquals(1, fired.get());
+    }
+}
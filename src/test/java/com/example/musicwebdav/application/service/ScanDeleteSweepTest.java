@@ -0,0 +1,187 @@
+package com.example.musicwebdav.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.musicwebdav.infrastructure.persistence.entity.DirectorySignatureEntity;
+import com.example.musicwebdav.infrastructure.persistence.mapper.TrackMapper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ScanDeleteSweepTest {
+
+    private static final Long CONFIG_ID = 3L;
+    private static final Long GENERATION = 7L;
+
+    /** Directory row id by path md5, and the generation each row carries. */
+    private final Map<String, Long> dirIds = new HashMap<>();
+    private final Map<Long, Long> generations = new HashMap<>();
+    private final List<Long> softDeletedDirIds = new ArrayList<>();
+    private final List<Long> softDeletedTrackIds = new ArrayList<>();
+    private DirectorySignatureService signatures;
+    private ScanDeleteSweep sweep;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        directory("root", 1L);
+        directory("a", 2L);
+        directory("a/b", 3L);
+        directory("c", 4L);
+        signatures = mock(DirectorySignatureService.class);
+        TrackMapper trackMapper = mock(TrackMapper.class);
+        when(signatures.stampGeneration(eq(CONFIG_ID), anyList(), eq(GENERATION))).thenAnswer(invocation -> {
+            for (String md5 : (List<String>) invocation.getArgument(1)) {
+                generations.put(dirIds.get(md5), GENERATION);
+            }
+            return true;
+        });
+        when(signatures.stampGenerationByIds(eq(CONFIG_ID), anyList(), eq(GENERATION))).thenAnswer(invocation -> {
+            for (Long id : (List<Long>) invocation.getArgument(1)) {
+                generations.put(id, GENERATION);
+            }
+            return true;
+        });
+        when(signatures.selectStale(CONFIG_ID, GENERATION)).thenAnswer(invocation -> {
+            List<DirectorySignatureEntity> stale = new ArrayList<>();
+            for (Map.Entry<Long, Long> row : generations.entrySet()) {
+                if (!GENERATION.equals(row.getValue())) {
+                    DirectorySignatureEntity entity = new DirectorySignatureEntity();
+                    entity.setId(row.getKey());
+                    stale.add(entity);
+                }
+            }
+            return stale;
+        });
+        when(trackMapper.softDeleteByDirIdIn(eq(CONFIG_ID), anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(1);
+            softDeletedDirIds.addAll(ids);
+            return ids.size() * 10;
+        });
+        when(trackMapper.softDeleteByIds(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            softDeletedTrackIds.addAll(ids);
+            return ids.size();
+        });
+        sweep = new ScanDeleteSweep(signatures, trackMapper, CONFIG_ID, GENERATION, 100);
+    }
+
+    @Test
+    void shouldSweepDirectoriesMissingFromCompleteScan() {
+        rewritten("root");
+        rewritten("a");
+        sweep.stampSkipped("a/b");
+        sweep.flushStamps();
+
+        int deleted = sweep.sweepStaleDirectories(false);
+
+        assertEquals(Collections.singletonList(4L), softDeletedDirIds);
+        assertEquals(10, deleted);
+    }
+
+    @Test
+    void shouldKeepFilesOfSkippedSubtree() {
+        rewritten("root");
+        sweep.stampSubtree(Arrays.asList(2L, 3L));
+        sweep.stampSkipped("c");
+        sweep.flushStamps();
+
+        assertEquals(0, sweep.sweepStaleDirectories(false));
+        assertTrue(softDeletedDirIds.isEmpty());
+    }
+
+    @Test
+    void shouldNotSweepIncompleteGeneration() {
+        // "a" failed to list, so neither it nor "a/b" carries the generation.
+        rewritten("root");
+        rewritten("c");
+        sweep.markIncomplete();
+
+        assertEquals(0, sweep.sweepStaleDirectories(false));
+        assertTrue(softDeletedDirIds.isEmpty());
+
+        // Every directory listed, but some signature rows failed to write.
+        rewritten("a");
+        rewritten("a/b");
+        assertEquals(0, new ScanDeleteSweep(signatures, mock(TrackMapper.class), CONFIG_ID, GENERATION, 100)
+                .sweepStaleDirectories(true));
+    }
+
+    @Test
+    void shouldNotSweepWhenGenerationStampFails() {
+        when(signatures.stampGeneration(eq(CONFIG_ID), anyList(), eq(GENERATION))).thenReturn(false);
+        rewritten("root");
+        rewritten("c");
+        sweep.stampSkipped("a");
+        sweep.stampSkipped("a/b");
+        sweep.flushStamps();
+
+        assertTrue(sweep.isIncomplete());
+        assertEquals(0, sweep.sweepStaleDirectories(false));
+        assertTrue(softDeletedDirIds.isEmpty());
+    }
+
+    @Test
+    void shouldDeleteTracksNeverSeenDuringCompleteScan() throws Exception {
+        try (ScanSeenSet seenSet = liveTracks(11L, 12L, 13L, 14L)) {
+            seenSet.markSeen(Arrays.asList(11L, 13L));
+
+            assertEquals(2, sweep.deleteUnseen(seenSet));
+            assertEquals(Arrays.asList(12L, 14L), softDeletedTrackIds);
+        }
+    }
+
+    @Test
+    void shouldNotDeleteUnseenTracksAfterListFailure() throws Exception {
+        try (ScanSeenSet seenSet = liveTracks(11L, 12L)) {
+            // The directory holding track 12 failed to list, so nothing marked it.
+            seenSet.markSeen(Collections.singletonList(11L));
+            sweep.markIncomplete();
+
+            assertEquals(0, sweep.deleteUnseen(seenSet));
+            assertTrue(softDeletedTrackIds.isEmpty());
+        }
+    }
+
+    @Test
+    void shouldNotDeleteUnseenTracksAfterMergedEntryFailure() throws Exception {
+        try (ScanSeenSet seenSet = liveTracks(11L, 12L, 13L)) {
+            // One batch merged "root", "a" and "c"; "a" threw, so its track 12 was never marked seen.
+            seenSet.markSeen(Arrays.asList(11L, 13L));
+            sweep.directoryFailed("a");
+
+            assertTrue(sweep.isIncomplete());
+            assertEquals(0, sweep.deleteUnseen(seenSet));
+            assertTrue(softDeletedTrackIds.isEmpty());
+        }
+    }
+
+    private static ScanSeenSet liveTracks(long... ids) throws Exception {
+        ScanSeenSet seenSet = new ScanSeenSet(1_000_000);
+        for (long id : ids) {
+            seenSet.add(id);
+        }
+        seenSet.seal();
+        return seenSet;
+    }
+
+    private void directory(String pathMd5, Long id) {
+        dirIds.put(pathMd5, id);
+        generations.put(id, GENERATION - 1);
+    }
+
+    /** A processed directory gets the generation with its signature upsert. */
+    private void rewritten(String pathMd5) {
+        generations.put(dirIds.get(pathMd5), GENERATION);
+    }
+}
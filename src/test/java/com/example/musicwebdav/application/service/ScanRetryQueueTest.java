@@ -0,0 +1,73 @@
+package com.example.musicwebdav.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.musicwebdav.infrastructure.webdav.WebDavStatusException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import org.apache.http.client.HttpResponseException;
+import org.junit.jupiter.api.Test;
+
+class ScanRetryQueueTest {
+
+    @Test
+    void shouldRetryTransientErrorsOnly() {
+        assertEquals(ScanErrorClass.TIMEOUT, ScanErrorClass.of(
+                new IllegalStateException("列出WebDAV目录失败", new SocketTimeoutException("Read timed out"))));
+        assertEquals(ScanErrorClass.THROTTLED, ScanErrorClass.of(new WebDavStatusException(429, "slow down")));
+        assertEquals(ScanErrorClass.SERVER_ERROR, ScanErrorClass.of(new HttpResponseException(502, "bad gateway")));
+        assertEquals(ScanErrorClass.NETWORK, ScanErrorClass.of(new IOException("Connection reset")));
+        assertEquals(ScanErrorClass.AUTH, ScanErrorClass.of(new WebDavStatusException(401, "unauthorized")));
+        assertEquals(ScanErrorClass.NOT_FOUND, ScanErrorClass.of(new WebDavStatusException(404, "missing")));
+        assertEquals(ScanErrorClass.OTHER, ScanErrorClass.of(new IllegalArgumentException("bad path")));
+
+        ScanRetryQueue<String> queue = new ScanRetryQueue<>(3, 1L, 10L);
+        assertEquals(-1L, queue.offer("/a", 1, ScanErrorClass.AUTH));
+        assertEquals(-1L, queue.offer("/a", 1, ScanErrorClass.NOT_FOUND));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void shouldStopAfterMaxRetries() {
+        ScanRetryQueue<String> queue = new ScanRetryQueue<>(2, 1L, 10L);
+
+        assertTrue(queue.offer("/a", 1, ScanErrorClass.TIMEOUT) >= 0L);
+        assertTrue(queue.offer("/a", 2, ScanErrorClass.TIMEOUT) >= 0L);
+        assertEquals(-1L, queue.offer("/a", 3, ScanErrorClass.TIMEOUT));
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    void shouldBackOffExponentiallyWithJitterUpToCap() {
+        ScanRetryQueue<String> queue = new ScanRetryQueue<>(10, 100L, 1000L);
+
+        for (int i = 0; i < 50; i++) {
+            long first = queue.delayMillis(1, ScanErrorClass.TIMEOUT);
+            assertTrue(first >= 50L && first <= 100L, "first=" + first);
+            long third = queue.delayMillis(3, ScanErrorClass.TIMEOUT);
+            assertTrue(third >= 200L && third <= 400L, "third=" + third);
+            long throttled = queue.delayMillis(1, ScanErrorClass.THROTTLED);
+            assertTrue(throttled >= 200L && throttled <= 400L, "throttled=" + throttled);
+            long capped = queue.delayMillis(10, ScanErrorClass.TIMEOUT);
+            assertTrue(capped >= 500L && capped <= 1000L, "capped=" + capped);
+        }
+    }
+
+    @Test
+    void shouldHandOutItemsOnlyOnceDue() throws Exception {
+        ScanRetryQueue<String> queue = new ScanRetryQueue<>(3, 10_000L, 10_000L);
+
+        queue.offer("/slow", 1, ScanErrorClass.TIMEOUT);
+        queue.requeue("/due");
+
+        assertTrue(queue.hasDue());
+        assertEquals("/due", queue.poll());
+        assertFalse(queue.hasDue());
+        assertNull(queue.poll());
+        assertNull(queue.poll(20L));
+        assertEquals(1, queue.size());
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.musicwebdav.application.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ScanSeenSetTest {
+
+    @Test
+    void shouldReportUnseenIdsInBatchesAndIgnoreUnknownOnes() throws Exception {
+        try (ScanSeenSet seenSet = new ScanSeenSet(1_000_000)) {
+            for (long id : new long[] {9L, 3L, 7L, 1L, 5L}) {
+                seenSet.add(id);
+            }
+            seenSet.seal();
+
+            seenSet.markSeen(Arrays.asList(3L, 42L, null, 9L));
+
+            List<List<Long>> batches = new ArrayList<>();
+            int unseen = seenSet.forEachUnseen(2, batches::add);
+
+            Assertions.assertEquals(3, unseen);
+            Assertions.assertEquals(Arrays.asList(Arrays.asList(1L, 5L), Arrays.asList(7L)), batches);
+            Assertions.assertTrue(seenSet.isSeen(9L));
+            Assertions.assertFalse(seenSet.isSeen(42L));
+            Assertions.assertFalse(seenSet.isSpilled());
+        }
+    }
+
+    @Test
+    void shouldSpillSortedIdsPastInMemoryLimit() throws Exception {
+        List<Long> seen = new ArrayList<>();
+        try (ScanSeenSet seenSet = new ScanSeenSet(0)) {
+            for (long id = 1; id <= 5000; id++) {
+                seenSet.add(id * 2);
+                if (id != 2500) {
+                    seen.add(id * 2);
+                }
+            }
+            seenSet.seal();
+            seenSet.markSeen(seen);
+
+            List<Long> unseen = new ArrayList<>();
+            seenSet.forEachUnseen(100, unseen::addAll);
+
+            Assertions.assertTrue(seenSet.isSpilled());
+            Assertions.assertEquals(5000, seenSet.size());
+            Assertions.assertEquals(Arrays.asList(5000L), unseen);
+        }
+    }
+}
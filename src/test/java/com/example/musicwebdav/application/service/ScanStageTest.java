@@ -0,0 +1,132 @@
+package com.example.musicwebdav.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ScanStageTest {
+
+    @Test
+    void shouldBlockSubmitWhileStageIsFull() throws Exception {
+        ScanStage stage = new ScanStage("test", 1, 1, Executors.defaultThreadFactory(), null, null);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            stage.submit(() -> awaitQuietly(release));
+            stage.submit(() -> { });
+
+            AtomicBoolean thirdAccepted = new AtomicBoolean();
+            Thread producer = new Thread(() -> {
+                stage.submit(() -> { });
+                thirdAccepted.set(true);
+            });
+            producer.start();
+            producer.join(300);
+            assertFalse(thirdAccepted.get(), "submit should wait for a free slot");
+            assertEquals(1, stage.queueDepth());
+
+            release.countDown();
+            producer.join(2000);
+            assertTrue(thirdAccepted.get());
+            assertTrue(stage.awaitIdle());
+            assertEquals(0, stage.inFlight());
+        } finally {
+            release.countDown();
+            stage.shutdown(0L);
+        }
+    }
+
+    @Test
+    void shouldRethrowFirstTaskFailureOnAwait() {
+        ScanStage stage = new ScanStage("test", 2, 4, Executors.defaultThreadFactory(), null, null);
+        try {
+            stage.submit(() -> {
+                throw new IllegalArgumentException("boom");
+            });
+            IllegalStateException error = assertThrows(IllegalStateException.class, stage::awaitIdle);
+            assertTrue(error.getCause() instanceof IllegalArgumentException);
+        } finally {
+            stage.shutdown(0L);
+        }
+    }
+
+    @Test
+    void shouldRefuseSubmitAndInterruptRunningWorkAfterCancel() throws Exception {
+        AtomicBoolean canceled = new AtomicBoolean();
+        ScanStage stage = new ScanStage("test", 1, 0, Executors.defaultThreadFactory(), canceled::get, null);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        try {
+            stage.submit(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(10_000L);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+                finished.countDown();
+            });
+            assertTrue(started.await(2, TimeUnit.SECONDS));
+
+            canceled.set(true);
+            assertThrows(CancellationException.class, () -> stage.submit(() -> { }));
+
+            stage.interruptRunning();
+            assertTrue(finished.await(2, TimeUnit.SECONDS));
+            assertTrue(interrupted.get());
+        } finally {
+            stage.shutdown(0L);
+        }
+    }
+
+    @Test
+    void shouldCapSharedPoolUseAtWorkerCountAndLeavePoolRunning() throws Exception {
+        ExecutorService shared = Executors.newFixedThreadPool(4);
+        ScanStage stage = new ScanStage("test", 2, 8, shared, null, null);
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        try {
+            for (int i = 0; i < 8; i++) {
+                stage.submit(() -> {
+                    peak.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                    sleepQuietly(20L);
+                    concurrent.decrementAndGet();
+                });
+            }
+            assertTrue(stage.awaitIdle());
+            assertEquals(2, peak.get());
+
+            stage.shutdown(0L);
+            assertFalse(shared.isShutdown());
+        } finally {
+            stage.shutdown(0L);
+            shared.shutdownNow();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
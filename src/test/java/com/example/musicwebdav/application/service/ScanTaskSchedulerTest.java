@@ -0,0 +1,107 @@
+package com.example.musicwebdav.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.musicwebdav.common.config.AppScanProperties;
+import com.example.musicwebdav.infrastructure.persistence.entity.ScanTaskEntity;
+import com.example.musicwebdav.infrastructure.persistence.mapper.ScanTaskMapper;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class ScanTaskSchedulerTest {
+
+    @Test
+    void shouldQueueTasksBeyondSlotsAndEstimateFromLastDuration() throws Exception {
+        ScanTaskMapper scanTaskMapper = mock(ScanTaskMapper.class);
+        ScanTaskEntity last = new ScanTaskEntity();
+        last.setStartTime(LocalDateTime.of(2026, 1, 1, 3, 0, 0));
+        last.setEndTime(LocalDateTime.of(2026, 1, 1, 3, 1, 0));
+        when(scanTaskMapper.selectLastFinishedByConfigId(1L)).thenReturn(last);
+        when(scanTaskMapper.selectLastFinishedByConfigId(2L)).thenReturn(last);
+        ScanTaskScheduler scheduler = new ScanTaskScheduler(properties(1), scanTaskMapper);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        try {
+            scheduler.submit(10L, 1L, () -> awaitQuietly(release));
+            scheduler.submit(11L, 1L, done::countDown);
+            scheduler.submit(12L, 2L, done::countDown);
+
+            assertEquals(0, scheduler.estimate(10L, 50).getQueuePosition());
+            // Config 1 is already running, so config 2's task is next.
+            ScanTaskScheduler.Estimate first = scheduler.estimate(12L, null);
+            assertEquals(1, first.getQueuePosition());
+            assertTrue(first.getEtaSeconds() >= 119L && first.getEtaSeconds() <= 120L,
+                    "eta=" + first.getEtaSeconds());
+            ScanTaskScheduler.Estimate second = scheduler.estimate(11L, null);
+            assertEquals(2, second.getQueuePosition());
+            assertTrue(second.getEtaSeconds() >= 179L && second.getEtaSeconds() <= 180L,
+                    "eta=" + second.getEtaSeconds());
+
+            assertTrue(scheduler.cancel(11L));
+            assertFalse(scheduler.cancel(10L));
+            release.countDown();
+            assertFalse(done.await(300, TimeUnit.MILLISECONDS));
+            assertEquals(1L, done.getCount());
+            assertNull(scheduler.estimate(12L, null));
+        } finally {
+            release.countDown();
+            scheduler.destroy();
+        }
+    }
+
+    @Test
+    void shouldRunLeastServedConfigFirst() throws Exception {
+        ScanTaskScheduler scheduler = new ScanTaskScheduler(properties(1), mock(ScanTaskMapper.class));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        List<Long> order = new CopyOnWriteArrayList<>();
+        try {
+            scheduler.submit(1L, 1L, () -> {
+                awaitQuietly(release);
+                done.countDown();
+            });
+            scheduler.submit(2L, 1L, () -> {
+                order.add(2L);
+                done.countDown();
+            });
+            scheduler.submit(3L, 2L, () -> {
+                order.add(3L);
+                done.countDown();
+            });
+            Thread.sleep(50L);
+            release.countDown();
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(3L, order.get(0));
+            assertEquals(2L, order.get(1));
+        } finally {
+            release.countDown();
+            scheduler.destroy();
+        }
+    }
+
+    private static AppScanProperties properties(int maxConcurrentScans) {
+        AppScanProperties properties = new AppScanProperties();
+        properties.setSchedulerMaxConcurrentScans(maxConcurrentScans);
+        properties.setSchedulerListWorkers(2);
+        properties.setSchedulerProcessWorkers(2);
+        return properties;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
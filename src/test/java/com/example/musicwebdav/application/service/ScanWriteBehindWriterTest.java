@@ -0,0 +1,117 @@
+package com.example.musicwebdav.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.musicwebdav.infrastructure.persistence.BatchMapperSession;
+import com.example.musicwebdav.infrastructure.persistence.entity.TrackEntity;
+import com.example.musicwebdav.infrastructure.persistence.mapper.TrackMapper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ScanWriteBehindWriterTest {
+
+    private TrackMapper trackMapper;
+    private TransactionTemplate transactionTemplate;
+    private ScanWriteBehindWriter writer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        trackMapper = mock(TrackMapper.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.close(1000L);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldCoalesceQueuedFlushesIntoOneCommitSplitByStatementRows() {
+        // Long delay: nothing commits until a worker waits for durability.
+        writer = newWriter(2, 10_000L);
+
+        writer.enqueue(tracks("a", "b"), null);
+        writer.enqueue(tracks("c"), Collections.singletonList("t1"));
+        long seq = writer.enqueue(null, Arrays.asList("t2", "t3"));
+        writer.awaitDurable(seq);
+
+        ArgumentCaptor<List<TrackEntity>> statements = ArgumentCaptor.forClass(List.class);
+        verify(trackMapper, times(2)).batchUpsert(statements.capture());
+        assertEquals(2, statements.getAllValues().get(0).size());
+        assertEquals(1, statements.getAllValues().get(1).size());
+        verify(trackMapper).touchLastScanTaskByPathMd5In(eq(7L), eq(3L), eq(Arrays.asList("t1", "t2", "t3")));
+        verify(transactionTemplate, times(1)).execute(any());
+        assertEquals(1L, writer.getCommitCount());
+    }
+
+    @Test
+    void shouldReplayFailedGroupRowByRow() {
+        doThrow(new IllegalStateException("deadlock")).when(trackMapper).batchUpsert(anyList());
+        writer = newWriter(100, 10L);
+
+        long seq = writer.enqueue(tracks("a", "b"), Collections.singletonList("t1"));
+        writer.awaitDurable(seq);
+
+        verify(trackMapper, times(2)).upsert(any(TrackEntity.class));
+        verify(trackMapper).touchLastScanTaskByPathMd5In(7L, 3L, Collections.singletonList("t1"));
+        assertEquals(1L, writer.getFallbackCount());
+        assertEquals(0L, writer.getCommitCount());
+    }
+
+    @Test
+    void shouldWriteTracksThroughBatchSessionInSizerChunks() {
+        BatchMapperSession batchSession = mock(BatchMapperSession.class);
+        TrackMapper batchTrackMapper = mock(TrackMapper.class);
+        when(batchSession.trackMapper()).thenReturn(batchTrackMapper);
+        writer = new ScanWriteBehindWriter(7L, 3L, trackMapper, transactionTemplate, null,
+                100, 1 << 20, 10_000, 8L << 20, 10L, 16,
+                batchSession, new AdaptiveBatchSizer(2, 2, 2, 10_000L));
+
+        long seq = writer.enqueue(tracks("a", "b", "c"), Arrays.asList("t1", "t2"));
+        writer.awaitDurable(seq);
+
+        verify(batchTrackMapper, times(3)).upsert(any(TrackEntity.class));
+        verify(batchTrackMapper).touchLastScanTaskByPathMd5In(7L, 3L, Arrays.asList("t1", "t2"));
+        // Two track chunks (2 + 1) and one touch flush.
+        verify(batchSession, times(3)).flushStatements();
+        verify(trackMapper, times(0)).batchUpsert(anyList());
+        assertEquals(1L, writer.getCommitCount());
+    }
+
+    private ScanWriteBehindWriter newWriter(int statementMaxRows, long maxDelayMs) {
+        return new ScanWriteBehindWriter(7L, 3L, trackMapper, transactionTemplate, null,
+                statementMaxRows, 1 << 20, 10_000, 8L << 20, maxDelayMs, 16);
+    }
+
+    private static List<TrackEntity> tracks(String... paths) {
+        List<TrackEntity> tracks = new ArrayList<>();
+        for (String path : paths) {
+            TrackEntity entity = new TrackEntity();
+            entity.setSourcePath(path);
+            tracks.add(entity);
+        }
+        return tracks;
+    }
+}
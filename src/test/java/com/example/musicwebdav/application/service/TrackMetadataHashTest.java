@@ -0,0 +1,58 @@
+package com.example.musicwebdav.application.service;
+
+import com.example.musicwebdav.common.util.HashUtil;
+import com.example.musicwebdav.infrastructure.persistence.entity.TrackEntity;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TrackMetadataHashTest {
+
+    @Test
+    void shouldMatchConcatWsFormUsedByMigrationBackfill() {
+        TrackEntity entity = track();
+        // MD5(CONCAT_WS(CHAR(1), ...)) in V15, with NULL album_artist/genre/cover/lyric and disc_no as ''.
+        String expected = HashUtil.md5Hex(String.join("\u0001",
+                "晴天", "周杰伦", "叶惠美", "", "", "audio/flac", "", "",
+                "3", "", "2003", "269", "", "", "", "1", "0"));
+
+        Assertions.assertEquals(expected, TrackMetadataHash.of(entity));
+    }
+
+    @Test
+    void shouldIgnoreSurroundingWhitespaceAndTreatNullAsEmpty() {
+        TrackEntity entity = track();
+        TrackEntity padded = track();
+        padded.setTitle("  晴天 ");
+        padded.setGenre("");
+
+        Assertions.assertEquals(TrackMetadataHash.of(entity), TrackMetadataHash.of(padded));
+    }
+
+    @Test
+    void shouldChangeWhenAnyScannedFieldChanges() {
+        String base = TrackMetadataHash.of(track());
+
+        TrackEntity lyric = track();
+        lyric.setHasLyric(1);
+        lyric.setLyricPath("周杰伦/叶惠美/03 晴天.lrc");
+        TrackEntity duration = track();
+        duration.setDurationSec(270);
+
+        Assertions.assertNotEquals(base, TrackMetadataHash.of(lyric));
+        Assertions.assertNotEquals(base, TrackMetadataHash.of(duration));
+    }
+
+    private static TrackEntity track() {
+        TrackEntity entity = new TrackEntity();
+        entity.setTitle("晴天");
+        entity.setArtist("周杰伦");
+        entity.setAlbum("叶惠美");
+        entity.setMimeType("audio/flac");
+        entity.setTrackNo(3);
+        entity.setYear(2003);
+        entity.setDurationSec(269);
+        entity.setHasCover(1);
+        entity.setHasLyric(0);
+        return entity;
+    }
+}
@@ -14,6 +14,7 @@ import com.example.musicwebdav.infrastructure.persistence.entity.TrackEntity;
 import com.example.musicwebdav.infrastructure.persistence.mapper.TrackMapper;
 import com.example.musicwebdav.infrastructure.persistence.mapper.WebDavConfigMapper;
 import com.example.musicwebdav.infrastructure.webdav.WebDavClient;
+import com.example.musicwebdav.infrastructure.webdav.WebDavHttpClientRegistry;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
@@ -51,6 +52,7 @@ class TrackPlaybackServiceTest {
                 playbackControlService,
                 playbackProperties,
                 new AppWebDavProperties(),
+                new WebDavHttpClientRegistry(new AppWebDavProperties()),
                 beanProvider(meterRegistry)
         );
 
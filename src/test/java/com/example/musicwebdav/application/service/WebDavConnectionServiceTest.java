@@ -169,6 +169,7 @@ class WebDavConnectionServiceTest {
         assertEquals("/new", config.getRootPath());
         assertEquals("new-pass", AesCryptoUtil.decrypt(config.getPasswordEnc(), "1234567890abcdef"));
         verify(webDavConfigMapper).updateById(config);
+        verify(webDavClient).invalidateConnections("old-user", "old-pass");
     }
 
     @Test
@@ -0,0 +1,207 @@
+package com.example.musicwebdav.infrastructure.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds small but structurally valid MP3 / FLAC / M4A files for parser tests and benchmarks.
+ */
+final class AudioFixtures {
+
+    static final int MP3_FRAME_BYTES = 417;
+    static final int MP3_FRAME_COUNT = 383;
+
+    private AudioFixtures() {
+    }
+
+    /**
+     * ID3v2.3 tag (title/artist/album/track/genre/APIC) followed by CBR MPEG-1 Layer III, 128 kbps, 44.1 kHz, stereo.
+     */
+    static byte[] mp3() {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        writeTextFrame(frames, "TIT2", "晴天");
+        writeTextFrame(frames, "TPE1", "周杰伦");
+        writeTextFrame(frames, "TALB", "叶惠美");
+        writeTextFrame(frames, "TRCK", "3/12");
+        writeTextFrame(frames, "TYER", "2003");
+        writeTextFrame(frames, "TCON", "(13)");
+        byte[] picture = concat(new byte[]{0}, ascii("image/jpeg"), new byte[]{0, 3, 0}, new byte[64]);
+        writeFrame(frames, "APIC", picture);
+        byte[] tagBody = frames.toByteArray();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('I');
+        out.write('D');
+        out.write('3');
+        out.write(3);
+        out.write(0);
+        out.write(0);
+        writeSyncSafe(out, tagBody.length);
+        out.write(tagBody, 0, tagBody.length);
+        byte[] frame = new byte[MP3_FRAME_BYTES];
+        frame[0] = (byte) 0xFF;
+        frame[1] = (byte) 0xFB;
+        frame[2] = (byte) 0x90;
+        frame[3] = 0x00;
+        for (int i = 0; i < MP3_FRAME_COUNT; i++) {
+            out.write(frame, 0, frame.length);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * STREAMINFO (44.1 kHz, stereo, 30 s), VORBIS_COMMENT and PICTURE blocks, then opaque frame bytes.
+     */
+    static byte[] flac() {
+        return concat(ascii("fLaC"), flacBlocks(), new byte[64 * 1024]);
+    }
+
+    /**
+     * FLAC stream with an ID3v2 tag in front of the {@code fLaC} marker, as some taggers write.
+     */
+    static byte[] flacWithId3Prefix() {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        writeTextFrame(frames, "TIT2", "ignored");
+        byte[] tagBody = frames.toByteArray();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] header = {'I', 'D', '3', 3, 0, 0};
+        out.write(header, 0, header.length);
+        writeSyncSafe(out, tagBody.length);
+        out.write(tagBody, 0, tagBody.length);
+        byte[] flac = flac();
+        out.write(flac, 0, flac.length);
+        return out.toByteArray();
+    }
+
+    private static byte[] flacBlocks() {
+        ByteBuffer streamInfo = ByteBuffer.allocate(34);
+        streamInfo.putShort((short) 4096).putShort((short) 4096);
+        streamInfo.position(10);
+        long sampleRate = 44100;
+        long channelsMinusOne = 1;
+        long bitsMinusOne = 15;
+        long totalSamples = 44100L * 30;
+        streamInfo.putLong((sampleRate << 44) | (channelsMinusOne << 41) | (bitsMinusOne << 36) | totalSamples);
+
+        ByteArrayOutputStream comments = new ByteArrayOutputStream();
+        writeLittleEndianString(comments, "reference libFLAC 1.3.2");
+        String[] entries = {"TITLE=Clair de Lune", "ARTIST=Debussy", "ALBUM=Suite bergamasque",
+                "ALBUMARTIST=Various", "TRACKNUMBER=3", "DISCNUMBER=1/2", "DATE=1905-01-01", "GENRE=Classical"};
+        writeLittleEndianInt(comments, entries.length);
+        for (String entry : entries) {
+            writeLittleEndianString(comments, entry);
+        }
+        return concat(
+                flacBlockHeader(0, false, 34), streamInfo.array(),
+                flacBlockHeader(4, false, comments.size()), comments.toByteArray(),
+                flacBlockHeader(6, true, 32), new byte[32]);
+    }
+
+    /**
+     * iTunes-style M4A: ftyp, mdat before moov (like a non-faststart encode), AAC stereo 44.1 kHz, 12 s, 256 kbps.
+     */
+    static byte[] m4a() {
+        byte[] ftyp = atom("ftyp", concat(ascii("M4A "), intBytes(0), ascii("M4A mp42isom")));
+        byte[] mdat = atom("mdat", new byte[96 * 1024]);
+
+        ByteBuffer mvhd = ByteBuffer.allocate(100);
+        mvhd.putInt(0).putInt(0).putInt(0).putInt(600).putInt(600 * 12);
+        ByteBuffer mdhd = ByteBuffer.allocate(24);
+        mdhd.putInt(0).putInt(0).putInt(0).putInt(44100).putInt(44100 * 12).putInt(0);
+        ByteBuffer hdlr = ByteBuffer.allocate(24);
+        hdlr.putInt(0).putInt(0).put(ascii("soun"));
+
+        ByteBuffer esdsBody = ByteBuffer.allocate(4 + 2 + 3 + 2 + 13);
+        esdsBody.putInt(0);
+        esdsBody.put((byte) 0x03).put((byte) 16).putShort((short) 1).put((byte) 0);
+        esdsBody.put((byte) 0x04).put((byte) 13).put((byte) 0x40).put((byte) 0x15);
+        esdsBody.put(new byte[3]).putInt(320000).putInt(256000);
+        ByteBuffer mp4aFields = ByteBuffer.allocate(28);
+        mp4aFields.put(new byte[6]).putShort((short) 1).putShort((short) 0).put(new byte[6])
+                .putShort((short) 2).putShort((short) 16).putShort((short) 0).putShort((short) 0)
+                .putInt(44100 << 16);
+        byte[] mp4a = atom("mp4a", concat(mp4aFields.array(), atom("esds", esdsBody.array())));
+        byte[] stsd = atom("stsd", concat(intBytes(0), intBytes(1), mp4a));
+        byte[] trak = atom("trak", atom("mdia", concat(atom("mdhd", mdhd.array()), atom("hdlr", hdlr.array()),
+                atom("minf", atom("stbl", stsd)))));
+
+        byte[] ilst = atom("ilst", concat(
+                atom("©nam", dataAtom(1, "Blue in Green".getBytes(StandardCharsets.UTF_8))),
+                atom("©ART", dataAtom(1, ascii("Miles Davis"))),
+                atom("©alb", dataAtom(1, ascii("Kind of Blue"))),
+                atom("aART", dataAtom(1, ascii("Miles Davis"))),
+                atom("trkn", dataAtom(0, new byte[]{0, 0, 0, 3, 0, 5, 0, 0})),
+                atom("disk", dataAtom(0, new byte[]{0, 0, 0, 1, 0, 1})),
+                atom("©day", dataAtom(1, ascii("1959-08-17"))),
+                atom("gnre", dataAtom(0, new byte[]{0, 9})),
+                atom("covr", dataAtom(13, new byte[128]))));
+        byte[] metaHdlr = atom("hdlr", concat(new byte[8], ascii("mdir"), new byte[13]));
+        byte[] udta = atom("udta", atom("meta", concat(intBytes(0), metaHdlr, ilst)));
+        byte[] moov = atom("moov", concat(atom("mvhd", mvhd.array()), trak, udta));
+        return concat(ftyp, mdat, moov);
+    }
+
+    static byte[] ogg() {
+        return concat(ascii("OggS"), new byte[4096]);
+    }
+
+    private static byte[] dataAtom(int type, byte[] value) {
+        return atom("data", concat(intBytes(type), intBytes(0), value));
+    }
+
+    private static byte[] atom(String type, byte[] body) {
+        return concat(intBytes(8 + body.length), type.getBytes(StandardCharsets.ISO_8859_1), body);
+    }
+
+    private static byte[] flacBlockHeader(int type, boolean last, int length) {
+        return new byte[]{(byte) ((last ? 0x80 : 0) | type), (byte) (length >>> 16), (byte) (length >>> 8),
+                (byte) length};
+    }
+
+    private static void writeTextFrame(ByteArrayOutputStream out, String id, String text) {
+        byte[] utf16 = text.getBytes(StandardCharsets.UTF_16);
+        writeFrame(out, id, concat(new byte[]{1}, utf16));
+    }
+
+    private static void writeFrame(ByteArrayOutputStream out, String id, byte[] body) {
+        byte[] header = concat(ascii(id), intBytes(body.length), new byte[2]);
+        out.write(header, 0, header.length);
+        out.write(body, 0, body.length);
+    }
+
+    private static void writeSyncSafe(ByteArrayOutputStream out, int value) {
+        out.write((value >>> 21) & 0x7F);
+        out.write((value >>> 14) & 0x7F);
+        out.write((value >>> 7) & 0x7F);
+        out.write(value & 0x7F);
+    }
+
+    private static void writeLittleEndianString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeLittleEndianInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeLittleEndianInt(ByteArrayOutputStream out, int value) {
+        byte[] bytes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static byte[] intBytes(int value) {
+        return ByteBuffer.allocate(4).putInt(value).array();
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.musicwebdav.infrastructure.parser;
+
+import com.example.musicwebdav.domain.model.AudioMetadata;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class AudioHeaderProbeTest {
+
+    @Test
+    void shouldProbeMp3WithoutReadingTagFrames() throws Exception {
+        CountingChannel channel = new CountingChannel(AudioFixtures.mp3());
+
+        AudioMetadata metadata = AudioHeaderProbe.probe(channel);
+
+        Assertions.assertNotNull(metadata);
+        Assertions.assertNull(metadata.getTitle());
+        Assertions.assertEquals(Integer.valueOf(10), metadata.getDurationSec());
+        Assertions.assertEquals(Integer.valueOf(128), metadata.getBitrate());
+        Assertions.assertEquals(Integer.valueOf(44100), metadata.getSampleRate());
+        Assertions.assertEquals(Integer.valueOf(2), metadata.getChannels());
+        Assertions.assertTrue(channel.bytesRead <= 10 * 1024, "read " + channel.bytesRead + " bytes");
+    }
+
+    @Test
+    void shouldProbeFlacStreamInfo() throws Exception {
+        CountingChannel channel = new CountingChannel(AudioFixtures.flac());
+
+        AudioMetadata metadata = AudioHeaderProbe.probe(channel);
+
+        Assertions.assertNotNull(metadata);
+        Assertions.assertNull(metadata.getTitle());
+        Assertions.assertEquals(Integer.valueOf(30), metadata.getDurationSec());
+        Assertions.assertEquals(Integer.valueOf(44100), metadata.getSampleRate());
+        Assertions.assertEquals(Integer.valueOf(2), metadata.getChannels());
+        Assertions.assertTrue(channel.bytesRead <= 1024, "read " + channel.bytesRead + " bytes");
+    }
+
+    @Test
+    void shouldProbeM4aWithoutEnteringUdta() throws Exception {
+        CountingChannel channel = new CountingChannel(AudioFixtures.m4a());
+
+        AudioMetadata metadata = AudioHeaderProbe.probe(channel);
+
+        Assertions.assertNotNull(metadata);
+        Assertions.assertNull(metadata.getTitle());
+        Assertions.assertEquals(Integer.valueOf(12), metadata.getDurationSec());
+        Assertions.assertEquals(Integer.valueOf(256), metadata.getBitrate());
+        Assertions.assertEquals(Integer.valueOf(44100), metadata.getSampleRate());
+        Assertions.assertEquals(Integer.valueOf(2), metadata.getChannels());
+        Assertions.assertTrue(channel.bytesRead <= 1024, "read " + channel.bytesRead + " bytes");
+    }
+
+    @Test
+    void shouldReturnNullWhenInconclusive() throws Exception {
+        Assertions.assertNull(AudioHeaderProbe.probe(new CountingChannel(AudioFixtures.ogg())));
+    }
+
+    private static final class CountingChannel extends ByteBufferSeekableChannel {
+        private long bytesRead;
+
+        private CountingChannel(byte[] source) {
+            super(source);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws ClosedChannelException {
+            int read = super.read(dst);
+            if (read > 0) {
+                bytesRead += read;
+            }
+            return read;
+        }
+    }
+}
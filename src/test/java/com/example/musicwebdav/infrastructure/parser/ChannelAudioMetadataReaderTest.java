@@ -0,0 +1,80 @@
+package com.example.musicwebdav.infrastructure.parser;
+
+import com.example.musicwebdav.domain.model.AudioMetadata;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ChannelAudioMetadataReaderTest {
+
+    @Test
+    void shouldReadId3TagsAndCbrPropertiesFromMp3() throws Exception {
+        AudioMetadata metadata = ChannelAudioMetadataReader.read(new ByteBufferSeekableChannel(AudioFixtures.mp3()));
+
+        Assertions.assertNotNull(metadata);
+        Assertions.assertEquals("晴天", metadata.getTitle());
+        Assertions.assertEquals("周杰伦", metadata.getArtist());
+        Assertions.assertEquals("叶惠美", metadata.getAlbum());
+        Assertions.assertEquals(Integer.valueOf(3), metadata.getTrackNo());
+        Assertions.assertEquals(Integer.valueOf(2003), metadata.getYear());
+        Assertions.assertEquals("Pop", metadata.getGenre());
+        Assertions.assertTrue(metadata.getHasCover());
+        Assertions.assertEquals(Integer.valueOf(10), metadata.getDurationSec());
+        Assertions.assertEquals(Integer.valueOf(128), metadata.getBitrate());
+        Assertions.assertEquals(Integer.valueOf(44100), metadata.getSampleRate());
+        Assertions.assertEquals(Integer.valueOf(2), metadata.getChannels());
+    }
+
+    @Test
+    void shouldReadStreamInfoAndVorbisCommentsFromFlac() throws Exception {
+        AudioMetadata metadata = ChannelAudioMetadataReader.read(new ByteBufferSeekableChannel(AudioFixtures.flac()));
+
+        Assertions.assertNotNull(metadata);
+        Assertions.assertEquals("Clair de Lune", metadata.getTitle());
+        Assertions.assertEquals("Debussy", metadata.getArtist());
+        Assertions.assertEquals("Suite bergamasque", metadata.getAlbum());
+        Assertions.assertEquals("Various", metadata.getAlbumArtist());
+        Assertions.assertEquals(Integer.valueOf(3), metadata.getTrackNo());
+        Assertions.assertEquals(Integer.valueOf(1), metadata.getDiscNo());
+        Assertions.assertEquals(Integer.valueOf(1905), metadata.getYear());
+        Assertions.assertEquals("Classical", metadata.getGenre());
+        Assertions.assertTrue(metadata.getHasCover());
+        Assertions.assertEquals(Integer.valueOf(30), metadata.getDurationSec());
+        Assertions.assertEquals(Integer.valueOf(44100), metadata.getSampleRate());
+        Assertions.assertEquals(Integer.valueOf(2), metadata.getChannels());
+    }
+
+    @Test
+    void shouldSkipId3PrefixInFrontOfFlac() throws Exception {
+        AudioMetadata metadata = ChannelAudioMetadataReader.read(
+                new ByteBufferSeekableChannel(AudioFixtures.flacWithId3Prefix()));
+
+        Assertions.assertNotNull(metadata);
+        Assertions.assertEquals("Clair de Lune", metadata.getTitle());
+        Assertions.assertEquals(Integer.valueOf(30), metadata.getDurationSec());
+    }
+
+    @Test
+    void shouldReadIlstItemsAndAudioTrackFromM4a() throws Exception {
+        AudioMetadata metadata = ChannelAudioMetadataReader.read(new ByteBufferSeekableChannel(AudioFixtures.m4a()));
+
+        Assertions.assertNotNull(metadata);
+        Assertions.assertEquals("Blue in Green", metadata.getTitle());
+        Assertions.assertEquals("Miles Davis", metadata.getArtist());
+        Assertions.assertEquals("Kind of Blue", metadata.getAlbum());
+        Assertions.assertEquals("Miles Davis", metadata.getAlbumArtist());
+        Assertions.assertEquals(Integer.valueOf(3), metadata.getTrackNo());
+        Assertions.assertEquals(Integer.valueOf(1), metadata.getDiscNo());
+        Assertions.assertEquals(Integer.valueOf(1959), metadata.getYear());
+        Assertions.assertEquals("Jazz", metadata.getGenre());
+        Assertions.assertTrue(metadata.getHasCover());
+        Assertions.assertEquals(Integer.valueOf(12), metadata.getDurationSec());
+        Assertions.assertEquals(Integer.valueOf(256), metadata.getBitrate());
+        Assertions.assertEquals(Integer.valueOf(44100), metadata.getSampleRate());
+        Assertions.assertEquals(Integer.valueOf(2), metadata.getChannels());
+    }
+
+    @Test
+    void shouldReturnNullForUnsupportedContainer() throws Exception {
+        Assertions.assertNull(ChannelAudioMetadataReader.read(new ByteBufferSeekableChannel(AudioFixtures.ogg())));
+    }
+}
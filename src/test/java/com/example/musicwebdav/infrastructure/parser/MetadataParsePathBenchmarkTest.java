@@ -0,0 +1,132 @@
+package com.example.musicwebdav.infrastructure.parser;
+
+import com.example.musicwebdav.common.util.ByteBufferPool;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Compares the sparse temp-file path (head + tail written into a file of the full size, then Jaudiotagger)
+ * with the in-memory channel path on pooled buffers. Run with
+ * {@code mvn test -Dtest=MetadataParsePathBenchmarkTest -Dbenchmark=true [-Dbenchmark.audio.dir=/music/sample]}.
+ * Without an audio dir, synthetic MP3/FLAC/M4A fixtures are used.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MetadataParsePathBenchmarkTest {
+
+    private static final int HEAD_BYTES = 131072;
+    private static final int TAIL_BYTES = 128;
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURE_ROUNDS = 1000;
+
+    private final JaudiotaggerAudioMetadataParser parser = new JaudiotaggerAudioMetadataParser();
+    private final ByteBufferPool pool = new ByteBufferPool(32 * 1024, 256);
+
+    @Test
+    void compareSparseFileAndInMemoryPaths() throws Exception {
+        Map<String, byte[]> samples = loadSamples();
+        Assertions.assertFalse(samples.isEmpty(), "no benchmark samples");
+        System.out.println(String.format(Locale.ROOT, "%-24s %14s %14s %8s",
+                "sample", "sparse us/op", "memory us/op", "speedup"));
+        for (Map.Entry<String, byte[]> sample : samples.entrySet()) {
+            String suffix = sample.getKey().substring(sample.getKey().lastIndexOf('.'));
+            byte[] bytes = sample.getValue();
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                sparseFileParse(bytes, suffix);
+                inMemoryParse(bytes);
+            }
+            long sparseNanos = 0;
+            long memoryNanos = 0;
+            for (int i = 0; i < MEASURE_ROUNDS; i++) {
+                long start = System.nanoTime();
+                sparseFileParse(bytes, suffix);
+                sparseNanos += System.nanoTime() - start;
+                start = System.nanoTime();
+                inMemoryParse(bytes);
+                memoryNanos += System.nanoTime() - start;
+            }
+            double sparseUs = sparseNanos / 1000D / MEASURE_ROUNDS;
+            double memoryUs = memoryNanos / 1000D / MEASURE_ROUNDS;
+            System.out.println(String.format(Locale.ROOT, "%-24s %14.1f %14.1f %7.1fx",
+                    sample.getKey(), sparseUs, memoryUs, sparseUs / memoryUs));
+        }
+    }
+
+    /**
+     * Mirrors {@code SardineWebDavClient.downloadPartialToTempFile}: head, zero gap, tail, full logical length.
+     */
+    private void sparseFileParse(byte[] bytes, String suffix) throws Exception {
+        File tempFile = File.createTempFile("bench-partial-", suffix);
+        try {
+            try (RandomAccessFile raf = new RandomAccessFile(tempFile, "rw")) {
+                int head = Math.min(HEAD_BYTES, bytes.length);
+                raf.write(bytes, 0, head);
+                int tail = Math.min(TAIL_BYTES, bytes.length - head);
+                if (tail > 0) {
+                    raf.seek(bytes.length - tail);
+                    raf.write(bytes, bytes.length - tail, tail);
+                }
+                raf.setLength(bytes.length);
+            }
+            parser.parse(tempFile);
+        } finally {
+            if (!tempFile.delete()) {
+                tempFile.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Copies the sample into pooled blocks the way {@code RangedByteChannel} holds fetched ranges, then parses.
+     */
+    private void inMemoryParse(byte[] bytes) throws IOException {
+        List<ByteBuffer> blocks = new ArrayList<>();
+        try {
+            ByteBuffer view = ByteBuffer.allocate(bytes.length);
+            for (int offset = 0; offset < bytes.length; offset += pool.getBufferSize()) {
+                ByteBuffer block = pool.acquire();
+                block.put(bytes, offset, Math.min(pool.getBufferSize(), bytes.length - offset));
+                block.flip();
+                blocks.add(block);
+                view.put(block.duplicate());
+            }
+            view.flip();
+            parser.parse(new ByteBufferSeekableChannel(view));
+        } finally {
+            for (ByteBuffer block : blocks) {
+                pool.release(block);
+            }
+        }
+    }
+
+    private Map<String, byte[]> loadSamples() throws IOException {
+        Map<String, byte[]> samples = new LinkedHashMap<>();
+        String dir = System.getProperty("benchmark.audio.dir");
+        if (dir != null && !dir.trim().isEmpty()) {
+            File[] files = new File(dir.trim()).listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    String name = file.getName().toLowerCase(Locale.ROOT);
+                    if (file.isFile() && (name.endsWith(".mp3") || name.endsWith(".flac") || name.endsWith(".m4a"))) {
+                        samples.put(file.getName(), Files.readAllBytes(file.toPath()));
+                    }
+                }
+            }
+            return samples;
+        }
+        samples.put("synthetic.mp3", AudioFixtures.mp3());
+        samples.put("synthetic.flac", AudioFixtures.flac());
+        samples.put("synthetic.m4a", AudioFixtures.m4a());
+        return samples;
+    }
+}
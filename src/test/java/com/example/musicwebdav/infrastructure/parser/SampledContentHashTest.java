@@ -0,0 +1,72 @@
+package com.example.musicwebdav.infrastructure.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SampledContentHashTest {
+
+    @Test
+    void shouldReadOnlyThreeSamplesOfLargeFile() throws Exception {
+        byte[] content = randomBytes(1024 * 1024);
+        CountingChannel channel = new CountingChannel(content);
+
+        String hash = SampledContentHash.of(channel, 4096);
+
+        Assertions.assertEquals(64, hash.length());
+        Assertions.assertEquals(3 * 4096L, channel.bytesRead);
+        Assertions.assertEquals(hash, SampledContentHash.of(new CountingChannel(content.clone()), 4096));
+    }
+
+    @Test
+    void shouldTellApartFilesDifferingInSampledRangesOrSize() throws Exception {
+        byte[] content = randomBytes(64 * 1024);
+        String hash = SampledContentHash.of(new CountingChannel(content), 1024);
+
+        byte[] middleChanged = content.clone();
+        middleChanged[(content.length - 1024) / 2 + 10] ^= 1;
+        byte[] truncated = Arrays.copyOf(content, content.length - 1);
+        byte[] outsideSamples = content.clone();
+        outsideSamples[8192] ^= 1;
+
+        Assertions.assertNotEquals(hash, SampledContentHash.of(new CountingChannel(middleChanged), 1024));
+        Assertions.assertNotEquals(hash, SampledContentHash.of(new CountingChannel(truncated), 1024));
+        // Bytes between the samples are not read; the size still has to match.
+        Assertions.assertEquals(hash, SampledContentHash.of(new CountingChannel(outsideSamples), 1024));
+    }
+
+    @Test
+    void shouldDigestSmallFileWhole() throws Exception {
+        CountingChannel channel = new CountingChannel(randomBytes(5000));
+
+        SampledContentHash.of(channel, 4096);
+
+        Assertions.assertEquals(5000L, channel.bytesRead);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42L).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static final class CountingChannel extends ByteBufferSeekableChannel {
+        private long bytesRead;
+
+        private CountingChannel(byte[] source) {
+            super(source);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws ClosedChannelException {
+            int read = super.read(dst);
+            if (read > 0) {
+                bytesRead += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.musicwebdav.infrastructure.persistence;
+
+import com.example.musicwebdav.infrastructure.persistence.entity.TrackEntity;
+import com.example.musicwebdav.infrastructure.persistence.mapper.TrackMapper;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Compares the two write-behind track paths on the real TrackMapper statements: multi-row
+ * {@code batchUpsert} (MULTI_ROW) against single-row {@code upsert} on the BATCH executor (JDBC_BATCH), for a
+ * first scan (inserts) and a rescan of the same rows (duplicate-key updates). Run with
+ * {@code mvn test -Dtest=TrackWritePathBenchmarkTest -Dbenchmark=true}; by default it uses in-memory H2 in
+ * MySQL mode. For MySQL pass {@code -Dbenchmark.jdbc.url=jdbc:mysql://host/scratch?rewriteBatchedStatements=true
+ * -Dbenchmark.jdbc.user=... -Dbenchmark.jdbc.password=...} pointing at a scratch schema: the benchmark drops
+ * and recreates its own {@code track} table there.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TrackWritePathBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 20000);
+    private static final int MULTI_ROW_STATEMENT_ROWS = 200;
+    private static final int COMMIT_ROWS = 5000;
+    private static final int[] JDBC_BATCH_SIZES = {100, 500, 2000};
+
+    private PooledDataSource dataSource;
+    private SqlSessionFactory sqlSessionFactory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String url = System.getProperty("benchmark.jdbc.url",
+                "jdbc:h2:mem:track_bench;MODE=MySQL;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE");
+        String driver = url.startsWith("jdbc:mysql:") ? "com.mysql.cj.jdbc.Driver" : "org.h2.Driver";
+        dataSource = new PooledDataSource(driver, url,
+                System.getProperty("benchmark.jdbc.user", "sa"), System.getProperty("benchmark.jdbc.password", ""));
+        Configuration configuration = new Configuration(
+                new Environment("benchmark", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.getTypeAliasRegistry().registerAliases(TrackEntity.class.getPackage().getName());
+        String resource = "mapper/TrackMapper.xml";
+        try (InputStream in = Resources.getResourceAsStream(resource)) {
+            new XMLMapperBuilder(in, configuration, resource, configuration.getSqlFragments()).parse();
+        }
+        sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (dataSource != null) {
+            dataSource.forceCloseAll();
+        }
+    }
+
+    @Test
+    void compareMultiRowAndJdbcBatchPaths() throws Exception {
+        System.out.println(String.format(Locale.ROOT, "%-18s %14s %14s", "path", "insert rows/s", "update rows/s"));
+        report("MULTI_ROW/" + MULTI_ROW_STATEMENT_ROWS, runMultiRow(1L), runMultiRow(2L));
+        for (int batchSize : JDBC_BATCH_SIZES) {
+            report("JDBC_BATCH/" + batchSize, runJdbcBatch(1L, batchSize), runJdbcBatch(2L, batchSize));
+        }
+    }
+
+    /** Returns the nanos of one pass; the table is reset when the pass is a first scan. */
+    private long runMultiRow(long taskId) throws Exception {
+        List<TrackEntity> tracks = prepare(taskId);
+        long start = System.nanoTime();
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.SIMPLE, false)) {
+            TrackMapper mapper = session.getMapper(TrackMapper.class);
+            for (int i = 0; i < tracks.size(); i += MULTI_ROW_STATEMENT_ROWS) {
+                mapper.batchUpsert(tracks.subList(i, Math.min(i + MULTI_ROW_STATEMENT_ROWS, tracks.size())));
+                if ((i + MULTI_ROW_STATEMENT_ROWS) % COMMIT_ROWS == 0) {
+                    session.commit();
+                }
+            }
+            session.commit();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long runJdbcBatch(long taskId, int batchSize) throws Exception {
+        List<TrackEntity> tracks = prepare(taskId);
+        long start = System.nanoTime();
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+            TrackMapper mapper = session.getMapper(TrackMapper.class);
+            for (int i = 0; i < tracks.size(); i++) {
+                mapper.upsert(tracks.get(i));
+                if ((i + 1) % batchSize == 0) {
+                    session.flushStatements();
+                }
+                if ((i + 1) % COMMIT_ROWS == 0) {
+                    session.commit();
+                }
+            }
+            session.commit();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private List<TrackEntity> prepare(long taskId) throws Exception {
+        if (taskId == 1L) {
+            resetTable();
+        }
+        List<TrackEntity> tracks = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            tracks.add(track(i, taskId));
+        }
+        return tracks;
+    }
+
+    /** Mirrors the rows a scan produces: deep CJK paths, path-inferred tags, no content hash. */
+    private static TrackEntity track(int i, long taskId) {
+        int album = i / 12;
+        TrackEntity entity = new TrackEntity();
+        entity.setSourceConfigId(1L);
+        entity.setSourcePath(String.format(Locale.ROOT, "/音乐/华语/歌手%03d/专辑%04d - 精选集/%02d. 歌曲标题 %d.flac",
+                album / 10, album, i % 12 + 1, i));
+        entity.setSourcePathMd5(String.format(Locale.ROOT, "%032x", i));
+        entity.setSourceEtag("\"" + Long.toHexString(i * 31L + taskId) + "\"");
+        entity.setSourceLastModified(LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(i));
+        entity.setSourceSize(30_000_000L + i);
+        entity.setMimeType("audio/flac");
+        entity.setTitle("歌曲标题 " + i);
+        entity.setArtist("歌手" + album / 10);
+        entity.setAlbum("专辑" + album + " - 精选集");
+        entity.setAlbumArtist("歌手" + album / 10);
+        entity.setTrackNo(i % 12 + 1);
+        entity.setDiscNo(1);
+        entity.setYear(2000 + album % 24);
+        entity.setGenre("Pop");
+        entity.setDurationSec(180 + i % 120);
+        entity.setBitrate(900);
+        entity.setSampleRate(44100);
+        entity.setChannels(2);
+        entity.setHasCover(1);
+        entity.setHasLyric(0);
+        entity.setLastScanTaskId(taskId);
+        return entity;
+    }
+
+    /** Just the columns the upserts touch plus the unique key they resolve duplicates on. */
+    private void resetTable() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS track");
+            statement.execute("CREATE TABLE track ("
+                    + "id BIGINT PRIMARY KEY AUTO_INCREMENT, source_config_id BIGINT NOT NULL, "
+                    + "source_path VARCHAR(2048) NOT NULL, source_path_md5 CHAR(32) NOT NULL, dir_id BIGINT, "
+                    + "source_etag VARCHAR(255), source_last_modified DATETIME, source_size BIGINT, "
+                    + "mime_type VARCHAR(128), content_hash CHAR(64), title VARCHAR(512) NOT NULL, "
+                    + "artist VARCHAR(512) NOT NULL, norm_title VARCHAR(255), norm_artist VARCHAR(255), "
+                    + "album VARCHAR(512) NOT NULL, album_artist VARCHAR(512), "
+                    + "track_no INT, disc_no INT, `year` INT, genre VARCHAR(255), duration_sec INT, bitrate INT, "
+                    + "sample_rate INT, channels INT, audio_probed_at DATETIME, has_cover TINYINT NOT NULL DEFAULT 0, "
+                    + "cover_art_url VARCHAR(1024), has_lyric TINYINT NOT NULL DEFAULT 0, lyric_path VARCHAR(2048), "
+                    + "metadata_hash CHAR(32), "
+                    + "is_deleted TINYINT NOT NULL DEFAULT 0, last_scan_task_id BIGINT, "
+                    + "UNIQUE KEY uk_track_config_path_md5 (source_config_id, source_path_md5))");
+        }
+    }
+
+    private static void report(String path, long insertNanos, long updateNanos) {
+        System.out.println(String.format(Locale.ROOT, "%-18s %14.0f %14.0f",
+                path, ROWS * 1e9 / insertNanos, ROWS * 1e9 / updateNanos));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.musicwebdav.infrastructure.webdav;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Depth:1 allprop multistatus bodies in the shape Apache httpd mod_dav returns them (live properties in the
+ * lp1/lp2 namespaces, supportedlock and lockdiscovery on every entry). This is what Sardine's
+ * {@code list(url, 1)} gets back from most NAS servers.
+ */
+final class MultistatusFixtures {
+
+    private MultistatusFixtures() {
+    }
+
+    /**
+     * The directory entry first, then {@code subdirCount} subdirectories and {@code fileCount} FLAC files with
+     * percent-encoded CJK names.
+     */
+    static byte[] apacheListing(String dirPath, int subdirCount, int fileCount) {
+        StringBuilder sb = new StringBuilder(256 + (subdirCount + fileCount) * 1100);
+        sb.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n")
+                .append("<D:multistatus xmlns:D=\"DAV:\" xmlns:ns0=\"DAV:\">\n");
+        appendCollection(sb, dirPath, 0);
+        for (int i = 0; i < subdirCount; i++) {
+            appendCollection(sb, dirPath + "%E4%B8%93%E8%BE%91" + i + "/", i + 1);
+        }
+        for (int i = 0; i < fileCount; i++) {
+            appendFile(sb, dirPath + String.format(Locale.ROOT, "%05d.%%E6%%AD%%8C%%E6%%9B%%B2.flac", i), i);
+        }
+        sb.append("</D:multistatus>\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendCollection(StringBuilder sb, String href, int seed) {
+        sb.append("<D:response xmlns:lp1=\"DAV:\" xmlns:lp2=\"http://apache.org/dav/props/\">\n")
+                .append("<D:href>").append(href).append("</D:href>\n")
+                .append("<D:propstat>\n<D:prop>\n")
+                .append("<lp1:resourcetype><D:collection/></lp1:resourcetype>\n")
+                .append("<lp1:creationdate>2024-03-02T10:15:3").append(seed % 10).append("Z</lp1:creationdate>\n")
+                .append("<lp1:getlastmodified>Sat, 02 Mar 2024 10:15:3").append(seed % 10)
+                .append(" GMT</lp1:getlastmodified>\n")
+                .append("<lp1:getetag>\"1000-").append(Integer.toHexString(0x612a0000 + seed))
+                .append("\"</lp1:getetag>\n");
+        appendLocks(sb);
+        sb.append("<D:getcontenttype>httpd/unix-directory</D:getcontenttype>\n")
+                .append("</D:prop>\n<D:status>HTTP/1.1 200 OK</D:status>\n</D:propstat>\n</D:response>\n");
+    }
+
+    private static void appendFile(StringBuilder sb, String href, int seed) {
+        sb.append("<D:response xmlns:lp1=\"DAV:\" xmlns:lp2=\"http://apache.org/dav/props/\">\n")
+                .append("<D:href>").append(href).append("</D:href>\n")
+                .append("<D:propstat>\n<D:prop>\n")
+                .append("<lp1:resourcetype/>\n")
+                .append("<lp1:creationdate>2024-03-02T10:15:3").append(seed % 10).append("Z</lp1:creationdate>\n")
+                .append("<lp1:getcontentlength>").append(30_000_000L + seed * 7919L).append("</lp1:getcontentlength>\n")
+                .append("<lp1:getlastmodified>Sat, 02 Mar 2024 10:15:3").append(seed % 10)
+                .append(" GMT</lp1:getlastmodified>\n")
+                .append("<lp1:getetag>\"1c9c380-").append(Integer.toHexString(0x612a0000 + seed))
+                .append("\"</lp1:getetag>\n")
+                .append("<lp2:executable>F</lp2:executable>\n");
+        appendLocks(sb);
+        sb.append("<D:getcontenttype>audio/flac</D:getcontenttype>\n")
+                .append("</D:prop>\n<D:status>HTTP/1.1 200 OK</D:status>\n</D:propstat>\n</D:response>\n");
+    }
+
+    private static void appendLocks(StringBuilder sb) {
+        sb.append("<D:supportedlock>\n")
+                .append("<D:lockentry>\n<D:lockscope><D:exclusive/></D:lockscope>\n")
+                .append("<D:locktype><D:write/></D:locktype>\n</D:lockentry>\n")
+                .append("<D:lockentry>\n<D:lockscope><D:shared/></D:lockscope>\n")
+                .append("<D:locktype><D:write/></D:locktype>\n</D:lockentry>\n")
+                .append("</D:supportedlock>\n")
+                .append("<D:lockdiscovery/>\n");
+    }
+}
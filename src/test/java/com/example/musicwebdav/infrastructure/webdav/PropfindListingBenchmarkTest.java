@@ -0,0 +1,102 @@
+package com.example.musicwebdav.infrastructure.webdav;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.model.Multistatus;
+import com.github.sardine.model.Response;
+import com.github.sardine.util.SardineUtil;
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Compares listing a directory through Sardine (JAXB unmarshal of the multistatus, then one DavResource per
+ * entry) with the StAX parser, on the same bytes: time per listing and bytes allocated per listing. Run with
+ * {@code mvn test -Dtest=PropfindListingBenchmarkTest -Dbenchmark=true
+ * [-Dbenchmark.multistatus.file=recorded.xml]}. Without a recorded response, mod_dav-shaped fixtures of 1k and
+ * 10k files are used.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PropfindListingBenchmarkTest {
+
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURE_ROUNDS = 50;
+
+    private final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void compareSardineAndStreamingListing() throws Exception {
+        Map<String, byte[]> samples = loadSamples();
+        System.out.println(String.format(Locale.ROOT, "%-16s %8s %12s %12s %12s %12s",
+                "sample", "entries", "sardine ms", "stax ms", "sardine MB", "stax MB"));
+        for (Map.Entry<String, byte[]> sample : samples.entrySet()) {
+            byte[] body = sample.getValue();
+            int sardineEntries = sardineListing(body);
+            int staxEntries = streamingListing(body);
+            Assertions.assertEquals(sardineEntries, staxEntries, "entry count differs for " + sample.getKey());
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                sardineListing(body);
+                streamingListing(body);
+            }
+            long[] sardine = measure(() -> sardineListing(body));
+            long[] stax = measure(() -> streamingListing(body));
+            System.out.println(String.format(Locale.ROOT, "%-16s %8d %12.2f %12.2f %12.2f %12.2f",
+                    sample.getKey(), staxEntries,
+                    sardine[0] / 1e6 / MEASURE_ROUNDS, stax[0] / 1e6 / MEASURE_ROUNDS,
+                    sardine[1] / 1048576.0 / MEASURE_ROUNDS, stax[1] / 1048576.0 / MEASURE_ROUNDS));
+        }
+    }
+
+    /** Returns {nanos, allocated bytes} over all measured rounds. */
+    private long[] measure(Listing listing) throws Exception {
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            listing.run();
+        }
+        long nanos = System.nanoTime() - start;
+        return new long[]{nanos, threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore};
+    }
+
+    /** Mirrors the Sardine path of {@code SardineWebDavClient.listDirectory}; DavResource parses all fields. */
+    private static int sardineListing(byte[] body) throws Exception {
+        Multistatus multistatus = SardineUtil.unmarshal(new ByteArrayInputStream(body));
+        int count = 0;
+        for (Response response : multistatus.getResponse()) {
+            DavResource resource = new DavResource(response);
+            if (resource.getHref() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int streamingListing(byte[] body) throws Exception {
+        return PropfindListingParser.parse(new ByteArrayInputStream(body),
+                (href, collection, etag, lastModified, contentLength, contentType) -> { });
+    }
+
+    private static Map<String, byte[]> loadSamples() throws Exception {
+        Map<String, byte[]> samples = new LinkedHashMap<>();
+        String recorded = System.getProperty("benchmark.multistatus.file");
+        if (recorded != null && !recorded.trim().isEmpty()) {
+            samples.put("recorded", Files.readAllBytes(Paths.get(recorded.trim())));
+            return samples;
+        }
+        samples.put("1k files", MultistatusFixtures.apacheListing("/dav/music/", 20, 1000));
+        samples.put("10k singles", MultistatusFixtures.apacheListing("/dav/music/singles/", 0, 10000));
+        return samples;
+    }
+
+    private interface Listing {
+        void run() throws Exception;
+    }
+}
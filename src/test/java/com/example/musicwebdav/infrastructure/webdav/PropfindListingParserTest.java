@@ -0,0 +1,122 @@
+package com.example.musicwebdav.infrastructure.webdav;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PropfindListingParserTest {
+
+    @Test
+    void shouldReportEveryResponseOfApacheListing() throws Exception {
+        List<Entry> entries = parse(MultistatusFixtures.apacheListing("/dav/music/", 2, 3));
+
+        assertEquals(6, entries.size());
+        Entry dir = entries.get(0);
+        assertEquals("/dav/music/", dir.href);
+        assertTrue(dir.collection);
+        assertEquals("\"1000-612a0000\"", dir.etag);
+        assertTrue(entries.get(1).collection);
+        Entry file = entries.get(3);
+        assertFalse(file.collection);
+        assertEquals("/dav/music/00000.%E6%AD%8C%E6%9B%B2.flac", file.href);
+        assertEquals(30_000_000L, file.contentLength);
+        assertEquals("audio/flac", file.contentType);
+        assertEquals(Date.from(Instant.parse("2024-03-02T10:15:30Z")), file.lastModified);
+    }
+
+    @Test
+    void shouldApplySardineDefaultsAndIgnoreNestedHrefs() throws Exception {
+        String xml = "<?xml version=\"1.0\"?>"
+                + "<d:multistatus xmlns:d=\"DAV:\" xmlns:oc=\"http://owncloud.org/ns\">"
+                + "<d:response><d:href>/remote.php/dav/files/u/a.mp3</d:href>"
+                + "<d:propstat><d:prop><d:resourcetype/><d:getetag>\"e1\"</d:getetag>"
+                + "<d:getlastmodified>2024-03-02T10:15:30+08:00</d:getlastmodified>"
+                + "<d:lockdiscovery><d:activelock><d:lockroot><d:href>/other</d:href></d:lockroot>"
+                + "</d:activelock></d:lockdiscovery><oc:getetag>ignored</oc:getetag></d:prop>"
+                + "<d:status>HTTP/1.1 200 OK</d:status></d:propstat>"
+                + "<d:propstat><d:prop><d:getcontentlength/><d:getcontenttype/></d:prop>"
+                + "<d:status>HTTP/1.1 404 Not Found</d:status></d:propstat></d:response>"
+                + "<d:response><d:href>/remote.php/dav/files/u/b.mp3</d:href>"
+                + "<d:propstat><d:prop><d:getlastmodified>not a date</d:getlastmodified>"
+                + "<d:getcontentlength>12x</d:getcontentlength></d:prop>"
+                + "<d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>"
+                + "</d:multistatus>";
+
+        List<Entry> entries = parse(xml.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(2, entries.size());
+        Entry first = entries.get(0);
+        assertEquals("/remote.php/dav/files/u/a.mp3", first.href);
+        assertEquals("\"e1\"", first.etag);
+        assertEquals(Date.from(Instant.parse("2024-03-02T02:15:30Z")), first.lastModified);
+        assertEquals(PropfindListingParser.UNKNOWN_CONTENT_LENGTH, first.contentLength);
+        assertEquals(PropfindListingParser.DEFAULT_CONTENT_TYPE, first.contentType);
+        Entry second = entries.get(1);
+        assertNull(second.etag);
+        assertNull(second.lastModified);
+        assertEquals(PropfindListingParser.UNKNOWN_CONTENT_LENGTH, second.contentLength);
+    }
+
+    @Test
+    void shouldSeparateRemovedMembersAndReadSyncToken() throws Exception {
+        String xml = "<?xml version=\"1.0\"?>"
+                + "<d:multistatus xmlns:d=\"DAV:\">"
+                + "<d:response><d:href>/dav/music/new.flac</d:href>"
+                + "<d:propstat><d:prop><d:resourcetype/><d:getetag>\"e2\"</d:getetag></d:prop>"
+                + "<d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>"
+                + "<d:response><d:href>/dav/music/old.flac</d:href>"
+                + "<d:status>HTTP/1.1 404 Not Found</d:status></d:response>"
+                + "<d:sync-token>http://example.com/sync/42</d:sync-token>"
+                + "</d:multistatus>";
+        List<Entry> entries = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+
+        String token = PropfindListingParser.parseSyncResponse(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)),
+                (href, collection, etag, lastModified, contentLength, contentType) ->
+                        entries.add(new Entry(href, collection, etag, lastModified, contentLength, contentType)),
+                (href, statusCode) -> removed.add(statusCode + " " + href));
+
+        assertEquals("http://example.com/sync/42", token);
+        assertEquals(1, entries.size());
+        assertEquals("/dav/music/new.flac", entries.get(0).href);
+        assertEquals(1, removed.size());
+        assertEquals("404 /dav/music/old.flac", removed.get(0));
+    }
+
+    private static List<Entry> parse(byte[] body) throws Exception {
+        List<Entry> entries = new ArrayList<>();
+        PropfindListingParser.parse(new ByteArrayInputStream(body),
+                (href, collection, etag, lastModified, contentLength, contentType) ->
+                        entries.add(new Entry(href, collection, etag, lastModified, contentLength, contentType)));
+        return entries;
+    }
+
+    private static final class Entry {
+        final String href;
+        final boolean collection;
+        final String etag;
+        final Date lastModified;
+        final long contentLength;
+        final String contentType;
+
+        Entry(String href, boolean collection, String etag, Date lastModified, long contentLength,
+              String contentType) {
+            this.href = href;
+            this.collection = collection;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentLength = contentLength;
+            this.contentType = contentType;
+        }
+    }
+}
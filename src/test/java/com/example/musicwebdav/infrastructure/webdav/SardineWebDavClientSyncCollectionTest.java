@@ -0,0 +1,175 @@
+package com.example.musicwebdav.infrastructure.webdav;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.musicwebdav.domain.model.WebDavSyncChanges;
+import com.github.sardine.Sardine;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the client against a stand-in server that keeps a change log and answers sync-collection REPORTs from it,
+ * a page at a time.
+ */
+class SardineWebDavClientSyncCollectionTest {
+
+    private static final String ROOT_PATH = "/dav/music/";
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("<D:sync-token>urn:sync:(\\d+)</D:sync-token>");
+
+    private final SardineWebDavClient client = new SardineWebDavClient();
+    private final List<Change> changeLog = new ArrayList<>();
+    private final List<Integer> requestedVersions = new ArrayList<>();
+    private HttpServer server;
+    private Sardine session;
+    private String rootUrl;
+    private int pageSize = 100;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/dav/", this::handle);
+        server.start();
+        rootUrl = "http://127.0.0.1:" + server.getAddress().getPort() + ROOT_PATH;
+        session = client.createSession("alice", "secret");
+        changeLog.add(Change.changed("a/1.flac"));
+        changeLog.add(Change.changed("b/"));
+        changeLog.add(Change.changed("b/2.flac"));
+        changeLog.add(Change.removed("c/3.flac"));
+        changeLog.add(Change.removed("d/x.flac"));
+        changeLog.add(Change.removed("d/"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.closeSession(session);
+        server.stop(0);
+    }
+
+    @Test
+    void shouldCollectChangesAcrossTruncatedReports() {
+        pageSize = 2;
+
+        WebDavSyncChanges changes = client.syncCollection(session, rootUrl, rootUrl, "urn:sync:0");
+
+        assertEquals(Arrays.asList(0, 2, 4), requestedVersions);
+        assertEquals("urn:sync:6", changes.getSyncToken());
+        assertEquals(3, changes.getChangedCount());
+        assertEquals(Arrays.asList("c/3.flac", "d/x.flac", "d"), changes.getRemovedPaths());
+        // d/ is gone, so it is not listed again even though d/x.flac was reported inside it.
+        assertEquals(Arrays.asList(rootUrl + "a/", rootUrl + "b/", rootUrl + "c/", rootUrl),
+                new ArrayList<>(changes.getChangedDirectoryUrls()));
+    }
+
+    @Test
+    void shouldReportOnlyChangesAfterToken() {
+        WebDavSyncChanges changes = client.syncCollection(session, rootUrl, rootUrl, "urn:sync:5");
+
+        assertEquals("urn:sync:6", changes.getSyncToken());
+        assertEquals(0, changes.getChangedCount());
+        assertEquals(Arrays.asList("d"), changes.getRemovedPaths());
+        assertEquals(Arrays.asList(rootUrl), new ArrayList<>(changes.getChangedDirectoryUrls()));
+    }
+
+    @Test
+    void shouldRejectTokenOutsideChangeLog() {
+        assertThrows(SyncTokenInvalidException.class,
+                () -> client.syncCollection(session, rootUrl, rootUrl, "urn:sync:99"));
+    }
+
+    @Test
+    void shouldFetchCurrentToken() {
+        assertEquals("urn:sync:6", client.fetchSyncToken(session, rootUrl));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String body = readBody(exchange.getRequestBody());
+        if ("PROPFIND".equals(exchange.getRequestMethod())) {
+            respond(exchange, 207, "<?xml version=\"1.0\" encoding=\"utf-8\"?><D:multistatus xmlns:D=\"DAV:\">"
+                    + "<D:response><D:href>" + ROOT_PATH + "</D:href><D:propstat><D:prop>"
+                    + "<D:sync-token>urn:sync:" + changeLog.size() + "</D:sync-token>"
+                    + "</D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response></D:multistatus>");
+            return;
+        }
+        Matcher matcher = TOKEN_PATTERN.matcher(body);
+        int from = matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+        if (!"REPORT".equals(exchange.getRequestMethod()) || from < 0 || from > changeLog.size()) {
+            respond(exchange, 403, "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+                    + "<D:error xmlns:D=\"DAV:\"><D:valid-sync-token/></D:error>");
+            return;
+        }
+        requestedVersions.add(from);
+        int to = Math.min(changeLog.size(), from + pageSize);
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?>")
+                .append("<D:multistatus xmlns:D=\"DAV:\">");
+        for (Change change : changeLog.subList(from, to)) {
+            sb.append("<D:response><D:href>").append(ROOT_PATH).append(change.path).append("</D:href>");
+            if (change.removed) {
+                sb.append("<D:status>HTTP/1.1 404 Not Found</D:status>");
+            } else {
+                sb.append("<D:propstat><D:prop><D:resourcetype>")
+                        .append(change.path.endsWith("/") ? "<D:collection/>" : "")
+                        .append("</D:resourcetype><D:getetag>\"v").append(changeLog.indexOf(change))
+                        .append("\"</D:getetag></D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat>");
+            }
+            sb.append("</D:response>");
+        }
+        if (to < changeLog.size()) {
+            sb.append("<D:response><D:href>").append(ROOT_PATH).append("</D:href>")
+                    .append("<D:status>HTTP/1.1 507 Insufficient Storage</D:status></D:response>");
+        }
+        sb.append("<D:sync-token>urn:sync:").append(to).append("</D:sync-token></D:multistatus>");
+        respond(exchange, 207, sb.toString());
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static final class Change {
+        final String path;
+        final boolean removed;
+
+        private Change(String path, boolean removed) {
+            this.path = path;
+            this.removed = removed;
+        }
+
+        static Change changed(String path) {
+            return new Change(path, false);
+        }
+
+        static Change removed(String path) {
+            return new Change(path, true);
+        }
+    }
+}
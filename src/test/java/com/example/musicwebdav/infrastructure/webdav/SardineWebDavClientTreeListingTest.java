@@ -0,0 +1,138 @@
+package com.example.musicwebdav.infrastructure.webdav;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.musicwebdav.domain.model.WebDavDirectoryInfo;
+import com.example.musicwebdav.domain.model.WebDavFileObject;
+import com.github.sardine.Sardine;
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SardineWebDavClientTreeListingTest {
+
+    private final SardineWebDavClient client = new SardineWebDavClient();
+    private final AtomicReference<String> depthHeader = new AtomicReference<>();
+    private HttpServer server;
+    private Sardine session;
+    private int status;
+    private String body;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/dav/", exchange -> {
+            depthHeader.set(exchange.getRequestHeaders().getFirst("Depth"));
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/xml; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        session = client.createSession("alice", "secret");
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.closeSession(session);
+        server.stop(0);
+    }
+
+    @Test
+    void shouldGroupDepthFirstTreeIntoDirectories() {
+        status = 207;
+        body = multistatus(
+                collection("/dav/music/"),
+                collection("/dav/music/a/"),
+                file("/dav/music/a/1.flac"),
+                collection("/dav/music/a/b/"),
+                file("/dav/music/a/b/2.flac"),
+                file("/dav/music/a/3.flac"),
+                file("/dav/music/4.flac"));
+
+        List<WebDavDirectoryInfo> listed = listTree();
+
+        assertEquals("infinity", depthHeader.get());
+        assertEquals(3, listed.size());
+        assertEquals("a/b/", listed.get(0).getRelativePath());
+        assertEquals("a/", listed.get(1).getRelativePath());
+        assertEquals("", listed.get(2).getRelativePath());
+        assertEquals(listOf("a/1.flac", "a/3.flac"), relativePaths(listed.get(1).getFiles()));
+        assertEquals(1, listed.get(1).getSubdirectoryUrls().size());
+        assertEquals(3, listed.get(1).getChildCount());
+        assertEquals("\"etag-/dav/music/a/\"", listed.get(1).getEtag());
+        assertEquals(listOf("4.flac"), relativePaths(listed.get(2).getFiles()));
+    }
+
+    @Test
+    void shouldReportUnsupportedWhenServerRefusesInfiniteDepth() {
+        status = 403;
+        body = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+                + "<D:error xmlns:D=\"DAV:\"><D:propfind-finite-depth/></D:error>";
+
+        assertThrows(DepthInfinityUnsupportedException.class, this::listTree);
+    }
+
+    @Test
+    void shouldReportUnsupportedWhenMembersArriveBeforeTheirCollection() {
+        status = 207;
+        body = multistatus(
+                collection("/dav/music/"),
+                file("/dav/music/a/1.flac"),
+                collection("/dav/music/a/"));
+
+        assertThrows(DepthInfinityUnsupportedException.class, this::listTree);
+    }
+
+    private List<WebDavDirectoryInfo> listTree() {
+        String rootUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/dav/music/";
+        List<WebDavDirectoryInfo> listed = new ArrayList<>();
+        client.listTree(session, rootUrl, rootUrl, listed::add);
+        return listed;
+    }
+
+    private static List<String> relativePaths(List<WebDavFileObject> files) {
+        return files.stream().map(WebDavFileObject::getRelativePath).collect(Collectors.toList());
+    }
+
+    private static List<String> listOf(String... values) {
+        List<String> list = new ArrayList<>();
+        for (String value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static String multistatus(String... responses) {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?>")
+                .append("<D:multistatus xmlns:D=\"DAV:\">");
+        for (String response : responses) {
+            sb.append(response);
+        }
+        return sb.append("</D:multistatus>").toString();
+    }
+
+    private static String collection(String href) {
+        return "<D:response><D:href>" + href + "</D:href><D:propstat><D:prop>"
+                + "<D:resourcetype><D:collection/></D:resourcetype><D:getetag>\"etag-" + href + "\"</D:getetag>"
+                + "</D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>";
+    }
+
+    private static String file(String href) {
+        return "<D:response><D:href>" + href + "</D:href><D:propstat><D:prop>"
+                + "<D:resourcetype/><D:getcontentlength>1024</D:getcontentlength>"
+                + "<D:getcontenttype>audio/flac</D:getcontenttype>"
+                + "</D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>";
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.musicwebdav.infrastructure.webdav;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.musicwebdav.common.config.AppWebDavProperties;
+import com.github.sardine.Sardine;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class WebDavHttpClientRegistryTest {
+
+    private static final byte[] BODY = "fLaC".getBytes(StandardCharsets.US_ASCII);
+
+    private final WebDavHttpClientRegistry registry = new WebDavHttpClientRegistry(new AppWebDavProperties());
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private HttpServer server;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/dav/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            exchange.sendResponseHeaders(200, BODY.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(BODY);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/dav/a.flac";
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    void shouldShareOnePoolPerCredentials() {
+        CloseableHttpClient alice = registry.httpClient("alice", "secret");
+
+        assertSame(alice, registry.httpClient("alice", "secret"));
+        assertNotSame(alice, registry.httpClient("alice", "other"));
+        assertEquals(2, registry.poolCount());
+    }
+
+    @Test
+    void shouldReuseKeepAliveConnectionAcrossSessions() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            Sardine session = registry.openSession("alice", "secret");
+            assertEquals(BODY.length, drain(session.get(url)));
+            session.shutdown();
+        }
+
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    void shouldCloseInvalidatedPoolOnlyAfterItsLastSession() throws Exception {
+        CloseableHttpClient retired = registry.httpClient("alice", "secret");
+        Sardine session = registry.openSession("alice", "secret");
+
+        registry.invalidate("alice", "secret");
+
+        assertEquals(BODY.length, drain(session.get(url)));
+        assertNotSame(retired, registry.httpClient("alice", "secret"));
+        session.shutdown();
+        registry.evictIdle();
+        assertThrows(IllegalStateException.class, () -> retired.execute(new HttpGet(url)));
+    }
+
+    private static int drain(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            int total = 0;
+            while (stream.read() != -1) {
+                total++;
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.musicwebdav.infrastructure.webdav;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.musicwebdav.common.config.AppWebDavProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpCoreContext;
+import org.junit.jupiter.api.Test;
+
+class WebDavTrafficGovernorTest {
+
+    private static final HttpHost NAS = new HttpHost("nas.local", 5005);
+    private static final HttpRoute ROUTE = new HttpRoute(NAS);
+
+    @Test
+    void shouldKeepReservedConnectionsForInteractiveTraffic() throws Exception {
+        WebDavTrafficGovernor governor = governor(2, 1, 0L);
+        HttpClientConnectionManager manager = governor.govern(new PoolingHttpClientConnectionManager());
+
+        HttpClientConnection scan = lease(manager, WebDavTrafficClass.SCAN, 1000L);
+        assertThrows(ConnectionPoolTimeoutException.class, () -> lease(manager, WebDavTrafficClass.SCAN, 50L));
+        HttpClientConnection stream = lease(manager, WebDavTrafficClass.STREAMING, 1000L);
+        assertEquals(2, governor.connectionsInUse("nas.local", 5005));
+
+        manager.releaseConnection(scan, null, 0L, TimeUnit.MILLISECONDS);
+        manager.releaseConnection(stream, null, 0L, TimeUnit.MILLISECONDS);
+        assertEquals(0, governor.connectionsInUse("NAS.local", 5005));
+    }
+
+    @Test
+    void shouldHandFreedConnectionToHigherClassFirst() throws Exception {
+        WebDavTrafficGovernor governor = governor(1, 0, 0L);
+        HttpClientConnectionManager manager = governor.govern(new PoolingHttpClientConnectionManager());
+        HttpClientConnection held = lease(manager, WebDavTrafficClass.ASSET, 1000L);
+        List<WebDavTrafficClass> order = new CopyOnWriteArrayList<>();
+
+        Thread scan = waiter(manager, WebDavTrafficClass.SCAN, order);
+        scan.start();
+        Thread.sleep(100L);
+        Thread stream = waiter(manager, WebDavTrafficClass.STREAMING, order);
+        stream.start();
+        Thread.sleep(100L);
+        manager.releaseConnection(held, null, 0L, TimeUnit.MILLISECONDS);
+        scan.join(5000L);
+        stream.join(5000L);
+
+        assertEquals(2, order.size());
+        assertEquals(WebDavTrafficClass.STREAMING, order.get(0));
+        assertEquals(WebDavTrafficClass.SCAN, order.get(1));
+    }
+
+    @Test
+    void shouldThrottleResponseBodiesToHostBandwidth() throws Exception {
+        WebDavTrafficGovernor governor = governor(4, 0, 50_000L);
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new ByteArrayEntity(new byte[100_000]));
+        HttpClientContext context = HttpClientContext.create();
+        context.setAttribute(HttpCoreContext.HTTP_TARGET_HOST, NAS);
+
+        governor.bandwidthInterceptor().process(response, context);
+        long start = System.nanoTime();
+        long total = 0L;
+        try (InputStream in = response.getEntity().getContent()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+            }
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(100_000L, total);
+        // The first second's budget is free; the rest arrives at 50 KB/s.
+        assertTrue(elapsedMs >= 700L, "elapsedMs=" + elapsedMs);
+    }
+
+    private static WebDavTrafficGovernor governor(int maxConnections, int reserved, long bytesPerSec) {
+        AppWebDavProperties properties = new AppWebDavProperties();
+        properties.setHostMaxConnections(maxConnections);
+        properties.setHostInteractiveReservedConnections(reserved);
+        properties.setHostBandwidthBytesPerSec(bytesPerSec);
+        return new WebDavTrafficGovernor(properties, (MeterRegistry) null);
+    }
+
+    private static HttpClientConnection lease(HttpClientConnectionManager manager, WebDavTrafficClass trafficClass,
+                                              long timeoutMs) throws Exception {
+        try (WebDavTrafficClass.Scope ignored = trafficClass.enter()) {
+            return manager.requestConnection(ROUTE, null).get(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static Thread waiter(HttpClientConnectionManager manager, WebDavTrafficClass trafficClass,
+                                 List<WebDavTrafficClass> order) {
+        return new Thread(() -> {
+            try {
+                HttpClientConnection connection = lease(manager, trafficClass, 5000L);
+                order.add(trafficClass);
+                Thread.sleep(50L);
+                manager.releaseConnection(connection, null, 0L, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+}